@@ -0,0 +1,64 @@
+package com.springtesting.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.springtesting.RepotestingApplication;
+import com.springtesting.entities.Employee;
+import com.springtesting.service.EmployeeService;
+import com.springtesting.service.impl.EmployeeServiceImpl;
+
+// Boots the application without a web server against its own in-memory H2 database
+final class BenchmarkApplication {
+
+   private BenchmarkApplication() {
+   }
+
+   // Passed as command line arguments so they win over application.properties
+   static ConfigurableApplicationContext start(String... properties) {
+      List<String> args = new ArrayList<>(List.of(
+            "--spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+            "--spring.jpa.show-sql=false",
+            "--spring.devtools.restart.enabled=false",
+            "--logging.level.root=WARN"));
+      for (String property : properties) {
+         args.add("--" + property);
+      }
+      return new SpringApplicationBuilder(RepotestingApplication.class)
+            .web(WebApplicationType.NONE)
+            .logStartupInfo(false)
+            .run(args.toArray(String[]::new));
+   }
+
+   // Row i gets employee<i>@example.com, first name First<i> and one of 1000 last names
+   static void seed(EmployeeService employeeService, int rows) {
+      for (int from = 0; from < rows; from += EmployeeServiceImpl.MAX_BATCH_SIZE) {
+         List<Employee> batch = new ArrayList<>();
+         for (int i = from; i < Math.min(rows, from + EmployeeServiceImpl.MAX_BATCH_SIZE); i++) {
+            batch.add(employee(i));
+         }
+         employeeService.saveEmployees(batch);
+      }
+   }
+
+   static Employee employee(long i) {
+      return Employee.builder()
+            .firstName("First" + i)
+            .lastName("Last" + (i % 1000))
+            .email("employee" + i + "@example.com")
+            .build();
+   }
+
+   static Employee employee(String key) {
+      return Employee.builder()
+            .firstName("First-" + key)
+            .lastName("Last-" + key)
+            .email(key + "@bench.example.com")
+            .build();
+   }
+}
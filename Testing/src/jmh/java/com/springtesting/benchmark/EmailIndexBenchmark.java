@@ -0,0 +1,45 @@
+package com.springtesting.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.springtesting.index.BloomFilter;
+
+// The Bloom filter behind EmailIndex, compare with EmployeeRepoQueryBenchmark.findByEmail for the query it saves
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EmailIndexBenchmark {
+
+   @Param({ "1000000", "10000000" })
+   public int emails;
+
+   private BloomFilter filter;
+
+   @Setup
+   public void setUp() {
+      filter = new BloomFilter(emails, 0.01);
+      for (int i = 0; i < emails; i++) {
+         filter.put("employee" + i + "@example.com");
+      }
+   }
+
+   @Benchmark
+   public boolean mightContainPresent() {
+      return filter.mightContain("employee" + ThreadLocalRandom.current().nextInt(emails) + "@example.com");
+   }
+
+   @Benchmark
+   public boolean mightContainAbsent() {
+      return filter.mightContain("someone" + ThreadLocalRandom.current().nextInt(emails) + "@example.org");
+   }
+}
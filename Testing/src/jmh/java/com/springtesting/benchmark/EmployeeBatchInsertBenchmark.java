@@ -0,0 +1,72 @@
+package com.springtesting.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.springtesting.dto.BatchItemResult;
+import com.springtesting.entities.Employee;
+import com.springtesting.service.EmployeeService;
+
+// Time to insert batchSize new employees through the bulk path vs one savedEmployee call each.
+// Rows per second = batchSize / score.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class EmployeeBatchInsertBenchmark {
+
+   @Param({ "100", "1000", "5000" })
+   public int batchSize;
+
+   private ConfigurableApplicationContext context;
+
+   private EmployeeService employeeService;
+
+   @Setup(Level.Trial)
+   public void setUp() {
+      context = BenchmarkApplication.start("spring.cache.type=none");
+      employeeService = context.getBean(EmployeeService.class);
+   }
+
+   @TearDown(Level.Trial)
+   public void tearDown() {
+      context.close();
+   }
+
+   @Benchmark
+   public List<BatchItemResult> saveEmployeesBatch() {
+      return employeeService.saveEmployees(newEmployees());
+   }
+
+   @Benchmark
+   public int savedEmployeeOneByOne() {
+      int saved = 0;
+      for (Employee employee : newEmployees()) {
+         employeeService.savedEmployee(employee);
+         saved++;
+      }
+      return saved;
+   }
+
+   private List<Employee> newEmployees() {
+      String prefix = UUID.randomUUID().toString();
+      List<Employee> employees = new ArrayList<>(batchSize);
+      for (int i = 0; i < batchSize; i++) {
+         employees.add(BenchmarkApplication.employee(prefix + "-" + i));
+      }
+      return employees;
+   }
+}
@@ -0,0 +1,78 @@
+package com.springtesting.benchmark;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.springtesting.dto.EmployeeView;
+import com.springtesting.service.EmployeeService;
+
+// getEmployeeById under a Zipfian id distribution (a few hot ids, a long tail), with and without the cache.
+// The cache is smaller than the dataset so the tail keeps evicting.
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class EmployeeCacheBenchmark {
+
+   @Param({ "100000" })
+   public int datasetSize;
+
+   @Param({ "0.99", "1.2" })
+   public double skew;
+
+   @Param({ "caffeine", "none" })
+   public String cache;
+
+   private ConfigurableApplicationContext context;
+
+   private EmployeeService employeeService;
+
+   private double[] cumulative;
+
+   @Setup(Level.Trial)
+   public void setUp() {
+      context = BenchmarkApplication.start("spring.cache.type=" + cache,
+            "employee.cache.maximum-size=" + datasetSize / 10);
+      employeeService = context.getBean(EmployeeService.class);
+      BenchmarkApplication.seed(employeeService, datasetSize);
+
+      // CDF of P(rank k) ~ 1 / k^skew
+      cumulative = new double[datasetSize];
+      double sum = 0;
+      for (int k = 1; k <= datasetSize; k++) {
+         sum += 1 / Math.pow(k, skew);
+         cumulative[k - 1] = sum;
+      }
+      for (int k = 0; k < datasetSize; k++) {
+         cumulative[k] /= sum;
+      }
+   }
+
+   @TearDown(Level.Trial)
+   public void tearDown() {
+      context.close();
+   }
+
+   @Benchmark
+   public Optional<EmployeeView> getByZipfianId() {
+      return employeeService.getEmployeeById(nextZipfianId());
+   }
+
+   private long nextZipfianId() {
+      int index = Arrays.binarySearch(cumulative, ThreadLocalRandom.current().nextDouble());
+      return (index >= 0 ? index : -index - 1) + 1;
+   }
+}
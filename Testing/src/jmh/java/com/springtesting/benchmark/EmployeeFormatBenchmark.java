@@ -0,0 +1,94 @@
+package com.springtesting.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import com.springtesting.entities.Employee;
+
+// Time to write and read an Employee list per format, and its size on the wire plain and gzipped.
+// The sizes are printed once per trial, e.g. "smile listSize=500: 23411 bytes, 5120 gzipped".
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EmployeeFormatBenchmark {
+
+   @Param({ "json", "json-blackbird", "smile", "cbor" })
+   public String format;
+
+   @Param({ "10", "500", "10000" })
+   public int listSize;
+
+   private ObjectWriter writer;
+
+   private ObjectReader reader;
+
+   private List<Employee> employees;
+
+   private byte[] payload;
+
+   @Setup
+   public void setUp() throws IOException {
+      ObjectMapper mapper = switch (format) {
+         case "json" -> new ObjectMapper();
+         case "json-blackbird" -> new ObjectMapper().registerModule(new BlackbirdModule());
+         case "smile" -> new ObjectMapper(new SmileFactory()).registerModule(new BlackbirdModule());
+         case "cbor" -> new ObjectMapper(new CBORFactory()).registerModule(new BlackbirdModule());
+         default -> throw new IllegalArgumentException("Unknown format " + format);
+      };
+      writer = mapper.writerFor(mapper.getTypeFactory().constructCollectionType(List.class, Employee.class));
+      reader = mapper.readerFor(mapper.getTypeFactory().constructCollectionType(List.class, Employee.class));
+      employees = new ArrayList<>();
+      for (int i = 0; i < listSize; i++) {
+         Employee employee = BenchmarkApplication.employee(i);
+         employee.setId(i + 1);
+         employees.add(employee);
+      }
+      payload = writer.writeValueAsBytes(employees);
+      System.out.printf("%n%s listSize=%d: %d bytes, %d gzipped%n", format, listSize, payload.length,
+            gzip(payload).length);
+   }
+
+   @Benchmark
+   public byte[] serialize() throws IOException {
+      return writer.writeValueAsBytes(employees);
+   }
+
+   // What the server spends on a compressed response, serialization plus gzip at the default level
+   @Benchmark
+   public byte[] serializeGzipped() throws IOException {
+      return gzip(writer.writeValueAsBytes(employees));
+   }
+
+   // Request side, e.g. the body of POST /api/employees/batch
+   @Benchmark
+   public List<Employee> deserialize() throws IOException {
+      return reader.readValue(payload);
+   }
+
+   private static byte[] gzip(byte[] bytes) throws IOException {
+      ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+      try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+         gzip.write(bytes);
+      }
+      return out.toByteArray();
+   }
+}
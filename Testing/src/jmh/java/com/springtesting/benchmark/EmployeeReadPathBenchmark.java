@@ -0,0 +1,106 @@
+package com.springtesting.benchmark;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springtesting.dto.EmployeeView;
+import com.springtesting.entities.Employee;
+import com.springtesting.repository.EmployeeRepo;
+import com.springtesting.service.EmployeeService;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+// One list response read and written to JSON, as managed Employee entities (what the read endpoints used to return)
+// vs EmployeeView projections. Allocation per request is the interesting number, run with the GC profiler:
+//   mvn -Pjmh verify -DskipTests -Djmh.include=EmployeeReadPathBenchmark -Djmh.args="-f 1 -prof gc"
+// and compare gc.alloc.rate.norm (bytes per op). The entity path also carries the persistence context's snapshot of
+// every row until the response is written, the heap a large page holds on to while it is serialized.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EmployeeReadPathBenchmark {
+
+   private static final int DATASET_SIZE = 20_000;
+
+   @Param({ "50", "500" })
+   public int pageSize;
+
+   private ConfigurableApplicationContext context;
+
+   private EmployeeRepo employeeRepo;
+
+   private EntityManager entityManager;
+
+   private TransactionTemplate transactionTemplate;
+
+   private ObjectMapper objectMapper;
+
+   @Setup(Level.Trial)
+   public void setUp() {
+      context = BenchmarkApplication.start("spring.cache.type=none");
+      BenchmarkApplication.seed(context.getBean(EmployeeService.class), DATASET_SIZE);
+      employeeRepo = context.getBean(EmployeeRepo.class);
+      entityManager = SharedEntityManagerCreator.createSharedEntityManager(context.getBean(EntityManagerFactory.class));
+      transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+      objectMapper = context.getBean(ObjectMapper.class);
+   }
+
+   @TearDown(Level.Trial)
+   public void tearDown() {
+      context.close();
+   }
+
+   // Entities stay managed until the body is written, like a request with open-session-in-view
+   @Benchmark
+   public byte[] entityPage() {
+      long after = randomStart();
+      return transactionTemplate.execute(status -> {
+         List<Employee> rows = entityManager
+               .createQuery("select e from Employee e where e.id > :after order by e.id", Employee.class)
+               .setParameter("after", after)
+               .setMaxResults(pageSize + 1)
+               .getResultList();
+         return write(rows.subList(0, Math.min(rows.size(), pageSize)));
+      });
+   }
+
+   @Benchmark
+   public byte[] viewPage() {
+      List<EmployeeView> rows = employeeRepo
+            .findPage("id,asc", ScrollPosition.forward(Map.of("id", randomStart())), pageSize)
+            .getContent();
+      return write(rows);
+   }
+
+   private byte[] write(List<?> rows) {
+      try {
+         return objectMapper.writeValueAsBytes(rows);
+      } catch (Exception e) {
+         throw new IllegalStateException(e);
+      }
+   }
+
+   private long randomStart() {
+      return ThreadLocalRandom.current().nextLong(DATASET_SIZE - pageSize);
+   }
+}
@@ -0,0 +1,102 @@
+package com.springtesting.benchmark;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+
+import com.springtesting.dto.EmployeeSearch;
+import com.springtesting.dto.EmployeeView;
+import com.springtesting.entities.Employee;
+import com.springtesting.repository.EmployeeRepo;
+import com.springtesting.service.EmployeeService;
+
+// The same EmployeeRepo calls against H2 through JPA and against InMemoryEmployeeRepo (the "inmemory" profile):
+//   mvn -Pjmh verify -DskipTests -Djmh.include=EmployeeRepoBackendBenchmark -Djmh.args="-f 1"
+// create goes through EmployeeService, so it includes the duplicate check, the counters and the typeahead index on
+// both backends. The Spring cache is off so every read reaches the repository.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EmployeeRepoBackendBenchmark {
+
+   private static final int PAGE_SIZE = 50;
+
+   @Param({ "jpa", "inmemory" })
+   public String backend;
+
+   @Param({ "10000", "100000" })
+   public int datasetSize;
+
+   private ConfigurableApplicationContext context;
+
+   private EmployeeRepo employeeRepo;
+
+   private EmployeeService employeeService;
+
+   @Setup(Level.Trial)
+   public void setUp() {
+      context = BenchmarkApplication.start("spring.cache.type=none", "spring.profiles.active=" + backend);
+      employeeService = context.getBean(EmployeeService.class);
+      employeeRepo = context.getBean(EmployeeRepo.class);
+      BenchmarkApplication.seed(employeeService, datasetSize);
+   }
+
+   @TearDown(Level.Trial)
+   public void tearDown() {
+      context.close();
+   }
+
+   @Benchmark
+   public Optional<Employee> findByEmail() {
+      return employeeRepo.findByEmail("employee" + randomRow() + "@example.com");
+   }
+
+   @Benchmark
+   public Employee findByJPQL() {
+      long row = randomRow();
+      return employeeRepo.findByJPQL("First" + row, "Last" + (row % 1000));
+   }
+
+   @Benchmark
+   public Optional<EmployeeView> findViewById() {
+      return employeeRepo.findViewById(randomRow() + 1);
+   }
+
+   @Benchmark
+   public Window<EmployeeView> searchFirstNamePrefixIgnoringCase() {
+      EmployeeSearch search = new EmployeeSearch(EmployeeSearch.Field.FIRST_NAME, EmployeeSearch.Match.PREFIX, true,
+            "FIRST" + randomRow());
+      return employeeRepo.search(search, ScrollPosition.keyset(), PAGE_SIZE);
+   }
+
+   @Benchmark
+   public Window<EmployeeView> keysetDeepPage() {
+      return employeeRepo.findPage("lastName,asc", ScrollPosition.forward(Map.of("lastName", "Last900", "id", 0L)),
+            PAGE_SIZE);
+   }
+
+   @Benchmark
+   public Employee create() {
+      return employeeService.savedEmployee(BenchmarkApplication.employee(UUID.randomUUID().toString()));
+   }
+
+   private long randomRow() {
+      return ThreadLocalRandom.current().nextLong(datasetSize);
+   }
+}
@@ -0,0 +1,109 @@
+package com.springtesting.benchmark;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.springtesting.dto.EmployeeSearch;
+import com.springtesting.dto.EmployeeView;
+import com.springtesting.entities.Employee;
+import com.springtesting.repository.EmployeeRepo;
+import com.springtesting.service.EmployeeService;
+
+// EmployeeRepo custom queries. With indexed=false the secondary indexes are dropped after seeding, which gives the
+// unindexed baseline for the search and lookup queries. keysetDeepPage vs offsetDeepPage compares the two ways of
+// reading a page 90% of the way into the table.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EmployeeRepoQueryBenchmark {
+
+   private static final int PAGE_SIZE = 50;
+
+   private static final List<String> SECONDARY_INDEXES = List.of("ux_employee_email", "ix_employee_last_first",
+         "ix_employee_first", "ix_employee_last_first_lc", "ix_employee_first_lc", "ix_employee_email_lc");
+
+   @Param({ "10000", "1000000" })
+   public int datasetSize;
+
+   @Param({ "true", "false" })
+   public boolean indexed;
+
+   private ConfigurableApplicationContext context;
+
+   private EmployeeRepo employeeRepo;
+
+   @Setup(Level.Trial)
+   public void setUp() {
+      context = BenchmarkApplication.start("spring.cache.type=none");
+      BenchmarkApplication.seed(context.getBean(EmployeeService.class), datasetSize);
+      employeeRepo = context.getBean(EmployeeRepo.class);
+      if (!indexed) {
+         JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+         SECONDARY_INDEXES.forEach(index -> jdbcTemplate.execute("drop index if exists " + index));
+      }
+   }
+
+   @TearDown(Level.Trial)
+   public void tearDown() {
+      context.close();
+   }
+
+   @Benchmark
+   public Optional<Employee> findByEmail() {
+      return employeeRepo.findByEmail("employee" + randomRow() + "@example.com");
+   }
+
+   @Benchmark
+   public Employee findByJPQL() {
+      long row = randomRow();
+      return employeeRepo.findByJPQL("First" + row, "Last" + (row % 1000));
+   }
+
+   @Benchmark
+   public Employee findByNativeSQLNamedParams() {
+      long row = randomRow();
+      return employeeRepo.findByNativeSQLNamedParams("First" + row, "Last" + (row % 1000));
+   }
+
+   @Benchmark
+   public Window<EmployeeView> searchFirstNamePrefixIgnoringCase() {
+      EmployeeSearch search = new EmployeeSearch(EmployeeSearch.Field.FIRST_NAME, EmployeeSearch.Match.PREFIX, true,
+            "FIRST" + randomRow());
+      return employeeRepo.search(search, ScrollPosition.keyset(), PAGE_SIZE);
+   }
+
+   @Benchmark
+   public Window<EmployeeView> keysetDeepPage() {
+      return employeeRepo.findPage("id,asc", ScrollPosition.forward(Map.of("id", datasetSize * 9L / 10)), PAGE_SIZE);
+   }
+
+   @Benchmark
+   public Page<Employee> offsetDeepPage() {
+      return employeeRepo.findAll(PageRequest.of(datasetSize * 9 / 10 / PAGE_SIZE, PAGE_SIZE, Sort.by("id")));
+   }
+
+   private long randomRow() {
+      return ThreadLocalRandom.current().nextLong(datasetSize);
+   }
+}
@@ -0,0 +1,107 @@
+package com.springtesting.benchmark;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.springtesting.entities.Employee;
+import com.springtesting.exception.ResourceNotFoundException;
+import com.springtesting.repository.EmployeeRepo;
+import com.springtesting.service.EmployeeService;
+
+import jakarta.persistence.EntityManagerFactory;
+
+// Entity loads by id, findByEmail and rejected duplicate creates (a findByEmail behind the email index) over a hot set
+// of 1000 employees, with Hibernate's second-level and query cache on and off. The Spring cache is off so every call
+// reaches Hibernate. Statements sent to the database per operation are printed after each iteration:
+//   mvn -Pjmh verify -DskipTests -Djmh.include=EmployeeSecondLevelCacheBenchmark -Djmh.args="-f 1"
+// No writes run in between, which is the query cache's best case: any write to the table invalidates its results.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EmployeeSecondLevelCacheBenchmark {
+
+   private static final int HOT_SET = 1000;
+
+   @Param({ "true", "false" })
+   public boolean l2cache;
+
+   private ConfigurableApplicationContext context;
+
+   private EmployeeService employeeService;
+
+   private EmployeeRepo employeeRepo;
+
+   private Statistics statistics;
+
+   private long firstId;
+
+   private final LongAdder operations = new LongAdder();
+
+   @Setup(Level.Trial)
+   public void setUp() {
+      context = BenchmarkApplication.start("employee.l2cache.enabled=" + l2cache,
+            "spring.cache.type=none",
+            "spring.jpa.properties.hibernate.generate_statistics=true");
+      employeeService = context.getBean(EmployeeService.class);
+      employeeRepo = context.getBean(EmployeeRepo.class);
+      statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+      BenchmarkApplication.seed(employeeService, 10_000);
+      firstId = employeeRepo.findByEmail("employee0@example.com").orElseThrow().getId();
+   }
+
+   @Setup(Level.Iteration)
+   public void resetCounts() {
+      statistics.clear();
+      operations.reset();
+   }
+
+   @TearDown(Level.Iteration)
+   public void printRoundTrips() {
+      System.out.printf("%nl2cache=%s: %.3f statements per operation%n", l2cache,
+            (double) statistics.getPrepareStatementCount() / Math.max(1, operations.sum()));
+   }
+
+   @TearDown(Level.Trial)
+   public void tearDown() {
+      context.close();
+   }
+
+   @Benchmark
+   public Optional<Employee> findById() {
+      operations.increment();
+      return employeeRepo.findById(firstId + ThreadLocalRandom.current().nextInt(HOT_SET));
+   }
+
+   @Benchmark
+   public Optional<Employee> findByEmail() {
+      operations.increment();
+      return employeeRepo.findByEmail("employee" + ThreadLocalRandom.current().nextInt(HOT_SET) + "@example.com");
+   }
+
+   @Benchmark
+   public String rejectDuplicateCreate() {
+      operations.increment();
+      try {
+         employeeService.savedEmployee(BenchmarkApplication.employee(ThreadLocalRandom.current().nextInt(HOT_SET)));
+         throw new IllegalStateException("Duplicate was created");
+      } catch (ResourceNotFoundException e) {
+         return e.getMessage();
+      }
+   }
+}
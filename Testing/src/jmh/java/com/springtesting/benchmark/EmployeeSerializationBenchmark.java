@@ -0,0 +1,50 @@
+package com.springtesting.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.springtesting.entities.Employee;
+
+// Jackson serialization of Employee lists, the cost of writing a GET /api/employees response body
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EmployeeSerializationBenchmark {
+
+   @Param({ "10", "500", "10000" })
+   public int listSize;
+
+   private ObjectWriter writer;
+
+   private List<Employee> employees;
+
+   @Setup
+   public void setUp() {
+      writer = new ObjectMapper().writerFor(new ObjectMapper().getTypeFactory()
+            .constructCollectionType(List.class, Employee.class));
+      employees = new ArrayList<>();
+      for (int i = 0; i < listSize; i++) {
+         Employee employee = BenchmarkApplication.employee(i);
+         employee.setId(i + 1);
+         employees.add(employee);
+      }
+   }
+
+   @Benchmark
+   public byte[] serializeList() throws JsonProcessingException {
+      return writer.writeValueAsBytes(employees);
+   }
+}
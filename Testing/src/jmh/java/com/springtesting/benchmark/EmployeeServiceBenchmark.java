@@ -0,0 +1,85 @@
+package com.springtesting.benchmark;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.springtesting.dto.EmployeeView;
+import com.springtesting.entities.Employee;
+import com.springtesting.service.EmployeeService;
+
+// Create, read, update and delete through EmployeeServiceImpl against embedded H2
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EmployeeServiceBenchmark {
+
+   @Param({ "1000", "100000" })
+   public int datasetSize;
+
+   @Param({ "caffeine", "none" })
+   public String cache;
+
+   private ConfigurableApplicationContext context;
+
+   private EmployeeService employeeService;
+
+   @Setup(Level.Trial)
+   public void setUp() {
+      context = BenchmarkApplication.start("spring.cache.type=" + cache);
+      employeeService = context.getBean(EmployeeService.class);
+      BenchmarkApplication.seed(employeeService, datasetSize);
+   }
+
+   @TearDown(Level.Trial)
+   public void tearDown() {
+      context.close();
+   }
+
+   @Benchmark
+   public Employee create() {
+      return employeeService.savedEmployee(BenchmarkApplication.employee(UUID.randomUUID().toString()));
+   }
+
+   @Benchmark
+   public Optional<EmployeeView> getById() {
+      return employeeService.getEmployeeById(randomId());
+   }
+
+   // What PUT /api/employees/{id} does: read, copy, save
+   @Benchmark
+   public Employee readModifyWrite() {
+      EmployeeView current = employeeService.getEmployeeById(randomId()).orElseThrow();
+      return employeeService.updateEmployee(Employee.builder()
+            .id(current.id())
+            .version(current.version())
+            .firstName(current.firstName())
+            .lastName(current.lastName())
+            .email(current.email())
+            .build());
+   }
+
+   @Benchmark
+   public void createThenDelete() {
+      Employee created = employeeService.savedEmployee(BenchmarkApplication.employee(UUID.randomUUID().toString()));
+      employeeService.deleteEmployee(created.getId());
+   }
+
+   // Seeded rows are the first ids handed out by the sequence
+   private long randomId() {
+      return ThreadLocalRandom.current().nextLong(1, datasetSize + 1);
+   }
+}
@@ -0,0 +1,108 @@
+package com.springtesting.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.springtesting.index.TypeaheadIndex;
+
+// The index behind GET /api/employees/suggest over synthetic employees: first and last names drawn from a few hundred
+// generated names each, and unique emails built from them. The heap the loaded index takes (its arrays and the value
+// strings) is printed once per trial:
+//   mvn -Pjmh verify -DskipTests -Djmh.include=TypeaheadIndexBenchmark -Djmh.args="-f 1"
+// Queries take the top 10. Compare with EmployeeRepoQueryBenchmark for what a query to the database costs at all.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TypeaheadIndexBenchmark {
+
+   private static final int LIMIT = 10;
+
+   @Param({ "100000", "1000000" })
+   public int entries;
+
+   private TypeaheadIndex index;
+
+   private String[] firstNames;
+
+   private String[] lastNames;
+
+   @Setup
+   public void setUp() {
+      Random random = new Random(42);
+      firstNames = names(random, 300);
+      lastNames = names(random, 500);
+      MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+      System.gc();
+      long before = memory.getHeapMemoryUsage().getUsed();
+      index = new TypeaheadIndex(3);
+      for (int i = 0; i < entries; i++) {
+         String first = firstNames[random.nextInt(firstNames.length)];
+         String last = lastNames[random.nextInt(lastNames.length)];
+         index.put(i, first, last, (first + "." + last + i + "@example.com").toLowerCase());
+      }
+      index.trim();
+      System.gc();
+      long used = memory.getHeapMemoryUsage().getUsed() - before;
+      System.out.printf("%n%,d entries: %,d bytes of heap (%.0f bytes/entry, %.0f MB per million), "
+            + "%,d of them in the index's arrays%n", entries, used, (double) used / entries,
+            used / (entries / 1_000_000.0) / (1 << 20), index.memoryBytes());
+   }
+
+   // Pronounceable names of two or three syllables, so trigrams are shared the way real names share them
+   private static String[] names(Random random, int count) {
+      List<String> syllables = List.of("ra", "ju", "ash", "win", "sin", "gh", "har", "shit", "ma", "no", "ka", "ri",
+            "ta", "de", "vi", "la", "an", "esh", "pre", "et", "mo", "han", "su", "nil", "ku", "mar", "ya", "dav");
+      String[] names = new String[count];
+      for (int i = 0; i < count; i++) {
+         StringBuilder name = new StringBuilder();
+         for (int s = 0, n = 2 + random.nextInt(2); s < n; s++) {
+            name.append(syllables.get(random.nextInt(syllables.size())));
+         }
+         names[i] = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+      }
+      return names;
+   }
+
+   private String anyLastName() {
+      return lastNames[ThreadLocalRandom.current().nextInt(lastNames.length)];
+   }
+
+   // Two characters, the trie walk stops after the first ten entries under them
+   @Benchmark
+   public List<TypeaheadIndex.Hit> prefixTwoCharacters() {
+      return index.search(anyLastName().substring(0, 2), LIMIT);
+   }
+
+   // Four characters, a deeper walk
+   @Benchmark
+   public List<TypeaheadIndex.Hit> prefixFourCharacters() {
+      return index.search(anyLastName().substring(0, 4), LIMIT);
+   }
+
+   // The middle of a last name, what LIKE '%q%' would be asked for: the trigram lists are intersected and the
+   // thousands of emails left ranked
+   @Benchmark
+   public List<TypeaheadIndex.Hit> containsMiddleOfName() {
+      String name = anyLastName();
+      return index.search(name.substring(1, Math.min(name.length(), 5)), LIMIT);
+   }
+
+   // Part of one unique email, the intersection leaves a handful of candidates
+   @Benchmark
+   public List<TypeaheadIndex.Hit> containsEmailNumber() {
+      return index.search(ThreadLocalRandom.current().nextInt(entries) + "@exa", LIMIT);
+   }
+}
@@ -0,0 +1,90 @@
+package com.springtesting.concurrency;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// A concurrency limit that follows the latency of the calls it lets in, additive increase / multiplicative decrease.
+// A call that completes within the latency target while the limit is in use (at least half of it taken) raises the
+// limit by 1/limit, about one per limit's worth of calls. A call slower than the target lowers it in proportion to
+// how far over it was, target / latency but between MAX_BACKOFF and BACKOFF, a failed call by BACKOFF. Only calls
+// started after the last decrease can lower it again, the calls that were already running when latency went up would
+// otherwise take the limit down to the minimum all at once.
+final class AimdLimiter {
+
+   static final double BACKOFF = 0.9;
+
+   static final double MAX_BACKOFF = 0.5;
+
+   private final int minLimit;
+
+   private final int maxLimit;
+
+   private final long latencyTargetNanos;
+
+   private final AtomicInteger inflight = new AtomicInteger();
+
+   private final LongAdder rejected = new LongAdder();
+
+   // Guarded by this, limit is what tryAcquire reads
+   private double exactLimit;
+
+   private volatile int limit;
+
+   private long lastDecreaseNanos;
+
+   AimdLimiter(int initialLimit, int minLimit, int maxLimit, long latencyTargetNanos) {
+      if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit) {
+         throw new IllegalArgumentException("Limits must satisfy 1 <= min-limit <= initial-limit <= max-limit");
+      }
+      this.minLimit = minLimit;
+      this.maxLimit = maxLimit;
+      this.latencyTargetNanos = latencyTargetNanos;
+      this.exactLimit = initialLimit;
+      this.limit = initialLimit;
+      this.lastDecreaseNanos = Long.MIN_VALUE;
+   }
+
+   // Takes a slot when fewer than limit calls are running, never waits
+   boolean tryAcquire() {
+      int current;
+      do {
+         current = inflight.get();
+         if (current >= limit) {
+            rejected.increment();
+            return false;
+         }
+      } while (!inflight.compareAndSet(current, current + 1));
+      return true;
+   }
+
+   // Gives back a slot taken at startNanos and adjusts the limit by how the call went
+   void release(long startNanos, long endNanos, boolean failed) {
+      int running = inflight.getAndDecrement();
+      synchronized (this) {
+         long latencyNanos = endNanos - startNanos;
+         if (failed || latencyNanos > latencyTargetNanos) {
+            if (startNanos > lastDecreaseNanos) {
+               double backoff = failed ? BACKOFF
+                     : Math.max(MAX_BACKOFF, Math.min(BACKOFF, (double) latencyTargetNanos / latencyNanos));
+               exactLimit = Math.max(minLimit, exactLimit * backoff);
+               lastDecreaseNanos = endNanos;
+            }
+         } else if (running * 2 >= exactLimit) {
+            exactLimit = Math.min(maxLimit, exactLimit + 1 / exactLimit);
+         }
+         limit = (int) exactLimit;
+      }
+   }
+
+   int limit() {
+      return limit;
+   }
+
+   int inflight() {
+      return inflight.get();
+   }
+
+   long rejected() {
+      return rejected.sum();
+   }
+}
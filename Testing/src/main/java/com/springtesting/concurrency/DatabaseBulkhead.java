@@ -0,0 +1,78 @@
+package com.springtesting.concurrency;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.springtesting.exception.DatabaseBusyException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+// Caps how many EmployeeService calls run at once, so unbounded virtual threads queue here instead of inside the
+// connection pool. Sits outside the transaction interceptor: a caller holds a permit for the whole transaction and
+// never waits for one while already holding a connection. Callers that cannot get a permit within acquire-timeout
+// get DatabaseBusyException (503) rather than a Hikari connection timeout deep inside a request.
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty("employee.db.max-concurrency")
+public class DatabaseBulkhead implements MeterBinder {
+
+   private final Semaphore permits;
+
+   private final int maxConcurrency;
+
+   private final long acquireTimeoutNanos;
+
+   private Counter rejected;
+
+   public DatabaseBulkhead(@Value("${employee.db.max-concurrency}") int maxConcurrency,
+         @Value("${employee.db.acquire-timeout:2s}") Duration acquireTimeout) {
+      if (maxConcurrency < 1) {
+         throw new IllegalArgumentException("employee.db.max-concurrency must be at least 1");
+      }
+      this.permits = new Semaphore(maxConcurrency, true);
+      this.maxConcurrency = maxConcurrency;
+      this.acquireTimeoutNanos = acquireTimeout.toNanos();
+   }
+
+   @Around("this(com.springtesting.service.EmployeeService)")
+   public Object guard(ProceedingJoinPoint joinPoint) throws Throwable {
+      if (!permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS)) {
+         if (rejected != null) {
+            rejected.increment();
+         }
+         throw new DatabaseBusyException("Too many concurrent requests, try again later");
+      }
+      try {
+         return joinPoint.proceed();
+      } finally {
+         permits.release();
+      }
+   }
+
+   @Override
+   public void bindTo(MeterRegistry registry) {
+      Gauge.builder("employee.db.bulkhead.active", this, bulkhead -> bulkhead.maxConcurrency - bulkhead.permits.availablePermits())
+            .description("EmployeeService calls holding a database permit")
+            .register(registry);
+      Gauge.builder("employee.db.bulkhead.waiting", permits, Semaphore::getQueueLength)
+            .description("EmployeeService calls waiting for a database permit")
+            .register(registry);
+      rejected = Counter.builder("employee.db.bulkhead.rejected")
+            .description("EmployeeService calls rejected after waiting acquire-timeout for a permit")
+            .register(registry);
+   }
+}
@@ -0,0 +1,200 @@
+package com.springtesting.concurrency;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.springtesting.exception.DatabaseBusyException;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+// Admission control for the /api/employees routes. Every route (method and path pattern, e.g. "GET
+// /api/employees/{id}") has its own concurrency limit, set by AimdLimiter from the latency of the route's requests:
+// reads (GET, HEAD) and writes start from and are held to their own limits and latency targets. A request over its
+// route's limit is answered 503 with Retry-After straight away, before it takes a Tomcat thread's worth of time or a
+// connection, so a slow database sheds load per route instead of every endpoint queueing until the threads run out.
+// A 5xx response, such as DatabaseBulkhead's 503, counts as a slow request. Streaming responses (export, import) hold
+// their slot until the body is written, their latency is the whole response and a body that fails counts as failed.
+@Component
+@ConditionalOnProperty("employee.admission.enabled")
+public class EmployeeAdmissionControl implements AsyncHandlerInterceptor, WebMvcConfigurer, MeterBinder {
+
+   private static final String ADMITTED = EmployeeAdmissionControl.class.getName() + ".admitted";
+
+   private record Settings(int initialLimit, int minLimit, int maxLimit, Duration latencyTarget) {
+   }
+
+   private record Route(String name, String kind, AimdLimiter limiter) {
+   }
+
+   // The slot a request holds, kept as a request attribute until it is given back
+   private record Admitted(Route route, long startNanos) {
+   }
+
+   private final Settings reads;
+
+   private final Settings writes;
+
+   private final Map<String, Route> routes = new ConcurrentHashMap<>();
+
+   private MeterRegistry registry;
+
+   public EmployeeAdmissionControl(@Value("${employee.admission.min-limit:1}") int minLimit,
+         @Value("${employee.admission.reads.initial-limit:20}") int readInitialLimit,
+         @Value("${employee.admission.reads.max-limit:200}") int readMaxLimit,
+         @Value("${employee.admission.reads.latency-target:100ms}") Duration readLatencyTarget,
+         @Value("${employee.admission.writes.initial-limit:10}") int writeInitialLimit,
+         @Value("${employee.admission.writes.max-limit:100}") int writeMaxLimit,
+         @Value("${employee.admission.writes.latency-target:250ms}") Duration writeLatencyTarget) {
+      this.reads = new Settings(readInitialLimit, minLimit, readMaxLimit, readLatencyTarget);
+      this.writes = new Settings(writeInitialLimit, minLimit, writeMaxLimit, writeLatencyTarget);
+      // Fail at startup rather than on the first request
+      limiter(reads);
+      limiter(writes);
+   }
+
+   @Override
+   public void addInterceptors(InterceptorRegistry registry) {
+      registry.addInterceptor(this).addPathPatterns("/api/employees", "/api/employees/**");
+   }
+
+   @Override
+   public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+      // The async and error dispatches of a request were admitted with it
+      if (request.getDispatcherType() != DispatcherType.REQUEST || !(handler instanceof HandlerMethod)) {
+         return true;
+      }
+      Route route = route(request);
+      if (!route.limiter().tryAcquire()) {
+         throw new DatabaseBusyException("Too many concurrent requests to " + route.name() + ", try again later");
+      }
+      Admitted admitted = new Admitted(route, System.nanoTime());
+      request.setAttribute(ADMITTED, admitted);
+      // Only takes effect if the handler goes async, it has to be there before the async processing starts
+      WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(ADMITTED, new AsyncRelease(admitted));
+      return true;
+   }
+
+   // The slot now belongs to AsyncRelease, the async dispatch that follows finds nothing to release
+   @Override
+   public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+         Object handler) {
+      request.removeAttribute(ADMITTED);
+   }
+
+   @Override
+   public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+         Exception exception) {
+      if (request.getAttribute(ADMITTED) instanceof Admitted admitted) {
+         request.removeAttribute(ADMITTED);
+         release(admitted, exception != null || response.getStatus() >= 500);
+      }
+   }
+
+   private static void release(Admitted admitted, boolean failed) {
+      admitted.route().limiter().release(admitted.startNanos(), System.nanoTime(), failed);
+   }
+
+   // Gives back the slot of a request whose body is written asynchronously (a StreamingResponseBody) once the
+   // response is complete, also when it timed out or the client went away
+   private static final class AsyncRelease implements CallableProcessingInterceptor {
+
+      private final Admitted admitted;
+
+      private volatile boolean failed;
+
+      AsyncRelease(Admitted admitted) {
+         this.admitted = admitted;
+      }
+
+      @Override
+      public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+         failed = concurrentResult instanceof Throwable;
+      }
+
+      @Override
+      public <T> Object handleTimeout(NativeWebRequest request, Callable<T> task) {
+         failed = true;
+         return RESULT_NONE;
+      }
+
+      @Override
+      public <T> Object handleError(NativeWebRequest request, Callable<T> task, Throwable t) {
+         failed = true;
+         return RESULT_NONE;
+      }
+
+      @Override
+      public <T> void afterCompletion(NativeWebRequest request, Callable<T> task) {
+         HttpServletResponse response = request.getNativeResponse(HttpServletResponse.class);
+         release(admitted, failed || response != null && response.getStatus() >= 500);
+      }
+   }
+
+   private Route route(HttpServletRequest request) {
+      String name = request.getMethod() + " " + request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+      Route route = routes.get(name);
+      return route != null ? route : register(name, request.getMethod());
+   }
+
+   private synchronized Route register(String name, String method) {
+      return routes.computeIfAbsent(name, key -> {
+         boolean read = HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method);
+         Route route = new Route(key, read ? "read" : "write", limiter(read ? reads : writes));
+         if (registry != null) {
+            bind(route, registry);
+         }
+         return route;
+      });
+   }
+
+   private static AimdLimiter limiter(Settings settings) {
+      return new AimdLimiter(settings.initialLimit(), settings.minLimit(), settings.maxLimit(),
+            settings.latencyTarget().toNanos());
+   }
+
+   // Routes get their meters as they see their first request
+   @Override
+   public synchronized void bindTo(MeterRegistry registry) {
+      this.registry = registry;
+      routes.values().forEach(route -> bind(route, registry));
+   }
+
+   private static void bind(Route route, MeterRegistry registry) {
+      Tags tags = Tags.of("route", route.name(), "kind", route.kind());
+      Gauge.builder("employee.admission.limit", route.limiter(), AimdLimiter::limit)
+            .description("Concurrent requests the route currently admits")
+            .tags(tags)
+            .register(registry);
+      Gauge.builder("employee.admission.inflight", route.limiter(), AimdLimiter::inflight)
+            .description("Admitted requests of the route still running")
+            .tags(tags)
+            .register(registry);
+      FunctionCounter.builder("employee.admission.rejected", route.limiter(), AimdLimiter::rejected)
+            .description("Requests answered 503 because the route was at its limit")
+            .tags(tags)
+            .register(registry);
+   }
+}
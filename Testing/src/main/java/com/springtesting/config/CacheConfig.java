@@ -0,0 +1,48 @@
+package com.springtesting.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.support.NullValue;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+// Caffeine backs the "employees" cache (see spring.cache.* in application.properties).
+// Setting spring.cache.type=none switches caching off without touching the service.
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+   public static final String EMPLOYEES_CACHE = "employees";
+
+   // Size bound uses Caffeine's W-TinyLFU eviction. Misses are cached as NullValue and expire sooner than hits.
+   @Bean
+   public Caffeine<Object, Object> caffeineConfig(
+         @Value("${employee.cache.maximum-size:10000}") long maximumSize,
+         @Value("${employee.cache.ttl:10m}") Duration ttl,
+         @Value("${employee.cache.negative-ttl:30s}") Duration negativeTtl) {
+      return Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfter(new Expiry<Object, Object>() {
+               @Override
+               public long expireAfterCreate(Object key, Object value, long currentTime) {
+                  return (value instanceof NullValue ? negativeTtl : ttl).toNanos();
+               }
+
+               @Override
+               public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+                  return expireAfterCreate(key, value, currentTime);
+               }
+
+               @Override
+               public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+                  return currentDuration;
+               }
+            })
+            .recordStats();
+   }
+}
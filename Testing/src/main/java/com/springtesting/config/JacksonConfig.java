@@ -0,0 +1,35 @@
+package com.springtesting.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+
+// Smile and CBOR are served next to JSON, picked by the Accept header (application/x-jackson-smile, application/cbor).
+// The binary mappers come from Boot's builder, so they carry the same modules and spring.jackson.* settings as JSON.
+@Configuration
+public class JacksonConfig {
+
+   // Property access through generated lambdas instead of reflection, Boot registers Module beans on every mapper
+   @Bean
+   public Module blackbirdModule() {
+      return new BlackbirdModule();
+   }
+
+   // Converter beans replace the MVC defaults of the same type, which are built without Boot's settings
+   @Bean
+   public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+      return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+   }
+
+   @Bean
+   public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+      return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+   }
+}
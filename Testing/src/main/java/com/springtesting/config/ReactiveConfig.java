@@ -0,0 +1,46 @@
+package com.springtesting.config;
+
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.r2dbc.spi.ConnectionFactory;
+
+// R2DBC beans for the "reactive" profile, the ConnectionFactory itself comes from spring.r2dbc.*.
+// Boot stops configuring a DataSource once there is a ConnectionFactory, JPA (schema, EmailIndex warm-up) still needs
+// one, so it is declared here from the usual spring.datasource.* properties.
+// The R2DBC transaction manager is deliberately not a bean: a second TransactionManager would stop Boot from creating
+// the JPA one and make every @Transactional ambiguous.
+@Configuration
+@Profile("reactive")
+public class ReactiveConfig {
+
+   @Bean
+   @ConfigurationProperties("spring.datasource")
+   public DataSourceProperties dataSourceProperties() {
+      return new DataSourceProperties();
+   }
+
+   @Bean
+   @ConfigurationProperties("spring.datasource.hikari")
+   public HikariDataSource dataSource(DataSourceProperties dataSourceProperties) {
+      return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+   }
+
+   @Bean
+   public DatabaseClient databaseClient(ConnectionFactory connectionFactory) {
+      return DatabaseClient.create(connectionFactory);
+   }
+
+   @Bean
+   public TransactionalOperator reactiveTransactionalOperator(ConnectionFactory connectionFactory) {
+      return TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory));
+   }
+}
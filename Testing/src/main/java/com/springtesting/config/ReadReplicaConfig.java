@@ -0,0 +1,61 @@
+package com.springtesting.config;
+
+import javax.sql.DataSource;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+// Sends read-only transactions to a replica, everything else to the primary. Only set up when
+// employee.datasource.replica.jdbc-url is given, otherwise Boot's single spring.datasource pool serves both.
+// The proxy hands out a connection handle and only takes a physical connection from a pool at the first statement,
+// by then a @Transactional(readOnly = true) has marked the handle read-only and the replica pool is used. Reads
+// outside of a transaction and reads inside a write transaction stay on the primary.
+// Both pools are beans so each gets its own hikaricp.* metrics, tagged pool=primary and pool=replica.
+// A replica lags the primary, a read right after a write can miss it. Versions a write is based on are read in the
+// write transaction, on the primary.
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty("employee.datasource.replica.jdbc-url")
+public class ReadReplicaConfig {
+
+   public static final String PRIMARY_POOL = "primary";
+
+   public static final String REPLICA_POOL = "replica";
+
+   // From the usual spring.datasource.* properties, like the single pool it replaces
+   @Bean
+   @ConfigurationProperties("spring.datasource.hikari")
+   public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+      HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder()
+            .type(HikariDataSource.class)
+            .build();
+      dataSource.setPoolName(PRIMARY_POOL);
+      return dataSource;
+   }
+
+   // Hikari's own property names, e.g. employee.datasource.replica.jdbc-url, .username, .maximum-pool-size
+   @Bean
+   @ConfigurationProperties("employee.datasource.replica")
+   public HikariDataSource replicaDataSource() {
+      HikariDataSource dataSource = new HikariDataSource();
+      dataSource.setPoolName(REPLICA_POOL);
+      dataSource.setReadOnly(true);
+      return dataSource;
+   }
+
+   @Bean
+   @Primary
+   public DataSource dataSource(HikariDataSource primaryDataSource, HikariDataSource replicaDataSource) {
+      LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+      dataSource.setReadOnlyDataSource(replicaDataSource);
+      return dataSource;
+   }
+}
@@ -0,0 +1,74 @@
+package com.springtesting.config;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.springtesting.entities.Employee;
+
+// Hibernate's second-level cache for Employee entities and query cache for the queries marked cacheable in
+// EmployeeRepo, held in Caffeine through JCache. Opt in with employee.l2cache.enabled=true.
+// Hibernate keeps both correct on its own: entity updates go through the READ_WRITE region, and the bulk JPQL and
+// criteria updates and deletes (patch, the deletes) evict the Employee region and move the table's update
+// timestamp, which invalidates every cached query over it. A query result is only reused until the next write to
+// the employee table, so the query cache pays off for lookups that are repeated between writes.
+// Hibernate statistics are switched on with it and published as hibernate.* metrics (hits, misses and puts per
+// region, statements executed).
+@Configuration
+@ConditionalOnProperty(name = "employee.l2cache.enabled", havingValue = "true")
+public class SecondLevelCacheConfig {
+
+   @Bean(destroyMethod = "close")
+   public CacheManager hibernateCacheManager(
+         @Value("${employee.l2cache.entity.maximum-size:10000}") long entityMaximumSize,
+         @Value("${employee.l2cache.entity.ttl:10m}") Duration entityTtl,
+         @Value("${employee.l2cache.query.maximum-size:10000}") long queryMaximumSize,
+         @Value("${employee.l2cache.query.ttl:5m}") Duration queryTtl) {
+      // A URI of its own, so every application context gets its own caches rather than the provider's shared default
+      CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+            .getCacheManager(URI.create("urn:employee-l2cache:" + UUID.randomUUID()), getClass().getClassLoader());
+      cacheManager.createCache(Employee.CACHE_REGION, region(entityMaximumSize, entityTtl));
+      cacheManager.createCache(Employee.QUERY_CACHE_REGION, region(queryMaximumSize, queryTtl));
+      cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+            region(queryMaximumSize, queryTtl));
+      // One entry per table. Never bounded: a query result whose table timestamp was evicted would be served stale.
+      cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+            new CaffeineConfiguration<>().setStoreByValue(false));
+      return cacheManager;
+   }
+
+   @Bean
+   public HibernatePropertiesCustomizer secondLevelCacheProperties(CacheManager hibernateCacheManager) {
+      return properties -> properties.putAll(Map.of(
+            AvailableSettings.USE_SECOND_LEVEL_CACHE, true,
+            AvailableSettings.USE_QUERY_CACHE, true,
+            AvailableSettings.CACHE_REGION_FACTORY, ConfigSettings.SIMPLE_FACTORY_NAME,
+            ConfigSettings.CACHE_MANAGER, hibernateCacheManager,
+            // Every region is created above, a missing one is a mistake rather than something to default
+            ConfigSettings.MISSING_CACHE_STRATEGY, "fail",
+            AvailableSettings.GENERATE_STATISTICS, true));
+   }
+
+   private static CaffeineConfiguration<Object, Object> region(long maximumSize, Duration ttl) {
+      return new CaffeineConfiguration<>()
+            .setStoreByValue(false)
+            .setMaximumSize(OptionalLong.of(maximumSize))
+            .setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+   }
+}
@@ -1,32 +1,90 @@
 package com.springtesting.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import com.springtesting.dto.BatchItemResult;
+import com.springtesting.dto.DeleteResult;
+import com.springtesting.dto.EmployeePage;
+import com.springtesting.dto.EmployeePatch;
+import com.springtesting.dto.EmployeeSearch;
+import com.springtesting.dto.EmployeeStats;
+import com.springtesting.dto.EmployeeSuggestion;
+import com.springtesting.dto.EmployeeView;
+import com.springtesting.dto.ImportReport;
+import com.springtesting.dto.WriteStatus;
 import com.springtesting.entities.Employee;
+import com.springtesting.exception.DatabaseBusyException;
+import com.springtesting.exception.WriteQueueFullException;
+import com.springtesting.importer.EmployeeCsvImporter;
 import com.springtesting.service.EmployeeService;
+import com.springtesting.writebehind.EmployeeWriteBehind;
 
 
 
 @RestController
 @RequestMapping("/api/employees")
+@Profile("!reactive")
 public class EmployeeController {
 
+   private static final String PREFER = "Prefer";
+
+   private static final String PREFERENCE_APPLIED = "Preference-Applied";
+
+   private static final String RESPOND_ASYNC = "respond-async";
+
    private EmployeeService employeeService;
 
-   public EmployeeController(EmployeeService employeeService) {
+   private ObjectMapper objectMapper;
+
+   // Only there with employee.write-behind.enabled=true
+   private ObjectProvider<EmployeeWriteBehind> writeBehind;
+
+   private EmployeeCsvImporter csvImporter;
+
+   public EmployeeController(EmployeeService employeeService, ObjectMapper objectMapper,
+         ObjectProvider<EmployeeWriteBehind> writeBehind, EmployeeCsvImporter csvImporter) {
       this.employeeService = employeeService;
+      this.objectMapper = objectMapper;
+      this.writeBehind = writeBehind;
+      this.csvImporter = csvImporter;
    }
 
    @PostMapping
@@ -35,35 +93,288 @@ public class EmployeeController {
       return employeeService.savedEmployee(employee);
    }
 
+   // A Prefer header with respond-async among its preferences (e.g. "Prefer: respond-async, wait=5") queues the
+   // create and answers 202 with a tracking id to poll and Preference-Applied, 429 when the queue is full. Other
+   // preferences, and respond-async without write-behind enabled, are ignored and the create is synchronous.
+   @PostMapping(headers = PREFER)
+   public ResponseEntity<Object> createEmployeeAsync(@RequestBody Employee employee,
+         @RequestHeader(PREFER) List<String> preferences) {
+      EmployeeWriteBehind writer = writeBehind.getIfAvailable();
+      if (writer == null || !preferences.stream().anyMatch(EmployeeController::isRespondAsync)) {
+         return ResponseEntity.status(HttpStatus.CREATED).body(employeeService.savedEmployee(employee));
+      }
+      WriteStatus status = writer.submit(employee);
+      return ResponseEntity.accepted()
+            .location(URI.create("/api/employees/writes/" + status.getTrackingId()))
+            .header(PREFERENCE_APPLIED, RESPOND_ASYNC)
+            .body(status);
+   }
+
+   @GetMapping("/writes/{trackingId}")
+   public ResponseEntity<WriteStatus> getWriteStatus(@PathVariable String trackingId) {
+      return Optional.ofNullable(writeBehind.getIfAvailable())
+            .flatMap(writer -> writer.status(trackingId))
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.notFound().build());
+   }
+
+   // Inserted in one transaction as JDBC batches, the response has one result per element of the request
+   @PostMapping("/batch")
+   public List<BatchItemResult> createEmployees(@RequestBody List<Employee> employees) {
+      return employeeService.saveEmployees(employees);
+   }
+
+   // CSV upload of any size, read while it is imported in chunks (see EmployeeCsvImporter). The header is checked
+   // up front (400), then the response is NDJSON: a progress report about every second and the final report, with
+   // the rows that were not imported, as the last line.
+   @PostMapping(value = "/import", consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE})
+   public ResponseEntity<StreamingResponseBody> importEmployees(InputStream csv) throws IOException {
+      EmployeeCsvImporter.CsvImport csvImport = csvImporter.open(csv);
+      ObjectWriter writer = objectMapper.writerFor(ImportReport.class)
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+      StreamingResponseBody body = outputStream -> {
+         try (csvImport; JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.setRootValueSeparator(null);
+            Consumer<ImportReport> line = report -> {
+               try {
+                  writer.writeValue(generator, report);
+                  generator.writeRaw('\n');
+                  generator.flush();
+               } catch (IOException e) {
+                  throw new UncheckedIOException(e);
+               }
+            };
+            line.accept(csvImport.run(line));
+         }
+      };
+      return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+   }
+
+   // Keyset paginated - pass the returned nextCursor back to get the following page
+   // Tagged with the table's version, while nothing is written If-None-Match is answered 304 without a query
    @GetMapping
-   public List<Employee> getAllEmployees() {
-      return employeeService.getAllEmployees();
+   public ResponseEntity<EmployeePage> getAllEmployees(@RequestParam(defaultValue = "50") int size,
+         @RequestParam(defaultValue = "id") String sort,
+         @RequestParam(required = false) String cursor,
+         WebRequest request) {
+      return conditionalPage(request, () -> employeeService.getEmployeesPage(size, sort, cursor), size, sort, cursor);
+   }
+
+   // e.g. /search?field=lastName&q=sin&match=prefix&ignoreCase=true, paginated like the list endpoint
+   @GetMapping("/search")
+   public ResponseEntity<EmployeePage> searchEmployees(@RequestParam String field,
+         @RequestParam String q,
+         @RequestParam(defaultValue = "exact") String match,
+         @RequestParam(defaultValue = "false") boolean ignoreCase,
+         @RequestParam(defaultValue = "50") int size,
+         @RequestParam(required = false) String cursor,
+         WebRequest request) {
+      EmployeeSearch search = new EmployeeSearch(EmployeeSearch.Field.fromAttribute(field),
+            EmployeeSearch.Match.fromParam(match), ignoreCase, q);
+      return conditionalPage(request, () -> employeeService.searchEmployees(search, size, cursor),
+            field, q, match, ignoreCase, size, cursor);
+   }
+
+   // One JSON document per line, written while the rows are read so nothing is buffered
+   @GetMapping("/export")
+   public ResponseEntity<StreamingResponseBody> exportEmployees() {
+      // Let the generator's buffer decide when to flush instead of flushing after every row
+      ObjectWriter writer = objectMapper.writerFor(EmployeeView.class)
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+      StreamingResponseBody body = outputStream -> {
+         try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.setRootValueSeparator(null);
+            employeeService.exportEmployees(employee -> {
+               try {
+                  writer.writeValue(generator, employee);
+                  generator.writeRaw('\n');
+               } catch (IOException e) {
+                  throw new UncheckedIOException(e);
+               }
+            });
+         }
+      };
+      return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
    }
 
+   // Typeahead, e.g. /suggest?q=sin&limit=10, answered from an index kept in memory (see EmployeeTypeahead)
+   @GetMapping("/suggest")
+   public List<EmployeeSuggestion> suggestEmployees(@RequestParam String q,
+         @RequestParam(defaultValue = "10") int limit) {
+      return employeeService.suggestEmployees(q, limit);
+   }
+
+   // e.g. /stats?top=20 - the total and the top last names and email domains with the most employees (10 by
+   // default, at most 100). Names and domains given as ?lastName=Singh&domain=example.com are counted as well when
+   // they are not among the top. Served from counts kept in memory (see EmployeeCounts), the table is never read.
+   @GetMapping("/stats")
+   public EmployeeStats getEmployeeStats(@RequestParam(defaultValue = "10") int top,
+         @RequestParam(name = "lastName", defaultValue = "") List<String> lastNames,
+         @RequestParam(name = "domain", defaultValue = "") List<String> domains) {
+      return employeeService.getEmployeeStats(top, lastNames, domains);
+   }
+
+   // The ETag is the employee's version. A revalidation (If-None-Match) only looks the version up, the employee is
+   // neither loaded nor serialized when the client's copy is current.
    @GetMapping("/{id}")
-   public ResponseEntity<Employee> getEmployeeById(@PathVariable Long id) {
+   public ResponseEntity<EmployeeView> getEmployeeById(@PathVariable Long id, WebRequest request) {
+      if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+         Optional<Long> version = employeeService.getEmployeeVersion(id);
+         if (version.isEmpty()) {
+            return ResponseEntity.notFound().build();
+         }
+         if (request.checkNotModified(etag(version.get()))) {
+            return null;
+         }
+      }
       return employeeService.getEmployeeById(id)
-            .map(ResponseEntity::ok)
+            .map(employee -> ResponseEntity.ok().eTag(etag(employee.version())).body(employee))
             .orElseGet(() -> ResponseEntity.notFound().build());
    }
 
+   // With If-Match the update only applies to that version of the employee, otherwise 412. Without it the update is
+   // based on the version the row has when the write runs.
    @PutMapping("/{id}")
-   public ResponseEntity<Employee> updateEmployee(@PathVariable Long id, @RequestBody Employee employee) {
-      return employeeService.getEmployeeById(id)
-            .map(savedEmployee -> {
-               savedEmployee.setFirstName(employee.getFirstName());
-               savedEmployee.setLastName(employee.getLastName());
-               savedEmployee.setEmail(employee.getEmail());
-               Employee updatedEmployee = employeeService.updateEmployee(savedEmployee);
-               return ResponseEntity.ok(updatedEmployee);
-            })
+   public ResponseEntity<Employee> updateEmployee(@PathVariable Long id, @RequestBody Employee employee,
+         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+      Long expectedVersion = expectedVersion(ifMatch);
+      return conditionally(ifMatch, () -> employeeService.updateEmployee(id, expectedVersion, employee))
+            .map(updatedEmployee -> ResponseEntity.ok().eTag(etag(updatedEmployee.getVersion())).body(updatedEmployee))
             .orElseGet(() -> ResponseEntity.notFound().build());
+   }
 
+   // Writes only the fields present in the body, in one UPDATE without reading the employee first.
+   // The expected version comes from If-Match (412 when it no longer matches) or "version" in the body (409).
+   @PatchMapping("/{id}")
+   public ResponseEntity<Void> patchEmployee(@PathVariable Long id, @RequestBody EmployeePatch patch,
+         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+      Long expectedVersion = expectedVersion(ifMatch);
+      EmployeePatch conditionalPatch = expectedVersion == null ? patch
+            : new EmployeePatch(patch.getFirstName(), patch.getLastName(), patch.getEmail(), expectedVersion);
+      return conditionally(ifMatch, () -> employeeService.patchEmployee(id, conditionalPatch))
+            ? ResponseEntity.noContent().build()
+            : ResponseEntity.notFound().build();
    }
 
+   // With If-Match the row is only deleted while it is at that version, otherwise 412
    @DeleteMapping("/{id}")
-   public ResponseEntity<String> deleteEmployee(@PathVariable Long id) {
-      employeeService.deleteEmployee(id);
+   public ResponseEntity<String> deleteEmployee(@PathVariable Long id,
+         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+      Long expectedVersion = expectedVersion(ifMatch);
+      boolean deleted = expectedVersion == null
+            ? employeeService.deleteEmployee(id)
+            : conditionally(ifMatch, () -> employeeService.deleteEmployee(id, expectedVersion));
+      if (!deleted) {
+         return ResponseEntity.notFound().build();
+      }
       return new ResponseEntity<String>("Deleted the employee successfully!!", HttpStatus.OK);
    }
+
+   // e.g. DELETE /api/employees?ids=1,2,3 - one statement for all of them, ids that do not exist are skipped
+   @DeleteMapping(params = "ids")
+   public DeleteResult deleteEmployees(@RequestParam List<Long> ids) {
+      return new DeleteResult(employeeService.deleteEmployees(ids));
+   }
+
+   // e.g. DELETE /api/employees?field=email&q=tmp-&match=prefix - matched like /search, one statement
+   @DeleteMapping(params = {"field", "q"})
+   public DeleteResult deleteEmployeesMatching(@RequestParam String field,
+         @RequestParam String q,
+         @RequestParam(defaultValue = "exact") String match,
+         @RequestParam(defaultValue = "false") boolean ignoreCase) {
+      EmployeeSearch search = new EmployeeSearch(EmployeeSearch.Field.fromAttribute(field),
+            EmployeeSearch.Match.fromParam(match), ignoreCase, q);
+      return new DeleteResult(employeeService.deleteEmployeesMatching(search));
+   }
+
+   // One preference of a Prefer header (RFC 7240): a name, case-insensitive, optionally followed by "=value" and
+   // ";parameters". Spring has already split the header's comma-separated list.
+   private static boolean isRespondAsync(String preference) {
+      int end = preference.length();
+      for (char delimiter : new char[] {'=', ';'}) {
+         int at = preference.indexOf(delimiter);
+         if (at >= 0 && at < end) {
+            end = at;
+         }
+      }
+      return preference.substring(0, end).trim().equalsIgnoreCase(RESPOND_ASYNC);
+   }
+
+   private static String etag(long version) {
+      return "\"" + version + "\"";
+   }
+
+   // A list or search response tagged with the table's version (listETag), a current If-None-Match is answered 304
+   // before the page is read
+   private ResponseEntity<EmployeePage> conditionalPage(WebRequest request, Supplier<EmployeePage> read,
+         Object... parameters) {
+      String etag = listETag(request, parameters);
+      if (request.checkNotModified(etag)) {
+         return null;
+      }
+      return ResponseEntity.ok().eTag(etag).varyBy(HttpHeaders.ACCEPT).body(read.get());
+   }
+
+   // Version of the table plus the request's parameters and Accept header, so one page's tag never validates
+   // another page or format. Weak, because Tomcat leaves strong-tagged responses uncompressed.
+   private String listETag(WebRequest request, Object... parameters) {
+      return "W/\"" + employeeService.getEmployeesVersion() + "-"
+            + Integer.toHexString(Objects.hash(Arrays.hashCode(parameters), request.getHeader(HttpHeaders.ACCEPT)))
+            + "\"";
+   }
+
+   // The version a strong If-Match tag stands for, null without If-Match or for "*". A tag that cannot be one of
+   // ours can never match, so it fails the precondition straight away.
+   private static Long expectedVersion(String ifMatch) {
+      if (ifMatch == null || ifMatch.trim().equals("*")) {
+         return null;
+      }
+      String tag = ifMatch.trim();
+      if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+         try {
+            return Long.parseLong(tag.substring(1, tag.length() - 1));
+         } catch (NumberFormatException e) {
+            // not one of ours
+         }
+      }
+      throw preconditionFailed();
+   }
+
+   // A lost race on a conditional request is 412 rather than the 409 of the unconditional one
+   private static <T> T conditionally(String ifMatch, Supplier<T> write) {
+      try {
+         return write.get();
+      } catch (OptimisticLockingFailureException e) {
+         if (ifMatch == null) {
+            throw e;
+         }
+         throw preconditionFailed();
+      }
+   }
+
+   private static ResponseStatusException preconditionFailed() {
+      return new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Employee does not match If-Match");
+   }
+
+   @ExceptionHandler(IllegalArgumentException.class)
+   public ResponseEntity<String> handleBadRequest(IllegalArgumentException exception) {
+      return ResponseEntity.badRequest().body(exception.getMessage());
+   }
+
+   @ExceptionHandler(OptimisticLockingFailureException.class)
+   public ResponseEntity<String> handleConflict(OptimisticLockingFailureException exception) {
+      return ResponseEntity.status(HttpStatus.CONFLICT).body("Employee was changed concurrently, reload and retry");
+   }
+
+   @ExceptionHandler(WriteQueueFullException.class)
+   public ResponseEntity<String> handleQueueFull(WriteQueueFullException exception) {
+      return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "1")
+            .body(exception.getMessage());
+   }
+
+   @ExceptionHandler(DatabaseBusyException.class)
+   public ResponseEntity<String> handleBusy(DatabaseBusyException exception) {
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1")
+            .body(exception.getMessage());
+   }
 }
@@ -0,0 +1,113 @@
+package com.springtesting.controller;
+
+import java.util.List;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.springtesting.dto.BatchItemResult;
+import com.springtesting.dto.EmployeePage;
+import com.springtesting.dto.EmployeeSearch;
+import com.springtesting.entities.Employee;
+import com.springtesting.service.ReactiveEmployeeService;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// The core of EmployeeController served by WebFlux with the "reactive" profile, with the same parameters and bodies:
+//   POST /api/employees, POST /api/employees/batch, GET /api/employees (keyset pages), GET /api/employees/search,
+//   GET /api/employees/export (NDJSON), GET, PUT and DELETE /api/employees/{id}
+// Not served here: PATCH, ETags and conditional requests (If-None-Match, If-Match), async creates, /import, /suggest,
+// /stats and the bulk deletes. PUT and DELETE do not check versions, PUT returns the employee as stored.
+@RestController
+@RequestMapping("/api/employees")
+@Profile("reactive")
+public class ReactiveEmployeeController {
+
+   private ReactiveEmployeeService employeeService;
+
+   public ReactiveEmployeeController(ReactiveEmployeeService employeeService) {
+      this.employeeService = employeeService;
+   }
+
+   @PostMapping
+   @ResponseStatus(HttpStatus.CREATED)
+   public Mono<Employee> createEmployee(@RequestBody Employee employee) {
+      return employeeService.savedEmployee(employee);
+   }
+
+   @PostMapping("/batch")
+   public Mono<List<BatchItemResult>> createEmployees(@RequestBody List<Employee> employees) {
+      return employeeService.saveEmployees(employees);
+   }
+
+   @GetMapping
+   public Mono<EmployeePage> getAllEmployees(@RequestParam(defaultValue = "50") int size,
+         @RequestParam(defaultValue = "id") String sort,
+         @RequestParam(required = false) String cursor) {
+      return employeeService.getEmployeesPage(size, sort, cursor);
+   }
+
+   @GetMapping("/search")
+   public Mono<EmployeePage> searchEmployees(@RequestParam String field,
+         @RequestParam String q,
+         @RequestParam(defaultValue = "exact") String match,
+         @RequestParam(defaultValue = "false") boolean ignoreCase,
+         @RequestParam(defaultValue = "50") int size,
+         @RequestParam(required = false) String cursor) {
+      EmployeeSearch search = new EmployeeSearch(EmployeeSearch.Field.fromAttribute(field),
+            EmployeeSearch.Match.fromParam(match), ignoreCase, q);
+      return employeeService.searchEmployees(search, size, cursor);
+   }
+
+   // One JSON document per line; rows are read from the database only as fast as the client takes them
+   @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+   public Flux<Employee> exportEmployees() {
+      return employeeService.exportEmployees();
+   }
+
+   @GetMapping("/{id}")
+   public Mono<ResponseEntity<Employee>> getEmployeeById(@PathVariable Long id) {
+      return employeeService.getEmployeeById(id)
+            .map(ResponseEntity::ok)
+            .defaultIfEmpty(ResponseEntity.notFound().build());
+   }
+
+   @PutMapping("/{id}")
+   public Mono<ResponseEntity<Employee>> updateEmployee(@PathVariable Long id, @RequestBody Employee employee) {
+      return employeeService.updateEmployee(Employee.builder()
+                  .id(id)
+                  .firstName(employee.getFirstName())
+                  .lastName(employee.getLastName())
+                  .email(employee.getEmail())
+                  .build())
+            .map(ResponseEntity::ok)
+            .defaultIfEmpty(ResponseEntity.notFound().build());
+   }
+
+   @DeleteMapping("/{id}")
+   public Mono<ResponseEntity<String>> deleteEmployee(@PathVariable Long id) {
+      return employeeService.deleteEmployee(id)
+            .map(deleted -> deleted
+                  ? new ResponseEntity<String>("Deleted the employee successfully!!", HttpStatus.OK)
+                  : ResponseEntity.notFound().build());
+   }
+
+   @ExceptionHandler(IllegalArgumentException.class)
+   public ResponseEntity<String> handleBadRequest(IllegalArgumentException exception) {
+      return ResponseEntity.badRequest().body(exception.getMessage());
+   }
+}
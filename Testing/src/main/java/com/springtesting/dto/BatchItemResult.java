@@ -0,0 +1,34 @@
+package com.springtesting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Outcome of one element of a bulk create, index is the position in the request body
+@Getter
+@AllArgsConstructor
+public class BatchItemResult {
+
+   public enum Status {
+      CREATED, DUPLICATE, INVALID
+   }
+
+   private int index;
+
+   private Status status;
+
+   private Long id;
+
+   private String message;
+
+   public static BatchItemResult created(int index, long id) {
+      return new BatchItemResult(index, Status.CREATED, id, null);
+   }
+
+   public static BatchItemResult duplicate(int index) {
+      return new BatchItemResult(index, Status.DUPLICATE, null, "Employee already exists!!");
+   }
+
+   public static BatchItemResult invalid(int index, String message) {
+      return new BatchItemResult(index, Status.INVALID, null, message);
+   }
+}
@@ -0,0 +1,12 @@
+package com.springtesting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Response of the bulk deletes, how many rows the statement removed
+@Getter
+@AllArgsConstructor
+public class DeleteResult {
+
+   private int deleted;
+}
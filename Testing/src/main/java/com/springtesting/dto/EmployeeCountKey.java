@@ -0,0 +1,13 @@
+package com.springtesting.dto;
+
+import java.util.Locale;
+
+// A row and what it is counted under in EmployeeCounts, selected straight into this constructor (see EmployeeRepo)
+public record EmployeeCountKey(long id, String lastName, String email) {
+
+   // Lower-cased part after the last '@', empty when there is none
+   public String emailDomain() {
+      int at = email == null ? -1 : email.lastIndexOf('@');
+      return at < 0 ? "" : email.substring(at + 1).toLowerCase(Locale.ROOT);
+   }
+}
@@ -0,0 +1,20 @@
+package com.springtesting.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// One page of a keyset scroll. nextCursor is opaque to clients and is null on the last page.
+@Getter
+@AllArgsConstructor
+public class EmployeePage {
+
+   private List<EmployeeView> content;
+
+   private int size;
+
+   private boolean hasNext;
+
+   private String nextCursor;
+}
@@ -0,0 +1,25 @@
+package com.springtesting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+// Body of PATCH /api/employees/{id}: only the non-null fields are written. With a version the update only applies
+// if the row still has it.
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class EmployeePatch {
+
+   private String firstName;
+
+   private String lastName;
+
+   private String email;
+
+   private Long version;
+
+   public boolean isEmpty() {
+      return firstName == null && lastName == null && email == null;
+   }
+}
@@ -0,0 +1,62 @@
+package com.springtesting.dto;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// What GET /api/employees/search asks for: one field, exact or prefix match, optionally ignoring case
+@Getter
+@AllArgsConstructor
+public class EmployeeSearch {
+
+   public enum Field {
+      FIRST_NAME("firstName"), LAST_NAME("lastName"), EMAIL("email");
+
+      private final String attribute;
+
+      Field(String attribute) {
+         this.attribute = attribute;
+      }
+
+      public String getAttribute() {
+         return attribute;
+      }
+
+      public static Field fromAttribute(String attribute) {
+         return Arrays.stream(values())
+               .filter(field -> field.attribute.equals(attribute))
+               .findFirst()
+               .orElseThrow(() -> new IllegalArgumentException("Unsupported search field '" + attribute + "'"));
+      }
+   }
+
+   public enum Match {
+      EXACT, PREFIX;
+
+      public static Match fromParam(String match) {
+         return Arrays.stream(values())
+               .filter(value -> value.name().equalsIgnoreCase(match))
+               .findFirst()
+               .orElseThrow(() -> new IllegalArgumentException("Unsupported match '" + match + "'"));
+      }
+   }
+
+   private Field field;
+
+   private Match match;
+
+   private boolean ignoreCase;
+
+   private String value;
+
+   // The entity attribute searched and sorted on - the lower-cased column when case is ignored
+   public String attribute() {
+      return ignoreCase ? field.getAttribute() + "Lc" : field.getAttribute();
+   }
+
+   public String term() {
+      return ignoreCase ? value.toLowerCase(Locale.ROOT) : value;
+   }
+}
@@ -0,0 +1,19 @@
+package com.springtesting.dto;
+
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Response of GET /api/employees/stats, employees in total, for the last names and email domains with the most
+// employees, largest first, and for each one asked for
+@Getter
+@AllArgsConstructor
+public class EmployeeStats {
+
+   private long total;
+
+   private Map<String, Long> byLastName;
+
+   private Map<String, Long> byEmailDomain;
+}
@@ -0,0 +1,5 @@
+package com.springtesting.dto;
+
+// One entry of GET /api/employees/suggest, with the field the query matched so a client can highlight it
+public record EmployeeSuggestion(long id, String firstName, String lastName, String email, String matchedField) {
+}
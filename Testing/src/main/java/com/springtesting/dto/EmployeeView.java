@@ -0,0 +1,13 @@
+package com.springtesting.dto;
+
+import com.springtesting.entities.Employee;
+
+// Read-only copy of an employee, selected straight into this constructor (see EmployeeRepo) so reads never put an
+// entity in the persistence context. Serializes to the same JSON as Employee.
+public record EmployeeView(long id, String firstName, String lastName, String email, long version) {
+
+   public static EmployeeView of(Employee employee) {
+      return new EmployeeView(employee.getId(), employee.getFirstName(), employee.getLastName(), employee.getEmail(),
+            employee.getVersion());
+   }
+}
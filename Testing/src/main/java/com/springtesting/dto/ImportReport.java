@@ -0,0 +1,39 @@
+package com.springtesting.dto;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Progress of a CSV import, sent while it runs and once more with done=true when it has finished. Only the final
+// report carries the row errors, at most employee.import.max-errors of them, errorsOmitted counts the rest.
+// abortedReason is set when the file could not be read to the end, the rows before it are imported.
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ImportReport {
+
+   private boolean done;
+
+   private long rows;
+
+   private long created;
+
+   private long duplicates;
+
+   private long invalid;
+
+   private long failed;
+
+   private long elapsedMillis;
+
+   private long rowsPerSecond;
+
+   private List<ImportRowError> errors;
+
+   private Long errorsOmitted;
+
+   private String abortedReason;
+}
@@ -0,0 +1,22 @@
+package com.springtesting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// A CSV row that was not imported. row is the data row's number, 1 is the first row after the header.
+@Getter
+@AllArgsConstructor
+public class ImportRowError {
+
+   public enum Reason {
+      INVALID, DUPLICATE, FAILED
+   }
+
+   private long row;
+
+   private Reason reason;
+
+   private String email;
+
+   private String message;
+}
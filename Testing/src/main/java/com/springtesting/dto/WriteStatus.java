@@ -0,0 +1,44 @@
+package com.springtesting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Where a write-behind create stands, looked up by the tracking id returned with the 202. id is set once CREATED.
+@Getter
+@AllArgsConstructor
+public class WriteStatus {
+
+   public enum State {
+      QUEUED, CREATED, DUPLICATE, INVALID, FAILED
+   }
+
+   private String trackingId;
+
+   private State state;
+
+   private Long id;
+
+   private String message;
+
+   public static WriteStatus queued(String trackingId) {
+      return new WriteStatus(trackingId, State.QUEUED, null, null);
+   }
+
+   public static WriteStatus created(String trackingId, long id) {
+      return new WriteStatus(trackingId, State.CREATED, id, null);
+   }
+
+   public static WriteStatus duplicate(String trackingId) {
+      return new WriteStatus(trackingId, State.DUPLICATE, null, "Employee already exists!!");
+   }
+
+   public static WriteStatus failed(String trackingId, String message) {
+      return new WriteStatus(trackingId, State.FAILED, null, message);
+   }
+
+   // Outcome of the write as part of a saveEmployees batch
+   public static WriteStatus of(String trackingId, BatchItemResult result) {
+      return new WriteStatus(trackingId, State.valueOf(result.getStatus().name()), result.getId(),
+            result.getMessage());
+   }
+}
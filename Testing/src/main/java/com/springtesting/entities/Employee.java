@@ -1,11 +1,20 @@
 package com.springtesting.entities;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -18,11 +27,29 @@ import lombok.Setter;
 @NoArgsConstructor
 @Builder
 @Entity
-@Table(name = "employee")
+@Table(name = "employee", indexes = {
+      @Index(name = Employee.EMAIL_INDEX, columnList = "email", unique = true),
+      @Index(name = "ix_employee_last_first", columnList = "last_name, first_name"),
+      @Index(name = "ix_employee_first", columnList = "first_name"),
+      @Index(name = "ix_employee_last_first_lc", columnList = "last_name_lc, first_name_lc"),
+      @Index(name = "ix_employee_first_lc", columnList = "first_name_lc"),
+      @Index(name = "ix_employee_email_lc", columnList = "email_lc")
+})
+// Only cached when the second-level cache is switched on (see SecondLevelCacheConfig)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Employee.CACHE_REGION)
 public class Employee {
 
+   public static final String EMAIL_INDEX = "ux_employee_email";
+
+   public static final String CACHE_REGION = "employee";
+
+   public static final String QUERY_CACHE_REGION = "employee-queries";
+
+   // Sequence instead of identity so Hibernate can batch inserts, ids are handed out in blocks of 50
    @Id
-   @GeneratedValue(strategy = GenerationType.IDENTITY)
+   @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "employee_seq")
+   @SequenceGenerator(name = "employee_seq", sequenceName = "employee_seq", allocationSize = 50)
    private long id;
 
    @Column(name = "first_name", nullable = false)
@@ -33,4 +60,26 @@ public class Employee {
 
    @Column(nullable = false)
    private String email;
+
+   // Bumped by every write, a write that carries an older version fails instead of overwriting a newer one
+   @Version
+   @Column(nullable = false)
+   private long version;
+
+   // Lower-cased copies computed by the database so case-insensitive search can use an index.
+   // Read-only here and not part of the JSON.
+   @JsonIgnore
+   @Column(name = "first_name_lc", insertable = false, updatable = false,
+         columnDefinition = "varchar(255) generated always as (lower(first_name))")
+   private String firstNameLc;
+
+   @JsonIgnore
+   @Column(name = "last_name_lc", insertable = false, updatable = false,
+         columnDefinition = "varchar(255) generated always as (lower(last_name))")
+   private String lastNameLc;
+
+   @JsonIgnore
+   @Column(name = "email_lc", insertable = false, updatable = false,
+         columnDefinition = "varchar(255) generated always as (lower(email))")
+   private String emailLc;
 }
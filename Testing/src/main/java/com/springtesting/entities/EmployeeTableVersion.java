@@ -0,0 +1,29 @@
+package com.springtesting.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// Count of the writes to the employee table, a single row moved on in the transaction of every write when
+// employee.etag.shared-version is set (see EmployeeChangeCounter)
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "employee_table_version")
+public class EmployeeTableVersion {
+
+   public static final long ID = 1;
+
+   @Id
+   private long id;
+
+   @Column(nullable = false)
+   private long changes;
+}
@@ -0,0 +1,8 @@
+package com.springtesting.exception;
+
+public class DatabaseBusyException extends RuntimeException {
+
+   public DatabaseBusyException(String message) {
+      super(message);
+   }
+}
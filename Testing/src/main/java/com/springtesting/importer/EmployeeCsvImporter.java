@@ -0,0 +1,274 @@
+package com.springtesting.importer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.springtesting.dto.BatchItemResult;
+import com.springtesting.dto.ImportReport;
+import com.springtesting.dto.ImportRowError;
+import com.springtesting.entities.Employee;
+import com.springtesting.exception.ResourceNotFoundException;
+import com.springtesting.service.EmployeeService;
+import com.springtesting.service.impl.EmployeeServiceImpl;
+
+// Bulk import of employees from CSV. The file is parsed as it is read, only one chunk of rows is held at a time,
+// so memory does not grow with the size of the file. Each chunk goes through EmployeeService.saveEmployees in its
+// own transaction, which rejects emails already in the database or earlier in the chunk; rows of earlier chunks are
+// committed by then and are caught by the same database check.
+@Component
+@Profile("!reactive")
+public class EmployeeCsvImporter {
+
+   // Length of the varchar columns
+   static final int MAX_VALUE_LENGTH = 255;
+
+   private static final Logger log = LoggerFactory.getLogger(EmployeeCsvImporter.class);
+
+   // Every record as a String[], the header is mapped to columns here rather than by Jackson so that a row with
+   // the wrong number of values is reported instead of failing the import
+   private static final ObjectReader ROWS = new CsvMapper()
+         .enable(CsvParser.Feature.WRAP_AS_ARRAY)
+         .enable(CsvParser.Feature.SKIP_EMPTY_LINES)
+         .enable(CsvParser.Feature.TRIM_SPACES)
+         .readerFor(String[].class);
+
+   private final EmployeeService employeeService;
+
+   private final int chunkSize;
+
+   private final int maxErrors;
+
+   private final long progressIntervalNanos;
+
+   public EmployeeCsvImporter(EmployeeService employeeService,
+         @Value("${employee.import.chunk-size:1000}") int chunkSize,
+         @Value("${employee.import.max-errors:1000}") int maxErrors,
+         @Value("${employee.import.progress-interval:1s}") Duration progressInterval) {
+      if (chunkSize < 1 || chunkSize > EmployeeServiceImpl.MAX_BATCH_SIZE) {
+         throw new IllegalArgumentException("employee.import.chunk-size must be between 1 and "
+               + EmployeeServiceImpl.MAX_BATCH_SIZE);
+      }
+      this.employeeService = employeeService;
+      this.chunkSize = chunkSize;
+      this.maxErrors = maxErrors;
+      this.progressIntervalNanos = progressInterval.toNanos();
+   }
+
+   // Reads the header row, which has to name the firstName, lastName and email columns (any order and case, other
+   // columns are ignored). IllegalArgumentException when it does not, before anything is imported.
+   public CsvImport open(InputStream csv) throws IOException {
+      MappingIterator<String[]> rows = ROWS.readValues(csv);
+      try {
+         if (!rows.hasNextValue()) {
+            throw new IllegalArgumentException("The CSV is empty, expected a header row with firstName, lastName, email");
+         }
+         String[] header = rows.nextValue();
+         return new CsvImport(rows, header.length, column(header, "firstName"), column(header, "lastName"),
+               column(header, "email"));
+      } catch (IOException | RuntimeException e) {
+         rows.close();
+         throw e;
+      }
+   }
+
+   private static int column(String[] header, String name) {
+      for (int i = 0; i < header.length; i++) {
+         if (header[i].toLowerCase(Locale.ROOT).equals(name.toLowerCase(Locale.ROOT))) {
+            return i;
+         }
+      }
+      throw new IllegalArgumentException("The CSV header has no " + name + " column");
+   }
+
+   // One import, run() it once
+   public final class CsvImport implements AutoCloseable {
+
+      private final MappingIterator<String[]> rows;
+
+      private final int columns;
+
+      private final int firstName;
+
+      private final int lastName;
+
+      private final int email;
+
+      private final List<Employee> chunk = new ArrayList<>(chunkSize);
+
+      private final long[] chunkRows = new long[chunkSize];
+
+      private final List<ImportRowError> errors = new ArrayList<>();
+
+      private long errorsOmitted;
+
+      private long row;
+
+      private long created;
+
+      private long duplicates;
+
+      private long invalid;
+
+      private long failed;
+
+      private long started;
+
+      private CsvImport(MappingIterator<String[]> rows, int columns, int firstName, int lastName, int email) {
+         this.rows = rows;
+         this.columns = columns;
+         this.firstName = firstName;
+         this.lastName = lastName;
+         this.email = email;
+      }
+
+      // Imports every row, handing a report to progress about every progress-interval. Returns the final report.
+      // An exception from progress (e.g. the client went away) ends the import, chunks written so far stay.
+      public ImportReport run(Consumer<ImportReport> progress) {
+         started = System.nanoTime();
+         long lastProgress = started;
+         String abortedReason = null;
+         while (true) {
+            String[] values;
+            try {
+               if (!rows.hasNextValue()) {
+                  break;
+               }
+               values = rows.nextValue();
+            } catch (IOException | RuntimeException e) {
+               // The parser cannot be trusted to find the next record after broken quoting
+               abortedReason = "Unreadable CSV after row " + row + ": " + e.getMessage();
+               break;
+            }
+            row++;
+            add(values);
+            if (chunk.size() == chunkSize) {
+               flush();
+            }
+            // After every row, not only after a chunk is written: rows that are all invalid never fill a chunk
+            long now = System.nanoTime();
+            if (now - lastProgress >= progressIntervalNanos) {
+               lastProgress = now;
+               progress.accept(report(false, null));
+            }
+         }
+         flush();
+         ImportReport report = report(true, abortedReason);
+         log.info("Imported {} CSV rows in {} ms ({} rows/s): {} created, {} duplicates, {} invalid, {} failed{}",
+               report.getRows(), report.getElapsedMillis(), report.getRowsPerSecond(), created, duplicates, invalid,
+               failed, abortedReason == null ? "" : ", aborted: " + abortedReason);
+         return report;
+      }
+
+      @Override
+      public void close() throws IOException {
+         rows.close();
+      }
+
+      private void add(String[] values) {
+         if (values.length != columns) {
+            invalid(values, "Expected " + columns + " values, found " + values.length);
+            return;
+         }
+         Employee employee = Employee.builder()
+               .firstName(emptyToNull(values[firstName]))
+               .lastName(emptyToNull(values[lastName]))
+               .email(emptyToNull(values[email]))
+               .build();
+         if (employee.getFirstName() == null || employee.getLastName() == null || employee.getEmail() == null) {
+            invalid(values, "firstName, lastName and email are required");
+         } else if (employee.getFirstName().length() > MAX_VALUE_LENGTH
+               || employee.getLastName().length() > MAX_VALUE_LENGTH
+               || employee.getEmail().length() > MAX_VALUE_LENGTH) {
+            invalid(values, "Values are limited to " + MAX_VALUE_LENGTH + " characters");
+         } else {
+            chunkRows[chunk.size()] = row;
+            chunk.add(employee);
+         }
+      }
+
+      private void invalid(String[] values, String message) {
+         invalid++;
+         error(row, ImportRowError.Reason.INVALID, values.length > email ? values[email] : null, message);
+      }
+
+      private void flush() {
+         if (chunk.isEmpty()) {
+            return;
+         }
+         List<BatchItemResult> results;
+         try {
+            results = employeeService.saveEmployees(chunk);
+         } catch (RuntimeException e) {
+            // e.g. a concurrent create of one of the emails failed the whole transaction, one by one only it fails
+            for (int i = 0; i < chunk.size(); i++) {
+               saveOne(chunkRows[i], chunk.get(i));
+            }
+            chunk.clear();
+            return;
+         }
+         for (BatchItemResult result : results) {
+            long resultRow = chunkRows[result.getIndex()];
+            String resultEmail = chunk.get(result.getIndex()).getEmail();
+            switch (result.getStatus()) {
+               case CREATED -> created++;
+               case DUPLICATE -> {
+                  duplicates++;
+                  error(resultRow, ImportRowError.Reason.DUPLICATE, resultEmail, result.getMessage());
+               }
+               case INVALID -> {
+                  invalid++;
+                  error(resultRow, ImportRowError.Reason.INVALID, resultEmail, result.getMessage());
+               }
+            }
+         }
+         chunk.clear();
+      }
+
+      private void saveOne(long employeeRow, Employee employee) {
+         try {
+            employeeService.savedEmployee(employee);
+            created++;
+         } catch (ResourceNotFoundException e) {
+            duplicates++;
+            error(employeeRow, ImportRowError.Reason.DUPLICATE, employee.getEmail(), e.getMessage());
+         } catch (RuntimeException e) {
+            failed++;
+            error(employeeRow, ImportRowError.Reason.FAILED, employee.getEmail(), e.getMessage());
+         }
+      }
+
+      private void error(long errorRow, ImportRowError.Reason reason, String errorEmail, String message) {
+         if (errors.size() < maxErrors) {
+            errors.add(new ImportRowError(errorRow, reason, errorEmail, message));
+         } else {
+            errorsOmitted++;
+         }
+      }
+
+      private ImportReport report(boolean done, String abortedReason) {
+         long elapsedNanos = Math.max(1, System.nanoTime() - started);
+         return new ImportReport(done, row, created, duplicates, invalid, failed,
+               Duration.ofNanos(elapsedNanos).toMillis(), row * 1_000_000_000L / elapsedNanos,
+               done ? List.copyOf(errors) : null, done ? errorsOmitted : null, abortedReason);
+      }
+   }
+
+   private static String emptyToNull(String value) {
+      return value == null || value.isEmpty() ? null : value;
+   }
+}
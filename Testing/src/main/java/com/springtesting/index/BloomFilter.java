@@ -0,0 +1,93 @@
+package com.springtesting.index;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Lock-free Bloom filter over strings. Bits live in an AtomicLongArray and are set with CAS, so put and
+// mightContain can run from any number of threads without a lock. Answers are "definitely absent" or "maybe present".
+public class BloomFilter {
+
+   private final AtomicLongArray words;
+
+   private final long bitSize;
+
+   private final int hashFunctions;
+
+   private final LongAdder insertions = new LongAdder();
+
+   public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+      if (expectedInsertions <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+         throw new IllegalArgumentException("expectedInsertions must be > 0 and falsePositiveRate in (0, 1)");
+      }
+      // m = -n ln(p) / (ln 2)^2, k = m/n ln 2
+      long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+      this.words = new AtomicLongArray(Math.toIntExact((bits + 63) / 64));
+      this.bitSize = words.length() * 64L;
+      this.hashFunctions = Math.max(1, (int) Math.round((double) bitSize / expectedInsertions * Math.log(2)));
+   }
+
+   public void put(String value) {
+      long hash1 = hash(value);
+      long hash2 = mix(hash1 + 0x9E3779B97F4A7C15L) | 1;
+      for (int i = 0; i < hashFunctions; i++) {
+         long bit = Math.floorMod(hash1 + i * hash2, bitSize);
+         int word = (int) (bit >>> 6);
+         long mask = 1L << bit;
+         long current;
+         while (((current = words.get(word)) & mask) == 0) {
+            if (words.compareAndSet(word, current, current | mask)) {
+               break;
+            }
+         }
+      }
+      insertions.increment();
+   }
+
+   public boolean mightContain(String value) {
+      long hash1 = hash(value);
+      long hash2 = mix(hash1 + 0x9E3779B97F4A7C15L) | 1;
+      for (int i = 0; i < hashFunctions; i++) {
+         long bit = Math.floorMod(hash1 + i * hash2, bitSize);
+         if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   // (1 - e^(-kn/m))^k for the number of puts so far, grows past the configured rate once the filter is overfilled
+   public double expectedFalsePositiveRate() {
+      return Math.pow(1 - Math.exp(-hashFunctions * (double) insertions.sum() / bitSize), hashFunctions);
+   }
+
+   public long insertions() {
+      return insertions.sum();
+   }
+
+   public long memoryBytes() {
+      return words.length() * 8L;
+   }
+
+   public int hashFunctions() {
+      return hashFunctions;
+   }
+
+   // 64-bit FNV-1a over the UTF-16 code units, finished with the murmur3 mixer
+   private static long hash(String value) {
+      long hash = 0xCBF29CE484222325L;
+      for (int i = 0; i < value.length(); i++) {
+         hash ^= value.charAt(i);
+         hash *= 0x100000001B3L;
+      }
+      return mix(hash);
+   }
+
+   private static long mix(long hash) {
+      hash ^= hash >>> 33;
+      hash *= 0xFF51AFD7ED558CCDL;
+      hash ^= hash >>> 33;
+      hash *= 0xC4CEB9FE1A85EC53L;
+      hash ^= hash >>> 33;
+      return hash;
+   }
+}
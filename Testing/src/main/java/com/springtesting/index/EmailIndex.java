@@ -0,0 +1,97 @@
+package com.springtesting.index;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.springtesting.repository.EmployeeRepo;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+// Membership of employee emails in front of the database. "Definitely absent" lets callers skip the findByEmail
+// query; "maybe present" means they still have to ask the database. "Definitely absent" is only as good as what the
+// filter has seen: nothing before the warm-up is done, and never rows written by other instances or with plain SQL.
+// It is used where the unique index on email backs it up and its violation is translated (single creates), a stale
+// answer then costs a rejected insert rather than a wrong one. Deletes are not removed from the filter.
+@Component
+public class EmailIndex implements MeterBinder {
+
+   private final EmployeeRepo employeeRepo;
+
+   private final BloomFilter filter;
+
+   private final LongAdder definitelyAbsent = new LongAdder();
+
+   private final LongAdder maybePresent = new LongAdder();
+
+   private final LongAdder falsePositives = new LongAdder();
+
+   public EmailIndex(EmployeeRepo employeeRepo,
+         @Value("${employee.email-index.expected-insertions:1000000}") long expectedInsertions,
+         @Value("${employee.email-index.false-positive-rate:0.01}") double falsePositiveRate) {
+      this.employeeRepo = employeeRepo;
+      this.filter = new BloomFilter(expectedInsertions, falsePositiveRate);
+   }
+
+   // Read from the primary, not a replica (see ReadReplicaConfig): an email a lagging replica has not seen yet would be
+   // "definitely absent" here while it exists
+   @EventListener(ApplicationReadyEvent.class)
+   @Transactional
+   public void warmUp() {
+      try (Stream<String> emails = employeeRepo.streamAllEmails()) {
+         emails.forEach(filter::put);
+      }
+   }
+
+   public boolean mightContain(String email) {
+      if (email != null && filter.mightContain(email)) {
+         maybePresent.increment();
+         return true;
+      }
+      definitelyAbsent.increment();
+      return false;
+   }
+
+   public void add(String email) {
+      if (email != null) {
+         filter.put(email);
+      }
+   }
+
+   // Callers report a "maybe present" that the database answered with absent
+   public void recordFalsePositive() {
+      falsePositives.increment();
+   }
+
+   // Share of absent emails that still went to the database
+   public double observedFalsePositiveRate() {
+      double absent = definitelyAbsent.sum() + falsePositives.sum();
+      return absent == 0 ? 0 : falsePositives.sum() / absent;
+   }
+
+   public double expectedFalsePositiveRate() {
+      return filter.expectedFalsePositiveRate();
+   }
+
+   @Override
+   public void bindTo(MeterRegistry registry) {
+      Gauge.builder("employee.email.index.fpp", this, EmailIndex::observedFalsePositiveRate)
+            .tag("kind", "observed").register(registry);
+      Gauge.builder("employee.email.index.fpp", this, EmailIndex::expectedFalsePositiveRate)
+            .tag("kind", "expected").register(registry);
+      Gauge.builder("employee.email.index.memory", filter, BloomFilter::memoryBytes)
+            .baseUnit("bytes").register(registry);
+      FunctionCounter.builder("employee.email.index.lookups", definitelyAbsent, LongAdder::sum)
+            .tag("result", "absent").register(registry);
+      FunctionCounter.builder("employee.email.index.lookups", maybePresent, LongAdder::sum)
+            .tag("result", "maybe").register(registry);
+   }
+}
@@ -0,0 +1,163 @@
+package com.springtesting.index;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.springtesting.dto.EmployeePatch;
+import com.springtesting.dto.EmployeeSuggestion;
+import com.springtesting.dto.EmployeeView;
+import com.springtesting.entities.Employee;
+import com.springtesting.repository.EmployeeRepo;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+// Typeahead over first name, last name and email (see TypeaheadIndex), so suggestions never run a LIKE '%q%' over
+// the table. Loaded once at startup, then kept up to date by every write through EmployeeService after it commits.
+// Queries share a read lock and run side by side, a write holds the write lock for the few postings it appends.
+// Writes made behind this instance's back (other instances, plain SQL) are not seen until the next rebuild.
+@Component
+public class EmployeeTypeahead implements MeterBinder, SmartInitializingSingleton {
+
+   static final String[] FIELDS = { "firstName", "lastName", "email" };
+
+   private final EmployeeRepo employeeRepo;
+
+   private final TransactionTemplate transactionTemplate;
+
+   private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+   private TypeaheadIndex index = new TypeaheadIndex(FIELDS.length);
+
+   public EmployeeTypeahead(EmployeeRepo employeeRepo, PlatformTransactionManager transactionManager) {
+      this.employeeRepo = employeeRepo;
+      // Like EmployeeCounts: a transaction of its own on the primary, also when run from another's afterCommit
+      this.transactionTemplate = new TransactionTemplate(transactionManager);
+      this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+   }
+
+   // Before the web server and the write-behind writer start, so no write is missed between the load and the first
+   // write applied to it
+   @Override
+   public void afterSingletonsInstantiated() {
+      rebuild();
+   }
+
+   // Loads the table into a new index and swaps it in, queries keep using the old one meanwhile. Writes committing
+   // during the load can be missed, which is why it only runs at startup and after a write that could not be applied
+   // exactly.
+   public void rebuild() {
+      TypeaheadIndex rebuilt = new TypeaheadIndex(FIELDS.length);
+      transactionTemplate.executeWithoutResult(status -> {
+         try (Stream<EmployeeView> employees = employeeRepo.streamAll()) {
+            employees.forEach(employee -> rebuilt.put(employee.id(), employee.firstName(), employee.lastName(),
+                  employee.email()));
+         }
+      });
+      rebuilt.trim();
+      lock.writeLock().lock();
+      try {
+         index = rebuilt;
+      } finally {
+         lock.writeLock().unlock();
+      }
+   }
+
+   public void put(Employee employee) {
+      long id = employee.getId();
+      String[] entry = { employee.getFirstName(), employee.getLastName(), employee.getEmail() };
+      afterCommit(() -> write(() -> index.put(id, entry)));
+   }
+
+   // Only the patched fields are given, the others are taken from the index
+   public void patched(long id, EmployeePatch patch) {
+      String[] patched = { patch.getFirstName(), patch.getLastName(), patch.getEmail() };
+      afterCommit(() -> write(() -> {
+         String[] entry = index.get(id);
+         if (entry != null) {
+            for (int field = 0; field < entry.length; field++) {
+               if (patched[field] != null) {
+                  entry[field] = patched[field];
+               }
+            }
+            index.put(id, entry);
+         }
+      }));
+   }
+
+   public void removed(Collection<Long> ids) {
+      if (!ids.isEmpty()) {
+         afterCommit(() -> write(() -> ids.forEach(index::remove)));
+      }
+   }
+
+   public void rebuildAfterCommit() {
+      afterCommit(this::rebuild);
+   }
+
+   public List<EmployeeSuggestion> suggest(String query, int limit) {
+      return read(() -> index.search(query, limit)).stream()
+            .map(hit -> new EmployeeSuggestion(hit.id(), hit.values().get(0), hit.values().get(1),
+                  hit.values().get(2), FIELDS[hit.field()]))
+            .toList();
+   }
+
+   public int size() {
+      return read(() -> index.size());
+   }
+
+   public long memoryBytes() {
+      return read(() -> index.memoryBytes());
+   }
+
+   @Override
+   public void bindTo(MeterRegistry registry) {
+      Gauge.builder("employee.typeahead.entries", this, EmployeeTypeahead::size).register(registry);
+      Gauge.builder("employee.typeahead.memory", this, EmployeeTypeahead::memoryBytes)
+            .baseUnit("bytes").register(registry);
+   }
+
+   private void write(Runnable change) {
+      lock.writeLock().lock();
+      try {
+         change.run();
+      } finally {
+         lock.writeLock().unlock();
+      }
+   }
+
+   private <T> T read(Supplier<T> reading) {
+      lock.readLock().lock();
+      try {
+         return reading.get();
+      } finally {
+         lock.readLock().unlock();
+      }
+   }
+
+   private static void afterCommit(Runnable change) {
+      if (TransactionSynchronizationManager.isSynchronizationActive()) {
+         TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+               change.run();
+            }
+         });
+      } else {
+         change.run();
+      }
+   }
+}
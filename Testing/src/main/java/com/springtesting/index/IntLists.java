@@ -0,0 +1,83 @@
+package com.springtesting.index;
+
+import java.util.Arrays;
+
+// A pool of growable int lists, each an int[] grown by doubling and named by its position in the pool. Lists are
+// never removed, only emptied. Not thread-safe.
+final class IntLists {
+
+   private static final int[] EMPTY = new int[0];
+
+   private int[][] lists = new int[16][];
+
+   private int[] sizes = new int[16];
+
+   private int count;
+
+   int create() {
+      if (count == lists.length) {
+         lists = Arrays.copyOf(lists, count * 2);
+         sizes = Arrays.copyOf(sizes, count * 2);
+      }
+      lists[count] = EMPTY;
+      return count++;
+   }
+
+   int count() {
+      return count;
+   }
+
+   int size(int list) {
+      return sizes[list];
+   }
+
+   // The list's backing array, valid up to size(list) and only until the list next grows
+   int[] array(int list) {
+      return lists[list];
+   }
+
+   int last(int list) {
+      return lists[list][sizes[list] - 1];
+   }
+
+   void add(int list, int value) {
+      insert(list, sizes[list], value);
+   }
+
+   void insert(int list, int index, int value) {
+      int size = sizes[list];
+      int[] values = lists[list];
+      if (size == values.length) {
+         values = Arrays.copyOf(values, Math.max(1, size * 2));
+         lists[list] = values;
+      }
+      System.arraycopy(values, index, values, index + 1, size - index);
+      values[index] = value;
+      sizes[list] = size + 1;
+   }
+
+   void clear(int list) {
+      lists[list] = EMPTY;
+      sizes[list] = 0;
+   }
+
+   // Shrinks every list to its size
+   void trim() {
+      for (int i = 0; i < count; i++) {
+         if (lists[i].length != sizes[i]) {
+            lists[i] = sizes[i] == 0 ? EMPTY : Arrays.copyOf(lists[i], sizes[i]);
+         }
+      }
+      lists = Arrays.copyOf(lists, Math.max(1, count));
+      sizes = Arrays.copyOf(sizes, Math.max(1, count));
+   }
+
+   long memoryBytes() {
+      // a reference and a size per list, plus each array's header and ints
+      long bytes = lists.length * 8L;
+      for (int i = 0; i < count; i++) {
+         bytes += lists[i] == EMPTY ? 0 : 16 + lists[i].length * (long) Integer.BYTES;
+      }
+      return bytes;
+   }
+}
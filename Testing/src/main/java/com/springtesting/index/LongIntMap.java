@@ -0,0 +1,123 @@
+package com.springtesting.index;
+
+import java.util.Arrays;
+
+// Open addressing map from long to int with linear probing, keys and values in two primitive arrays so nothing is
+// boxed. Long.MIN_VALUE marks a free cell and cannot be used as a key. Not thread-safe.
+final class LongIntMap {
+
+   static final int MISSING = -1;
+
+   private static final long FREE = Long.MIN_VALUE;
+
+   private long[] keys;
+
+   private int[] values;
+
+   private int shift;
+
+   private int size;
+
+   LongIntMap(int expectedSize) {
+      int capacity = 16;
+      while (capacity < expectedSize * 2L) {
+         capacity <<= 1;
+      }
+      allocate(capacity);
+   }
+
+   int size() {
+      return size;
+   }
+
+   int get(long key) {
+      for (int i = home(key); keys[i] != FREE; i = next(i)) {
+         if (keys[i] == key) {
+            return values[i];
+         }
+      }
+      return MISSING;
+   }
+
+   void put(long key, int value) {
+      if (key == FREE) {
+         throw new IllegalArgumentException("Long.MIN_VALUE cannot be a key");
+      }
+      if ((size + 1) * 2L > keys.length) {
+         resize();
+      }
+      int i = home(key);
+      while (keys[i] != FREE) {
+         if (keys[i] == key) {
+            values[i] = value;
+            return;
+         }
+         i = next(i);
+      }
+      keys[i] = key;
+      values[i] = value;
+      size++;
+   }
+
+   // Returns the value that was removed, MISSING when there was none
+   int remove(long key) {
+      int i = home(key);
+      while (keys[i] != key) {
+         if (keys[i] == FREE) {
+            return MISSING;
+         }
+         i = next(i);
+      }
+      int removed = values[i];
+      // Moves later keys of the probe sequence back into the gap, so lookups never stop early at it
+      int gap = i;
+      for (int j = next(i); keys[j] != FREE; j = next(j)) {
+         int mask = keys.length - 1;
+         if (((j - home(keys[j])) & mask) >= ((j - gap) & mask)) {
+            keys[gap] = keys[j];
+            values[gap] = values[j];
+            gap = j;
+         }
+      }
+      keys[gap] = FREE;
+      size--;
+      return removed;
+   }
+
+   void clear() {
+      allocate(16);
+      size = 0;
+   }
+
+   long memoryBytes() {
+      return keys.length * (long) (Long.BYTES + Integer.BYTES);
+   }
+
+   private void resize() {
+      long[] oldKeys = keys;
+      int[] oldValues = values;
+      allocate(oldKeys.length * 2);
+      size = 0;
+      for (int i = 0; i < oldKeys.length; i++) {
+         if (oldKeys[i] != FREE) {
+            put(oldKeys[i], oldValues[i]);
+         }
+      }
+   }
+
+   private void allocate(int capacity) {
+      keys = new long[capacity];
+      Arrays.fill(keys, FREE);
+      values = new int[capacity];
+      shift = Long.numberOfLeadingZeros(capacity - 1L);
+   }
+
+   // Fibonacci hashing, the multiplication spreads sequential ids and trigram codes over the whole table
+   private int home(long key) {
+      return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+   }
+
+   private int next(int i) {
+      return (i + 1) & (keys.length - 1);
+   }
+}
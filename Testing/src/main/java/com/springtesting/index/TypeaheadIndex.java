@@ -0,0 +1,632 @@
+package com.springtesting.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+
+// Case-insensitive prefix and substring matches over a few short text fields per entry, answered from memory. Made
+// for typeahead: a query returns the best few matches, in two tiers:
+//   1. the value itself, then the values starting with the query, in alphabetical order
+//   2. from three characters on, the values holding the query at the start of a later word, then anywhere else,
+//      shorter values first
+// An entry matching in several fields is returned once, for the first of its matches in that order.
+//
+// Values are indexed as terms: the distinct lower-cased values, each with the postings of the entries holding it, so
+// a last name shared by thousands of entries is stored once. The terms sit in a burst trie, a trie whose nodes keep up
+// to BUCKET_SIZE terms in a sorted bucket and only split by the next character once it overflows. Walking it lists
+// the terms under a prefix in order, so the first tier stops as soon as it has enough hits. The second tier
+// intersects the query's trigram lists, each the terms holding that trigram, and ranks the terms left.
+//
+// Everything is held in primitive arrays (see IntLists and LongIntMap). A posting is an int, the entry's slot shifted
+// left by two plus the field. Entries are append-only: a removal marks the slot dead and leaves its postings behind to
+// be skipped, a put of an existing id is a removal and an add. Once dead slots outnumber live ones the index is
+// rebuilt from the live entries. Not thread-safe, EmployeeTypeahead guards it with a read-write lock.
+public class TypeaheadIndex {
+
+   public enum Rank {
+      // The whole value
+      EXACT,
+      // The start of the value
+      PREFIX,
+      // The start of a later word, after a character that is not a letter or digit ("singh" in "ashwin.singh@...")
+      WORD,
+      // Anywhere else
+      CONTAINS
+   }
+
+   public record Hit(long id, List<String> values, int field, Rank rank) {
+   }
+
+   static final int GRAM = 3;
+
+   // Marks the key of a trigram list holding the terms where the trigram starts a later word
+   private static final long WORD_START = 1L << 48;
+
+   static final int MAX_FIELDS = 4;
+
+   static final int BUCKET_SIZE = 64;
+
+   // Rebuilding for fewer dead slots than this costs more than the postings it frees
+   static final int MIN_DEAD_TO_COMPACT = 1024;
+
+   private static final int ROOT = 0;
+
+   private final int fields;
+
+   // Entries, by slot
+   private long[] ids;
+
+   private String[] values;
+
+   private final BitSet dead = new BitSet();
+
+   private int slots;
+
+   private final LongIntMap slotsById = new LongIntMap(16);
+
+   // Terms, the postings of term t are list t, in slot order
+   private String[] terms;
+
+   // The length of every term, so the second tier can turn most candidates away without reading their strings
+   private int[] termLengths;
+
+   private IntLists termPostings;
+
+   // The trie, children chained through nextSibling in character order. A node has either a bucket of terms or,
+   // once burst, children and the term ending at it if there is one.
+   private char[] nodeChars;
+
+   private int[] firstChild;
+
+   private int[] nextSibling;
+
+   private int[] nodeTerm;
+
+   private int[] nodeBucket;
+
+   private int nodes;
+
+   private IntLists buckets;
+
+   // The terms holding each trigram, and those holding it at the start of a later word, ascending
+   private final LongIntMap gramLists = new LongIntMap(16);
+
+   private IntLists grams;
+
+   public TypeaheadIndex(int fields) {
+      if (fields < 1 || fields > MAX_FIELDS) {
+         throw new IllegalArgumentException("Between 1 and " + MAX_FIELDS + " fields");
+      }
+      this.fields = fields;
+      clear();
+   }
+
+   public int size() {
+      return slotsById.size();
+   }
+
+   // Adds the entry, or replaces it when the id is already there. A null value is not indexed.
+   public void put(long id, String... entry) {
+      if (entry.length != fields) {
+         throw new IllegalArgumentException("Expected " + fields + " values, got " + entry.length);
+      }
+      kill(slotsById.remove(id));
+      add(id, entry.clone());
+      compactIfMostlyDead();
+   }
+
+   public boolean remove(long id) {
+      if (!kill(slotsById.remove(id))) {
+         return false;
+      }
+      compactIfMostlyDead();
+      return true;
+   }
+
+   // The entry's values, null when the id is not in the index
+   public String[] get(long id) {
+      int slot = slotsById.get(id);
+      return slot == LongIntMap.MISSING ? null : Arrays.copyOfRange(values, slot * fields, (slot + 1) * fields);
+   }
+
+   // At most limit entries, best first
+   public List<Hit> search(String query, int limit) {
+      String term = query.toLowerCase(Locale.ROOT);
+      if (term.isEmpty() || limit <= 0) {
+         return List.of();
+      }
+      Hits hits = new Hits(limit);
+      startingWith(term, hits);
+      if (!hits.full() && term.length() >= GRAM) {
+         containing(term, hits);
+      }
+      List<Hit> result = new ArrayList<>(hits.size);
+      for (int i = 0; i < hits.size; i++) {
+         int slot = hits.slots[i];
+         result.add(new Hit(ids[slot], Arrays.asList(Arrays.copyOfRange(values, slot * fields, (slot + 1) * fields)),
+               hits.fields[i], hits.ranks[i]));
+      }
+      return result;
+   }
+
+   // Shrinks every array to what it holds, for after a bulk load
+   public void trim() {
+      ids = Arrays.copyOf(ids, Math.max(1, slots));
+      values = Arrays.copyOf(values, ids.length * fields);
+      terms = Arrays.copyOf(terms, Math.max(1, termPostings.count()));
+      termLengths = Arrays.copyOf(termLengths, terms.length);
+      nodeChars = Arrays.copyOf(nodeChars, nodes);
+      firstChild = Arrays.copyOf(firstChild, nodes);
+      nextSibling = Arrays.copyOf(nextSibling, nodes);
+      nodeTerm = Arrays.copyOf(nodeTerm, nodes);
+      nodeBucket = Arrays.copyOf(nodeBucket, nodes);
+      termPostings.trim();
+      buckets.trim();
+      grams.trim();
+   }
+
+   // Bytes held by the index's own arrays, the value strings are not counted
+   public long memoryBytes() {
+      return ids.length * (long) Long.BYTES + values.length * 4L + dead.size() / 8 + terms.length * 8L
+            + nodeChars.length * (long) (Character.BYTES + 4 * Integer.BYTES) + slotsById.memoryBytes()
+            + gramLists.memoryBytes() + termPostings.memoryBytes() + buckets.memoryBytes() + grams.memoryBytes();
+   }
+
+   private void add(long id, String[] entry) {
+      if (slots == ids.length) {
+         ids = Arrays.copyOf(ids, slots * 2);
+         values = Arrays.copyOf(values, ids.length * fields);
+      }
+      int slot = slots++;
+      ids[slot] = id;
+      slotsById.put(id, slot);
+      System.arraycopy(entry, 0, values, slot * fields, fields);
+      for (int field = 0; field < fields; field++) {
+         if (entry[field] != null) {
+            // The value itself when it is lower case already, as emails usually are
+            String term = entry[field].toLowerCase(Locale.ROOT);
+            int t = findTerm(term);
+            termPostings.add(t < 0 ? addTerm(term) : t, slot << 2 | field);
+         }
+      }
+   }
+
+   private int addTerm(String term) {
+      int t = termPostings.create();
+      if (t == terms.length) {
+         terms = Arrays.copyOf(terms, t * 2);
+         termLengths = Arrays.copyOf(termLengths, t * 2);
+      }
+      terms[t] = term;
+      termLengths[t] = term.length();
+      insertIntoTrie(t);
+      for (int i = 0; i + GRAM <= term.length(); i++) {
+         addToGramList(gram(term, i), t);
+         if (i > 0 && !Character.isLetterOrDigit(term.charAt(i - 1))) {
+            addToGramList(gram(term, i) | WORD_START, t);
+         }
+      }
+      return t;
+   }
+
+   private void addToGramList(long key, int t) {
+      int list = gramLists.get(key);
+      if (list == LongIntMap.MISSING) {
+         list = grams.create();
+         gramLists.put(key, list);
+      }
+      // New terms come last, so a trigram seen twice in this term is already at the end
+      if (grams.size(list) == 0 || grams.last(list) != t) {
+         grams.add(list, t);
+      }
+   }
+
+   private boolean kill(int slot) {
+      if (slot == LongIntMap.MISSING) {
+         return false;
+      }
+      dead.set(slot);
+      Arrays.fill(values, slot * fields, (slot + 1) * fields, null);
+      return true;
+   }
+
+   private void compactIfMostlyDead() {
+      int deadSlots = slots - slotsById.size();
+      if (deadSlots >= MIN_DEAD_TO_COMPACT && deadSlots > slotsById.size()) {
+         long[] oldIds = ids;
+         String[] oldValues = values;
+         BitSet oldDead = (BitSet) dead.clone();
+         int oldSlots = slots;
+         clear();
+         for (int slot = 0; slot < oldSlots; slot++) {
+            if (!oldDead.get(slot)) {
+               add(oldIds[slot], Arrays.copyOfRange(oldValues, slot * fields, (slot + 1) * fields));
+            }
+         }
+      }
+   }
+
+   private void clear() {
+      ids = new long[16];
+      values = new String[16 * fields];
+      dead.clear();
+      slots = 0;
+      slotsById.clear();
+      terms = new String[16];
+      termLengths = new int[16];
+      termPostings = new IntLists();
+      nodeChars = new char[16];
+      firstChild = new int[16];
+      nextSibling = new int[16];
+      nodeTerm = new int[16];
+      nodeBucket = new int[16];
+      nodes = 0;
+      buckets = new IntLists();
+      gramLists.clear();
+      grams = new IntLists();
+      newNode('\0');
+   }
+
+   private int findTerm(String term) {
+      int node = ROOT;
+      for (int depth = 0; ; depth++) {
+         int bucket = nodeBucket[node];
+         if (bucket >= 0) {
+            int at = lowerBound(bucket, term);
+            int[] members = buckets.array(bucket);
+            return at < buckets.size(bucket) && terms[members[at]].equals(term) ? members[at] : -1;
+         }
+         if (depth == term.length()) {
+            return nodeTerm[node];
+         }
+         node = child(node, term.charAt(depth), false);
+         if (node < 0) {
+            return -1;
+         }
+      }
+   }
+
+   private void insertIntoTrie(int t) {
+      String term = terms[t];
+      int node = ROOT;
+      int depth = 0;
+      while (nodeBucket[node] < 0) {
+         if (depth == term.length()) {
+            nodeTerm[node] = t;
+            return;
+         }
+         node = child(node, term.charAt(depth++), true);
+      }
+      int bucket = nodeBucket[node];
+      buckets.insert(bucket, lowerBound(bucket, term), t);
+      if (buckets.size(bucket) > BUCKET_SIZE) {
+         burst(node, depth);
+      }
+   }
+
+   // Hands the bucket's terms down to a child per next character. They go in order, so the children's buckets are
+   // sorted too.
+   private void burst(int node, int depth) {
+      int bucket = nodeBucket[node];
+      int[] members = Arrays.copyOf(buckets.array(bucket), buckets.size(bucket));
+      buckets.clear(bucket);
+      nodeBucket[node] = -1;
+      for (int t : members) {
+         if (terms[t].length() == depth) {
+            nodeTerm[node] = t;
+         } else {
+            int child = child(node, terms[t].charAt(depth), true);
+            buckets.add(nodeBucket[child], t);
+         }
+      }
+      for (int child = firstChild[node]; child >= 0; child = nextSibling[child]) {
+         if (buckets.size(nodeBucket[child]) > BUCKET_SIZE) {
+            burst(child, depth + 1);
+         }
+      }
+   }
+
+   private int lowerBound(int bucket, String term) {
+      int[] members = buckets.array(bucket);
+      int low = 0;
+      int high = buckets.size(bucket);
+      while (low < high) {
+         int mid = (low + high) >>> 1;
+         if (terms[members[mid]].compareTo(term) < 0) {
+            low = mid + 1;
+         } else {
+            high = mid;
+         }
+      }
+      return low;
+   }
+
+   private int child(int parent, char c, boolean create) {
+      int previous = -1;
+      int node = firstChild[parent];
+      while (node >= 0 && nodeChars[node] < c) {
+         previous = node;
+         node = nextSibling[node];
+      }
+      if (node >= 0 && nodeChars[node] == c) {
+         return node;
+      }
+      if (!create) {
+         return -1;
+      }
+      int added = newNode(c);
+      nextSibling[added] = node;
+      if (previous < 0) {
+         firstChild[parent] = added;
+      } else {
+         nextSibling[previous] = added;
+      }
+      return added;
+   }
+
+   private int newNode(char c) {
+      if (nodes == nodeChars.length) {
+         int capacity = nodes * 2;
+         nodeChars = Arrays.copyOf(nodeChars, capacity);
+         firstChild = Arrays.copyOf(firstChild, capacity);
+         nextSibling = Arrays.copyOf(nextSibling, capacity);
+         nodeTerm = Arrays.copyOf(nodeTerm, capacity);
+         nodeBucket = Arrays.copyOf(nodeBucket, capacity);
+      }
+      int node = nodes++;
+      nodeChars[node] = c;
+      firstChild[node] = -1;
+      nextSibling[node] = -1;
+      nodeTerm[node] = -1;
+      nodeBucket[node] = buckets.create();
+      return node;
+   }
+
+   // The first tier, the terms starting with the query in order
+   private void startingWith(String query, Hits hits) {
+      int node = ROOT;
+      for (int depth = 0; depth < query.length(); depth++) {
+         int bucket = nodeBucket[node];
+         if (bucket >= 0) {
+            int[] members = buckets.array(bucket);
+            for (int i = lowerBound(bucket, query), size = buckets.size(bucket);
+                  i < size && !hits.full() && terms[members[i]].startsWith(query); i++) {
+               hits.add(members[i], prefixRank(members[i], query));
+            }
+            return;
+         }
+         node = child(node, query.charAt(depth), false);
+         if (node < 0) {
+            return;
+         }
+      }
+      addSubtree(node, query, hits);
+   }
+
+   private void addSubtree(int node, String query, Hits hits) {
+      if (nodeTerm[node] >= 0) {
+         hits.add(nodeTerm[node], prefixRank(nodeTerm[node], query));
+      }
+      int bucket = nodeBucket[node];
+      if (bucket >= 0) {
+         int[] members = buckets.array(bucket);
+         for (int i = 0, size = buckets.size(bucket); i < size && !hits.full(); i++) {
+            hits.add(members[i], prefixRank(members[i], query));
+         }
+      } else {
+         for (int child = firstChild[node]; child >= 0 && !hits.full(); child = nextSibling[child]) {
+            addSubtree(child, query, hits);
+         }
+      }
+   }
+
+   private Rank prefixRank(int t, String query) {
+      return terms[t].length() == query.length() ? Rank.EXACT : Rank.PREFIX;
+   }
+
+   // The second tier, the terms holding the query further in, ranked. The terms where it may start a later word
+   // come first. Once they fill the top terms nothing else can beat them, and until then the top terms only take
+   // shorter ones than their last, which the lengths alone decide for most candidates.
+   private void containing(String query, Hits hits) {
+      // An entry is reached through at most one term per field, so this many terms with an entry not yet among the
+      // hits are always enough
+      TopTerms top = new TopTerms((hits.limit - hits.size) * fields);
+      for (int t : termsWithAllGrams(query, true)) {
+         if (top.accepts(Rank.WORD, termLengths[t]) && containsRank(terms[t], query) == Rank.WORD
+               && top.accepts(Rank.WORD, terms[t]) && hits.anyNew(t)) {
+            top.add(t, Rank.WORD, terms[t]);
+         }
+      }
+      if (top.accepts(Rank.CONTAINS, 0)) {
+         for (int t : termsWithAllGrams(query, false)) {
+            if (top.accepts(Rank.CONTAINS, termLengths[t]) && containsRank(terms[t], query) == Rank.CONTAINS
+                  && top.accepts(Rank.CONTAINS, terms[t]) && hits.anyNew(t)) {
+               top.add(t, Rank.CONTAINS, terms[t]);
+            }
+         }
+      }
+      for (int i = 0; i < top.size && !hits.full(); i++) {
+         hits.add(top.terms[i], top.ranks[i]);
+      }
+   }
+
+   // The terms holding every trigram of the query, optionally with the first at the start of a later word. The
+   // shortest list is narrowed by each of the others, walking both when they are of a size and by binary search in
+   // the other when that is much longer.
+   private int[] termsWithAllGrams(String query, boolean wordStart) {
+      int[] lists = new int[query.length() - GRAM + 1];
+      int shortest = 0;
+      for (int i = 0; i < lists.length; i++) {
+         lists[i] = gramLists.get(i == 0 && wordStart ? gram(query, i) | WORD_START : gram(query, i));
+         if (lists[i] == LongIntMap.MISSING) {
+            return new int[0];
+         }
+         if (grams.size(lists[i]) < grams.size(lists[shortest])) {
+            shortest = i;
+         }
+      }
+      int count = grams.size(lists[shortest]);
+      int[] candidates = Arrays.copyOf(grams.array(lists[shortest]), count);
+      for (int i = 0; i < lists.length && count > 0; i++) {
+         if (lists[i] != lists[shortest]) {
+            count = intersect(candidates, count, grams.array(lists[i]), grams.size(lists[i]));
+         }
+      }
+      return Arrays.copyOf(candidates, count);
+   }
+
+   // Keeps the candidates also in other, both ascending, and returns how many are left
+   private static int intersect(int[] candidates, int count, int[] other, int otherSize) {
+      int kept = 0;
+      if (otherSize / 16 > count) {
+         for (int c = 0; c < count; c++) {
+            if (Arrays.binarySearch(other, 0, otherSize, candidates[c]) >= 0) {
+               candidates[kept++] = candidates[c];
+            }
+         }
+         return kept;
+      }
+      for (int c = 0, o = 0; c < count && o < otherSize; ) {
+         if (candidates[c] < other[o]) {
+            c++;
+         } else if (candidates[c] > other[o]) {
+            o++;
+         } else {
+            candidates[kept++] = candidates[c++];
+            o++;
+         }
+      }
+      return kept;
+   }
+
+   // Null when the term holds the query only at its start, which is the first tier, or not at all
+   static Rank containsRank(String term, String query) {
+      Rank rank = null;
+      for (int at = term.indexOf(query, 1); at > 0; at = term.indexOf(query, at + 1)) {
+         if (!Character.isLetterOrDigit(term.charAt(at - 1))) {
+            return Rank.WORD;
+         }
+         rank = Rank.CONTAINS;
+      }
+      return rank;
+   }
+
+   private static long gram(String term, int start) {
+      return (long) term.charAt(start) << 32 | (long) term.charAt(start + 1) << 16 | term.charAt(start + 2);
+   }
+
+   // The hits so far, best first
+   private final class Hits {
+
+      private final int limit;
+
+      private final int[] slots;
+
+      private final int[] fields;
+
+      private final Rank[] ranks;
+
+      private int size;
+
+      Hits(int limit) {
+         this.limit = limit;
+         slots = new int[limit];
+         fields = new int[limit];
+         ranks = new Rank[limit];
+      }
+
+      boolean full() {
+         return size == limit;
+      }
+
+      // The term's live entries that are not hits yet, until full
+      void add(int t, Rank rank) {
+         int[] postings = termPostings.array(t);
+         for (int i = 0, count = termPostings.size(t); i < count && !full(); i++) {
+            int slot = postings[i] >>> 2;
+            if (isNew(slot)) {
+               slots[size] = slot;
+               fields[size] = postings[i] & 3;
+               ranks[size++] = rank;
+            }
+         }
+      }
+
+      boolean anyNew(int t) {
+         int[] postings = termPostings.array(t);
+         for (int i = 0, count = termPostings.size(t); i < count; i++) {
+            if (isNew(postings[i] >>> 2)) {
+               return true;
+            }
+         }
+         return false;
+      }
+
+      private boolean isNew(int slot) {
+         if (dead.get(slot)) {
+            return false;
+         }
+         for (int i = 0; i < size; i++) {
+            if (slots[i] == slot) {
+               return false;
+            }
+         }
+         return true;
+      }
+   }
+
+   // The best terms so far, sorted by rank, length and then the term. Once full, most candidates are turned away by
+   // one comparison with the last.
+   private static final class TopTerms {
+
+      private final int[] terms;
+
+      private final Rank[] ranks;
+
+      private final String[] values;
+
+      private int size;
+
+      TopTerms(int capacity) {
+         terms = new int[capacity];
+         ranks = new Rank[capacity];
+         values = new String[capacity];
+      }
+
+      boolean accepts(Rank rank, String value) {
+         return size < terms.length || compare(rank, value, size - 1) < 0;
+      }
+
+      // Whether a term of the rank and length might be taken, a term of the same length still has to be compared
+      boolean accepts(Rank rank, int length) {
+         if (size < terms.length) {
+            return true;
+         }
+         int byRank = rank.compareTo(ranks[size - 1]);
+         return byRank < 0 || byRank == 0 && length <= values[size - 1].length();
+      }
+
+      void add(int t, Rank rank, String value) {
+         int at = size == terms.length ? size - 1 : size++;
+         for (; at > 0 && compare(rank, value, at - 1) < 0; at--) {
+            terms[at] = terms[at - 1];
+            ranks[at] = ranks[at - 1];
+            values[at] = values[at - 1];
+         }
+         terms[at] = t;
+         ranks[at] = rank;
+         values[at] = value;
+      }
+
+      private int compare(Rank rank, String value, int i) {
+         int byRank = rank.compareTo(ranks[i]);
+         if (byRank != 0) {
+            return byRank;
+         }
+         int byLength = Integer.compare(value.length(), values[i].length());
+         return byLength != 0 ? byLength : value.compareTo(values[i]);
+      }
+   }
+}
@@ -0,0 +1,100 @@
+package com.springtesting.metrics;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Window;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+// Times every EmployeeRepo call and records how many rows it returned or changed, tagged by method. Rows are only
+// recorded for results that are rows (lists, pages, windows) and for the UPDATE and DELETE methods, which return the
+// int row count; a count(), an exists or a single entity is timed but has no row count.
+// Calls slower than the threshold are logged, a sample of them when sample-rate < 1, in place of logging all SQL.
+@Aspect
+@Component
+public class RepositoryMetricsAspect {
+
+   private static final Logger SLOW_QUERY_LOG = LoggerFactory.getLogger("com.springtesting.repository.SLOW_QUERY");
+
+   private final MeterRegistry meterRegistry;
+
+   private final long slowQueryThresholdNanos;
+
+   private final double slowQuerySampleRate;
+
+   public RepositoryMetricsAspect(MeterRegistry meterRegistry,
+         @Value("${employee.metrics.slow-query.threshold:200ms}") Duration slowQueryThreshold,
+         @Value("${employee.metrics.slow-query.sample-rate:1.0}") double slowQuerySampleRate) {
+      this.meterRegistry = meterRegistry;
+      this.slowQueryThresholdNanos = slowQueryThreshold.toNanos();
+      this.slowQuerySampleRate = slowQuerySampleRate;
+   }
+
+   @Around("this(com.springtesting.repository.EmployeeRepo)")
+   public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+      String method = joinPoint.getSignature().getName();
+      long start = System.nanoTime();
+      String exception = "none";
+      Object result = null;
+      try {
+         result = joinPoint.proceed();
+         return result;
+      } catch (Throwable e) {
+         exception = e.getClass().getSimpleName();
+         throw e;
+      } finally {
+         long elapsed = System.nanoTime() - start;
+         Timer.builder("employee.repository")
+               .description("EmployeeRepo method calls")
+               .tag("method", method)
+               .tag("exception", exception)
+               .publishPercentileHistogram()
+               .register(meterRegistry)
+               .record(elapsed, TimeUnit.NANOSECONDS);
+         long rows = rows(((MethodSignature) joinPoint.getSignature()).getReturnType(), result);
+         if (rows >= 0) {
+            DistributionSummary.builder("employee.repository.rows")
+                  .description("Rows returned or changed per EmployeeRepo call")
+                  .tag("method", method)
+                  .register(meterRegistry)
+                  .record(rows);
+         }
+         if (elapsed >= slowQueryThresholdNanos && ThreadLocalRandom.current().nextDouble() < slowQuerySampleRate) {
+            SLOW_QUERY_LOG.warn("Slow EmployeeRepo.{} took {} ms ({} rows, exception={})", method,
+                  TimeUnit.NANOSECONDS.toMillis(elapsed), rows < 0 ? "?" : rows, exception);
+         }
+      }
+   }
+
+   // -1 for anything else, e.g. the long of count(), which is no number of rows read, or a stream, which cannot be
+   // counted without consuming it
+   private static long rows(Class<?> returnType, Object result) {
+      if (result instanceof Collection<?> collection) {
+         return collection.size();
+      }
+      if (result instanceof Window<?> window) {
+         return window.size();
+      }
+      if (result instanceof Page<?> page) {
+         return page.getNumberOfElements();
+      }
+      if ((returnType == int.class || returnType == Integer.class) && result instanceof Integer changed) {
+         return changed;
+      }
+      return -1;
+   }
+}
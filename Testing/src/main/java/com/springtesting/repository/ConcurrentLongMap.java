@@ -0,0 +1,136 @@
+package com.springtesting.repository;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Map from long to non-null values with linear probing, the keys in a primitive array so ids are not boxed, like
+// index/LongIntMap. Reads take no lock; writes are serialized on the map. A removed key keeps its cell with a null
+// value, which the same key takes again when it is put back. The table is rebuilt with only the live keys once used
+// cells fill half of it, readers still probing the old table see it as it was when the new one replaced it.
+// Long.MIN_VALUE cannot be a key.
+final class ConcurrentLongMap<V> {
+
+   private static final long FREE = Long.MIN_VALUE;
+
+   private static final class Table<V> {
+
+      private final AtomicLongArray keys;
+
+      private final AtomicReferenceArray<V> values;
+
+      private final int shift;
+
+      Table(int capacity) {
+         keys = new AtomicLongArray(capacity);
+         for (int i = 0; i < capacity; i++) {
+            keys.setPlain(i, FREE);
+         }
+         values = new AtomicReferenceArray<>(capacity);
+         shift = Long.numberOfLeadingZeros(capacity - 1L);
+      }
+
+      int length() {
+         return keys.length();
+      }
+
+      // Fibonacci hashing, the multiplication spreads sequential ids over the whole table
+      int home(long key) {
+         return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+      }
+
+      int next(int i) {
+         return (i + 1) & (length() - 1);
+      }
+
+      // The cell of the key, or the free cell ending its probe sequence
+      int find(long key) {
+         int i = home(key);
+         long current;
+         while ((current = keys.getAcquire(i)) != FREE && current != key) {
+            i = next(i);
+         }
+         return i;
+      }
+   }
+
+   private volatile Table<V> table = new Table<>(16);
+
+   // Guarded by this
+   private int used;
+
+   private volatile int size;
+
+   V get(long key) {
+      Table<V> current = table;
+      int i = current.find(key);
+      return current.keys.getAcquire(i) == key ? current.values.getAcquire(i) : null;
+   }
+
+   int size() {
+      return size;
+   }
+
+   // Returns the value the key had, null when it had none
+   synchronized V put(long key, V value) {
+      if (key == FREE) {
+         throw new IllegalArgumentException("Long.MIN_VALUE cannot be a key");
+      }
+      if (value == null) {
+         throw new IllegalArgumentException("Values cannot be null");
+      }
+      if ((used + 1) * 2L > table.length()) {
+         rebuild();
+      }
+      Table<V> current = table;
+      int i = current.find(key);
+      V old;
+      if (current.keys.getPlain(i) == key) {
+         old = current.values.getAndSet(i, value);
+      } else {
+         old = null;
+         // The value is in place before the key makes it visible
+         current.values.setRelease(i, value);
+         current.keys.setRelease(i, key);
+         used++;
+      }
+      if (old == null) {
+         size++;
+      }
+      return old;
+   }
+
+   // Returns the value that was removed, null when there was none
+   synchronized V remove(long key) {
+      Table<V> current = table;
+      int i = current.find(key);
+      if (current.keys.getPlain(i) != key) {
+         return null;
+      }
+      V old = current.values.getAndSet(i, null);
+      if (old != null) {
+         size--;
+      }
+      return old;
+   }
+
+   private void rebuild() {
+      Table<V> old = table;
+      int capacity = 16;
+      while (capacity < (size + 1) * 4L) {
+         capacity <<= 1;
+      }
+      Table<V> rebuilt = new Table<>(capacity);
+      int live = 0;
+      for (int i = 0; i < old.length(); i++) {
+         V value = old.values.getPlain(i);
+         if (value != null) {
+            int cell = rebuilt.find(old.keys.getPlain(i));
+            rebuilt.keys.setPlain(cell, old.keys.getPlain(i));
+            rebuilt.values.setPlain(cell, value);
+            live++;
+         }
+      }
+      used = live;
+      table = rebuilt;
+   }
+}
@@ -1,25 +1,77 @@
 package com.springtesting.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.springtesting.dto.EmployeeCountKey;
+import com.springtesting.dto.EmployeeView;
 import com.springtesting.entities.Employee;
 
+import jakarta.persistence.QueryHint;
+
 
 @Repository
-public interface EmployeeRepo extends JpaRepository<Employee, Long> {
+public interface EmployeeRepo extends JpaRepository<Employee, Long>, EmployeeRepoCustom {
 
+   //Results kept in Hibernate's query cache, when it is switched on (see SecondLevelCacheConfig)
+   @QueryHints({ @QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"),
+         @QueryHint(name = AvailableHints.HINT_CACHE_REGION, value = Employee.QUERY_CACHE_REGION) })
    Optional<Employee> findByEmail(String email);
 
+   //Which of the given emails are already taken - one query for a whole batch
+   @Query("select e.email from Employee e where e.email in :emails")
+   List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+   //All emails through a cursor, must be consumed inside a transaction and closed
+   @Query("select e.email from Employee e")
+   Stream<String> streamAllEmails();
+
+   //What every row is counted under, through a cursor, must be consumed inside a transaction and closed
+   @Query("select " + EmployeeRepoCustomImpl.COUNT_KEY + " from Employee e")
+   Stream<EmployeeCountKey> streamCountKeys();
+
+   //Primary key lookup straight into the read-only view, no entity is loaded or tracked
+   @Query("select " + EmployeeRepoCustomImpl.VIEW + " from Employee e where e.id = :id")
+   Optional<EmployeeView> findViewById(@Param("id") long id);
+
+   //One DELETE statement, unlike deleteById which loads the entity first. Returns the number of rows removed.
+   @Modifying
+   @Query("delete from Employee e where e.id = :id")
+   int deleteEmployee(@Param("id") long id);
+
+   //Only deletes the row while it is still at the given version
+   @Modifying
+   @Query("delete from Employee e where e.id = :id and e.version = :version")
+   int deleteEmployee(@Param("id") long id, @Param("version") long version);
+
+   //Primary key lookup of the version alone, answers conditional requests without loading the employee
+   @Query("select e.version from Employee e where e.id = :id")
+   Optional<Long> findVersionById(@Param("id") long id);
+
+   //One DELETE for all the ids, returns the number of rows removed
+   @Modifying
+   @Query("delete from Employee e where e.id in :ids")
+   int deleteEmployees(@Param("ids") Collection<Long> ids);
+
    //Custom query using JPQL with index parameters
+   @QueryHints({ @QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"),
+         @QueryHint(name = AvailableHints.HINT_CACHE_REGION, value = Employee.QUERY_CACHE_REGION) })
    @Query("select e from Employee e where e.firstName = ?1 and e.lastName = ?2")
    Employee findByJPQL(String firstName, String lastName);
 
    //Custom query using JPQL with named parameters
+   @QueryHints({ @QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"),
+         @QueryHint(name = AvailableHints.HINT_CACHE_REGION, value = Employee.QUERY_CACHE_REGION) })
    @Query("select e from Employee e where e.firstName = :firstName and e.lastName = :lastName")
    Employee findByJPQLNamedParams(@Param("firstName") String firstName, @Param("lastName") String lastName);
 
@@ -0,0 +1,41 @@
+package com.springtesting.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Window;
+
+import com.springtesting.dto.EmployeeCountKey;
+import com.springtesting.dto.EmployeePatch;
+import com.springtesting.dto.EmployeeSearch;
+import com.springtesting.dto.EmployeeView;
+
+// Queries that need the EntityManager directly, mixed into EmployeeRepo by Spring Data
+public interface EmployeeRepoCustom {
+
+   //Whole table ordered by id, read through a forward-only cursor. Must be consumed inside a transaction and closed.
+   Stream<EmployeeView> streamAll();
+
+   //Keyset window ordered by sortKey ("attribute,asc|desc") then id, continuing after the keys in position
+   Window<EmployeeView> findPage(String sortKey, KeysetScrollPosition position, int limit);
+
+   //Matches ordered by the searched attribute then id, continuing after the keys in position
+   Window<EmployeeView> search(EmployeeSearch search, KeysetScrollPosition position, int limit);
+
+   //One UPDATE of the patched columns and the version, no read first. Returns the number of rows changed (0 or 1).
+   int patch(long id, EmployeePatch patch);
+
+   //The same UPDATE as patch, returning what the row was counted under before it. Empty when no row changed.
+   List<EmployeeCountKey> patchReturningCountKeys(long id, EmployeePatch patch);
+
+   //One DELETE of the ids, returning what the removed rows were counted under
+   List<EmployeeCountKey> deleteReturningCountKeys(Collection<Long> ids);
+
+   //One DELETE of the row while it is still at the given version, returning what it was counted under
+   List<EmployeeCountKey> deleteReturningCountKeys(long id, long version);
+
+   //One DELETE of every row the search matches, returns the number of rows removed
+   int deleteMatching(EmployeeSearch search);
+}
@@ -0,0 +1,246 @@
+package com.springtesting.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.hibernate.action.internal.BulkOperationCleanupAction;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.jpa.AvailableHints;
+import org.hibernate.query.NativeQuery;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import com.springtesting.dto.EmployeeCountKey;
+import com.springtesting.dto.EmployeePatch;
+import com.springtesting.dto.EmployeeSearch;
+import com.springtesting.dto.EmployeeView;
+import com.springtesting.entities.Employee;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaDelete;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+class EmployeeRepoCustomImpl implements EmployeeRepoCustom {
+
+   // Rows pulled from the driver per round trip while streaming
+   static final int STREAM_FETCH_SIZE = 500;
+
+   // Constructor expression selecting an EmployeeView from the alias "e"
+   static final String VIEW =
+         "new com.springtesting.dto.EmployeeView(e.id, e.firstName, e.lastName, e.email, e.version)";
+
+   // Constructor expression selecting an EmployeeCountKey from the alias "e"
+   static final String COUNT_KEY = "new com.springtesting.dto.EmployeeCountKey(e.id, e.lastName, e.email)";
+
+   private static final String EMPLOYEE_TABLE = "employee";
+
+   @PersistenceContext
+   private EntityManager entityManager;
+
+   @Override
+   public Stream<EmployeeView> streamAll() {
+      // Rows come out as EmployeeView, nothing is managed so the persistence context does not grow with the table
+      return entityManager.createQuery("select " + VIEW + " from Employee e order by e.id", EmployeeView.class)
+            .setHint(AvailableHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+            .getResultStream();
+   }
+
+   @Override
+   public Window<EmployeeView> findPage(String sortKey, KeysetScrollPosition position, int limit) {
+      String[] parts = sortKey.split(",");
+      return scroll(null, parts[0], Sort.Direction.fromString(parts[1]), position, limit);
+   }
+
+   @Override
+   public Window<EmployeeView> search(EmployeeSearch search, KeysetScrollPosition position, int limit) {
+      return scroll(search, search.attribute(), Sort.Direction.ASC, position, limit);
+   }
+
+   // Ordered by the attribute then id, continuing after the keys in position. Rows are the view's columns plus the
+   // attribute's value, which for the lower-cased attributes is not part of the view. Plain columns rather than a
+   // construct(), Hibernate 6.4 numbers the order by wrongly when the sort column also appears inside one.
+   private Window<EmployeeView> scroll(EmployeeSearch search, String attribute, Sort.Direction direction,
+         KeysetScrollPosition position, int limit) {
+      boolean byId = "id".equals(attribute);
+      CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+      CriteriaQuery<Tuple> query = cb.createTupleQuery();
+      Root<Employee> employee = query.from(Employee.class);
+      Path<Long> id = employee.get("id");
+      Path<String> key = byId ? null : employee.get(attribute);
+
+      // Equality or a "term%" range - both can be answered from the index on the searched column
+      List<Predicate> predicates = new ArrayList<>();
+      if (search != null) {
+         predicates.add(matches(cb, key, search));
+      }
+      if (!position.isInitial()) {
+         Long lastId = (Long) position.getKeys().get("id");
+         Predicate afterId = direction.isAscending() ? cb.greaterThan(id, lastId) : cb.lessThan(id, lastId);
+         if (byId) {
+            predicates.add(afterId);
+         } else {
+            String lastKey = (String) position.getKeys().get(attribute);
+            Predicate afterKey = direction.isAscending() ? cb.greaterThan(key, lastKey) : cb.lessThan(key, lastKey);
+            predicates.add(cb.or(afterKey, cb.and(cb.equal(key, lastKey), afterId)));
+         }
+      }
+      query.multiselect(id, employee.get("firstName"), employee.get("lastName"), employee.get("email"),
+                  employee.get("version"), byId ? id : key)
+            .where(predicates.toArray(Predicate[]::new))
+            .orderBy(byId
+                  ? List.of(order(cb, id, direction))
+                  : List.of(order(cb, key, direction), order(cb, id, direction)));
+
+      // One extra row tells whether there is a next window
+      List<Tuple> rows = entityManager.createQuery(query).setMaxResults(limit + 1).getResultList();
+      boolean hasNext = rows.size() > limit;
+      List<Tuple> window = hasNext ? rows.subList(0, limit) : rows;
+      List<EmployeeView> content = new ArrayList<>(window.size());
+      for (Tuple row : window) {
+         content.add(new EmployeeView(row.get(0, Long.class), row.get(1, String.class), row.get(2, String.class),
+               row.get(3, String.class), row.get(4, Long.class)));
+      }
+      return Window.from(content,
+            index -> ScrollPosition.forward(byId
+                  ? Map.of("id", content.get(index).id())
+                  : Map.of(attribute, window.get(index).get(5), "id", content.get(index).id())),
+            hasNext);
+   }
+
+   private static Order order(CriteriaBuilder cb, Path<?> path, Sort.Direction direction) {
+      return direction.isAscending() ? cb.asc(path) : cb.desc(path);
+   }
+
+   @Override
+   public int patch(long id, EmployeePatch patch) {
+      CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+      CriteriaUpdate<Employee> update = cb.createCriteriaUpdate(Employee.class);
+      Root<Employee> employee = update.from(Employee.class);
+      if (patch.getFirstName() != null) {
+         update.set(employee.<String>get("firstName"), patch.getFirstName());
+      }
+      if (patch.getLastName() != null) {
+         update.set(employee.<String>get("lastName"), patch.getLastName());
+      }
+      if (patch.getEmail() != null) {
+         update.set(employee.<String>get("email"), patch.getEmail());
+      }
+      Path<Long> version = employee.get("version");
+      update.set(version, cb.sum(version, 1L));
+
+      Predicate byId = cb.equal(employee.get("id"), id);
+      update.where(patch.getVersion() == null ? byId : cb.and(byId, cb.equal(version, patch.getVersion())));
+      return entityManager.createQuery(update).executeUpdate();
+   }
+
+   @Override
+   public List<EmployeeCountKey> patchReturningCountKeys(long id, EmployeePatch patch) {
+      StringBuilder update = new StringBuilder("update employee set ");
+      if (patch.getFirstName() != null) {
+         update.append("first_name = :firstName, ");
+      }
+      if (patch.getLastName() != null) {
+         update.append("last_name = :lastName, ");
+      }
+      if (patch.getEmail() != null) {
+         update.append("email = :email, ");
+      }
+      update.append("version = version + 1 where id = :id");
+      if (patch.getVersion() != null) {
+         update.append(" and version = :version");
+      }
+      Query query = dmlReturningCountKeys(update.toString()).setParameter("id", id);
+      if (patch.getFirstName() != null) {
+         query.setParameter("firstName", patch.getFirstName());
+      }
+      if (patch.getLastName() != null) {
+         query.setParameter("lastName", patch.getLastName());
+      }
+      if (patch.getEmail() != null) {
+         query.setParameter("email", patch.getEmail());
+      }
+      if (patch.getVersion() != null) {
+         query.setParameter("version", patch.getVersion());
+      }
+      return countKeys(query);
+   }
+
+   @Override
+   public List<EmployeeCountKey> deleteReturningCountKeys(Collection<Long> ids) {
+      return countKeys(dmlReturningCountKeys("delete from employee where id in (:ids)").setParameter("ids", ids));
+   }
+
+   @Override
+   public List<EmployeeCountKey> deleteReturningCountKeys(long id, long version) {
+      return countKeys(dmlReturningCountKeys("delete from employee where id = :id and version = :version")
+            .setParameter("id", id)
+            .setParameter("version", version));
+   }
+
+   // The statement inside H2's OLD TABLE delta table: one statement that changes the rows and returns them as they
+   // were before it. Hibernate sees a native select, so the second-level cache is invalidated for the employee table
+   // here, the way it does on its own for a bulk JPQL update or delete.
+   private Query dmlReturningCountKeys(String statement) {
+      BulkOperationCleanupAction.schedule(entityManager.unwrap(SharedSessionContractImplementor.class),
+            Set.of(EMPLOYEE_TABLE));
+      Query query = entityManager.createNativeQuery("select id, last_name, email from old table (" + statement + ")");
+      query.unwrap(NativeQuery.class).addSynchronizedEntityClass(Employee.class);
+      return query;
+   }
+
+   private static List<EmployeeCountKey> countKeys(Query query) {
+      List<?> rows = query.getResultList();
+      List<EmployeeCountKey> keys = new ArrayList<>(rows.size());
+      for (Object row : rows) {
+         Object[] columns = (Object[]) row;
+         keys.add(new EmployeeCountKey(((Number) columns[0]).longValue(), (String) columns[1], (String) columns[2]));
+      }
+      return keys;
+   }
+
+   @Override
+   public int deleteMatching(EmployeeSearch search) {
+      CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+      CriteriaDelete<Employee> delete = cb.createCriteriaDelete(Employee.class);
+      Root<Employee> employee = delete.from(Employee.class);
+      delete.where(matches(cb, employee.get(search.attribute()), search));
+      return entityManager.createQuery(delete).executeUpdate();
+   }
+
+   private static Predicate matches(CriteriaBuilder cb, Path<String> key, EmployeeSearch search) {
+      return search.getMatch() == EmployeeSearch.Match.EXACT
+            ? cb.equal(key, search.term())
+            : cb.like(key, escapeLike(search.term()) + "%", '\\');
+   }
+
+   static String keyOf(Employee employee, String attribute) {
+      return switch (attribute) {
+         case "firstName" -> employee.getFirstName();
+         case "lastName" -> employee.getLastName();
+         case "email" -> employee.getEmail();
+         case "firstNameLc" -> employee.getFirstNameLc();
+         case "lastNameLc" -> employee.getLastNameLc();
+         case "emailLc" -> employee.getEmailLc();
+         default -> throw new IllegalArgumentException("Not a search attribute: " + attribute);
+      };
+   }
+
+   static String escapeLike(String term) {
+      return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+   }
+}
@@ -0,0 +1,158 @@
+package com.springtesting.repository;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.springtesting.dto.EmployeeView;
+
+// The snapshot file of InMemoryEmployeeRepo, written through a buffer to the channel and read through memory-mapped
+// windows of the file. Layout:
+//   magic, format (ints), next id (long), row count (int)
+//   per row: id, version (longs), then first name, last name and email, each an int length and its UTF-8 bytes
+// A snapshot is written next to the file and moved over it once complete, a crash mid-write leaves the last one.
+final class EmployeeSnapshots {
+
+   static final int MAGIC = 0x454d504c;
+
+   static final int FORMAT = 1;
+
+   private static final int HEADER_BYTES = 2 * Integer.BYTES + Long.BYTES + Integer.BYTES;
+
+   // Mapped a window at a time, one mapping cannot be larger than 2GB
+   private static final int WINDOW_BYTES = 64 << 20;
+
+   private static final int BUFFER_BYTES = 1 << 20;
+
+   record Snapshot(long nextId, List<EmployeeView> rows) {
+   }
+
+   private EmployeeSnapshots() {
+   }
+
+   static void write(Path path, long nextId, List<EmployeeView> rows) throws IOException {
+      Path partial = path.resolveSibling(path.getFileName() + ".partial");
+      try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+         Output out = new Output(channel);
+         out.ensure(HEADER_BYTES).putInt(MAGIC).putInt(FORMAT).putLong(nextId).putInt(rows.size());
+         for (EmployeeView row : rows) {
+            out.ensure(2 * Long.BYTES).putLong(row.id()).putLong(row.version());
+            out.put(row.firstName());
+            out.put(row.lastName());
+            out.put(row.email());
+         }
+         out.flush();
+         channel.force(true);
+      }
+      Files.move(partial, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+   }
+
+   static Snapshot read(Path path) throws IOException {
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+         Window in = new Window(channel);
+         ByteBuffer header = in.ensure(HEADER_BYTES);
+         if (header.getInt() != MAGIC || header.getInt() != FORMAT) {
+            throw new IOException(path + " is not an employee snapshot");
+         }
+         long nextId = header.getLong();
+         int count = header.getInt();
+         List<EmployeeView> rows = new ArrayList<>(count);
+         for (int i = 0; i < count; i++) {
+            ByteBuffer row = in.ensure(2 * Long.BYTES);
+            long id = row.getLong();
+            long version = row.getLong();
+            rows.add(new EmployeeView(id, string(in), string(in), string(in), version));
+         }
+         return new Snapshot(nextId, rows);
+      }
+   }
+
+   private static String string(Window in) throws IOException {
+      byte[] bytes = new byte[in.ensure(Integer.BYTES).getInt()];
+      in.ensure(bytes.length).get(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+   }
+
+   // The mapped part of the file, moved along it as the data is read
+   private static final class Window {
+
+      private final FileChannel channel;
+
+      private MappedByteBuffer buffer;
+
+      // File position of the start of buffer
+      private long start;
+
+      Window(FileChannel channel) {
+         this.channel = channel;
+      }
+
+      // The buffer, with at least bytes remaining
+      ByteBuffer ensure(int bytes) throws IOException {
+         if (buffer == null || buffer.remaining() < bytes) {
+            if (buffer != null) {
+               start += buffer.position();
+            }
+            long size = Math.min(Math.max(WINDOW_BYTES, bytes), channel.size() - start);
+            if (size < bytes) {
+               throw new EOFException("The snapshot ends in the middle of a row");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+         }
+         return buffer;
+      }
+   }
+
+   // A buffer written to the channel whenever it has no room for the next value
+   private static final class Output {
+
+      private final FileChannel channel;
+
+      private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+
+      Output(FileChannel channel) {
+         this.channel = channel;
+      }
+
+      // The buffer, with at least bytes remaining, which must not be more than BUFFER_BYTES
+      ByteBuffer ensure(int bytes) throws IOException {
+         if (buffer.remaining() < bytes) {
+            flush();
+         }
+         return buffer;
+      }
+
+      // Its length, then its UTF-8 bytes, past the buffer when they do not fit in it
+      void put(String value) throws IOException {
+         byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+         ensure(Integer.BYTES).putInt(bytes.length);
+         if (bytes.length > BUFFER_BYTES) {
+            flush();
+            write(ByteBuffer.wrap(bytes));
+         } else {
+            ensure(bytes.length).put(bytes);
+         }
+      }
+
+      void flush() throws IOException {
+         write(buffer.flip());
+         buffer.clear();
+      }
+
+      private void write(ByteBuffer bytes) throws IOException {
+         while (bytes.hasRemaining()) {
+            channel.write(bytes);
+         }
+      }
+   }
+}
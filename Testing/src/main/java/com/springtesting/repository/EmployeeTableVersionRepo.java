@@ -0,0 +1,35 @@
+package com.springtesting.repository;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.springtesting.entities.EmployeeTableVersion;
+
+
+@Repository
+public interface EmployeeTableVersionRepo extends JpaRepository<EmployeeTableVersion, Long> {
+
+   //Joins the caller's transaction, the count moves on when the write it counts commits and not if it rolls back
+   @Modifying
+   @Transactional
+   @Query("update EmployeeTableVersion v set v.changes = v.changes + 1 where v.id = " + EmployeeTableVersion.ID)
+   int bump();
+
+   //Read-only, so with a replica it is read where the rows are and is never ahead of them (see ReadReplicaConfig)
+   @Transactional(readOnly = true)
+   @Query("select v.changes from EmployeeTableVersion v where v.id = " + EmployeeTableVersion.ID)
+   Optional<Long> findChanges();
+
+   //Inserts the row unless it is there, an existing count is left as it is
+   @Modifying
+   @Transactional
+   @Query(value = "insert into employee_table_version (id, changes) select " + EmployeeTableVersion.ID + ", 0"
+         + " where not exists (select 1 from employee_table_version where id = " + EmployeeTableVersion.ID + ")",
+         nativeQuery = true)
+   int createIfMissing();
+}
@@ -0,0 +1,799 @@
+package com.springtesting.repository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.repository.query.FluentQuery;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Repository;
+
+import com.springtesting.dto.EmployeeCountKey;
+import com.springtesting.dto.EmployeePatch;
+import com.springtesting.dto.EmployeeSearch;
+import com.springtesting.dto.EmployeeView;
+import com.springtesting.entities.Employee;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+
+// EmployeeRepo without a database, for edge deployments and fast test runs. Switched on with the "inmemory" profile,
+// which leaves out the DataSource and JPA (see application-inmemory.properties); EmployeeServiceImpl and the rest of
+// the application get it in place of the JPA repository.
+//
+// Rows are immutable EmployeeViews in a ConcurrentLongMap by id, with a unique index on email and one on
+// (firstName, lastName) for the name lookups. Keyset pages and searches read ordered indexes, a skip list per sort or
+// search attribute keyed by the value then the id, the way the table's indexes are used by EmployeeRepoCustomImpl.
+// Ids come from a counter, like the sequence they start at 1.
+//
+// Reads take no lock and see a row either before or after a write to it. Writes lock the id and email of the rows they
+// change through InMemoryTransactionManager, until the transaction ends, and have it undo them if it rolls back: what
+// EmployeeServiceImpl reads in a transaction (updateEmployee) is still what it replaces, and a failed batch leaves no
+// rows behind. Constraint and version failures are thrown as the same exceptions the JPA repository throws.
+//
+// With employee.inmemory.snapshot.path set the rows are loaded from that file at startup and written to it every
+// snapshot-interval when anything changed, and at shutdown (see EmployeeSnapshots).
+@Repository
+@Profile("inmemory")
+public class InMemoryEmployeeRepo implements EmployeeRepo {
+
+   private static final Logger log = LoggerFactory.getLogger(InMemoryEmployeeRepo.class);
+
+   // The sort keys of findPage and the attributes of EmployeeSearch. Every row of the id index has the same empty
+   // value, so it is ordered by id alone.
+   private static final List<String> ORDERED_BY = List.of("id", "firstName", "lastName", "email", "firstNameLc",
+         "lastNameLc", "emailLc");
+
+   private record Key(String value, long id) implements Comparable<Key> {
+
+      @Override
+      public int compareTo(Key other) {
+         int byValue = value.compareTo(other.value);
+         return byValue != 0 ? byValue : Long.compare(id, other.id);
+      }
+   }
+
+   private record Name(String firstName, String lastName) {
+   }
+
+   // A snapshot of the rows and the next id, taken between write transactions
+   private record Checkpoint(long writes, long nextId, List<EmployeeView> rows) {
+   }
+
+   private final InMemoryTransactionManager transactions;
+
+   private final ConcurrentLongMap<EmployeeView> rows = new ConcurrentLongMap<>();
+
+   private final ConcurrentHashMap<String, Long> idsByEmail = new ConcurrentHashMap<>();
+
+   private final ConcurrentHashMap<Name, Set<Long>> idsByName = new ConcurrentHashMap<>();
+
+   private final Map<String, ConcurrentSkipListMap<Key, EmployeeView>> ordered = new HashMap<>();
+
+   private final AtomicLong nextId = new AtomicLong(1);
+
+   // Bumped by every write, a snapshot is only written when it moved
+   private final AtomicLong writes = new AtomicLong();
+
+   private final Path snapshotPath;
+
+   private final ScheduledExecutorService snapshots;
+
+   private long writesInSnapshot;
+
+   public InMemoryEmployeeRepo(InMemoryTransactionManager transactionManager,
+         @Value("${employee.inmemory.snapshot.path:}") String snapshotPath,
+         @Value("${employee.inmemory.snapshot.interval:1m}") Duration snapshotInterval) throws IOException {
+      this.transactions = transactionManager;
+      ORDERED_BY.forEach(attribute -> ordered.put(attribute, new ConcurrentSkipListMap<>()));
+      this.snapshotPath = snapshotPath.isBlank() ? null : Path.of(snapshotPath);
+      if (this.snapshotPath == null) {
+         this.snapshots = null;
+         return;
+      }
+      if (Files.exists(this.snapshotPath)) {
+         EmployeeSnapshots.Snapshot snapshot = EmployeeSnapshots.read(this.snapshotPath);
+         snapshot.rows().forEach(this::put);
+         nextId.set(snapshot.nextId());
+         writesInSnapshot = writes.get();
+         log.info("Loaded {} employees from {}", snapshot.rows().size(), this.snapshotPath);
+      }
+      this.snapshots = Executors.newSingleThreadScheduledExecutor(runnable -> {
+         Thread thread = new Thread(runnable, "employee-snapshot");
+         thread.setDaemon(true);
+         return thread;
+      });
+      long intervalMillis = snapshotInterval.toMillis();
+      snapshots.scheduleWithFixedDelay(this::snapshotQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+   }
+
+   // Writes the rows to the snapshot file now, unless nothing changed since the last snapshot
+   public synchronized void snapshot() throws IOException {
+      if (snapshotPath == null) {
+         throw new IllegalStateException("employee.inmemory.snapshot.path is not set");
+      }
+      Checkpoint checkpoint = transactions.checkpoint(() -> writes.get() == writesInSnapshot ? null
+            : new Checkpoint(writes.get(), nextId.get(), new ArrayList<>(ordered.get("id").values())));
+      if (checkpoint == null) {
+         return;
+      }
+      EmployeeSnapshots.write(snapshotPath, checkpoint.nextId(), checkpoint.rows());
+      writesInSnapshot = checkpoint.writes();
+   }
+
+   private void snapshotQuietly() {
+      try {
+         snapshot();
+      } catch (IOException | RuntimeException e) {
+         log.error("Could not write the employee snapshot to {}", snapshotPath, e);
+      }
+   }
+
+   @PreDestroy
+   public void close() throws InterruptedException {
+      if (snapshots != null) {
+         snapshots.shutdown();
+         snapshots.awaitTermination(1, TimeUnit.MINUTES);
+         snapshotQuietly();
+      }
+   }
+
+   // CrudRepository and JpaRepository
+
+   @Override
+   public <S extends Employee> S save(S employee) {
+      return write(() -> saveRow(employee));
+   }
+
+   @Override
+   public <S extends Employee> S saveAndFlush(S employee) {
+      return save(employee);
+   }
+
+   // All or nothing: every employee is checked before any is stored
+   @Override
+   public <S extends Employee> List<S> saveAll(Iterable<S> employees) {
+      return write(() -> {
+         Set<String> emails = new HashSet<>();
+         for (S employee : employees) {
+            requireValues(employee);
+            EmployeeView current = lockRow(employee.getId());
+            if (current != null && current.version() != employee.getVersion()) {
+               throw new ObjectOptimisticLockingFailureException(Employee.class, employee.getId());
+            }
+            if (!emails.add(employee.getEmail())) {
+               throw duplicateEmail(employee.getEmail());
+            }
+            transactions.lock(emailKey(employee.getEmail()));
+            requireEmailFree(employee.getEmail(), current == null ? 0 : current.id());
+         }
+         List<S> saved = new ArrayList<>();
+         for (S employee : employees) {
+            saved.add(saveRow(employee));
+         }
+         return saved;
+      });
+   }
+
+   @Override
+   public <S extends Employee> List<S> saveAllAndFlush(Iterable<S> employees) {
+      return saveAll(employees);
+   }
+
+   @Override
+   public void flush() {
+   }
+
+   @Override
+   public Optional<Employee> findById(Long id) {
+      return Optional.ofNullable(rows.get(id)).map(InMemoryEmployeeRepo::toEmployee);
+   }
+
+   @Override
+   public boolean existsById(Long id) {
+      return rows.get(id) != null;
+   }
+
+   @Override
+   public List<Employee> findAll() {
+      return ordered.get("id").values().stream().map(InMemoryEmployeeRepo::toEmployee).toList();
+   }
+
+   @Override
+   public List<Employee> findAllById(Iterable<Long> ids) {
+      return StreamSupport.stream(ids.spliterator(), false)
+            .map(rows::get)
+            .filter(Objects::nonNull)
+            .map(InMemoryEmployeeRepo::toEmployee)
+            .toList();
+   }
+
+   @Override
+   public List<Employee> findAll(Sort sort) {
+      return sorted(sort).map(InMemoryEmployeeRepo::toEmployee).toList();
+   }
+
+   @Override
+   public Page<Employee> findAll(Pageable pageable) {
+      if (pageable.isUnpaged()) {
+         return new PageImpl<>(findAll(pageable.getSort()));
+      }
+      long total = rows.size();
+      List<Employee> content = sorted(pageable.getSort())
+            .skip(pageable.getOffset())
+            .limit(pageable.getPageSize())
+            .map(InMemoryEmployeeRepo::toEmployee)
+            .toList();
+      return new PageImpl<>(content, pageable, total);
+   }
+
+   @Override
+   public long count() {
+      return rows.size();
+   }
+
+   @Override
+   public void deleteById(Long id) {
+      write(() -> drop(id));
+   }
+
+   // Like the JPA repository, an employee that is gone already is ignored and one at another version is not deleted
+   @Override
+   public void delete(Employee employee) {
+      write(() -> {
+         EmployeeView current = lockRow(employee.getId());
+         if (current != null && current.version() != employee.getVersion()) {
+            throw new ObjectOptimisticLockingFailureException(Employee.class, employee.getId());
+         }
+         return drop(employee.getId());
+      });
+   }
+
+   @Override
+   public void deleteAllById(Iterable<? extends Long> ids) {
+      write(() -> {
+         ids.forEach(this::drop);
+         return null;
+      });
+   }
+
+   @Override
+   public void deleteAll(Iterable<? extends Employee> employees) {
+      write(() -> {
+         employees.forEach(this::delete);
+         return null;
+      });
+   }
+
+   @Override
+   public void deleteAll() {
+      write(() -> {
+         ordered.get("id").values().forEach(row -> drop(row.id()));
+         return null;
+      });
+   }
+
+   @Override
+   @Deprecated
+   public void deleteInBatch(Iterable<Employee> employees) {
+      deleteAllInBatch(employees);
+   }
+
+   // One statement with the JPA repository, no version check
+   @Override
+   public void deleteAllInBatch(Iterable<Employee> employees) {
+      deleteAllById(StreamSupport.stream(employees.spliterator(), false).map(Employee::getId).toList());
+   }
+
+   @Override
+   public void deleteAllByIdInBatch(Iterable<Long> ids) {
+      deleteAllById(ids);
+   }
+
+   @Override
+   public void deleteAllInBatch() {
+      deleteAll();
+   }
+
+   @Override
+   @Deprecated
+   public Employee getOne(Long id) {
+      return getReferenceById(id);
+   }
+
+   @Override
+   @Deprecated
+   public Employee getById(Long id) {
+      return getReferenceById(id);
+   }
+
+   // There are no lazy references, the employee is loaded now
+   @Override
+   public Employee getReferenceById(Long id) {
+      return findById(id).orElseThrow(() -> new EntityNotFoundException("Unable to find Employee with id " + id));
+   }
+
+   // Query by example needs the JPA metamodel, nothing calls it
+
+   @Override
+   public <S extends Employee> Optional<S> findOne(Example<S> example) {
+      throw queryByExample();
+   }
+
+   @Override
+   public <S extends Employee> List<S> findAll(Example<S> example) {
+      throw queryByExample();
+   }
+
+   @Override
+   public <S extends Employee> List<S> findAll(Example<S> example, Sort sort) {
+      throw queryByExample();
+   }
+
+   @Override
+   public <S extends Employee> Page<S> findAll(Example<S> example, Pageable pageable) {
+      throw queryByExample();
+   }
+
+   @Override
+   public <S extends Employee> long count(Example<S> example) {
+      throw queryByExample();
+   }
+
+   @Override
+   public <S extends Employee> boolean exists(Example<S> example) {
+      throw queryByExample();
+   }
+
+   @Override
+   public <S extends Employee, R> R findBy(Example<S> example,
+         Function<FluentQuery.FetchableFluentQuery<S>, R> queryFunction) {
+      throw queryByExample();
+   }
+
+   // EmployeeRepo queries
+
+   @Override
+   public Optional<Employee> findByEmail(String email) {
+      return Optional.ofNullable(idsByEmail.get(email)).map(rows::get).map(InMemoryEmployeeRepo::toEmployee);
+   }
+
+   @Override
+   public List<String> findExistingEmails(Collection<String> emails) {
+      return emails.stream().distinct().filter(idsByEmail::containsKey).toList();
+   }
+
+   @Override
+   public Stream<String> streamAllEmails() {
+      return streamAll().map(EmployeeView::email);
+   }
+
+   @Override
+   public Stream<EmployeeCountKey> streamCountKeys() {
+      return streamAll().map(InMemoryEmployeeRepo::countKey);
+   }
+
+   @Override
+   public Optional<EmployeeView> findViewById(long id) {
+      return Optional.ofNullable(rows.get(id));
+   }
+
+   @Override
+   public int deleteEmployee(long id) {
+      return write(() -> drop(id) != null ? 1 : 0);
+   }
+
+   @Override
+   public int deleteEmployee(long id, long version) {
+      return write(() -> {
+         EmployeeView current = lockRow(id);
+         return current != null && current.version() == version && drop(id) != null ? 1 : 0;
+      });
+   }
+
+   @Override
+   public Optional<Long> findVersionById(long id) {
+      return Optional.ofNullable(rows.get(id)).map(EmployeeView::version);
+   }
+
+   @Override
+   public int deleteEmployees(Collection<Long> ids) {
+      return deleteReturningCountKeys(ids).size();
+   }
+
+   @Override
+   public List<EmployeeCountKey> deleteReturningCountKeys(Collection<Long> ids) {
+      return write(() -> ids.stream().distinct()
+            .map(this::drop)
+            .filter(Objects::nonNull)
+            .map(InMemoryEmployeeRepo::countKey)
+            .toList());
+   }
+
+   @Override
+   public List<EmployeeCountKey> deleteReturningCountKeys(long id, long version) {
+      return write(() -> {
+         EmployeeView current = lockRow(id);
+         return current != null && current.version() == version && drop(id) != null
+               ? List.of(countKey(current))
+               : List.of();
+      });
+   }
+
+   @Override
+   public Employee findByJPQL(String firstName, String lastName) {
+      return findByName(firstName, lastName);
+   }
+
+   @Override
+   public Employee findByJPQLNamedParams(String firstName, String lastName) {
+      return findByName(firstName, lastName);
+   }
+
+   @Override
+   public Employee findByNativeSQL(String firstName, String lastName) {
+      return findByName(firstName, lastName);
+   }
+
+   @Override
+   public Employee findByNativeSQLNamedParams(String firstName, String lastName) {
+      return findByName(firstName, lastName);
+   }
+
+   // Null when there is no such employee, like the single-result queries it stands in for
+   private Employee findByName(String firstName, String lastName) {
+      List<EmployeeView> matches = idsByName.getOrDefault(new Name(firstName, lastName), Set.of()).stream()
+            .map(rows::get)
+            .filter(Objects::nonNull)
+            .toList();
+      if (matches.size() > 1) {
+         throw new IncorrectResultSizeDataAccessException(1, matches.size());
+      }
+      return matches.isEmpty() ? null : toEmployee(matches.get(0));
+   }
+
+   // EmployeeRepoCustom
+
+   @Override
+   public Stream<EmployeeView> streamAll() {
+      return ordered.get("id").values().stream();
+   }
+
+   @Override
+   public Window<EmployeeView> findPage(String sortKey, KeysetScrollPosition position, int limit) {
+      String[] parts = sortKey.split(",");
+      return scroll(null, parts[0], Sort.Direction.fromString(parts[1]), position, limit);
+   }
+
+   @Override
+   public Window<EmployeeView> search(EmployeeSearch search, KeysetScrollPosition position, int limit) {
+      return scroll(search, search.attribute(), Sort.Direction.ASC, position, limit);
+   }
+
+   // Walks the attribute's index from the first match, or the keys in position, for limit rows and one more to tell
+   // whether there is a next window. The matches of a search are one run of keys: those equal to the term, or
+   // starting with it.
+   private Window<EmployeeView> scroll(EmployeeSearch search, String attribute, Sort.Direction direction,
+         KeysetScrollPosition position, int limit) {
+      boolean byId = "id".equals(attribute);
+      NavigableMap<Key, EmployeeView> index = index(attribute);
+      if (!position.isInitial()) {
+         Key last = new Key(byId ? "" : (String) position.getKeys().get(attribute),
+               ((Number) position.getKeys().get("id")).longValue());
+         index = direction.isAscending() ? index.tailMap(last, false) : index.headMap(last, false).descendingMap();
+      } else if (search != null) {
+         index = index.tailMap(new Key(search.term(), Long.MIN_VALUE), true);
+      } else if (!direction.isAscending()) {
+         index = index.descendingMap();
+      }
+
+      List<EmployeeView> content = new ArrayList<>();
+      List<String> keys = new ArrayList<>();
+      boolean hasNext = false;
+      for (Map.Entry<Key, EmployeeView> entry : index.entrySet()) {
+         if (search != null && !matches(entry.getKey().value(), search)) {
+            break;
+         }
+         if (content.size() == limit) {
+            hasNext = true;
+            break;
+         }
+         content.add(entry.getValue());
+         keys.add(entry.getKey().value());
+      }
+      return Window.from(content,
+            i -> ScrollPosition.forward(byId
+                  ? Map.of("id", content.get(i).id())
+                  : Map.of(attribute, keys.get(i), "id", content.get(i).id())),
+            hasNext);
+   }
+
+   @Override
+   public int patch(long id, EmployeePatch patch) {
+      return patchReturningCountKeys(id, patch).size();
+   }
+
+   @Override
+   public List<EmployeeCountKey> patchReturningCountKeys(long id, EmployeePatch patch) {
+      return write(() -> {
+         EmployeeView current = lockRow(id);
+         if (current == null || patch.getVersion() != null && patch.getVersion() != current.version()) {
+            return List.of();
+         }
+         if (patch.getEmail() != null) {
+            transactions.lock(emailKey(patch.getEmail()));
+            requireEmailFree(patch.getEmail(), id);
+         }
+         store(new EmployeeView(id,
+               patch.getFirstName() != null ? patch.getFirstName() : current.firstName(),
+               patch.getLastName() != null ? patch.getLastName() : current.lastName(),
+               patch.getEmail() != null ? patch.getEmail() : current.email(),
+               current.version() + 1));
+         return List.of(countKey(current));
+      });
+   }
+
+   @Override
+   public int deleteMatching(EmployeeSearch search) {
+      return write(() -> (int) matching(search).stream().map(row -> drop(row.id())).filter(Objects::nonNull).count());
+   }
+
+   private List<EmployeeView> matching(EmployeeSearch search) {
+      List<EmployeeView> matches = new ArrayList<>();
+      for (Map.Entry<Key, EmployeeView> entry : index(search.attribute())
+            .tailMap(new Key(search.term(), Long.MIN_VALUE), true).entrySet()) {
+         if (!matches(entry.getKey().value(), search)) {
+            break;
+         }
+         matches.add(entry.getValue());
+      }
+      return matches;
+   }
+
+   private static boolean matches(String value, EmployeeSearch search) {
+      return search.getMatch() == EmployeeSearch.Match.EXACT
+            ? value.equals(search.term())
+            : value.startsWith(search.term());
+   }
+
+   // Writes, each in the current transaction or in one of its own
+
+   private <T> T write(Supplier<T> write) {
+      return transactions.write(write);
+   }
+
+   // Locks the row with the id and its email, then reads it. Null when there is no such row.
+   private EmployeeView lockRow(Long id) {
+      if (id == null) {
+         return null;
+      }
+      transactions.lock(id);
+      EmployeeView row = rows.get(id);
+      if (row != null) {
+         transactions.lock(emailKey(row.email()));
+      }
+      return row;
+   }
+
+   // Emails are locked apart from ids, a new employee has no id to lock yet
+   private static String emailKey(String email) {
+      return "email:" + email;
+   }
+
+   // A new employee is stored under the next id and gets it set, like persist. An existing one is stored at the next
+   // version and returned as a new instance, like merge. An id that is not there is a new employee.
+   @SuppressWarnings("unchecked")
+   private <S extends Employee> S saveRow(S employee) {
+      requireValues(employee);
+      EmployeeView current = lockRow(employee.getId());
+      transactions.lock(emailKey(employee.getEmail()));
+      if (current == null) {
+         requireEmailFree(employee.getEmail(), 0);
+         employee.setId(nextId.getAndIncrement());
+         employee.setVersion(0);
+         store(EmployeeView.of(employee));
+         employee.setFirstNameLc(employee.getFirstName().toLowerCase(Locale.ROOT));
+         employee.setLastNameLc(employee.getLastName().toLowerCase(Locale.ROOT));
+         employee.setEmailLc(employee.getEmail().toLowerCase(Locale.ROOT));
+         return employee;
+      }
+      if (current.version() != employee.getVersion()) {
+         throw new ObjectOptimisticLockingFailureException(Employee.class, employee.getId());
+      }
+      requireEmailFree(employee.getEmail(), current.id());
+      EmployeeView row = new EmployeeView(current.id(), employee.getFirstName(), employee.getLastName(),
+            employee.getEmail(), current.version() + 1);
+      store(row);
+      return (S) toEmployee(row);
+   }
+
+   // The columns are not null
+   private static void requireValues(Employee employee) {
+      if (employee.getFirstName() == null || employee.getLastName() == null || employee.getEmail() == null) {
+         throw new DataIntegrityViolationException("firstName, lastName and email are required");
+      }
+   }
+
+   private void requireEmailFree(String email, long id) {
+      Long owner = idsByEmail.get(email);
+      if (owner != null && owner != id) {
+         throw duplicateEmail(email);
+      }
+   }
+
+   // Shaped like the unique index violation Hibernate reports, which is what EmployeeServiceImpl turns into
+   // "Employee already exists"
+   private static DataIntegrityViolationException duplicateEmail(String email) {
+      String message = "Unique index " + Employee.EMAIL_INDEX + " violated by " + email;
+      return new DataIntegrityViolationException(message,
+            new ConstraintViolationException(message, null, Employee.EMAIL_INDEX));
+   }
+
+   // The row must be locked, its old version is put back if the transaction rolls back
+   private void store(EmployeeView row) {
+      EmployeeView old = put(row);
+      transactions.undo(() -> {
+         if (old == null) {
+            remove(row.id());
+         } else {
+            put(old);
+         }
+      });
+   }
+
+   private EmployeeView drop(long id) {
+      lockRow(id);
+      EmployeeView removed = remove(id);
+      if (removed != null) {
+         transactions.undo(() -> put(removed));
+      }
+      return removed;
+   }
+
+   private EmployeeView put(EmployeeView row) {
+      EmployeeView old = rows.put(row.id(), row);
+      reindex(old, row);
+      writes.incrementAndGet();
+      return old;
+   }
+
+   private EmployeeView remove(long id) {
+      EmployeeView removed = rows.remove(id);
+      if (removed != null) {
+         reindex(removed, null);
+         writes.incrementAndGet();
+      }
+      return removed;
+   }
+
+   // Moves the index entries of a row from its old values to its new ones, either may be null. New entries go in
+   // before old ones come out, a read never misses a row that is there before and after the write.
+   private void reindex(EmployeeView old, EmployeeView row) {
+      if (row != null) {
+         idsByEmail.put(row.email(), row.id());
+         idsByName.computeIfAbsent(name(row), name -> ConcurrentHashMap.newKeySet()).add(row.id());
+         ORDERED_BY.forEach(attribute -> index(attribute).put(key(row, attribute), row));
+      }
+      if (old != null) {
+         if (row == null || !old.email().equals(row.email())) {
+            idsByEmail.remove(old.email(), old.id());
+         }
+         if (row == null || !name(old).equals(name(row))) {
+            idsByName.computeIfPresent(name(old), (name, ids) -> {
+               ids.remove(old.id());
+               return ids.isEmpty() ? null : ids;
+            });
+         }
+         for (String attribute : ORDERED_BY) {
+            Key key = key(old, attribute);
+            if (row == null || !key.equals(key(row, attribute))) {
+               index(attribute).remove(key);
+            }
+         }
+      }
+   }
+
+   private NavigableMap<Key, EmployeeView> index(String attribute) {
+      ConcurrentSkipListMap<Key, EmployeeView> index = ordered.get(attribute);
+      if (index == null) {
+         throw new IllegalArgumentException("Not a search attribute: " + attribute);
+      }
+      return index;
+   }
+
+   private static Key key(EmployeeView row, String attribute) {
+      return new Key("id".equals(attribute) ? "" : valueOf(row, attribute), row.id());
+   }
+
+   private static Name name(EmployeeView row) {
+      return new Name(row.firstName(), row.lastName());
+   }
+
+   private static String valueOf(EmployeeView row, String attribute) {
+      return switch (attribute) {
+         case "firstName" -> row.firstName();
+         case "lastName" -> row.lastName();
+         case "email" -> row.email();
+         case "firstNameLc" -> row.firstName().toLowerCase(Locale.ROOT);
+         case "lastNameLc" -> row.lastName().toLowerCase(Locale.ROOT);
+         case "emailLc" -> row.email().toLowerCase(Locale.ROOT);
+         default -> throw new IllegalArgumentException("Not a search attribute: " + attribute);
+      };
+   }
+
+   // In id order, unless the sort says otherwise
+   private Stream<EmployeeView> sorted(Sort sort) {
+      Comparator<EmployeeView> comparator = null;
+      for (Sort.Order order : sort) {
+         String property = order.getProperty();
+         Comparator<EmployeeView> byProperty = switch (property) {
+            case "id" -> Comparator.comparingLong(EmployeeView::id);
+            case "version" -> Comparator.comparingLong(EmployeeView::version);
+            default -> Comparator.comparing(row -> valueOf(row, property));
+         };
+         byProperty = order.isAscending() ? byProperty : byProperty.reversed();
+         comparator = comparator == null ? byProperty : comparator.thenComparing(byProperty);
+      }
+      Stream<EmployeeView> all = ordered.get("id").values().stream();
+      return comparator == null ? all : all.sorted(comparator);
+   }
+
+   private static EmployeeCountKey countKey(EmployeeView row) {
+      return new EmployeeCountKey(row.id(), row.lastName(), row.email());
+   }
+
+   private static Employee toEmployee(EmployeeView row) {
+      return Employee.builder()
+            .id(row.id())
+            .firstName(row.firstName())
+            .lastName(row.lastName())
+            .email(row.email())
+            .version(row.version())
+            .firstNameLc(row.firstName().toLowerCase(Locale.ROOT))
+            .lastNameLc(row.lastName().toLowerCase(Locale.ROOT))
+            .emailLc(row.email().toLowerCase(Locale.ROOT))
+            .build();
+   }
+
+   private static UnsupportedOperationException queryByExample() {
+      return new UnsupportedOperationException("Query by example is not supported by InMemoryEmployeeRepo");
+   }
+}
@@ -0,0 +1,227 @@
+package com.springtesting.repository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.SmartTransactionObject;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Transactions for InMemoryEmployeeRepo: propagation, rollback-only marking and synchronizations (the afterCommit
+// callbacks of EmployeeCounts and EmployeeTypeahead), as @Transactional and TransactionTemplate callers rely on, plus
+// what the database gave them:
+//  - Row locks. A transaction locks the keys it writes (an id, an email) and holds them until it ends, like the row
+//    locks the database takes for the JPA backend's UPDATE and DELETE statements. Transactions writing other rows run
+//    side by side. One that waits for a key longer than lock-timeout fails with CannotAcquireLockException, which is
+//    also how a deadlock between two transactions ends.
+//  - Rollback. Every write records the row it replaced, a rollback puts those back in reverse order.
+// Reads take no lock and see uncommitted writes. A write made outside a transaction runs in one of its own.
+@Component("transactionManager")
+@Profile("inmemory")
+public class InMemoryTransactionManager extends AbstractPlatformTransactionManager {
+
+   // Owner of every locked key
+   private final ConcurrentHashMap<Object, State> locks = new ConcurrentHashMap<>();
+
+   private final AtomicInteger waiting = new AtomicInteger();
+
+   // Held shared by every transaction that wrote or locked something, exclusively by checkpoint
+   private final ReentrantReadWriteLock checkpoint = new ReentrantReadWriteLock();
+
+   private final long lockTimeoutNanos;
+
+   public InMemoryTransactionManager(@Value("${employee.inmemory.lock-timeout:10s}") Duration lockTimeout) {
+      this.lockTimeoutNanos = lockTimeout.toNanos();
+   }
+
+   // What a transaction bound to the thread holds, shared by the calls participating in it
+   private static final class State {
+
+      private final Set<Object> keys = new LinkedHashSet<>();
+
+      private final List<Runnable> undo = new ArrayList<>();
+
+      private boolean writing;
+
+      private boolean rollbackOnly;
+   }
+
+   private static final class Transaction implements SmartTransactionObject {
+
+      private State state;
+
+      Transaction(State state) {
+         this.state = state;
+      }
+
+      @Override
+      public boolean isRollbackOnly() {
+         return state.rollbackOnly;
+      }
+
+      @Override
+      public void flush() {
+      }
+   }
+
+   // Runs a write of InMemoryEmployeeRepo in the current transaction, or in one of its own that ends with it
+   <T> T write(Supplier<T> write) {
+      if (TransactionSynchronizationManager.getResource(this) != null) {
+         return write.get();
+      }
+      State state = new State();
+      TransactionSynchronizationManager.bindResource(this, state);
+      try {
+         T result = write.get();
+         state.undo.clear();
+         return result;
+      } finally {
+         end(state);
+      }
+   }
+
+   // Locks the key for the current transaction until it ends, nothing outside of one
+   void lock(Object key) {
+      State state = (State) TransactionSynchronizationManager.getResource(this);
+      if (state == null) {
+         return;
+      }
+      startWriting(state);
+      State owner = locks.putIfAbsent(key, state);
+      if (owner == null || owner == state) {
+         state.keys.add(key);
+         return;
+      }
+      long deadline = System.nanoTime() + lockTimeoutNanos;
+      waiting.incrementAndGet();
+      try {
+         synchronized (locks) {
+            while (locks.putIfAbsent(key, state) != null) {
+               long left = deadline - System.nanoTime();
+               if (left <= 0) {
+                  throw new CannotAcquireLockException("Timed out waiting for the lock on employee " + key);
+               }
+               TimeUnit.NANOSECONDS.timedWait(locks, left);
+            }
+         }
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new CannotAcquireLockException("Interrupted waiting for the lock on employee " + key, e);
+      } finally {
+         waiting.decrementAndGet();
+      }
+      state.keys.add(key);
+   }
+
+   // Registers how to take back a write of the current transaction, run in reverse order if it rolls back
+   void undo(Runnable undo) {
+      State state = (State) TransactionSynchronizationManager.getResource(this);
+      if (state != null) {
+         startWriting(state);
+         state.undo.add(undo);
+      }
+   }
+
+   // Runs read with no write transaction in progress and none starting, for a consistent copy of the rows
+   <T> T checkpoint(Supplier<T> read) {
+      checkpoint.writeLock().lock();
+      try {
+         return read.get();
+      } finally {
+         checkpoint.writeLock().unlock();
+      }
+   }
+
+   private void startWriting(State state) {
+      if (!state.writing) {
+         checkpoint.readLock().lock();
+         state.writing = true;
+      }
+   }
+
+   private void rollback(State state) {
+      for (int i = state.undo.size() - 1; i >= 0; i--) {
+         state.undo.get(i).run();
+      }
+      state.undo.clear();
+   }
+
+   private void end(State state) {
+      rollback(state);
+      TransactionSynchronizationManager.unbindResource(this);
+      if (!state.keys.isEmpty()) {
+         state.keys.forEach(key -> locks.remove(key, state));
+         if (waiting.get() > 0) {
+            synchronized (locks) {
+               locks.notifyAll();
+            }
+         }
+      }
+      if (state.writing) {
+         checkpoint.readLock().unlock();
+      }
+   }
+
+   @Override
+   protected Object doGetTransaction() {
+      return new Transaction((State) TransactionSynchronizationManager.getResource(this));
+   }
+
+   @Override
+   protected boolean isExistingTransaction(Object transaction) {
+      return ((Transaction) transaction).state != null;
+   }
+
+   @Override
+   protected void doBegin(Object transaction, TransactionDefinition definition) {
+      State state = new State();
+      ((Transaction) transaction).state = state;
+      TransactionSynchronizationManager.bindResource(this, state);
+   }
+
+   @Override
+   protected Object doSuspend(Object transaction) {
+      ((Transaction) transaction).state = null;
+      return TransactionSynchronizationManager.unbindResource(this);
+   }
+
+   @Override
+   protected void doResume(Object transaction, Object suspendedResources) {
+      TransactionSynchronizationManager.bindResource(this, suspendedResources);
+   }
+
+   @Override
+   protected void doCommit(DefaultTransactionStatus status) {
+      ((Transaction) status.getTransaction()).state.undo.clear();
+   }
+
+   @Override
+   protected void doRollback(DefaultTransactionStatus status) {
+      rollback(((Transaction) status.getTransaction()).state);
+   }
+
+   @Override
+   protected void doSetRollbackOnly(DefaultTransactionStatus status) {
+      ((Transaction) status.getTransaction()).state.rollbackOnly = true;
+   }
+
+   // Whatever was not committed is undone before the locks go
+   @Override
+   protected void doCleanupAfterCompletion(Object transaction) {
+      end(((Transaction) transaction).state);
+   }
+}
@@ -0,0 +1,189 @@
+package com.springtesting.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+
+import com.springtesting.dto.EmployeeSearch;
+import com.springtesting.entities.Employee;
+
+import io.r2dbc.spi.Readable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Non-blocking counterpart of EmployeeRepo over the same employee table, the schema itself is still created by JPA.
+// Ids come from employee_seq like Hibernate's, see insert for how the two share it.
+@Repository
+@Profile("reactive")
+public class ReactiveEmployeeRepo {
+
+   private static final String COLUMNS = "id, first_name, last_name, email, version, first_name_lc, last_name_lc, email_lc";
+
+   private static final Map<String, String> COLUMN_BY_ATTRIBUTE = Map.of(
+         "id", "id",
+         "firstName", "first_name",
+         "lastName", "last_name",
+         "email", "email",
+         "firstNameLc", "first_name_lc",
+         "lastNameLc", "last_name_lc",
+         "emailLc", "email_lc");
+
+   private final DatabaseClient databaseClient;
+
+   public ReactiveEmployeeRepo(DatabaseClient databaseClient) {
+      this.databaseClient = databaseClient;
+   }
+
+   // The sequence goes up by 50 and Hibernate's pooled optimizer hands out all of v-49..v for each value v it draws
+   // (its very first draw, the initial value, is handed out too). A value drawn here is never drawn by Hibernate, so
+   // its block is this side's alone and v can be used as the id, at the cost of the other 49 ids of the block.
+   public Mono<Employee> insert(Employee employee) {
+      return databaseClient.sql("select next value for employee_seq")
+            .map(row -> row.get(0, Long.class))
+            .one()
+            .flatMap(id -> databaseClient.sql("insert into employee (id, first_name, last_name, email, version) "
+                        + "values (:id, :firstName, :lastName, :email, 0)")
+                  .bind("id", id)
+                  .bind("firstName", employee.getFirstName())
+                  .bind("lastName", employee.getLastName())
+                  .bind("email", employee.getEmail())
+                  .then()
+                  .thenReturn(Employee.builder()
+                        .id(id)
+                        .firstName(employee.getFirstName())
+                        .lastName(employee.getLastName())
+                        .email(employee.getEmail())
+                        .build()));
+   }
+
+   public Mono<Employee> findById(long id) {
+      return databaseClient.sql("select " + COLUMNS + " from employee where id = :id")
+            .bind("id", id)
+            .map(ReactiveEmployeeRepo::toEmployee)
+            .one();
+   }
+
+   public Mono<Boolean> existsByEmail(String email) {
+      return databaseClient.sql("select 1 from employee where email = :email")
+            .bind("email", email)
+            .map(row -> true)
+            .first()
+            .defaultIfEmpty(false);
+   }
+
+   public Flux<String> findExistingEmails(Collection<String> emails) {
+      return databaseClient.sql("select email from employee where email in (:emails)")
+            .bind("emails", emails)
+            .map(row -> row.get("email", String.class))
+            .all();
+   }
+
+   // Rows are pulled from the driver as the subscriber requests them
+   public Flux<Employee> streamAll() {
+      return databaseClient.sql("select " + COLUMNS + " from employee order by id")
+            .map(ReactiveEmployeeRepo::toEmployee)
+            .all();
+   }
+
+   // Same keyset windows as EmployeeRepo.findBy, sortKey is "attribute,asc|desc" and the id breaks ties
+   public Mono<Window<Employee>> findPage(String sortKey, KeysetScrollPosition position, int limit) {
+      String[] parts = sortKey.split(",");
+      return scroll(null, parts[0], Sort.Direction.fromString(parts[1]), position, limit);
+   }
+
+   // Same matching and windows as EmployeeRepoCustom.search
+   public Mono<Window<Employee>> search(EmployeeSearch search, KeysetScrollPosition position, int limit) {
+      return scroll(search, search.attribute(), Sort.Direction.ASC, position, limit);
+   }
+
+   public Mono<Long> update(Employee employee) {
+      return databaseClient.sql("update employee set first_name = :firstName, last_name = :lastName, email = :email, "
+                  + "version = version + 1 where id = :id")
+            .bind("firstName", employee.getFirstName())
+            .bind("lastName", employee.getLastName())
+            .bind("email", employee.getEmail())
+            .bind("id", employee.getId())
+            .fetch()
+            .rowsUpdated();
+   }
+
+   public Mono<Long> deleteById(long id) {
+      return databaseClient.sql("delete from employee where id = :id")
+            .bind("id", id)
+            .fetch()
+            .rowsUpdated();
+   }
+
+   private Mono<Window<Employee>> scroll(EmployeeSearch search, String attribute, Sort.Direction direction,
+         KeysetScrollPosition position, int limit) {
+      String column = COLUMN_BY_ATTRIBUTE.get(attribute);
+      boolean byId = "id".equals(attribute);
+      String order = direction.isAscending() ? "asc" : "desc";
+      String after = direction.isAscending() ? ">" : "<";
+
+      StringBuilder where = new StringBuilder();
+      if (search != null) {
+         where.append(search.getMatch() == EmployeeSearch.Match.EXACT
+               ? column + " = :term"
+               : column + " like :term escape '\\'");
+      }
+      if (!position.isInitial()) {
+         where.append(where.isEmpty() ? "" : " and ");
+         where.append(byId
+               ? "id " + after + " :lastId"
+               : "(" + column + " " + after + " :lastKey or (" + column + " = :lastKey and id " + after + " :lastId))");
+      }
+      String sql = "select " + COLUMNS + " from employee"
+            + (where.isEmpty() ? "" : " where " + where)
+            + " order by " + (byId ? "id " + order : column + " " + order + ", id " + order)
+            + " limit :limit";
+
+      DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql).bind("limit", limit + 1);
+      if (search != null) {
+         spec = spec.bind("term", search.getMatch() == EmployeeSearch.Match.EXACT
+               ? search.term()
+               : EmployeeRepoCustomImpl.escapeLike(search.term()) + "%");
+      }
+      if (!position.isInitial()) {
+         spec = spec.bind("lastId", position.getKeys().get("id"));
+         if (!byId) {
+            spec = spec.bind("lastKey", position.getKeys().get(attribute));
+         }
+      }
+      return spec.map(ReactiveEmployeeRepo::toEmployee).all().collectList()
+            .map(rows -> window(rows, attribute, limit));
+   }
+
+   // One extra row was fetched to tell whether there is a next window
+   private static Window<Employee> window(List<Employee> rows, String attribute, int limit) {
+      boolean hasNext = rows.size() > limit;
+      List<Employee> content = hasNext ? rows.subList(0, limit) : rows;
+      return Window.from(content,
+            index -> ScrollPosition.forward("id".equals(attribute)
+                  ? Map.of("id", content.get(index).getId())
+                  : Map.of(attribute, EmployeeRepoCustomImpl.keyOf(content.get(index), attribute),
+                        "id", content.get(index).getId())),
+            hasNext);
+   }
+
+   private static Employee toEmployee(Readable row) {
+      return Employee.builder()
+            .id(row.get("id", Long.class))
+            .firstName(row.get("first_name", String.class))
+            .lastName(row.get("last_name", String.class))
+            .email(row.get("email", String.class))
+            .version(row.get("version", Long.class))
+            .firstNameLc(row.get("first_name_lc", String.class))
+            .lastNameLc(row.get("last_name_lc", String.class))
+            .emailLc(row.get("email_lc", String.class))
+            .build();
+   }
+}
@@ -1,19 +1,68 @@
 package com.springtesting.service;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
+import com.springtesting.dto.BatchItemResult;
+import com.springtesting.dto.EmployeePage;
+import com.springtesting.dto.EmployeePatch;
+import com.springtesting.dto.EmployeeSearch;
+import com.springtesting.dto.EmployeeStats;
+import com.springtesting.dto.EmployeeSuggestion;
+import com.springtesting.dto.EmployeeView;
 import com.springtesting.entities.Employee;
 
 public interface EmployeeService {
 
    Employee savedEmployee(Employee employee);
 
+   List<BatchItemResult> saveEmployees(List<Employee> employees);
+
    List<Employee> getAllEmployees();
 
-   Optional<Employee> getEmployeeById(long id);
+   EmployeePage getEmployeesPage(int size, String sort, String cursor);
+
+   EmployeePage searchEmployees(EmployeeSearch search, int size, String cursor);
+
+   void exportEmployees(Consumer<EmployeeView> consumer);
+
+   Optional<EmployeeView> getEmployeeById(long id);
 
    Employee updateEmployee(Employee employee);
 
-   void deleteEmployee(long id);
+   // the names and email of the employee replaced with those given, at the version it has when the write runs, or at
+   // expectedVersion when one is given (an OptimisticLockingFailureException otherwise). Empty when there is no
+   // employee with this id.
+   Optional<Employee> updateEmployee(long id, Long expectedVersion, Employee employee);
+
+   // false when there is no employee with this id
+   boolean patchEmployee(long id, EmployeePatch patch);
+
+   // false when there was no employee with this id
+   boolean deleteEmployee(long id);
+
+   // false when there was no employee with this id, OptimisticLockingFailureException when it is not at that version
+   boolean deleteEmployee(long id, long expectedVersion);
+
+   // number of employees removed, ids that do not exist are ignored
+   int deleteEmployees(Collection<Long> ids);
+
+   // number of employees removed, matched like searchEmployees
+   int deleteEmployeesMatching(EmployeeSearch search);
+
+   // version of one employee without loading it, empty when there is no employee with this id
+   Optional<Long> getEmployeeVersion(long id);
+
+   // changes whenever any employee is written, for tagging list and search responses
+   String getEmployeesVersion();
+
+   // employees in total, for the top last names and email domains with the most employees and for each of the given
+   // ones, from counts kept in memory rather than the table
+   EmployeeStats getEmployeeStats(int top, Collection<String> lastNames, Collection<String> emailDomains);
+
+   // best matches of query as a prefix of, or (from three characters on) anywhere in, a first name, last name or
+   // email, from an index kept in memory
+   List<EmployeeSuggestion> suggestEmployees(String query, int limit);
 }
@@ -0,0 +1,32 @@
+package com.springtesting.service;
+
+import java.util.List;
+
+import com.springtesting.dto.BatchItemResult;
+import com.springtesting.dto.EmployeePage;
+import com.springtesting.dto.EmployeeSearch;
+import com.springtesting.entities.Employee;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Non-blocking mirror of EmployeeService, empty Monos stand in for missing employees
+public interface ReactiveEmployeeService {
+
+   Mono<Employee> savedEmployee(Employee employee);
+
+   Mono<List<BatchItemResult>> saveEmployees(List<Employee> employees);
+
+   Mono<EmployeePage> getEmployeesPage(int size, String sort, String cursor);
+
+   Mono<EmployeePage> searchEmployees(EmployeeSearch search, int size, String cursor);
+
+   Flux<Employee> exportEmployees();
+
+   Mono<Employee> getEmployeeById(long id);
+
+   Mono<Employee> updateEmployee(Employee employee);
+
+   // false when there was no employee with this id
+   Mono<Boolean> deleteEmployee(long id);
+}
@@ -0,0 +1,64 @@
+package com.springtesting.service.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// Opaque cursor handed to clients: base64url(JSON) of the sort it was issued for and the keys of the last row seen
+final class ContinuationToken {
+
+   private static final ObjectMapper MAPPER = new ObjectMapper();
+
+   private static final TypeReference<Map<String, Object>> TOKEN_TYPE = new TypeReference<>() {
+   };
+
+   private ContinuationToken() {
+   }
+
+   static String encode(String sort, Map<String, ?> keys) {
+      Map<String, Object> token = new LinkedHashMap<>();
+      token.put("sort", sort);
+      token.put("keys", keys);
+      try {
+         return Base64.getUrlEncoder().withoutPadding().encodeToString(MAPPER.writeValueAsBytes(token));
+      } catch (JsonProcessingException e) {
+         throw new IllegalStateException("Could not encode cursor", e);
+      }
+   }
+
+   @SuppressWarnings("unchecked")
+   static Map<String, Object> decode(String cursor, String sort) {
+      Map<String, Object> token;
+      try {
+         byte[] json = Base64.getUrlDecoder().decode(cursor.getBytes(StandardCharsets.US_ASCII));
+         token = MAPPER.readValue(json, TOKEN_TYPE);
+      } catch (IllegalArgumentException | java.io.IOException e) {
+         throw new IllegalArgumentException("Invalid cursor", e);
+      }
+      if (!sort.equals(token.get("sort")) || !(token.get("keys") instanceof Map)) {
+         throw new IllegalArgumentException("Cursor was not issued for sort '" + sort + "'");
+      }
+      // The token comes back from the client, only the keys of its sort are taken and only with the types the
+      // repositories compare them as: a whole number for id, a string for the sorted attribute
+      Map<String, Object> tokenKeys = (Map<String, Object>) token.get("keys");
+      String attribute = sort.split(",")[0];
+      Map<String, Object> keys = new LinkedHashMap<>();
+      if (!"id".equals(attribute)) {
+         if (!(tokenKeys.get(attribute) instanceof String key)) {
+            throw new IllegalArgumentException("Invalid cursor");
+         }
+         keys.put(attribute, key);
+      }
+      // JSON numbers come back as Integer when small enough, the id attribute is a long
+      if (!(tokenKeys.get("id") instanceof Integer || tokenKeys.get("id") instanceof Long)) {
+         throw new IllegalArgumentException("Invalid cursor");
+      }
+      keys.put("id", ((Number) tokenKeys.get("id")).longValue());
+      return keys;
+   }
+}
@@ -0,0 +1,73 @@
+package com.springtesting.service.impl;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.springtesting.repository.EmployeeTableVersionRepo;
+
+// Version of the employee table as a whole, the ETag of list and search responses. Moves on with every write through
+// EmployeeService, readers take the version before they read the rows, so a tag can be older than the rows it went out
+// with but never newer.
+//  - By default a count kept in memory, moved on once the write is committed. The epoch makes tags from an earlier
+//    run (or another instance) never match. Writes made behind this instance's back are not seen.
+//  - With employee.etag.shared-version=true the employee_table_version row, moved on inside the write's transaction
+//    and read with one primary key lookup. Right with any number of instances writing through EmployeeService.
+@Component
+public class EmployeeChangeCounter implements SmartInitializingSingleton {
+
+   private final String epoch = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+
+   private final AtomicLong changes = new AtomicLong();
+
+   // Null unless the version is shared
+   private final EmployeeTableVersionRepo versionRepo;
+
+   public EmployeeChangeCounter(@Value("${employee.etag.shared-version:false}") boolean sharedVersion,
+         ObjectProvider<EmployeeTableVersionRepo> versionRepo) {
+      this.versionRepo = sharedVersion ? versionRepo.getIfAvailable() : null;
+      if (sharedVersion && this.versionRepo == null) {
+         throw new IllegalStateException("employee.etag.shared-version needs the JPA repositories");
+      }
+   }
+
+   @Override
+   public void afterSingletonsInstantiated() {
+      if (versionRepo != null) {
+         try {
+            versionRepo.createIfMissing();
+         } catch (DataIntegrityViolationException e) {
+            // another instance inserted it first
+         }
+      }
+   }
+
+   public String current() {
+      if (versionRepo != null) {
+         return "v" + versionRepo.findChanges().orElse(0L);
+      }
+      return epoch + "-" + changes.get();
+   }
+
+   public void changed() {
+      if (versionRepo != null) {
+         versionRepo.bump();
+      } else if (TransactionSynchronizationManager.isSynchronizationActive()) {
+         TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+               changes.incrementAndGet();
+            }
+         });
+      } else {
+         changes.incrementAndGet();
+      }
+   }
+}
@@ -1,54 +1,436 @@
 package com.springtesting.service.impl;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.springtesting.config.CacheConfig;
+import com.springtesting.dto.BatchItemResult;
+import com.springtesting.dto.EmployeeCountKey;
+import com.springtesting.dto.EmployeePage;
+import com.springtesting.dto.EmployeePatch;
+import com.springtesting.dto.EmployeeSearch;
+import com.springtesting.dto.EmployeeStats;
+import com.springtesting.dto.EmployeeSuggestion;
+import com.springtesting.dto.EmployeeView;
 import com.springtesting.entities.Employee;
 import com.springtesting.exception.ResourceNotFoundException;
+import com.springtesting.index.EmailIndex;
+import com.springtesting.index.EmployeeTypeahead;
 import com.springtesting.repository.EmployeeRepo;
 import com.springtesting.service.EmployeeService;
+import com.springtesting.stats.EmployeeCounts;
+
+import io.micrometer.core.annotation.Timed;
 
 @Service
+@Timed("employee.service")
 public class EmployeeServiceImpl implements EmployeeService {
 
+   public static final int MAX_PAGE_SIZE = 500;
+
+   public static final int MAX_BATCH_SIZE = 5000;
+
+   public static final int MAX_SUGGESTIONS = 50;
+
+   public static final int MAX_STATS_KEYS = 100;
+
+   private static final Set<String> SORTABLE_FIELDS = Set.of("id", "firstName", "lastName", "email");
+
    // @Autowired - Not required as using constructor injection
    private EmployeeRepo employeeRepo;
 
-   public EmployeeServiceImpl(EmployeeRepo employeeRepo) {
+   private EmailIndex emailIndex;
+
+   private EmployeeChangeCounter changeCounter;
+
+   private EmployeeCounts counts;
+
+   private EmployeeTypeahead typeahead;
+
+   public EmployeeServiceImpl(EmployeeRepo employeeRepo, EmailIndex emailIndex, EmployeeChangeCounter changeCounter,
+         EmployeeCounts counts, EmployeeTypeahead typeahead) {
       this.employeeRepo = employeeRepo;
+      this.emailIndex = emailIndex;
+      this.changeCounter = changeCounter;
+      this.counts = counts;
+      this.typeahead = typeahead;
    }
 
+   // Evicted after the insert, a miss for this id may have been cached before it existed. The cache holds
+   // EmployeeView, so the saved entity itself is not put there.
    @Override
+   @CacheEvict(cacheNames = CacheConfig.EMPLOYEES_CACHE, key = "#result.id")
    public Employee savedEmployee(Employee employee) {
 
-      Optional<Employee> receivedEmployee = employeeRepo.findByEmail(employee.getEmail());
-      if (receivedEmployee.isPresent()) {
-         throw new ResourceNotFoundException("Employee already exists!!");
+      // The unique index on email rejects duplicates, so a create is a single insert and two concurrent creates of
+      // the same email cannot both succeed. Emails the index has seen are looked up first to avoid a doomed insert.
+      if (emailIndex.mightContain(employee.getEmail())) {
+         if (employeeRepo.findByEmail(employee.getEmail()).isPresent()) {
+            throw new ResourceNotFoundException("Employee already exists!!");
+         }
+         emailIndex.recordFalsePositive();
       }
+      employee.setId(0);
+      try {
+         Employee savedEmployee = employeeRepo.saveAndFlush(employee);
+         emailIndex.add(savedEmployee.getEmail());
+         changeCounter.changed();
+         counts.added(countKey(savedEmployee));
+         typeahead.put(savedEmployee);
+         return savedEmployee;
+      } catch (DataIntegrityViolationException e) {
+         throw translateDuplicateEmail(e);
+      }
+   }
 
-      return employeeRepo.save(employee);
+   @Override
+   @Transactional
+   @CacheEvict(cacheNames = CacheConfig.EMPLOYEES_CACHE, allEntries = true)
+   public List<BatchItemResult> saveEmployees(List<Employee> employees) {
+      if (employees.size() > MAX_BATCH_SIZE) {
+         throw new IllegalArgumentException("At most " + MAX_BATCH_SIZE + " employees per batch");
+      }
+
+      // Every email of the batch is checked, in one query on the email index. The EmailIndex cannot rule any out:
+      // it is empty until warmed up and never sees rows written by other instances or with plain SQL, and a missed
+      // duplicate would fail the whole batch on the unique index instead of being reported as DUPLICATE.
+      Set<String> emails = new HashSet<>();
+      for (Employee employee : employees) {
+         if (employee != null && employee.getEmail() != null) {
+            emails.add(employee.getEmail());
+         }
+      }
+      Set<String> taken = emails.isEmpty() ? Set.of() : new HashSet<>(employeeRepo.findExistingEmails(emails));
+
+      BatchItemResult[] results = new BatchItemResult[employees.size()];
+      List<Integer> positions = new ArrayList<>();
+      List<Employee> toInsert = new ArrayList<>();
+      Set<String> seen = new HashSet<>();
+      for (int i = 0; i < employees.size(); i++) {
+         Employee employee = employees.get(i);
+         if (employee == null || employee.getFirstName() == null || employee.getLastName() == null
+               || employee.getEmail() == null) {
+            results[i] = BatchItemResult.invalid(i, "firstName, lastName and email are required");
+         } else if (taken.contains(employee.getEmail()) || !seen.add(employee.getEmail())) {
+            results[i] = BatchItemResult.duplicate(i);
+         } else {
+            employee.setId(0);
+            positions.add(i);
+            toInsert.add(employee);
+         }
+      }
+
+      // Flushed here so that the inserts go out as JDBC batches (hibernate.jdbc.batch_size) before we report ids.
+      // A concurrent create of one of the emails since the check still fails the batch, as a duplicate.
+      List<Employee> saved;
+      try {
+         saved = employeeRepo.saveAll(toInsert);
+         employeeRepo.flush();
+      } catch (DataIntegrityViolationException e) {
+         throw translateDuplicateEmail(e);
+      }
+      for (int i = 0; i < saved.size(); i++) {
+         results[positions.get(i)] = BatchItemResult.created(positions.get(i), saved.get(i).getId());
+         emailIndex.add(saved.get(i).getEmail());
+         counts.added(countKey(saved.get(i)));
+         typeahead.put(saved.get(i));
+      }
+      if (!saved.isEmpty()) {
+         changeCounter.changed();
+      }
+      return List.of(results);
    }
 
+   // Read-only transactions go to the replica when there is one (see ReadReplicaConfig). Hibernate also loads their
+   // entities read-only, without the snapshot for dirty checking, and never flushes them.
    @Override
+   @Transactional(readOnly = true)
    public List<Employee> getAllEmployees() {
       return employeeRepo.findAll();
    }
 
    @Override
-   public Optional<Employee> getEmployeeById(long id) {
-      return employeeRepo.findById(id);
+   @Transactional(readOnly = true)
+   public EmployeePage getEmployeesPage(int size, String sort, String cursor) {
+      String sortKey = normalizeSort(sort);
+      Window<EmployeeView> window = employeeRepo.findPage(sortKey, positionOf(cursor, sortKey), pageSize(size));
+      return toPage(window, sortKey);
+   }
+
+   @Override
+   @Transactional(readOnly = true)
+   public EmployeePage searchEmployees(EmployeeSearch search, int size, String cursor) {
+      if (search.getValue() == null || search.getValue().isBlank()) {
+         throw new IllegalArgumentException("A search term is required");
+      }
+      String sortKey = search.attribute() + ",asc";
+      Window<EmployeeView> window = employeeRepo.search(search, positionOf(cursor, sortKey), pageSize(size));
+      return toPage(window, sortKey);
    }
 
    @Override
+   @Transactional(readOnly = true)
+   public void exportEmployees(Consumer<EmployeeView> consumer) {
+      try (Stream<EmployeeView> employees = employeeRepo.streamAll()) {
+         employees.forEach(consumer);
+      }
+   }
+
+   // An empty result is cached too (as null), so repeated lookups of missing ids stay off the database.
+   // The view is immutable, one cached instance can be handed to every caller.
+   @Override
+   @Cacheable(cacheNames = CacheConfig.EMPLOYEES_CACHE, key = "#id")
+   @Transactional(readOnly = true)
+   public Optional<EmployeeView> getEmployeeById(long id) {
+      return employeeRepo.findViewById(id);
+   }
+
+   // The row is loaded first for what it was counted under. The merge inside save would load it anyway and now finds
+   // it in the persistence context, and the version check on flush means the values read are the ones replaced.
+   // Flushed inside the try so a duplicate email fails here rather than at commit.
+   @Override
+   @Transactional
+   @CacheEvict(cacheNames = CacheConfig.EMPLOYEES_CACHE, key = "#employee.id")
    public Employee updateEmployee(Employee employee) {
-      return employeeRepo.save(employee);
+      return update(employee, employeeRepo.findById(employee.getId()).map(EmployeeServiceImpl::countKey));
    }
 
+   // The version the update is based on is read here, in the write transaction, so it comes from the primary and a
+   // lagging replica cannot fail the update
    @Override
-   public void deleteEmployee(long id) {
-      employeeRepo.deleteById(id);
+   @Transactional
+   @CacheEvict(cacheNames = CacheConfig.EMPLOYEES_CACHE, key = "#id")
+   public Optional<Employee> updateEmployee(long id, Long expectedVersion, Employee employee) {
+      Optional<Employee> current = employeeRepo.findById(id);
+      if (current.isEmpty()) {
+         return Optional.empty();
+      }
+      long version = current.get().getVersion();
+      if (expectedVersion != null && expectedVersion != version) {
+         throw new ObjectOptimisticLockingFailureException(Employee.class, id);
+      }
+      return Optional.of(update(Employee.builder()
+            .id(id)
+            .version(version)
+            .firstName(employee.getFirstName())
+            .lastName(employee.getLastName())
+            .email(employee.getEmail())
+            .build(), Optional.of(countKey(current.get()))));
+   }
+
+   private Employee update(Employee employee, Optional<EmployeeCountKey> before) {
+      try {
+         Employee updatedEmployee = employeeRepo.save(employee);
+         employeeRepo.flush();
+         emailIndex.add(updatedEmployee.getEmail());
+         changeCounter.changed();
+         before.ifPresent(key -> counts.changed(key, countKey(updatedEmployee)));
+         typeahead.put(updatedEmployee);
+         return updatedEmployee;
+      } catch (DataIntegrityViolationException e) {
+         throw translateDuplicateEmail(e);
+      }
    }
 
+   @Override
+   @Transactional
+   @CacheEvict(cacheNames = CacheConfig.EMPLOYEES_CACHE, key = "#id")
+   public boolean patchEmployee(long id, EmployeePatch patch) {
+      if (patch.isEmpty()) {
+         throw new IllegalArgumentException("Nothing to update, give at least one of firstName, lastName, email");
+      }
+      // Still one statement: a patch of the last name or email has the UPDATE return what the row was counted under
+      // before it. A first name patch does not move any count and returns nothing.
+      boolean counted = patch.getLastName() != null || patch.getEmail() != null;
+      List<EmployeeCountKey> before;
+      int rows;
+      try {
+         before = counted ? employeeRepo.patchReturningCountKeys(id, patch) : List.of();
+         rows = counted ? before.size() : employeeRepo.patch(id, patch);
+      } catch (DataIntegrityViolationException e) {
+         throw translateDuplicateEmail(e);
+      }
+      if (rows == 0) {
+         // Only a versioned patch can miss an existing row, the extra lookup is on the failure path alone
+         if (patch.getVersion() != null && employeeRepo.existsById(id)) {
+            throw new ObjectOptimisticLockingFailureException(Employee.class, id);
+         }
+         return false;
+      }
+      if (patch.getEmail() != null) {
+         emailIndex.add(patch.getEmail());
+      }
+      changeCounter.changed();
+      for (EmployeeCountKey key : before) {
+         counts.changed(key, new EmployeeCountKey(id,
+               patch.getLastName() != null ? patch.getLastName() : key.lastName(),
+               patch.getEmail() != null ? patch.getEmail() : key.email()));
+      }
+      typeahead.patched(id, patch);
+      return true;
+   }
+
+   // Deletes are a single DELETE statement that returns what the removed rows were counted under, so the counts
+   // follow exactly the rows it removed. Deleted emails stay in the EmailIndex (see EmailIndex).
+   @Override
+   @Transactional
+   @CacheEvict(cacheNames = CacheConfig.EMPLOYEES_CACHE, key = "#id")
+   public boolean deleteEmployee(long id) {
+      return removed(employeeRepo.deleteReturningCountKeys(List.of(id))) > 0;
+   }
+
+   // Only a DELETE that removed nothing is followed by a lookup, telling a stale version from a missing row
+   @Override
+   @Transactional
+   @CacheEvict(cacheNames = CacheConfig.EMPLOYEES_CACHE, key = "#id")
+   public boolean deleteEmployee(long id, long expectedVersion) {
+      if (removed(employeeRepo.deleteReturningCountKeys(id, expectedVersion)) > 0) {
+         return true;
+      }
+      if (employeeRepo.existsById(id)) {
+         throw new ObjectOptimisticLockingFailureException(Employee.class, id);
+      }
+      return false;
+   }
+
+   @Override
+   @Transactional
+   @CacheEvict(cacheNames = CacheConfig.EMPLOYEES_CACHE, allEntries = true)
+   public int deleteEmployees(Collection<Long> ids) {
+      if (ids.size() > MAX_BATCH_SIZE) {
+         throw new IllegalArgumentException("At most " + MAX_BATCH_SIZE + " ids per delete");
+      }
+      return ids.isEmpty() ? 0 : removed(employeeRepo.deleteReturningCountKeys(ids));
+   }
+
+   @Override
+   @Transactional
+   @CacheEvict(cacheNames = CacheConfig.EMPLOYEES_CACHE, allEntries = true)
+   public int deleteEmployeesMatching(EmployeeSearch search) {
+      if (search.getValue() == null || search.getValue().isBlank()) {
+         throw new IllegalArgumentException("A search term is required");
+      }
+      // One set-based DELETE that can remove any number of rows, none of them is read into memory. The counts and the
+      // typeahead index are rebuilt from the table once it commits instead.
+      int rows = changed(employeeRepo.deleteMatching(search));
+      if (rows > 0) {
+         counts.rebuildAfterCommit();
+         typeahead.rebuildAfterCommit();
+      }
+      return rows;
+   }
+
+   @Override
+   @Transactional(readOnly = true)
+   public Optional<Long> getEmployeeVersion(long id) {
+      return employeeRepo.findVersionById(id);
+   }
+
+   @Override
+   public String getEmployeesVersion() {
+      return changeCounter.current();
+   }
+
+   @Override
+   public EmployeeStats getEmployeeStats(int top, Collection<String> lastNames, Collection<String> emailDomains) {
+      if (top < 0 || top > MAX_STATS_KEYS) {
+         throw new IllegalArgumentException("top must be between 0 and " + MAX_STATS_KEYS);
+      }
+      if (lastNames.size() + emailDomains.size() > MAX_STATS_KEYS) {
+         throw new IllegalArgumentException("At most " + MAX_STATS_KEYS + " last names and domains per request");
+      }
+      return counts.stats(top, lastNames, emailDomains);
+   }
+
+   @Override
+   public List<EmployeeSuggestion> suggestEmployees(String query, int limit) {
+      if (query == null || query.isBlank()) {
+         throw new IllegalArgumentException("A query is required");
+      }
+      if (limit < 1 || limit > MAX_SUGGESTIONS) {
+         throw new IllegalArgumentException("limit must be between 1 and " + MAX_SUGGESTIONS);
+      }
+      return typeahead.suggest(query.trim(), limit);
+   }
+
+   private int removed(List<EmployeeCountKey> keys) {
+      if (!keys.isEmpty()) {
+         changeCounter.changed();
+         counts.removed(keys);
+         typeahead.removed(keys.stream().map(EmployeeCountKey::id).toList());
+      }
+      return keys.size();
+   }
+
+   private int changed(int rows) {
+      if (rows > 0) {
+         changeCounter.changed();
+      }
+      return rows;
+   }
+
+   private static EmployeeCountKey countKey(Employee employee) {
+      return new EmployeeCountKey(employee.getId(), employee.getLastName(), employee.getEmail());
+   }
+
+   private static RuntimeException translateDuplicateEmail(DataIntegrityViolationException e) {
+      for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+         if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null
+               && violation.getConstraintName().toLowerCase(Locale.ROOT).contains(Employee.EMAIL_INDEX)) {
+            return new ResourceNotFoundException("Employee already exists!!", e);
+         }
+      }
+      return e;
+   }
+
+   static int pageSize(int size) {
+      return Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+   }
+
+   static KeysetScrollPosition positionOf(String cursor, String sortKey) {
+      return (cursor == null || cursor.isBlank())
+            ? ScrollPosition.keyset()
+            : ScrollPosition.forward(ContinuationToken.decode(cursor, sortKey));
+   }
+
+   static EmployeePage toPage(Window<EmployeeView> window, String sortKey) {
+      String nextCursor = null;
+      if (window.hasNext() && !window.isEmpty()) {
+         KeysetScrollPosition last = (KeysetScrollPosition) window.positionAt(window.size() - 1);
+         nextCursor = ContinuationToken.encode(sortKey, last.getKeys());
+      }
+      return new EmployeePage(window.getContent(), window.size(), window.hasNext(), nextCursor);
+   }
+
+   // "lastName" or "lastName,desc" -> "lastName,desc" / "lastName,asc"
+   static String normalizeSort(String sort) {
+      String[] parts = (sort == null || sort.isBlank() ? "id" : sort).split(",");
+      String field = parts[0].trim();
+      if (!SORTABLE_FIELDS.contains(field) || parts.length > 2) {
+         throw new IllegalArgumentException("Unsupported sort '" + sort + "', sortable fields are " + SORTABLE_FIELDS);
+      }
+      Sort.Direction direction = parts.length == 2
+            ? Sort.Direction.fromString(parts[1].trim())
+            : Sort.Direction.ASC;
+      return field + "," + direction.name().toLowerCase();
+   }
 }
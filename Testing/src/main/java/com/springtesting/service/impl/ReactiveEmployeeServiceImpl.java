@@ -0,0 +1,166 @@
+package com.springtesting.service.impl;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import com.springtesting.dto.BatchItemResult;
+import com.springtesting.dto.EmployeePage;
+import com.springtesting.dto.EmployeeSearch;
+import com.springtesting.dto.EmployeeView;
+import com.springtesting.entities.Employee;
+import com.springtesting.exception.ResourceNotFoundException;
+import com.springtesting.index.EmailIndex;
+import com.springtesting.repository.ReactiveEmployeeRepo;
+import com.springtesting.service.ReactiveEmployeeService;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Same rules as EmployeeServiceImpl (unique email, page sizes, cursors) over ReactiveEmployeeRepo.
+// There is no cache in front of getEmployeeById, only one of the two stacks serves requests at a time.
+@Service
+@Profile("reactive")
+public class ReactiveEmployeeServiceImpl implements ReactiveEmployeeService {
+
+   private final ReactiveEmployeeRepo employeeRepo;
+
+   private final EmailIndex emailIndex;
+
+   private final TransactionalOperator transactionalOperator;
+
+   public ReactiveEmployeeServiceImpl(ReactiveEmployeeRepo employeeRepo, EmailIndex emailIndex,
+         TransactionalOperator transactionalOperator) {
+      this.employeeRepo = employeeRepo;
+      this.emailIndex = emailIndex;
+      this.transactionalOperator = transactionalOperator;
+   }
+
+   @Override
+   public Mono<Employee> savedEmployee(Employee employee) {
+      Mono<Boolean> known = emailIndex.mightContain(employee.getEmail())
+            ? employeeRepo.existsByEmail(employee.getEmail())
+            : Mono.just(false);
+      return known.flatMap(exists -> {
+         if (exists) {
+            return Mono.error(new ResourceNotFoundException("Employee already exists!!"));
+         }
+         return employeeRepo.insert(employee);
+      })
+            .doOnNext(savedEmployee -> emailIndex.add(savedEmployee.getEmail()))
+            .onErrorMap(DataIntegrityViolationException.class, ReactiveEmployeeServiceImpl::translateDuplicateEmail);
+   }
+
+   @Override
+   public Mono<List<BatchItemResult>> saveEmployees(List<Employee> employees) {
+      if (employees.size() > EmployeeServiceImpl.MAX_BATCH_SIZE) {
+         return Mono.error(new IllegalArgumentException(
+               "At most " + EmployeeServiceImpl.MAX_BATCH_SIZE + " employees per batch"));
+      }
+      // Every email is checked like in the blocking batch, the EmailIndex can only say which ones may exist
+      Set<String> emails = new HashSet<>();
+      for (Employee employee : employees) {
+         if (employee != null && employee.getEmail() != null) {
+            emails.add(employee.getEmail());
+         }
+      }
+      Mono<Set<String>> taken = emails.isEmpty()
+            ? Mono.just(Set.of())
+            : employeeRepo.findExistingEmails(emails).collect(HashSet::new, Set::add);
+
+      return taken.flatMap(existing -> {
+         BatchItemResult[] results = new BatchItemResult[employees.size()];
+         List<Integer> positions = new ArrayList<>();
+         List<Employee> toInsert = new ArrayList<>();
+         Set<String> seen = new HashSet<>();
+         for (int i = 0; i < employees.size(); i++) {
+            Employee employee = employees.get(i);
+            if (employee == null || employee.getFirstName() == null || employee.getLastName() == null
+                  || employee.getEmail() == null) {
+               results[i] = BatchItemResult.invalid(i, "firstName, lastName and email are required");
+            } else if (existing.contains(employee.getEmail()) || !seen.add(employee.getEmail())) {
+               results[i] = BatchItemResult.duplicate(i);
+            } else {
+               positions.add(i);
+               toInsert.add(employee);
+            }
+         }
+         // All or nothing like the blocking batch, inserts run one after the other on the transaction's connection
+         return Flux.fromIterable(toInsert)
+               .concatMap(employeeRepo::insert)
+               .collectList()
+               .as(transactionalOperator::transactional)
+               .onErrorMap(DataIntegrityViolationException.class,
+                     ReactiveEmployeeServiceImpl::translateDuplicateEmail)
+               .map(saved -> {
+                  for (int i = 0; i < saved.size(); i++) {
+                     results[positions.get(i)] = BatchItemResult.created(positions.get(i), saved.get(i).getId());
+                     emailIndex.add(saved.get(i).getEmail());
+                  }
+                  return List.of(results);
+               });
+      });
+   }
+
+   @Override
+   public Mono<EmployeePage> getEmployeesPage(int size, String sort, String cursor) {
+      return Mono.fromCallable(() -> EmployeeServiceImpl.normalizeSort(sort))
+            .flatMap(sortKey -> employeeRepo.findPage(sortKey, EmployeeServiceImpl.positionOf(cursor, sortKey),
+                        EmployeeServiceImpl.pageSize(size))
+                  .map(window -> EmployeeServiceImpl.toPage(window.map(EmployeeView::of), sortKey)));
+   }
+
+   @Override
+   public Mono<EmployeePage> searchEmployees(EmployeeSearch search, int size, String cursor) {
+      if (search.getValue() == null || search.getValue().isBlank()) {
+         return Mono.error(new IllegalArgumentException("A search term is required"));
+      }
+      String sortKey = search.attribute() + ",asc";
+      return Mono.fromCallable(() -> EmployeeServiceImpl.positionOf(cursor, sortKey))
+            .flatMap(position -> employeeRepo.search(search, position, EmployeeServiceImpl.pageSize(size)))
+            .map(window -> EmployeeServiceImpl.toPage(window.map(EmployeeView::of), sortKey));
+   }
+
+   @Override
+   public Flux<Employee> exportEmployees() {
+      return employeeRepo.streamAll();
+   }
+
+   @Override
+   public Mono<Employee> getEmployeeById(long id) {
+      return employeeRepo.findById(id);
+   }
+
+   // The row as stored, read back in the update's transaction so it is the version this update wrote
+   @Override
+   public Mono<Employee> updateEmployee(Employee employee) {
+      return employeeRepo.update(employee)
+            .filter(rows -> rows > 0)
+            .flatMap(rows -> employeeRepo.findById(employee.getId()))
+            .as(transactionalOperator::transactional)
+            .doOnNext(updatedEmployee -> emailIndex.add(updatedEmployee.getEmail()))
+            .onErrorMap(DataIntegrityViolationException.class, ReactiveEmployeeServiceImpl::translateDuplicateEmail);
+   }
+
+   @Override
+   public Mono<Boolean> deleteEmployee(long id) {
+      return employeeRepo.deleteById(id).map(rows -> rows > 0);
+   }
+
+   // R2DBC has no constraint name to look at, H2 puts the index name in the message
+   private static Throwable translateDuplicateEmail(DataIntegrityViolationException e) {
+      for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+         if (cause.getMessage() != null && cause.getMessage().toLowerCase(Locale.ROOT).contains(Employee.EMAIL_INDEX)) {
+            return new ResourceNotFoundException("Employee already exists!!", e);
+         }
+      }
+      return e;
+   }
+}
@@ -0,0 +1,190 @@
+package com.springtesting.stats;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.springtesting.dto.EmployeeCountKey;
+import com.springtesting.dto.EmployeeStats;
+import com.springtesting.repository.EmployeeRepo;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+// Employees in total, per last name and per email domain, kept in memory so the stats never read the table. Counted
+// once at startup, then moved by every write through EmployeeService after it commits, a rolled back write never
+// counts. A last name or domain count is changed under the lock of its map bin and dropped when it reaches 0, so the
+// maps only hold names and domains some employee has; reading a count is a map lookup without a lock. Writes made
+// behind this instance's back (other instances, plain SQL) are not seen until the next rebuild.
+@Component
+public class EmployeeCounts implements MeterBinder, SmartInitializingSingleton {
+
+   // Largest count first, names and domains with the same count in alphabetical order
+   private static final Comparator<Map.Entry<String, Long>> LARGEST_FIRST =
+         Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey());
+
+   private final EmployeeRepo employeeRepo;
+
+   private final TransactionTemplate transactionTemplate;
+
+   private final LongAdder rebuilds = new LongAdder();
+
+   private volatile Counts counts = new Counts();
+
+   public EmployeeCounts(EmployeeRepo employeeRepo, PlatformTransactionManager transactionManager) {
+      this.employeeRepo = employeeRepo;
+      // A transaction of its own, also when a rebuild runs from another transaction's afterCommit. Not read-only, so
+      // the rows come from the primary rather than a lagging replica (see ReadReplicaConfig).
+      this.transactionTemplate = new TransactionTemplate(transactionManager);
+      this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+   }
+
+   // Runs before the lifecycle beans start, the web server and the write-behind writer among them, so no write can
+   // commit between the scan and the first counted write
+   @Override
+   public void afterSingletonsInstantiated() {
+      rebuild();
+   }
+
+   // Counts the table again and swaps the result in. Writes committing while the table is scanned can be counted
+   // twice or not at all, which is why it only runs at startup and after a write that could not be counted exactly.
+   public void rebuild() {
+      Counts rebuilt = new Counts();
+      transactionTemplate.executeWithoutResult(status -> {
+         try (Stream<EmployeeCountKey> keys = employeeRepo.streamCountKeys()) {
+            keys.forEach(key -> rebuilt.add(key, 1));
+         }
+      });
+      counts = rebuilt;
+      rebuilds.increment();
+   }
+
+   public void added(EmployeeCountKey key) {
+      afterCommit(() -> counts.add(key, 1));
+   }
+
+   public void removed(Collection<EmployeeCountKey> keys) {
+      if (!keys.isEmpty()) {
+         afterCommit(() -> keys.forEach(key -> counts.add(key, -1)));
+      }
+   }
+
+   public void changed(EmployeeCountKey before, EmployeeCountKey after) {
+      if (!before.lastName().equals(after.lastName()) || !before.emailDomain().equals(after.emailDomain())) {
+         afterCommit(() -> {
+            counts.add(before, -1);
+            counts.add(after, 1);
+         });
+      }
+   }
+
+   public void rebuildAfterCommit() {
+      afterCommit(this::rebuild);
+   }
+
+   public long total() {
+      return counts.total.sum();
+   }
+
+   public long countByLastName(String lastName) {
+      return counts.byLastName.getOrDefault(lastName, 0L);
+   }
+
+   public long countByEmailDomain(String domain) {
+      return counts.byEmailDomain.getOrDefault(domain.toLowerCase(Locale.ROOT), 0L);
+   }
+
+   // The total, the top largest counts per last name and per domain, then the counts of the names and domains asked
+   // for that are not among them, 0 for one no employee has. Picking the largest walks the counts once but keeps no
+   // more than top of them. Domains are answered lower-cased, the way they are counted.
+   public EmployeeStats stats(int top, Collection<String> lastNames, Collection<String> emailDomains) {
+      Counts current = counts;
+      Map<String, Long> byLastName = largest(current.byLastName, top);
+      for (String lastName : lastNames) {
+         byLastName.putIfAbsent(lastName, current.byLastName.getOrDefault(lastName, 0L));
+      }
+      Map<String, Long> byEmailDomain = largest(current.byEmailDomain, top);
+      for (String domain : emailDomains) {
+         String key = domain.toLowerCase(Locale.ROOT);
+         byEmailDomain.putIfAbsent(key, current.byEmailDomain.getOrDefault(key, 0L));
+      }
+      return new EmployeeStats(current.total.sum(), byLastName, byEmailDomain);
+   }
+
+   @Override
+   public void bindTo(MeterRegistry registry) {
+      Gauge.builder("employee.count", this, EmployeeCounts::total).register(registry);
+      FunctionCounter.builder("employee.count.rebuilds", rebuilds, LongAdder::sum).register(registry);
+   }
+
+   private static Map<String, Long> largest(Map<String, Long> counts, int top) {
+      Map<String, Long> largest = new LinkedHashMap<>();
+      if (top <= 0) {
+         return largest;
+      }
+      // The smallest of those kept so far on top, pushed out by a larger one
+      PriorityQueue<Map.Entry<String, Long>> kept = new PriorityQueue<>(top + 1, LARGEST_FIRST.reversed());
+      for (Map.Entry<String, Long> count : counts.entrySet()) {
+         kept.add(Map.entry(count.getKey(), count.getValue()));
+         if (kept.size() > top) {
+            kept.poll();
+         }
+      }
+      List<Map.Entry<String, Long>> sorted = new ArrayList<>(kept);
+      sorted.sort(LARGEST_FIRST);
+      sorted.forEach(count -> largest.put(count.getKey(), count.getValue()));
+      return largest;
+   }
+
+   private static void afterCommit(Runnable change) {
+      if (TransactionSynchronizationManager.isSynchronizationActive()) {
+         TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+               change.run();
+            }
+         });
+      } else {
+         change.run();
+      }
+   }
+
+
+   private static final class Counts {
+
+      private final LongAdder total = new LongAdder();
+
+      private final Map<String, Long> byLastName = new ConcurrentHashMap<>();
+
+      private final Map<String, Long> byEmailDomain = new ConcurrentHashMap<>();
+
+      void add(EmployeeCountKey key, int delta) {
+         total.add(delta);
+         add(byLastName, key.lastName(), delta);
+         add(byEmailDomain, key.emailDomain(), delta);
+      }
+
+      // merge runs under the lock of the key's bin, a count that comes to 0 is removed there rather than left behind
+      private static void add(Map<String, Long> counts, String key, int delta) {
+         counts.merge(key, (long) delta, (count, added) -> count + added == 0 ? null : count + added);
+      }
+   }
+}
@@ -0,0 +1,253 @@
+package com.springtesting.writebehind;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.springtesting.dto.BatchItemResult;
+import com.springtesting.dto.WriteStatus;
+import com.springtesting.entities.Employee;
+import com.springtesting.exception.ResourceNotFoundException;
+import com.springtesting.exception.WriteQueueFullException;
+import com.springtesting.service.EmployeeService;
+import com.springtesting.service.impl.EmployeeServiceImpl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+// Write-behind for creates: submit() queues the employee and returns at once, one writer thread drains the queue
+// through EmployeeService.saveEmployees in batches of batch-size, or whatever arrived within flush-interval of the
+// first queued write. A full queue rejects with WriteQueueFullException (429) instead of blocking the request.
+// Outcomes are kept for status-ttl under the tracking id. Accepted writes are only held in memory: on shutdown the
+// queue is drained before the database goes away, a crash loses whatever was still queued.
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(name = "employee.write-behind.enabled", havingValue = "true")
+public class EmployeeWriteBehind implements SmartLifecycle, MeterBinder {
+
+   // Stops after the web server (WebServerStartStopLifecycle is DEFAULT_PHASE - 2048), so no request can queue
+   // a write once draining has started
+   static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+
+   // Longest the writer waits for writes without looking whether stop() was called
+   private static final long WAIT_SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+   private static final Logger log = LoggerFactory.getLogger(EmployeeWriteBehind.class);
+
+   private record PendingWrite(String trackingId, Employee employee) {
+   }
+
+   private final EmployeeService employeeService;
+
+   private final BlockingQueue<PendingWrite> queue;
+
+   private final int batchSize;
+
+   private final long flushIntervalNanos;
+
+   private final Duration shutdownTimeout;
+
+   private final Cache<String, WriteStatus> statuses;
+
+   private volatile boolean accepting;
+
+   private volatile boolean running;
+
+   private Thread writer;
+
+   private MeterRegistry registry;
+
+   private Counter rejected;
+
+   public EmployeeWriteBehind(EmployeeService employeeService,
+         @Value("${employee.write-behind.queue-capacity:10000}") int queueCapacity,
+         @Value("${employee.write-behind.batch-size:500}") int batchSize,
+         @Value("${employee.write-behind.flush-interval:200ms}") Duration flushInterval,
+         @Value("${employee.write-behind.shutdown-timeout:30s}") Duration shutdownTimeout,
+         @Value("${employee.write-behind.status-ttl:10m}") Duration statusTtl) {
+      if (batchSize < 1 || batchSize > EmployeeServiceImpl.MAX_BATCH_SIZE) {
+         throw new IllegalArgumentException("employee.write-behind.batch-size must be between 1 and "
+               + EmployeeServiceImpl.MAX_BATCH_SIZE);
+      }
+      this.employeeService = employeeService;
+      this.queue = new ArrayBlockingQueue<>(queueCapacity);
+      this.batchSize = batchSize;
+      this.flushIntervalNanos = flushInterval.toNanos();
+      this.shutdownTimeout = shutdownTimeout;
+      // Room for every queued write plus the finished ones of a few minutes at a full queue's pace
+      this.statuses = Caffeine.newBuilder()
+            .maximumSize(Math.max(100_000L, 10L * queueCapacity))
+            .expireAfterWrite(statusTtl)
+            .build();
+   }
+
+   // Queues the create, the returned status is QUEUED. WriteQueueFullException when the queue is full or draining.
+   public WriteStatus submit(Employee employee) {
+      if (!accepting) {
+         reject();
+         throw new WriteQueueFullException("Not accepting writes, shutting down");
+      }
+      WriteStatus queued = WriteStatus.queued(UUID.randomUUID().toString());
+      statuses.put(queued.getTrackingId(), queued);
+      if (!queue.offer(new PendingWrite(queued.getTrackingId(), employee))) {
+         statuses.invalidate(queued.getTrackingId());
+         reject();
+         throw new WriteQueueFullException("Write queue is full, try again later");
+      }
+      return queued;
+   }
+
+   // Empty once the status has expired, or for ids that were never handed out
+   public Optional<WriteStatus> status(String trackingId) {
+      return Optional.ofNullable(statuses.getIfPresent(trackingId));
+   }
+
+   @Override
+   public synchronized void start() {
+      if (running) {
+         return;
+      }
+      running = true;
+      accepting = true;
+      writer = new Thread(this::drain, "employee-write-behind");
+      writer.setDaemon(true);
+      writer.start();
+   }
+
+   // Stops taking writes, then waits up to shutdown-timeout for the writer to empty the queue
+   @Override
+   public synchronized void stop() {
+      if (!running) {
+         return;
+      }
+      accepting = false;
+      running = false;
+      try {
+         writer.join(shutdownTimeout.toMillis());
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+      if (writer.isAlive()) {
+         log.warn("Write-behind did not drain within {}, {} queued creates are lost", shutdownTimeout, queue.size());
+         return;
+      }
+      // A submit that passed the accepting check just before stop may have queued after the writer's last look
+      List<PendingWrite> late = new ArrayList<>();
+      queue.drainTo(late);
+      for (int from = 0; from < late.size(); from += batchSize) {
+         write(late.subList(from, Math.min(late.size(), from + batchSize)));
+      }
+   }
+
+   @Override
+   public boolean isRunning() {
+      return running;
+   }
+
+   @Override
+   public int getPhase() {
+      return PHASE;
+   }
+
+   private void drain() {
+      List<PendingWrite> batch = new ArrayList<>(batchSize);
+      while (running || !queue.isEmpty()) {
+         try {
+            PendingWrite first = queue.poll(Math.min(flushIntervalNanos, WAIT_SLICE_NANOS), TimeUnit.NANOSECONDS);
+            if (first == null) {
+               continue;
+            }
+            batch.add(first);
+            long deadline = System.nanoTime() + flushIntervalNanos;
+            while (batch.size() < batchSize) {
+               queue.drainTo(batch, batchSize - batch.size());
+               long remaining = deadline - System.nanoTime();
+               if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                  break;
+               }
+               PendingWrite next = queue.poll(Math.min(remaining, WAIT_SLICE_NANOS), TimeUnit.NANOSECONDS);
+               if (next != null) {
+                  batch.add(next);
+               }
+            }
+            write(batch);
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+         } catch (RuntimeException e) {
+            // Never let one batch end the writer, its writes are marked FAILED below
+            log.error("Write-behind batch of {} failed", batch.size(), e);
+            batch.forEach(write -> statuses.put(write.trackingId(),
+                  WriteStatus.failed(write.trackingId(), e.getMessage())));
+         } finally {
+            batch.clear();
+         }
+      }
+   }
+
+   private void write(List<PendingWrite> batch) {
+      List<BatchItemResult> results;
+      try {
+         results = employeeService.saveEmployees(batch.stream().map(PendingWrite::employee).toList());
+      } catch (RuntimeException e) {
+         // e.g. a concurrent create of one of the emails failed the whole transaction, one by one only it fails
+         batch.forEach(this::writeOne);
+         return;
+      }
+      for (int i = 0; i < batch.size(); i++) {
+         complete(WriteStatus.of(batch.get(i).trackingId(), results.get(i)));
+      }
+   }
+
+   private void writeOne(PendingWrite write) {
+      try {
+         complete(WriteStatus.created(write.trackingId(), employeeService.savedEmployee(write.employee()).getId()));
+      } catch (ResourceNotFoundException e) {
+         complete(WriteStatus.duplicate(write.trackingId()));
+      } catch (RuntimeException e) {
+         log.warn("Write-behind create {} failed", write.trackingId(), e);
+         complete(WriteStatus.failed(write.trackingId(), e.getMessage()));
+      }
+   }
+
+   private void complete(WriteStatus status) {
+      statuses.put(status.getTrackingId(), status);
+      if (registry != null) {
+         registry.counter("employee.write-behind.written", "state", status.getState().name()).increment();
+      }
+   }
+
+   private void reject() {
+      if (rejected != null) {
+         rejected.increment();
+      }
+   }
+
+   @Override
+   public void bindTo(MeterRegistry registry) {
+      this.registry = registry;
+      Gauge.builder("employee.write-behind.queued", queue, BlockingQueue::size)
+            .description("Creates accepted and not yet written")
+            .register(registry);
+      rejected = Counter.builder("employee.write-behind.rejected")
+            .description("Creates rejected because the queue was full or draining")
+            .register(registry);
+   }
+}
@@ -0,0 +1,99 @@
+package com.springtesting.concurrency;
+
+import java.util.concurrent.TimeUnit;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class AimdLimiterTest {
+
+   private static final long TARGET = TimeUnit.MILLISECONDS.toNanos(100);
+
+   private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+
+   private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(500);
+
+   //JUnit test for the limiter - calls over the limit are turned away without waiting
+   @Test
+   public void givenLimitTaken_whenTryAcquire_thenRejected() {
+      //given - precondition or setup
+      AimdLimiter limiter = new AimdLimiter(2, 1, 10, TARGET);
+
+      //when - action or the behaviour that we are going to test
+      boolean first = limiter.tryAcquire();
+      boolean second = limiter.tryAcquire();
+      boolean third = limiter.tryAcquire();
+
+      //then - verify the output
+      Assertions.assertThat(first).isTrue();
+      Assertions.assertThat(second).isTrue();
+      Assertions.assertThat(third).isFalse();
+      Assertions.assertThat(limiter.inflight()).isEqualTo(2);
+      Assertions.assertThat(limiter.rejected()).isEqualTo(1);
+   }
+
+   //JUnit test for the limiter - slow calls back off once per round trip, not once per call that was already running,
+   //by how far over the target they were
+   @Test
+   public void givenCallsRunningWhenLatencyRises_whenAllCompleteSlowly_thenLimitDecreasesOnce() {
+      //given - precondition or setup
+      AimdLimiter limiter = new AimdLimiter(20, 1, 100, TARGET);
+      for (int i = 0; i < 10; i++) {
+         limiter.tryAcquire();
+      }
+
+      //when - action or the behaviour that we are going to test
+      for (int i = 0; i < 10; i++) {
+         limiter.release(0, SLOW + i, false);
+      }
+      int afterFirstRoundTrip = limiter.limit();
+      limiter.tryAcquire();
+      limiter.release(SLOW + 10, SLOW + 10 + TARGET * 5 / 4, false);
+
+      //then - verify the output
+      Assertions.assertThat(afterFirstRoundTrip).isEqualTo(10);
+      Assertions.assertThat(limiter.limit()).isEqualTo(8);
+      Assertions.assertThat(limiter.inflight()).isZero();
+   }
+
+   //JUnit test for the limiter - failures back off like slow calls, down to the minimum and no further
+   @Test
+   public void givenFailingCalls_whenReleased_thenLimitStopsAtMinimum() {
+      //given - precondition or setup
+      AimdLimiter limiter = new AimdLimiter(4, 2, 10, TARGET);
+
+      //when - action or the behaviour that we are going to test
+      for (long start = 1; start <= 20; start++) {
+         limiter.tryAcquire();
+         limiter.release(start * SLOW, start * SLOW + FAST, true);
+      }
+
+      //then - verify the output
+      Assertions.assertThat(limiter.limit()).isEqualTo(2);
+   }
+
+   //JUnit test for the limiter - fast calls grow the limit while it is in use, up to the maximum
+   @Test
+   public void givenBusyFastCalls_whenReleased_thenLimitGrowsToMaximum() {
+      //given - precondition or setup
+      AimdLimiter limiter = new AimdLimiter(2, 1, 6, TARGET);
+      AimdLimiter idle = new AimdLimiter(4, 1, 6, TARGET);
+
+      //when - action or the behaviour that we are going to test
+      for (int i = 0; i < 200; i++) {
+         int running = limiter.limit();
+         for (int r = 0; r < running; r++) {
+            limiter.tryAcquire();
+         }
+         for (int r = 0; r < running; r++) {
+            limiter.release(0, FAST, false);
+         }
+         idle.tryAcquire();
+         idle.release(0, FAST, false);
+      }
+
+      //then - verify the output
+      Assertions.assertThat(limiter.limit()).isEqualTo(6);
+      Assertions.assertThat(idle.limit()).isEqualTo(4);
+   }
+}
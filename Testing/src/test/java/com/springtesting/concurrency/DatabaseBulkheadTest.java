@@ -0,0 +1,113 @@
+package com.springtesting.concurrency;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import com.springtesting.exception.DatabaseBusyException;
+
+public class DatabaseBulkheadTest {
+
+   private interface Work {
+      int call() throws InterruptedException;
+   }
+
+   private final CountDownLatch release = new CountDownLatch(1);
+
+   private final AtomicInteger running = new AtomicInteger();
+
+   private final AtomicInteger maxRunning = new AtomicInteger();
+
+   private ExecutorService executor;
+
+   @BeforeEach
+   public void setUp() {
+      executor = Executors.newFixedThreadPool(8);
+   }
+
+   @AfterEach
+   public void tearDown() {
+      release.countDown();
+      executor.shutdownNow();
+   }
+
+   private Work guarded(DatabaseBulkhead bulkhead) {
+      Work target = () -> {
+         maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+         try {
+            release.await();
+            return 1;
+         } finally {
+            running.decrementAndGet();
+         }
+      };
+      AspectJProxyFactory factory = new AspectJProxyFactory(target);
+      factory.addAspect(new AroundAnyCall(bulkhead));
+      return factory.getProxy();
+   }
+
+   // The production pointcut is bound to EmployeeService, re-declare the same advice for the test interface
+   @Aspect
+   static class AroundAnyCall {
+
+      private final DatabaseBulkhead bulkhead;
+
+      AroundAnyCall(DatabaseBulkhead bulkhead) {
+         this.bulkhead = bulkhead;
+      }
+
+      @Around("execution(* *(..))")
+      public Object guard(ProceedingJoinPoint joinPoint) throws Throwable {
+         return bulkhead.guard(joinPoint);
+      }
+   }
+
+   //JUnit test for the bulkhead - no more than max-concurrency calls run at once, the rest wait their turn
+   @Test
+   public void givenMoreCallersThanPermits_whenCalledConcurrently_thenConcurrencyIsBounded() throws Exception {
+      //given - precondition or setup
+      Work work = guarded(new DatabaseBulkhead(2, Duration.ofSeconds(10)));
+
+      //when - action or the behaviour that we are going to test
+      Future<?>[] calls = new Future<?>[6];
+      for (int i = 0; i < calls.length; i++) {
+         calls[i] = executor.submit(work::call);
+      }
+      Thread.sleep(200);
+      int runningWhileBlocked = running.get();
+      release.countDown();
+      for (Future<?> call : calls) {
+         call.get(5, TimeUnit.SECONDS);
+      }
+
+      //then - verify the output
+      Assertions.assertThat(runningWhileBlocked).isEqualTo(2);
+      Assertions.assertThat(maxRunning.get()).isEqualTo(2);
+   }
+
+   //JUnit test for the bulkhead - a caller that cannot get a permit in time is rejected instead of queueing forever
+   @Test
+   public void givenAllPermitsHeld_whenAcquireTimesOut_thenDatabaseBusyIsThrown() throws Exception {
+      //given - precondition or setup
+      Work work = guarded(new DatabaseBulkhead(1, Duration.ofMillis(50)));
+      executor.submit(work::call);
+      Thread.sleep(100);
+
+      //when - action or the behaviour that we are going to test
+      //then - verify the output
+      Assertions.assertThatThrownBy(work::call).isInstanceOf(DatabaseBusyException.class);
+   }
+}
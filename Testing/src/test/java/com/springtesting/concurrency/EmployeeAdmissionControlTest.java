@@ -0,0 +1,245 @@
+package com.springtesting.concurrency;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+
+import com.springtesting.entities.Employee;
+import com.springtesting.repository.EmployeeRepo;
+import com.springtesting.service.EmployeeService;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// The database is made slow by a test aspect on EmployeeRepo: one call at a time, 50ms each, like an overloaded
+// database behind a single connection. Closed-loop clients keep 24 reads outstanding, which without admission
+// control would queue behind one another for 24 * 50ms = 1.2s each. A client that is turned away waits 100ms before
+// its next request, so the test does not turn into a 503 busy loop on a small machine.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+      "spring.cache.type=none",
+      "employee.metrics.slow-query.threshold=1m",
+      "employee.admission.enabled=true",
+      "employee.admission.reads.initial-limit=16",
+      "employee.admission.reads.latency-target=200ms",
+      "employee.admission.writes.initial-limit=5",
+      "employee.admission.writes.latency-target=1s" })
+public class EmployeeAdmissionControlTest {
+
+   private static final int CLIENTS = 24;
+
+   private static final long CALL_MILLIS = 50;
+
+   private static final String ROUTE = "GET /api/employees/{id}";
+
+   private static final String EXPORT_ROUTE = "GET /api/employees/export";
+
+   @TestConfiguration
+   static class SlowDatabase {
+
+      @Bean
+      SlowRepositoryCalls slowRepositoryCalls() {
+         return new SlowRepositoryCalls();
+      }
+   }
+
+   @Aspect
+   static class SlowRepositoryCalls {
+
+      private final Semaphore connections = new Semaphore(1, true);
+
+      private volatile boolean slow;
+
+      // When set, the export's read waits for it
+      private volatile CountDownLatch exportGate;
+
+      @Around("this(com.springtesting.repository.EmployeeRepo)")
+      public Object slowDown(ProceedingJoinPoint joinPoint) throws Throwable {
+         CountDownLatch gate = exportGate;
+         if (gate != null && joinPoint.getSignature().getName().equals("streamAll")) {
+            gate.await();
+         }
+         if (!slow) {
+            return joinPoint.proceed();
+         }
+         connections.acquire();
+         try {
+            Thread.sleep(CALL_MILLIS);
+            return joinPoint.proceed();
+         } finally {
+            connections.release();
+         }
+      }
+   }
+
+   @LocalServerPort
+   private int port;
+
+   @Autowired
+   private EmployeeService employeeService;
+
+   @Autowired
+   private EmployeeRepo employeeRepo;
+
+   @Autowired
+   private SlowRepositoryCalls slowRepositoryCalls;
+
+   @Autowired
+   private MeterRegistry meterRegistry;
+
+   private final HttpClient client = HttpClient.newHttpClient();
+
+   private long id;
+
+   @BeforeEach
+   public void setUp() {
+      id = employeeService.savedEmployee(Employee.builder()
+            .firstName("Ashwin").lastName("Singh").email("ashwin@example.com").build()).getId();
+   }
+
+   @AfterEach
+   public void tearDown() {
+      slowRepositoryCalls.slow = false;
+      slowRepositoryCalls.exportGate = null;
+      employeeRepo.deleteAll();
+   }
+
+   //JUnit test for admission control - with a slow database the read route sheds load, admitted reads stay fast,
+   //rejected ones are turned away at once and writes are admitted on their own limit
+   @Test
+   public void givenSlowRepository_whenReadsPileUp_thenAdmittedTailLatencyStaysBounded() throws Exception {
+      //given - precondition or setup
+      slowRepositoryCalls.slow = true;
+      Histogram admitted = new ConcurrentHistogram(TimeUnit.MINUTES.toNanos(1), 3);
+      Histogram rejected = new ConcurrentHistogram(TimeUnit.MINUTES.toNanos(1), 3);
+      AtomicInteger missingRetryAfter = new AtomicInteger();
+      AtomicInteger unexpected = new AtomicInteger();
+      HttpRequest read = HttpRequest.newBuilder(uri("/api/employees/" + id)).GET().build();
+      ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+
+      //when - action or the behaviour that we are going to test
+      long warmupEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(3);
+      long end = warmupEnd + TimeUnit.SECONDS.toNanos(3);
+      List<Future<?>> clients = new ArrayList<>();
+      for (int i = 0; i < CLIENTS; i++) {
+         clients.add(executor.submit(() -> {
+            while (System.nanoTime() < end) {
+               long start = System.nanoTime();
+               HttpResponse<String> response = client.send(read, HttpResponse.BodyHandlers.ofString());
+               long latency = System.nanoTime() - start;
+               if (response.statusCode() == 503) {
+                  if (response.headers().firstValue("Retry-After").isEmpty()) {
+                     missingRetryAfter.incrementAndGet();
+                  }
+                  if (start > warmupEnd) {
+                     rejected.recordValue(latency);
+                  }
+                  Thread.sleep(100);
+               } else if (response.statusCode() == 200) {
+                  if (start > warmupEnd) {
+                     admitted.recordValue(latency);
+                  }
+               } else {
+                  unexpected.incrementAndGet();
+               }
+            }
+            return null;
+         }));
+      }
+      Thread.sleep(4000);
+      HttpResponse<String> write = client.send(HttpRequest.newBuilder(uri("/api/employees"))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(
+                  "{\"firstName\":\"Raju\",\"lastName\":\"Sharma\",\"email\":\"raju@example.com\"}"))
+            .build(), HttpResponse.BodyHandlers.ofString());
+      for (Future<?> future : clients) {
+         future.get(30, TimeUnit.SECONDS);
+      }
+      executor.shutdown();
+
+      //then - verify the output
+      Assertions.assertThat(unexpected.get()).isZero();
+      Assertions.assertThat(missingRetryAfter.get()).isZero();
+      Assertions.assertThat(admitted.getTotalCount()).isPositive();
+      Assertions.assertThat(rejected.getTotalCount()).isPositive();
+      Assertions.assertThat(millis(admitted.getValueAtPercentile(99))).as("admitted p99 ms")
+            .isLessThan(CLIENTS * CALL_MILLIS / 2);
+      Assertions.assertThat(rejected.getValueAtPercentile(99)).as("rejected p99 vs admitted p50")
+            .isLessThan(admitted.getValueAtPercentile(50));
+      Assertions.assertThat(write.statusCode()).isEqualTo(201);
+      Assertions.assertThat(meterRegistry.get("employee.admission.limit").tag("route", ROUTE).tag("kind", "read")
+            .gauge().value()).isLessThan(16);
+      Assertions.assertThat(meterRegistry.get("employee.admission.rejected").tag("route", ROUTE)
+            .functionCounter().count()).isPositive();
+   }
+
+   //JUnit test for admission control of a streaming response - the export holds its slot until the body is written
+   @Test
+   public void givenExportStillWriting_whenHandlerReturned_thenSlotHeldUntilResponseComplete() throws Exception {
+      //given - precondition or setup
+      CountDownLatch gate = new CountDownLatch(1);
+      slowRepositoryCalls.exportGate = gate;
+
+      //when - action or the behaviour that we are going to test
+      CompletableFuture<HttpResponse<String>> export = client.sendAsync(
+            HttpRequest.newBuilder(uri("/api/employees/export")).GET().build(), HttpResponse.BodyHandlers.ofString());
+      await(() -> inflight(EXPORT_ROUTE) == 1);
+      Thread.sleep(200);
+      double whileWriting = inflight(EXPORT_ROUTE);
+      gate.countDown();
+      HttpResponse<String> response = export.get(10, TimeUnit.SECONDS);
+
+      //then - verify the output
+      Assertions.assertThat(whileWriting).isEqualTo(1);
+      Assertions.assertThat(response.statusCode()).isEqualTo(200);
+      Assertions.assertThat(response.body()).contains("ashwin@example.com");
+      await(() -> inflight(EXPORT_ROUTE) == 0);
+   }
+
+   private double inflight(String route) {
+      Gauge gauge = meterRegistry.find("employee.admission.inflight").tag("route", route).gauge();
+      return gauge == null ? -1 : gauge.value();
+   }
+
+   private static void await(BooleanSupplier condition) throws InterruptedException {
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+      while (!condition.getAsBoolean()) {
+         Assertions.assertThat(System.nanoTime()).as("condition met within 10s").isLessThan(deadline);
+         Thread.sleep(10);
+      }
+   }
+
+   private URI uri(String path) {
+      return URI.create("http://localhost:" + port + path);
+   }
+
+   private static double millis(long nanos) {
+      return nanos / 1_000_000.0;
+   }
+}
@@ -0,0 +1,141 @@
+package com.springtesting.config;
+
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.springtesting.entities.Employee;
+import com.springtesting.repository.EmployeeRepo;
+import com.springtesting.service.EmployeeService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Two embedded H2 databases stand in for a primary and its replica. Nothing replicates between them, so a row
+// inserted into only one of them shows which database a call went to.
+@SpringBootTest(properties = {
+      "spring.datasource.url=jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1",
+      "employee.datasource.replica.jdbc-url=jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1",
+      "employee.datasource.replica.username=sa"
+})
+public class ReadReplicaConfigTest {
+
+   @Autowired
+   private EmployeeService employeeService;
+
+   @Autowired
+   private EmployeeRepo employeeRepo;
+
+   @Autowired
+   private PlatformTransactionManager transactionManager;
+
+   @Autowired
+   private MeterRegistry meterRegistry;
+
+   private JdbcTemplate primary;
+
+   private JdbcTemplate replica;
+
+   @Autowired
+   public void setDataSources(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+         @Qualifier("replicaDataSource") DataSource replicaDataSource) {
+      this.primary = new JdbcTemplate(primaryDataSource);
+      this.replica = new JdbcTemplate(replicaDataSource);
+   }
+
+   // Hibernate only creates the schema on the primary, the replica gets a copy of it
+   @BeforeEach
+   public void setUp() {
+      if (replica.queryForObject("select count(*) from information_schema.tables where table_name = 'EMPLOYEE'",
+            Integer.class) == 0) {
+         primary.queryForList("script nodata", String.class).stream()
+               .filter(statement -> !statement.startsWith("CREATE USER") && !statement.startsWith("--"))
+               .forEach(replica::execute);
+      }
+   }
+
+   @AfterEach
+   public void tearDown() {
+      primary.update("delete from employee");
+      replica.update("delete from employee");
+   }
+
+   private void insertIntoReplica(long id, String email) {
+      replica.update("insert into employee (id, first_name, last_name, email, version) values (?, ?, ?, ?, 0)",
+            id, "Ashwin", "Singh", email);
+   }
+
+   //JUnit test for a read-only service method - it is answered by the replica
+   @Test
+   public void givenEmployeeOnReplicaOnly_whenGetEmployeeById_thenReadFromReplica() {
+      //given - precondition or setup
+      insertIntoReplica(1000L, "ashwin@example.com");
+
+      //when - action or the behaviour that we are going to test
+      boolean found = employeeService.getEmployeeById(1000L).isPresent();
+
+      //then - verify the output
+      Assertions.assertThat(found).isTrue();
+      Assertions.assertThat(primary.queryForObject("select count(*) from employee", Integer.class)).isZero();
+   }
+
+   //JUnit test for a write - it goes to the primary, and the reads that follow still go to the replica
+   @Test
+   public void givenSavedEmployee_whenGetAllEmployees_thenWrittenToPrimaryAndReadFromReplica() {
+      //given - precondition or setup
+      employeeService.savedEmployee(Employee.builder()
+            .firstName("Ramesh").lastName("Fadatare").email("ramesh@example.com").build());
+      insertIntoReplica(1001L, "ashwin@example.com");
+
+      //when - action or the behaviour that we are going to test
+      List<Employee> employees = employeeService.getAllEmployees();
+
+      //then - verify the output
+      Assertions.assertThat(primary.queryForList("select email from employee", String.class))
+            .containsExactly("ramesh@example.com");
+      Assertions.assertThat(employees).extracting(Employee::getEmail).containsExactly("ashwin@example.com");
+   }
+
+   //JUnit test for read-only transactions - changed entities are not dirty checked nor flushed
+   @Test
+   public void givenReadOnlyTransaction_whenLoadedEntityIsChanged_thenNothingIsWritten() {
+      //given - precondition or setup
+      insertIntoReplica(1002L, "ashwin@example.com");
+      TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+      readOnly.setReadOnly(true);
+
+      //when - action or the behaviour that we are going to test
+      readOnly.executeWithoutResult(status -> employeeRepo.findAll().forEach(employee -> employee.setFirstName("Changed")));
+
+      //then - verify the output
+      Assertions.assertThat(replica.queryForObject("select first_name from employee where id = 1002", String.class))
+            .isEqualTo("Ashwin");
+   }
+
+   //JUnit test for pool metrics - each pool is reported under its own name
+   @Test
+   public void givenBothPoolsUsed_whenMetricsRead_thenEachPoolHasItsOwn() {
+      //given - precondition or setup
+      employeeService.getAllEmployees();
+      employeeService.savedEmployee(Employee.builder()
+            .firstName("Ramesh").lastName("Fadatare").email("ramesh@example.com").build());
+
+      //then - verify the output
+      for (String pool : List.of(ReadReplicaConfig.PRIMARY_POOL, ReadReplicaConfig.REPLICA_POOL)) {
+         Assertions.assertThat(meterRegistry.get("hikaricp.connections").tag("pool", pool).gauge().value())
+               .isPositive();
+         Assertions.assertThat(meterRegistry.get("hikaricp.connections.usage").tag("pool", pool).timer().count())
+               .isPositive();
+      }
+   }
+}
@@ -0,0 +1,127 @@
+package com.springtesting.config;
+
+import org.assertj.core.api.Assertions;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.springtesting.dto.EmployeePatch;
+import com.springtesting.entities.Employee;
+import com.springtesting.repository.EmployeeRepo;
+import com.springtesting.service.EmployeeService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+
+@SpringBootTest(properties = { "employee.l2cache.enabled=true", "spring.cache.type=none" })
+public class SecondLevelCacheConfigTest {
+
+   @Autowired
+   private EmployeeService employeeService;
+
+   @Autowired
+   private EmployeeRepo employeeRepo;
+
+   @Autowired
+   private EntityManagerFactory entityManagerFactory;
+
+   @Autowired
+   private MeterRegistry meterRegistry;
+
+   private Statistics statistics;
+
+   private Employee employee;
+
+   @BeforeEach
+   public void setUp() {
+      statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+      employee = employeeService.savedEmployee(Employee.builder()
+            .firstName("Ashwin").lastName("Singh").email("ashwin@example.com").build());
+   }
+
+   @AfterEach
+   public void tearDown() {
+      employeeRepo.deleteAll();
+   }
+
+   private String firstNameById(long id) {
+      return employeeRepo.findById(id).map(Employee::getFirstName).orElse(null);
+   }
+
+   //JUnit test for the entity region - a second load by id needs no statement
+   @Test
+   public void givenLoadedEmployee_whenFindByIdAgain_thenServedFromCache() {
+      //given - precondition or setup
+      firstNameById(employee.getId());
+      statistics.clear();
+
+      //when - action or the behaviour that we are going to test
+      String firstName = firstNameById(employee.getId());
+
+      //then - verify the output
+      Assertions.assertThat(firstName).isEqualTo("Ashwin");
+      Assertions.assertThat(statistics.getPrepareStatementCount()).isZero();
+      Assertions.assertThat(statistics.getDomainDataRegionStatistics(Employee.CACHE_REGION).getHitCount()).isEqualTo(1);
+   }
+
+   //JUnit test for invalidation - updates, single-statement patches and deletes are all seen by the next load
+   @Test
+   public void givenCachedEmployee_whenUpdatedPatchedAndDeleted_thenNextLoadSeesTheChange() {
+      //given - precondition or setup
+      long id = employee.getId();
+      firstNameById(id);
+
+      //when - action or the behaviour that we are going to test
+      Employee loaded = employeeRepo.findById(id).orElseThrow();
+      loaded.setFirstName("Updated");
+      employeeService.updateEmployee(loaded);
+      String afterUpdate = firstNameById(id);
+      employeeService.patchEmployee(id, new EmployeePatch("Patched", null, null, null));
+      String afterPatch = firstNameById(id);
+      employeeService.deleteEmployee(id);
+      String afterDelete = firstNameById(id);
+
+      //then - verify the output
+      Assertions.assertThat(afterUpdate).isEqualTo("Updated");
+      Assertions.assertThat(afterPatch).isEqualTo("Patched");
+      Assertions.assertThat(afterDelete).isNull();
+   }
+
+   //JUnit test for the query region - a repeated findByEmail is answered from the cache until the table changes
+   @Test
+   public void givenCachedFindByEmail_whenRepeatedAndAfterInsert_thenCachedUntilTableChanges() {
+      //given - precondition or setup
+      employeeRepo.findByEmail("ashwin@example.com");
+      Assertions.assertThat(employeeRepo.findByEmail("raju@example.com")).isEmpty();
+      statistics.clear();
+
+      //when - action or the behaviour that we are going to test
+      boolean cachedHit = employeeRepo.findByEmail("ashwin@example.com").isPresent();
+      long statementsWhileCached = statistics.getPrepareStatementCount();
+      employeeService.savedEmployee(Employee.builder()
+            .firstName("Raju").lastName("Sharma").email("raju@example.com").build());
+      boolean foundAfterInsert = employeeRepo.findByEmail("raju@example.com").isPresent();
+
+      //then - verify the output
+      Assertions.assertThat(cachedHit).isTrue();
+      Assertions.assertThat(statementsWhileCached).isZero();
+      Assertions.assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+      Assertions.assertThat(foundAfterInsert).isTrue();
+   }
+
+   //JUnit test for the statistics - published as metrics per cache region
+   @Test
+   public void givenCacheUsed_whenMetricsRead_thenRequestsAreCountedPerRegion() {
+      //given - precondition or setup
+      firstNameById(employee.getId());
+      firstNameById(employee.getId());
+
+      //then - verify the output
+      Assertions.assertThat(meterRegistry.get("hibernate.second.level.cache.requests")
+            .tag("region", Employee.CACHE_REGION).tag("result", "hit").functionCounter().count()).isPositive();
+   }
+}
@@ -1,30 +1,56 @@
 package com.springtesting.controller;
 
 import static org.mockito.BDDMockito.given;
-import static org.mockito.BDDMockito.willDoNothing;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
+import org.assertj.core.api.Assertions;
 import org.hamcrest.CoreMatchers;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentMatchers;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.springtesting.config.JacksonConfig;
+import com.springtesting.dto.BatchItemResult;
+import com.springtesting.dto.EmployeePage;
+import com.springtesting.dto.EmployeePatch;
+import com.springtesting.dto.EmployeeSearch;
+import com.springtesting.dto.EmployeeStats;
+import com.springtesting.dto.EmployeeSuggestion;
+import com.springtesting.dto.EmployeeView;
+import com.springtesting.dto.WriteStatus;
 import com.springtesting.entities.Employee;
+import com.springtesting.exception.DatabaseBusyException;
+import com.springtesting.exception.WriteQueueFullException;
+import com.springtesting.importer.EmployeeCsvImporter;
 import com.springtesting.service.EmployeeService;
+import com.springtesting.writebehind.EmployeeWriteBehind;
 
 @WebMvcTest
+@Import({JacksonConfig.class, EmployeeCsvImporter.class})
 public class EmployeeControllerTest {
 
    @Autowired
@@ -33,6 +59,9 @@ public class EmployeeControllerTest {
    @MockBean
    private EmployeeService employeeService;
 
+   @MockBean
+   private EmployeeWriteBehind writeBehind;
+
    @Autowired
    private ObjectMapper objectMapper;  // To convert Object to JSON
 
@@ -63,26 +92,212 @@ public class EmployeeControllerTest {
             .andExpect(MockMvcResultMatchers.jsonPath("$.email", CoreMatchers.is(employee.getEmail())));
    }
 
+   //JUnit test for Create Employees in bulk REST API
+   @Test
+   public void givenEmployeesList_whenCreateEmployees_thenReturnResultPerItem() throws Exception {
+
+      //given - precondition or setup
+      List<Employee> employees = List.of(
+            Employee.builder().firstName("Ashwin").lastName("Singh").email("ashwin@example.com").build(),
+            Employee.builder().firstName("Ashwyn").lastName("Rathore").email("ashwin@example.com").build());
+      given(employeeService.saveEmployees(ArgumentMatchers.anyList()))
+            .willReturn(List.of(BatchItemResult.created(0, 1L), BatchItemResult.duplicate(1)));
+
+      //when - action or behavior that we are going to test
+      ResultActions response = mockMvc.perform(MockMvcRequestBuilders.post("/api/employees/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(employees)));
+
+      //then - verify the result or output using assert statements
+      response.andDo(MockMvcResultHandlers.print())
+            .andExpect(MockMvcResultMatchers.status().isOk())
+            .andExpect(MockMvcResultMatchers.jsonPath("$.size()", CoreMatchers.is(2)))
+            .andExpect(MockMvcResultMatchers.jsonPath("$[0].status", CoreMatchers.is("CREATED")))
+            .andExpect(MockMvcResultMatchers.jsonPath("$[1].status", CoreMatchers.is("DUPLICATE")));
+   }
+
    // JUnit test for Get All employees REST API
+   //JUnit test for the suggest endpoint - best matches with the field each one matched
+   @Test
+   public void givenQuery_whenSuggestEmployees_thenReturnSuggestions() throws Exception {
+
+      //given - precondition or setup
+      given(employeeService.suggestEmployees("sin", 5)).willReturn(List.of(
+            new EmployeeSuggestion(1L, "Ashwin", "Singh", "ashwin@example.com", "lastName")));
+
+      //when - action or behavior that we are going to test
+      ResultActions response = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees/suggest")
+            .param("q", "sin").param("limit", "5"));
+
+      //then - verify the result or output using assert statement
+      response.andDo(MockMvcResultHandlers.print())
+            .andExpect(MockMvcResultMatchers.status().isOk())
+            .andExpect(MockMvcResultMatchers.jsonPath("$.size()", CoreMatchers.is(1)))
+            .andExpect(MockMvcResultMatchers.jsonPath("$[0].lastName", CoreMatchers.is("Singh")))
+            .andExpect(MockMvcResultMatchers.jsonPath("$[0].matchedField", CoreMatchers.is("lastName")));
+   }
+
+   //JUnit test for the stats endpoint - not taken for an employee id, the top 10 unless asked otherwise
+   @Test
+   public void givenCounts_whenGetEmployeeStats_thenReturnTotalAndCountsPerNameAndDomain() throws Exception {
+
+      //given - precondition or setup
+      given(employeeService.getEmployeeStats(10, List.of("Singh", "Sharma"), List.of("example.com")))
+            .willReturn(new EmployeeStats(3, Map.of("Singh", 2L, "Sharma", 1L), Map.of("example.com", 3L)));
+
+      //when - action or behavior that we are going to test
+      ResultActions response = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees/stats")
+            .param("lastName", "Singh", "Sharma").param("domain", "example.com"));
+
+      //then - verify the result or output using assert statement
+      response.andDo(MockMvcResultHandlers.print())
+            .andExpect(MockMvcResultMatchers.status().isOk())
+            .andExpect(MockMvcResultMatchers.jsonPath("$.total", CoreMatchers.is(3)))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.byLastName.Singh", CoreMatchers.is(2)))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.byEmailDomain['example.com']", CoreMatchers.is(3)));
+   }
+
    @Test
    public void givenListOfEmployees_whenGetAllEmployees_thenReturnEmployeesList() throws Exception {
 
       //given
-      List<Employee> employeeList = new ArrayList<>();
-      employeeList.add(Employee.builder().firstName("Ashwin").lastName("Singh")
-            .email("ashwin@example.com").build());
-      employeeList.add(Employee.builder().firstName("Ashwyn").lastName("Rathore")
-            .email("ashwin@gmail.com").build());
-      given(employeeService.getAllEmployees()).willReturn(employeeList);
+      List<EmployeeView> employeeList = new ArrayList<>();
+      employeeList.add(new EmployeeView(1L, "Ashwin", "Singh", "ashwin@example.com", 0));
+      employeeList.add(new EmployeeView(2L, "Ashwyn", "Rathore", "ashwin@gmail.com", 0));
+      given(employeeService.getEmployeesPage(50, "id", null))
+            .willReturn(new EmployeePage(employeeList, employeeList.size(), true, "next"));
+
+      //when - action or behavior that we are going to test
+      ResultActions response = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees"));
+
+      //then - verify the result or output using assert statement
+      response.andDo(MockMvcResultHandlers.print())
+            .andExpect(MockMvcResultMatchers.status().isOk())
+            .andExpect(MockMvcResultMatchers.jsonPath("$.content.size()", CoreMatchers.is(employeeList.size())))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.hasNext", CoreMatchers.is(true)))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.nextCursor", CoreMatchers.is("next")));
+
+   }
+
+   // JUnit test for Get All employees REST API in the binary formats, negotiated on Accept
+   @Test
+   public void givenBinaryAccept_whenGetAllEmployees_thenReturnSmileOrCbor() throws Exception {
+
+      //given
+      List<EmployeeView> employeeList = List.of(new EmployeeView(1L, "Ashwin", "Singh", "ashwin@example.com", 0));
+      given(employeeService.getEmployeesPage(50, "id", null))
+            .willReturn(new EmployeePage(employeeList, employeeList.size(), false, null));
+
+      //when - action or behavior that we are going to test
+      MvcResult smile = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees")
+            .accept("application/x-jackson-smile")).andReturn();
+      MvcResult cbor = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees")
+            .accept("application/cbor")).andReturn();
+
+      //then - verify the result or output using assert statement
+      Assertions.assertThat(smile.getResponse().getContentType()).isEqualTo("application/x-jackson-smile");
+      Assertions.assertThat(new ObjectMapper(new SmileFactory()).readTree(smile.getResponse().getContentAsByteArray())
+            .at("/content/0/email").asText()).isEqualTo("ashwin@example.com");
+      Assertions.assertThat(cbor.getResponse().getContentType()).isEqualTo("application/cbor");
+      Assertions.assertThat(new ObjectMapper(new CBORFactory()).readTree(cbor.getResponse().getContentAsByteArray())
+            .at("/content/0/email").asText()).isEqualTo("ashwin@example.com");
+      Assertions.assertThat(smile.getResponse().getHeader(HttpHeaders.ETAG))
+            .isNotEqualTo(cbor.getResponse().getHeader(HttpHeaders.ETAG));
+   }
+
+   // JUnit test for Get All employees REST API with an unsupported sort (negative scenario)
+   @Test
+   public void givenUnsupportedSort_whenGetAllEmployees_thenReturnBadRequest() throws Exception {
+
+      //given
+      given(employeeService.getEmployeesPage(50, "salary", null))
+            .willThrow(new IllegalArgumentException("Unsupported sort 'salary'"));
+
+      //when - action or behavior that we are going to test
+      ResultActions response = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees").param("sort", "salary"));
+
+      //then - verify the result or output using assert statement
+      response.andDo(MockMvcResultHandlers.print())
+            .andExpect(MockMvcResultMatchers.status().isBadRequest());
+   }
+
+   // JUnit test for Get All employees REST API when the database bulkhead is full (negative scenario)
+   @Test
+   public void givenDatabaseBusy_whenGetAllEmployees_thenReturnServiceUnavailable() throws Exception {
+
+      //given
+      given(employeeService.getEmployeesPage(50, "id", null))
+            .willThrow(new DatabaseBusyException("Too many concurrent requests, try again later"));
 
       //when - action or behavior that we are going to test
       ResultActions response = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees"));
 
+      //then - verify the result or output using assert statement
+      response.andDo(MockMvcResultHandlers.print())
+            .andExpect(MockMvcResultMatchers.status().isServiceUnavailable())
+            .andExpect(MockMvcResultMatchers.header().string("Retry-After", "1"));
+   }
+
+   // JUnit test for Search employees REST API
+   @Test
+   public void givenSearchParams_whenSearchEmployees_thenReturnMatchingPage() throws Exception {
+
+      //given
+      List<EmployeeView> matches = List.of(new EmployeeView(1L, "Ashwin", "Singh", "ashwin@example.com", 0));
+      given(employeeService.searchEmployees(ArgumentMatchers.any(EmployeeSearch.class), ArgumentMatchers.eq(50),
+            ArgumentMatchers.isNull()))
+            .willReturn(new EmployeePage(matches, 1, false, null));
+
+      //when - action or behavior that we are going to test
+      ResultActions response = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees/search")
+            .param("field", "lastName").param("q", "sin").param("match", "prefix").param("ignoreCase", "true"));
+
       //then - verify the result or output using assert statement
       response.andDo(MockMvcResultHandlers.print())
             .andExpect(MockMvcResultMatchers.status().isOk())
-            .andExpect(MockMvcResultMatchers.jsonPath("$.size()", CoreMatchers.is(employeeList.size())));
+            .andExpect(MockMvcResultMatchers.jsonPath("$.content[0].lastName", CoreMatchers.is("Singh")))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.hasNext", CoreMatchers.is(false)));
+   }
+
+   // JUnit test for Search employees REST API on a field that cannot be searched (negative scenario)
+   @Test
+   public void givenUnsupportedField_whenSearchEmployees_thenReturnBadRequest() throws Exception {
+
+      //when - action or behavior that we are going to test
+      ResultActions response = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees/search")
+            .param("field", "salary").param("q", "100"));
 
+      //then - verify the result or output using assert statement
+      response.andDo(MockMvcResultHandlers.print())
+            .andExpect(MockMvcResultMatchers.status().isBadRequest());
+   }
+
+   // JUnit test for Export employees REST API (one JSON document per line)
+   @Test
+   @SuppressWarnings("unchecked")
+   public void givenEmployees_whenExportEmployees_thenReturnNdjson() throws Exception {
+
+      //given
+      willAnswer(invocation -> {
+         Consumer<EmployeeView> consumer = invocation.getArgument(0);
+         consumer.accept(new EmployeeView(1L, "Ashwin", "Singh", "ashwin@example.com", 0));
+         consumer.accept(new EmployeeView(2L, "Raju", "Sharma", "raju@example.com", 0));
+         return null;
+      }).given(employeeService).exportEmployees(ArgumentMatchers.any(Consumer.class));
+
+      //when - action or behavior that we are going to test
+      MvcResult started = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees/export"))
+            .andExpect(MockMvcResultMatchers.request().asyncStarted())
+            .andReturn();
+      ResultActions response = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(started));
+
+      //then - verify the result or output using assert statement
+      response.andDo(MockMvcResultHandlers.print())
+            .andExpect(MockMvcResultMatchers.status().isOk())
+            .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_NDJSON))
+            .andExpect(MockMvcResultMatchers.content().string(
+                  "{\"id\":1,\"firstName\":\"Ashwin\",\"lastName\":\"Singh\",\"email\":\"ashwin@example.com\",\"version\":0}\n"
+                  + "{\"id\":2,\"firstName\":\"Raju\",\"lastName\":\"Sharma\",\"email\":\"raju@example.com\",\"version\":0}\n"));
    }
 
    // JUnit test for Get Employee by ID REST API (positive scenario, employee exists)
@@ -91,8 +306,7 @@ public class EmployeeControllerTest {
 
       //given
       Long employeeId = 1L;
-      Employee employee = Employee.builder().firstName("Ashwin").lastName("Singh")
-            .email("ashwin@example.com").build();
+      EmployeeView employee = new EmployeeView(employeeId, "Ashwin", "Singh", "ashwin@example.com", 0);
       given(employeeService.getEmployeeById(employeeId)).willReturn(Optional.of(employee));
 
       //when - action or behavior that we are going to test
@@ -101,9 +315,9 @@ public class EmployeeControllerTest {
       //then - verify the result or output using assert statement
       response.andDo(MockMvcResultHandlers.print())
             .andExpect(MockMvcResultMatchers.status().isOk())
-            .andExpect(MockMvcResultMatchers.jsonPath("$.firstName", CoreMatchers.is(employee.getFirstName())))
-            .andExpect(MockMvcResultMatchers.jsonPath("$.lastName", CoreMatchers.is(employee.getLastName())))
-            .andExpect(MockMvcResultMatchers.jsonPath("$.email", CoreMatchers.is(employee.getEmail())));
+            .andExpect(MockMvcResultMatchers.jsonPath("$.firstName", CoreMatchers.is(employee.firstName())))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.lastName", CoreMatchers.is(employee.lastName())))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.email", CoreMatchers.is(employee.email())));
 
    }
 
@@ -129,14 +343,11 @@ public class EmployeeControllerTest {
 
       //given
       Long employeeId = 1L;
-      Employee savedEmployee = Employee.builder().firstName("Ashwin").lastName("Singh")
-            .email("ashwin@example.com").build();
       Employee updatedEmployee = Employee.builder().firstName("Ashwin").lastName("Rathore")
             .email("ashwin@gmail.com").build();
-      given(employeeService.getEmployeeById(employeeId)).willReturn(Optional.of(savedEmployee));
-      given(employeeService.updateEmployee(ArgumentMatchers.any(Employee.class)))
-            // .willReturn((updatedEmployee));
-            .willAnswer((invocation) -> invocation.getArgument(0));
+      given(employeeService.updateEmployee(ArgumentMatchers.eq(employeeId), ArgumentMatchers.isNull(),
+            ArgumentMatchers.any(Employee.class)))
+            .willAnswer((invocation) -> Optional.of(invocation.getArgument(2)));
 
       //when - action or behavior that we are going to test
       ResultActions response = mockMvc.perform(MockMvcRequestBuilders.put("/api/employees/{employeeId}", employeeId)
@@ -160,7 +371,8 @@ public class EmployeeControllerTest {
       Long employeeId = 1L;
       Employee updatedEmployee = Employee.builder().firstName("Ashwin").lastName("Rathore")
             .email("ashwin@gmail.com").build();
-      given(employeeService.getEmployeeById(employeeId)).willReturn(Optional.empty());
+      given(employeeService.updateEmployee(ArgumentMatchers.eq(employeeId), ArgumentMatchers.isNull(),
+            ArgumentMatchers.any(Employee.class))).willReturn(Optional.empty());
 
       //when - action or behavior that we are going to test
       ResultActions response = mockMvc.perform(MockMvcRequestBuilders.put("/api/employees/{employeeId}", employeeId)
@@ -173,13 +385,54 @@ public class EmployeeControllerTest {
 
    }
 
+   // JUnit test for Patch Employee by ID REST API - 204 when updated, 404 when the id does not exist
+   @Test
+   public void givenEmployeePatch_whenPatchEmployee_thenReturnNoContentOrNotFound() throws Exception {
+
+      //given
+      given(employeeService.patchEmployee(ArgumentMatchers.eq(1L), ArgumentMatchers.any(EmployeePatch.class)))
+            .willReturn(true);
+      given(employeeService.patchEmployee(ArgumentMatchers.eq(2L), ArgumentMatchers.any(EmployeePatch.class)))
+            .willReturn(false);
+
+      //when - action or behavior that we are going to test
+      ResultActions patched = mockMvc.perform(MockMvcRequestBuilders.patch("/api/employees/{employeeId}", 1L)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"lastName\":\"Rathore\",\"version\":0}"));
+      ResultActions missing = mockMvc.perform(MockMvcRequestBuilders.patch("/api/employees/{employeeId}", 2L)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"lastName\":\"Rathore\"}"));
+
+      //then - verify the result or output using assert statement
+      patched.andExpect(MockMvcResultMatchers.status().isNoContent());
+      missing.andExpect(MockMvcResultMatchers.status().isNotFound());
+   }
+
+   // JUnit test for Patch Employee by ID REST API with a stale version (negative scenario)
+   @Test
+   public void givenStaleVersion_whenPatchEmployee_thenReturnConflict() throws Exception {
+
+      //given
+      given(employeeService.patchEmployee(ArgumentMatchers.eq(1L), ArgumentMatchers.any(EmployeePatch.class)))
+            .willThrow(new ObjectOptimisticLockingFailureException(Employee.class, 1L));
+
+      //when - action or behavior that we are going to test
+      ResultActions response = mockMvc.perform(MockMvcRequestBuilders.patch("/api/employees/{employeeId}", 1L)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"lastName\":\"Rathore\",\"version\":3}"));
+
+      //then - verify the result or output using assert statement
+      response.andDo(MockMvcResultHandlers.print())
+            .andExpect(MockMvcResultMatchers.status().isConflict());
+   }
+
    // JUnit test for Delete Employee by ID REST API
    @Test
    public void givenEmployeeId_whenDeleteEmployee_thenReturnSuccessString() throws Exception {
 
       //given
       Long employeeId = 1L;
-      willDoNothing().given(employeeService).deleteEmployee(employeeId);
+      given(employeeService.deleteEmployee(employeeId)).willReturn(true);
 
       //when - action or behavior that we are going to test
       ResultActions response = mockMvc.perform(MockMvcRequestBuilders.delete("/api/employees/{employeeId}", employeeId));
@@ -188,4 +441,275 @@ public class EmployeeControllerTest {
       response.andDo(MockMvcResultHandlers.print())
             .andExpect(MockMvcResultMatchers.status().isOk());
    }
+
+   // JUnit test for conditional Get Employee by ID REST API, a current ETag answers 304 without loading the employee
+   @Test
+   public void givenCurrentETag_whenGetEmployeeById_thenReturnNotModified() throws Exception {
+
+      //given
+      given(employeeService.getEmployeeVersion(1L)).willReturn(Optional.of(3L));
+
+      //when - action or behavior that we are going to test
+      ResultActions response = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees/{employeeId}", 1L)
+            .header(HttpHeaders.IF_NONE_MATCH, "\"3\""));
+
+      //then - verify the result or output using assert statement
+      response.andDo(MockMvcResultHandlers.print())
+            .andExpect(MockMvcResultMatchers.status().isNotModified())
+            .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"3\""));
+      verify(employeeService, never()).getEmployeeById(1L);
+   }
+
+   // JUnit test for conditional Get All employees REST API, the list ETag follows the table's version and a current
+   // one is answered without any query
+   @Test
+   public void givenUnchangedTable_whenGetAllEmployees_thenReturnNotModified() throws Exception {
+
+      //given
+      given(employeeService.getEmployeesVersion()).willReturn("a1-4");
+      given(employeeService.getEmployeesPage(50, "id", null)).willReturn(new EmployeePage(List.of(), 0, false, null));
+      String etag = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees"))
+            .andExpect(MockMvcResultMatchers.status().isOk())
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+      //when - action or behavior that we are going to test
+      ResultActions unchanged = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees")
+            .header(HttpHeaders.IF_NONE_MATCH, etag));
+      given(employeeService.getEmployeesVersion()).willReturn("a1-5");
+      ResultActions changed = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees")
+            .header(HttpHeaders.IF_NONE_MATCH, etag));
+
+      //then - verify the result or output using assert statement
+      unchanged.andExpect(MockMvcResultMatchers.status().isNotModified());
+      changed.andExpect(MockMvcResultMatchers.status().isOk())
+            .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, CoreMatchers.not(etag)));
+      verify(employeeService, times(2)).getEmployeesPage(50, "id", null);
+   }
+
+   // JUnit test for conditional Update Employee REST API with a stale If-Match (negative scenario)
+   @Test
+   public void givenStaleIfMatch_whenUpdateEmployee_thenReturnPreconditionFailed() throws Exception {
+
+      //given
+      EmployeeView savedEmployee = new EmployeeView(1L, "Ashwin", "Singh", "ashwin@example.com", 4L);
+      given(employeeService.updateEmployee(ArgumentMatchers.eq(1L), ArgumentMatchers.eq(3L),
+            ArgumentMatchers.any(Employee.class)))
+            .willThrow(new ObjectOptimisticLockingFailureException(Employee.class, 1L));
+
+      //when - action or behavior that we are going to test
+      ResultActions response = mockMvc.perform(MockMvcRequestBuilders.put("/api/employees/{employeeId}", 1L)
+            .header(HttpHeaders.IF_MATCH, "\"3\"")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(savedEmployee)));
+
+      //then - verify the result or output using assert statement
+      response.andDo(MockMvcResultHandlers.print())
+            .andExpect(MockMvcResultMatchers.status().isPreconditionFailed());
+      verify(employeeService, never()).getEmployeeById(1L);
+   }
+
+   // JUnit test for conditional Delete Employee REST API, a concurrent update fails the precondition
+   @Test
+   public void givenIfMatch_whenDeleteEmployee_thenDeleteOnlyThatVersion() throws Exception {
+
+      //given
+      given(employeeService.deleteEmployee(1L, 3L)).willReturn(true);
+      given(employeeService.deleteEmployee(2L, 3L))
+            .willThrow(new ObjectOptimisticLockingFailureException(Employee.class, 2L));
+
+      //when - action or behavior that we are going to test
+      ResultActions deleted = mockMvc.perform(MockMvcRequestBuilders.delete("/api/employees/{employeeId}", 1L)
+            .header(HttpHeaders.IF_MATCH, "\"3\""));
+      ResultActions stale = mockMvc.perform(MockMvcRequestBuilders.delete("/api/employees/{employeeId}", 2L)
+            .header(HttpHeaders.IF_MATCH, "\"3\""));
+      ResultActions foreign = mockMvc.perform(MockMvcRequestBuilders.delete("/api/employees/{employeeId}", 1L)
+            .header(HttpHeaders.IF_MATCH, "W/\"3\""));
+
+      //then - verify the result or output using assert statement
+      deleted.andExpect(MockMvcResultMatchers.status().isOk());
+      stale.andExpect(MockMvcResultMatchers.status().isPreconditionFailed());
+      foreign.andExpect(MockMvcResultMatchers.status().isPreconditionFailed());
+   }
+
+   // JUnit test for Delete Employee by ID REST API when nothing was deleted (negative scenario)
+   @Test
+   public void givenMissingEmployeeId_whenDeleteEmployee_thenReturnNotFound() throws Exception {
+
+      //given
+      given(employeeService.deleteEmployee(1L)).willReturn(false);
+
+      //when - action or behavior that we are going to test
+      ResultActions response = mockMvc.perform(MockMvcRequestBuilders.delete("/api/employees/{employeeId}", 1L));
+
+      //then - verify the result or output using assert statement
+      response.andDo(MockMvcResultHandlers.print())
+            .andExpect(MockMvcResultMatchers.status().isNotFound());
+   }
+
+   // JUnit test for bulk Delete Employees REST API, by ids and by search
+   @Test
+   public void givenIdsOrSearch_whenDeleteEmployees_thenReturnDeletedCount() throws Exception {
+
+      //given
+      given(employeeService.deleteEmployees(List.of(1L, 2L, 3L))).willReturn(2);
+      given(employeeService.deleteEmployeesMatching(ArgumentMatchers.any(EmployeeSearch.class))).willReturn(40);
+
+      //when - action or behavior that we are going to test
+      ResultActions byIds = mockMvc.perform(MockMvcRequestBuilders.delete("/api/employees").param("ids", "1,2,3"));
+      ResultActions bySearch = mockMvc.perform(MockMvcRequestBuilders.delete("/api/employees")
+            .param("field", "email").param("q", "tmp-").param("match", "prefix"));
+
+      //then - verify the result or output using assert statement
+      byIds.andExpect(MockMvcResultMatchers.status().isOk())
+            .andExpect(MockMvcResultMatchers.jsonPath("$.deleted", CoreMatchers.is(2)));
+      bySearch.andExpect(MockMvcResultMatchers.status().isOk())
+            .andExpect(MockMvcResultMatchers.jsonPath("$.deleted", CoreMatchers.is(40)));
+   }
+
+   // JUnit test for asynchronous Create Employee REST API, answered with 202 and where to follow the write, also
+   // when respond-async comes with other preferences
+   @Test
+   public void givenPreferRespondAsync_whenCreateEmployee_thenReturnAccepted() throws Exception {
+
+      //given
+      Employee employee = Employee.builder()
+            .firstName("Ashwin")
+            .lastName("Singh")
+            .email("ashwin@example.com")
+            .build();
+      given(writeBehind.submit(ArgumentMatchers.any(Employee.class))).willReturn(WriteStatus.queued("abc"));
+
+      //when - action or behavior that we are going to test
+      ResultActions response = mockMvc.perform(MockMvcRequestBuilders.post("/api/employees")
+            .header("Prefer", "wait=5, Respond-Async; foo=bar")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(employee)));
+
+      //then - verify the result or output using assert statement
+      response.andDo(MockMvcResultHandlers.print())
+            .andExpect(MockMvcResultMatchers.status().isAccepted())
+            .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.LOCATION, "/api/employees/writes/abc"))
+            .andExpect(MockMvcResultMatchers.header().string("Preference-Applied", "respond-async"))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.state", CoreMatchers.is("QUEUED")));
+      verify(employeeService, never()).savedEmployee(ArgumentMatchers.any(Employee.class));
+   }
+
+   // JUnit test for Create Employee REST API with other preferences than respond-async, created synchronously
+   @Test
+   public void givenPreferWithoutRespondAsync_whenCreateEmployee_thenReturnCreated() throws Exception {
+
+      //given
+      Employee employee = Employee.builder()
+            .firstName("Ashwin")
+            .lastName("Singh")
+            .email("ashwin@example.com")
+            .build();
+      given(employeeService.savedEmployee(ArgumentMatchers.any(Employee.class)))
+            .willAnswer((invocation) -> invocation.getArgument(0));
+
+      //when - action or behavior that we are going to test
+      ResultActions response = mockMvc.perform(MockMvcRequestBuilders.post("/api/employees")
+            .header("Prefer", "return=minimal, respond-asynchronously")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(employee)));
+
+      //then - verify the result or output using assert statement
+      response.andDo(MockMvcResultHandlers.print())
+            .andExpect(MockMvcResultMatchers.status().isCreated())
+            .andExpect(MockMvcResultMatchers.header().doesNotExist("Preference-Applied"))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.email", CoreMatchers.is("ashwin@example.com")));
+      verify(writeBehind, never()).submit(ArgumentMatchers.any(Employee.class));
+   }
+
+   // JUnit test for asynchronous Create Employee REST API with a full write queue
+   @Test
+   public void givenFullWriteQueue_whenCreateEmployeeAsync_thenReturnTooManyRequests() throws Exception {
+
+      //given
+      given(writeBehind.submit(ArgumentMatchers.any(Employee.class)))
+            .willThrow(new WriteQueueFullException("Write queue is full, try again later"));
+
+      //when - action or behavior that we are going to test
+      ResultActions response = mockMvc.perform(MockMvcRequestBuilders.post("/api/employees")
+            .header("Prefer", "respond-async")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"firstName\":\"Ashwin\",\"lastName\":\"Singh\",\"email\":\"ashwin@example.com\"}"));
+
+      //then - verify the result or output using assert statement
+      response.andDo(MockMvcResultHandlers.print())
+            .andExpect(MockMvcResultMatchers.status().isTooManyRequests())
+            .andExpect(MockMvcResultMatchers.header().exists(HttpHeaders.RETRY_AFTER));
+   }
+
+   // JUnit test for write status REST API, known and unknown tracking ids
+   @Test
+   public void givenTrackingId_whenGetWriteStatus_thenReturnStatusOrNotFound() throws Exception {
+
+      //given
+      given(writeBehind.status("abc")).willReturn(Optional.of(WriteStatus.created("abc", 7L)));
+      given(writeBehind.status("xyz")).willReturn(Optional.empty());
+
+      //when - action or behavior that we are going to test
+      ResultActions known = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees/writes/{id}", "abc"));
+      ResultActions unknown = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees/writes/{id}", "xyz"));
+
+      //then - verify the result or output using assert statement
+      known.andExpect(MockMvcResultMatchers.status().isOk())
+            .andExpect(MockMvcResultMatchers.jsonPath("$.state", CoreMatchers.is("CREATED")))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.id", CoreMatchers.is(7)));
+      unknown.andExpect(MockMvcResultMatchers.status().isNotFound());
+   }
+
+   // JUnit test for CSV import REST API, the last NDJSON line is the final report
+   @Test
+   public void givenCsv_whenImportEmployees_thenStreamReport() throws Exception {
+
+      //given
+      given(employeeService.saveEmployees(ArgumentMatchers.anyList()))
+            .willReturn(List.of(BatchItemResult.created(0, 1L), BatchItemResult.duplicate(1)));
+      String csv = "firstName,lastName,email\n"
+            + "Ashwin,Singh,ashwin@example.com\n"
+            + "Ashwyn,Rathore,ashwin@example.com\n"
+            + "Raju,,raju@example.com\n";
+
+      //when - action or behavior that we are going to test
+      MvcResult started = mockMvc.perform(MockMvcRequestBuilders.post("/api/employees/import")
+                  .contentType("text/csv")
+                  .content(csv))
+            .andExpect(MockMvcResultMatchers.request().asyncStarted())
+            .andReturn();
+      ResultActions response = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(started));
+
+      //then - verify the result or output using assert statement
+      String[] lines = response.andDo(MockMvcResultHandlers.print())
+            .andExpect(MockMvcResultMatchers.status().isOk())
+            .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_NDJSON))
+            .andReturn().getResponse().getContentAsString().split("\n");
+      EmployeeImportLine report = objectMapper.readValue(lines[lines.length - 1], EmployeeImportLine.class);
+      Assertions.assertThat(report.done()).isTrue();
+      Assertions.assertThat(report.rows()).isEqualTo(3);
+      Assertions.assertThat(report.created()).isEqualTo(1);
+      Assertions.assertThat(report.duplicates()).isEqualTo(1);
+      Assertions.assertThat(report.invalid()).isEqualTo(1);
+      Assertions.assertThat(report.errors()).hasSize(2);
+   }
+
+   // JUnit test for CSV import REST API, a header without the required columns is rejected before importing
+   @Test
+   public void givenCsvWithoutEmailColumn_whenImportEmployees_thenReturnBadRequest() throws Exception {
+
+      //when - action or behavior that we are going to test
+      ResultActions response = mockMvc.perform(MockMvcRequestBuilders.post("/api/employees/import")
+            .contentType("text/csv")
+            .content("firstName,lastName\nAshwin,Singh\n"));
+
+      //then - verify the result or output using assert statement
+      response.andDo(MockMvcResultHandlers.print())
+            .andExpect(MockMvcResultMatchers.status().isBadRequest());
+      verify(employeeService, never()).saveEmployees(ArgumentMatchers.anyList());
+   }
+
+   private record EmployeeImportLine(boolean done, long rows, long created, long duplicates, long invalid,
+         List<Object> errors) {
+   }
 }
@@ -0,0 +1,182 @@
+package com.springtesting.controller;
+
+import java.util.List;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.springtesting.dto.BatchItemResult;
+import com.springtesting.dto.EmployeePage;
+import com.springtesting.dto.EmployeeView;
+import com.springtesting.entities.Employee;
+import com.springtesting.repository.EmployeeRepo;
+import com.springtesting.service.EmployeeService;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("reactive")
+public class ReactiveEmployeeControllerTest {
+
+   @Autowired
+   private WebTestClient webTestClient;
+
+   @Autowired
+   private EmployeeService employeeService;
+
+   @Autowired
+   private EmployeeRepo employeeRepo;
+
+   @AfterEach
+   public void tearDown() {
+      employeeRepo.deleteAllInBatch();
+   }
+
+   private Employee create(String firstName, String lastName, String email) {
+      return webTestClient.post().uri("/api/employees")
+            .bodyValue(Employee.builder().firstName(firstName).lastName(lastName).email(email).build())
+            .exchange()
+            .expectStatus().isCreated()
+            .expectBody(Employee.class).returnResult().getResponseBody();
+   }
+
+   // JUnit test for create, get, update and delete through the reactive stack
+   @Test
+   public void givenEmployee_whenCreateGetUpdateDelete_thenSameContractAsBlockingApi() {
+      //given
+      Employee created = create("Ramesh", "Fadatare", "ramesh@gmail.com");
+
+      //when - action or behavior that we are going to test
+      //then - verify the result or output using assert statement
+      webTestClient.get().uri("/api/employees/{id}", created.getId()).exchange()
+            .expectStatus().isOk()
+            .expectBody().jsonPath("$.email").isEqualTo("ramesh@gmail.com");
+      webTestClient.put().uri("/api/employees/{id}", created.getId())
+            .bodyValue(Employee.builder().firstName("Ram").lastName("Jadhav").email("ram@gmail.com").build())
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.firstName").isEqualTo("Ram")
+            .jsonPath("$.version").isEqualTo(1);
+      webTestClient.delete().uri("/api/employees/{id}", created.getId()).exchange()
+            .expectStatus().isOk();
+      webTestClient.get().uri("/api/employees/{id}", created.getId()).exchange()
+            .expectStatus().isNotFound();
+      webTestClient.delete().uri("/api/employees/{id}", created.getId()).exchange()
+            .expectStatus().isNotFound();
+      webTestClient.put().uri("/api/employees/{id}", created.getId())
+            .bodyValue(Employee.builder().firstName("Ram").lastName("Jadhav").email("ram@gmail.com").build())
+            .exchange()
+            .expectStatus().isNotFound();
+   }
+
+   // JUnit test for create with an email that is already taken (negative scenario)
+   @Test
+   public void givenExistingEmail_whenCreateEmployee_thenRejected() {
+      //given
+      create("Ramesh", "Fadatare", "ramesh@gmail.com");
+
+      //when - action or behavior that we are going to test
+      webTestClient.post().uri("/api/employees")
+            .bodyValue(Employee.builder().firstName("Other").lastName("Person").email("ramesh@gmail.com").build())
+            .exchange()
+
+            //then - verify the result or output using assert statement
+            .expectStatus().is5xxServerError();
+      Assertions.assertThat(employeeRepo.count()).isEqualTo(1);
+   }
+
+   // JUnit test for ids - rows created by JPA and by R2DBC draw from employee_seq without colliding
+   @Test
+   public void givenRowsFromBothStacks_whenCreatedInterleaved_thenIdsAreUnique() {
+      //given
+      Employee first = employeeService.savedEmployee(Employee.builder()
+            .firstName("Jpa").lastName("One").email("jpa1@example.com").build());
+
+      //when - action or behavior that we are going to test
+      Employee reactive = create("R2dbc", "One", "r2dbc1@example.com");
+      Employee second = employeeService.savedEmployee(Employee.builder()
+            .firstName("Jpa").lastName("Two").email("jpa2@example.com").build());
+
+      //then - verify the result or output using assert statement
+      Assertions.assertThat(List.of(first.getId(), reactive.getId(), second.getId())).doesNotHaveDuplicates();
+      Assertions.assertThat(employeeRepo.count()).isEqualTo(3);
+   }
+
+   // JUnit test for keyset pages - the cursor of one page fetches the next, sorted by last name
+   @Test
+   public void givenEmployees_whenPagingByLastName_thenCursorWalksAllRows() {
+      //given
+      for (int i = 0; i < 5; i++) {
+         create("First" + i, "Last" + (4 - i), "employee" + i + "@example.com");
+      }
+
+      //when - action or behavior that we are going to test
+      EmployeePage firstPage = webTestClient.get().uri("/api/employees?size=3&sort=lastName").exchange()
+            .expectStatus().isOk()
+            .expectBody(EmployeePage.class).returnResult().getResponseBody();
+      EmployeePage secondPage = webTestClient.get()
+            .uri("/api/employees?size=3&sort=lastName&cursor={cursor}", firstPage.getNextCursor()).exchange()
+            .expectStatus().isOk()
+            .expectBody(EmployeePage.class).returnResult().getResponseBody();
+
+      //then - verify the result or output using assert statement
+      Assertions.assertThat(firstPage.isHasNext()).isTrue();
+      Assertions.assertThat(secondPage.isHasNext()).isFalse();
+      Assertions.assertThat(firstPage.getContent()).extracting(EmployeeView::lastName)
+            .containsExactly("Last0", "Last1", "Last2");
+      Assertions.assertThat(secondPage.getContent()).extracting(EmployeeView::lastName)
+            .containsExactly("Last3", "Last4");
+   }
+
+   // JUnit test for search and export
+   @Test
+   public void givenEmployees_whenSearchAndExport_thenMatchingRowsAndNdjson() {
+      //given
+      create("Ashwin", "Singh", "ashwin@example.com");
+      create("Ramesh", "Fadatare", "ramesh@example.com");
+
+      //when - action or behavior that we are going to test
+      //then - verify the result or output using assert statement
+      webTestClient.get().uri("/api/employees/search?field=lastName&q=SIN&match=prefix&ignoreCase=true").exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.content.length()").isEqualTo(1)
+            .jsonPath("$.content[0].firstName").isEqualTo("Ashwin");
+      webTestClient.get().uri("/api/employees/search?field=salary&q=1").exchange()
+            .expectStatus().isBadRequest();
+      List<Employee> exported = webTestClient.get().uri("/api/employees/export")
+            .accept(MediaType.APPLICATION_NDJSON).exchange()
+            .expectStatus().isOk()
+            .returnResult(Employee.class).getResponseBody().collectList().block();
+      Assertions.assertThat(exported).extracting(Employee::getEmail)
+            .containsExactly("ashwin@example.com", "ramesh@example.com");
+   }
+
+   // JUnit test for batch create - duplicates inside the batch and against the table are reported per item
+   @Test
+   public void givenBatchWithDuplicates_whenCreateEmployees_thenPerItemResults() {
+      //given
+      create("Ashwin", "Singh", "ashwin@example.com");
+      List<Employee> batch = List.of(
+            Employee.builder().firstName("A").lastName("A").email("a@example.com").build(),
+            Employee.builder().firstName("B").lastName("B").email("ashwin@example.com").build(),
+            Employee.builder().firstName("C").lastName("C").email("a@example.com").build(),
+            Employee.builder().firstName("D").lastName("D").build());
+
+      //when - action or behavior that we are going to test
+      List<BatchItemResult> results = webTestClient.post().uri("/api/employees/batch").bodyValue(batch).exchange()
+            .expectStatus().isOk()
+            .expectBodyList(BatchItemResult.class).returnResult().getResponseBody();
+
+      //then - verify the result or output using assert statement
+      Assertions.assertThat(results).extracting(BatchItemResult::getStatus).containsExactly(
+            BatchItemResult.Status.CREATED, BatchItemResult.Status.DUPLICATE, BatchItemResult.Status.DUPLICATE,
+            BatchItemResult.Status.INVALID);
+      Assertions.assertThat(employeeRepo.count()).isEqualTo(2);
+   }
+}
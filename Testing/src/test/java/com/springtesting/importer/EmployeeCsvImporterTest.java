@@ -0,0 +1,230 @@
+package com.springtesting.importer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+
+import com.springtesting.dto.BatchItemResult;
+import com.springtesting.dto.ImportReport;
+import com.springtesting.dto.ImportRowError;
+import com.springtesting.entities.Employee;
+import com.springtesting.exception.ResourceNotFoundException;
+import com.springtesting.service.EmployeeService;
+
+public class EmployeeCsvImporterTest {
+
+   // Generates "firstName,lastName,email" rows as they are read, the whole file never exists in memory
+   private static final class GeneratedCsv extends InputStream {
+
+      private final int rows;
+
+      private int next;
+
+      private byte[] line = "firstName,lastName,email\n".getBytes(StandardCharsets.UTF_8);
+
+      private int position;
+
+      private GeneratedCsv(int rows) {
+         this.rows = rows;
+      }
+
+      @Override
+      public int read() {
+         if (position == line.length) {
+            if (next == rows) {
+               return -1;
+            }
+            next++;
+            line = ("Ashwin,Singh,ashwin" + next + "@example.com\n").getBytes(StandardCharsets.UTF_8);
+            position = 0;
+         }
+         return line[position++];
+      }
+   }
+
+   private EmployeeService employeeService;
+
+   private final List<Integer> chunkSizes = new ArrayList<>();
+
+   @BeforeEach
+   public void setUp() {
+      employeeService = Mockito.mock(EmployeeService.class);
+      // Creates every employee of the chunk, as saveEmployees does when nothing is a duplicate
+      BDDMockito.given(employeeService.saveEmployees(ArgumentMatchers.anyList())).willAnswer(invocation -> {
+         List<Employee> employees = invocation.getArgument(0);
+         chunkSizes.add(employees.size());
+         return IntStream.range(0, employees.size())
+               .mapToObj(i -> BatchItemResult.created(i, i + 1))
+               .toList();
+      });
+   }
+
+   private EmployeeCsvImporter importer(int chunkSize, int maxErrors) {
+      return new EmployeeCsvImporter(employeeService, chunkSize, maxErrors, Duration.ZERO);
+   }
+
+   private static InputStream csv(String content) {
+      return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+   }
+
+   private static ImportReport run(EmployeeCsvImporter importer, InputStream csv, List<ImportReport> progress)
+         throws IOException {
+      try (EmployeeCsvImporter.CsvImport csvImport = importer.open(csv)) {
+         return csvImport.run(progress::add);
+      }
+   }
+
+   @Test
+   public void givenLargeCsv_whenImported_thenWrittenInChunksWithProgress() throws IOException {
+
+      //given
+      List<ImportReport> progress = new ArrayList<>();
+
+      //when
+      ImportReport report = run(importer(1000, 100), new GeneratedCsv(25_500), progress);
+
+      //then
+      Assertions.assertThat(report.isDone()).isTrue();
+      Assertions.assertThat(report.getRows()).isEqualTo(25_500);
+      Assertions.assertThat(report.getCreated()).isEqualTo(25_500);
+      Assertions.assertThat(report.getErrors()).isEmpty();
+      Assertions.assertThat(report.getRowsPerSecond()).isPositive();
+      Assertions.assertThat(chunkSizes).hasSize(26).allMatch(size -> size <= 1000);
+      Assertions.assertThat(progress).hasSize(25_500).allMatch(line -> !line.isDone() && line.getErrors() == null);
+      Assertions.assertThat(progress.get(998).getCreated()).isZero();
+      Assertions.assertThat(progress.get(999).getCreated()).isEqualTo(1000);
+      Assertions.assertThat(progress.get(25_499).getCreated()).isEqualTo(25_000);
+   }
+
+   @Test
+   public void givenOnlyInvalidRows_whenImported_thenProgressWithoutAnyChunkWritten() throws IOException {
+
+      //given
+      List<ImportReport> progress = new ArrayList<>();
+
+      //when
+      ImportReport report = run(importer(1000, 100), csv("firstName,lastName,email\n,,a@example.com\n,,b@example.com\n"
+            + ",,c@example.com\n"), progress);
+
+      //then
+      Assertions.assertThat(report.getInvalid()).isEqualTo(3);
+      Assertions.assertThat(chunkSizes).isEmpty();
+      Assertions.assertThat(progress).extracting(ImportReport::getRows).containsExactly(1L, 2L, 3L);
+   }
+
+   @Test
+   public void givenInvalidAndDuplicateRows_whenImported_thenReportedByRow() throws IOException {
+
+      //given - the header's columns in another order, duplicates are found by saveEmployees
+      List<String> firstNames = new ArrayList<>();
+      BDDMockito.given(employeeService.saveEmployees(ArgumentMatchers.anyList())).willAnswer(invocation -> {
+         List<Employee> employees = invocation.getArgument(0);
+         employees.forEach(employee -> firstNames.add(employee.getFirstName()));
+         return List.of(BatchItemResult.created(0, 1L), BatchItemResult.duplicate(1));
+      });
+      String content = "Email,FirstName,LastName\n"
+            + "ashwin@example.com,Ashwin,Singh\n"
+            + "raju@example.com,,Sharma\n"
+            + "too,many,values,here\n"
+            + "\n"
+            + "ashwin@example.com,\"Ashwin, Jr.\",Singh\n";
+
+      //when
+      ImportReport report = run(importer(1000, 100), csv(content), new ArrayList<>());
+
+      //then
+      Assertions.assertThat(report.getRows()).isEqualTo(4);
+      Assertions.assertThat(report.getCreated()).isEqualTo(1);
+      Assertions.assertThat(report.getInvalid()).isEqualTo(2);
+      Assertions.assertThat(report.getDuplicates()).isEqualTo(1);
+      Assertions.assertThat(report.getErrors()).extracting(ImportRowError::getRow, ImportRowError::getReason)
+            .containsExactly(
+                  Assertions.tuple(2L, ImportRowError.Reason.INVALID),
+                  Assertions.tuple(3L, ImportRowError.Reason.INVALID),
+                  Assertions.tuple(4L, ImportRowError.Reason.DUPLICATE));
+      Assertions.assertThat(firstNames).containsExactly("Ashwin", "Ashwin, Jr.");
+   }
+
+   @Test
+   public void givenManyBadRows_whenImported_thenErrorListIsCapped() throws IOException {
+
+      //given
+      StringBuilder content = new StringBuilder("firstName,lastName,email\n");
+      for (int i = 0; i < 50; i++) {
+         content.append("Ashwin,Singh,\n");
+      }
+
+      //when
+      ImportReport report = run(importer(10, 5), csv(content.toString()), new ArrayList<>());
+
+      //then
+      Assertions.assertThat(report.getInvalid()).isEqualTo(50);
+      Assertions.assertThat(report.getErrors()).hasSize(5);
+      Assertions.assertThat(report.getErrorsOmitted()).isEqualTo(45);
+   }
+
+   @Test
+   public void givenFailingChunk_whenImported_thenRowsAreRetriedOneByOne() throws IOException {
+
+      //given
+      BDDMockito.given(employeeService.saveEmployees(ArgumentMatchers.anyList()))
+            .willThrow(new IllegalStateException("constraint violation"));
+      BDDMockito.given(employeeService.savedEmployee(ArgumentMatchers.any(Employee.class))).willAnswer(invocation -> {
+         Employee employee = invocation.getArgument(0);
+         if (employee.getEmail().startsWith("raju")) {
+            throw new ResourceNotFoundException("Employee already exists!!");
+         }
+         return employee;
+      });
+
+      //when
+      ImportReport report = run(importer(1000, 100),
+            csv("firstName,lastName,email\nAshwin,Singh,ashwin@example.com\nRaju,Sharma,raju@example.com\n"),
+            new ArrayList<>());
+
+      //then
+      Assertions.assertThat(report.getCreated()).isEqualTo(1);
+      Assertions.assertThat(report.getDuplicates()).isEqualTo(1);
+      Assertions.assertThat(report.getErrors()).singleElement()
+            .extracting(ImportRowError::getRow).isEqualTo(2L);
+   }
+
+   @Test
+   public void givenBrokenQuoting_whenImported_thenRowsBeforeAreImportedAndImportAborted() throws IOException {
+
+      //given
+      String content = "firstName,lastName,email\n"
+            + "Ashwin,Singh,ashwin@example.com\n"
+            + "\"Raju\"x,Sharma,raju@example.com\n";
+
+      //when
+      ImportReport report = run(importer(1000, 100), csv(content), new ArrayList<>());
+
+      //then
+      Assertions.assertThat(report.isDone()).isTrue();
+      Assertions.assertThat(report.getCreated()).isEqualTo(1);
+      Assertions.assertThat(report.getAbortedReason()).startsWith("Unreadable CSV after row 1");
+   }
+
+   @Test
+   public void givenHeaderWithoutEmail_whenOpened_thenIllegalArgumentException() {
+
+      //when //then
+      Assertions.assertThatThrownBy(() -> importer(1000, 100).open(csv("firstName,lastName\nAshwin,Singh\n")))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("email");
+      Mockito.verifyNoInteractions(employeeService);
+   }
+}
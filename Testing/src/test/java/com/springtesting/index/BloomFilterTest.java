@@ -0,0 +1,78 @@
+package com.springtesting.index;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+public class BloomFilterTest {
+
+   //JUnit test for mightContain - every inserted value is found and absent values are rejected at about the configured rate
+   @Test
+   public void givenInsertedEmails_whenMightContain_thenNoFalseNegativesAndBoundedFalsePositives() {
+      //given - precondition or setup
+      BloomFilter filter = new BloomFilter(100_000, 0.01);
+      for (int i = 0; i < 100_000; i++) {
+         filter.put("employee" + i + "@example.com");
+      }
+
+      //when - action or the behaviour that we are going to test
+      int falseNegatives = 0;
+      for (int i = 0; i < 100_000; i++) {
+         if (!filter.mightContain("employee" + i + "@example.com")) {
+            falseNegatives++;
+         }
+      }
+      int falsePositives = 0;
+      for (int i = 0; i < 100_000; i++) {
+         if (filter.mightContain("someone" + i + "@example.org")) {
+            falsePositives++;
+         }
+      }
+
+      //then - verify the output
+      Assertions.assertThat(falseNegatives).isZero();
+      Assertions.assertThat(falsePositives / 100_000.0).isLessThan(0.015);
+      Assertions.assertThat(filter.expectedFalsePositiveRate()).isBetween(0.005, 0.015);
+   }
+
+   //JUnit test for the sizing at 10M emails - about 1.2 bytes per email and 7 hash functions at a 1% false positive
+   //rate, allocated up front
+   @Test
+   public void givenTenMillionExpectedEmails_whenCreated_thenFootprintIsAboutTwelveMegabytes() {
+      //given - precondition or setup
+      int emails = 10_000_000;
+
+      //when - action or the behaviour that we are going to test
+      BloomFilter filter = new BloomFilter(emails, 0.01);
+
+      //then - verify the output
+      Assertions.assertThat(filter.memoryBytes() / (double) emails).as("bytes per email").isBetween(1.1, 1.25);
+      Assertions.assertThat(filter.hashFunctions()).isEqualTo(7);
+   }
+
+   //JUnit test for the false positive rate at 10M emails - filling the filter takes seconds, so it runs with the load
+   //tests (mvn -Pload-test test)
+   @Test
+   @Tag("load")
+   public void givenTenMillionEmails_whenFilled_thenFalsePositiveRateAsConfigured() {
+      //given - precondition or setup
+      int emails = 10_000_000;
+      BloomFilter filter = new BloomFilter(emails, 0.01);
+      for (int i = 0; i < emails; i++) {
+         filter.put("employee" + i + "@example.com");
+      }
+
+      //when - action or the behaviour that we are going to test
+      int falsePositives = 0;
+      for (int i = 0; i < 100_000; i++) {
+         if (filter.mightContain("someone" + i + "@example.org")) {
+            falsePositives++;
+         }
+      }
+
+      //then - verify the output
+      Assertions.assertThat(falsePositives / 100_000.0).isLessThan(0.015);
+      Assertions.assertThat(filter.expectedFalsePositiveRate()).isBetween(0.005, 0.015);
+      Assertions.assertThat(filter.memoryBytes()).isLessThan(12_500_000L);
+   }
+}
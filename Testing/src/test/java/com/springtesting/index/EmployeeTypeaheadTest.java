@@ -0,0 +1,107 @@
+package com.springtesting.index;
+
+import java.util.List;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.springtesting.dto.EmployeePatch;
+import com.springtesting.dto.EmployeeSearch;
+import com.springtesting.dto.EmployeeSuggestion;
+import com.springtesting.entities.Employee;
+import com.springtesting.exception.ResourceNotFoundException;
+import com.springtesting.repository.EmployeeRepo;
+import com.springtesting.service.EmployeeService;
+
+@SpringBootTest
+public class EmployeeTypeaheadTest {
+
+   @Autowired
+   private EmployeeService employeeService;
+
+   @Autowired
+   private EmployeeRepo employeeRepo;
+
+   @Autowired
+   private EmployeeTypeahead typeahead;
+
+   // Other tests sharing this context write to the table behind the service's back
+   @BeforeEach
+   public void setUp() {
+      employeeRepo.deleteAll();
+      typeahead.rebuild();
+   }
+
+   @AfterEach
+   public void tearDown() {
+      employeeRepo.deleteAll();
+   }
+
+   private static Employee employee(String firstName, String lastName, String email) {
+      return Employee.builder().firstName(firstName).lastName(lastName).email(email).build();
+   }
+
+   private List<String> suggestedEmails(String query) {
+      return employeeService.suggestEmployees(query, 10).stream().map(EmployeeSuggestion::email).toList();
+   }
+
+   //JUnit test for writes through the service - creates, updates, patches and deletes show in the next suggestions
+   @Test
+   public void givenWritesThroughService_whenSuggest_thenSuggestionsFollowThem() {
+      //given - precondition or setup
+      Employee ashwin = employeeService.savedEmployee(employee("Ashwin", "Singh", "ashwin@example.com"));
+      employeeService.saveEmployees(List.of(employee("Raju", "Sharma", "raju@example.com"),
+            employee("Harshit", "Singhal", "harshit@example.com"), employee("Tmp", "Tmp", "tmp@example.com")));
+      List<String> created = suggestedEmails("sing");
+
+      //when - action or the behaviour that we are going to test
+      Employee loaded = employeeRepo.findById(ashwin.getId()).orElseThrow();
+      loaded.setLastName("Rathore");
+      employeeService.updateEmployee(loaded);
+      long raju = employeeRepo.findByEmail("raju@example.com").orElseThrow().getId();
+      employeeService.patchEmployee(raju, new EmployeePatch("Rajesh", null, null, null));
+      employeeService.deleteEmployeesMatching(new EmployeeSearch(EmployeeSearch.Field.LAST_NAME,
+            EmployeeSearch.Match.EXACT, false, "Tmp"));
+
+      //then - verify the output
+      Assertions.assertThat(created).containsExactly("ashwin@example.com", "harshit@example.com");
+      Assertions.assertThat(suggestedEmails("sing")).containsExactly("harshit@example.com");
+      Assertions.assertThat(suggestedEmails("rath")).containsExactly("ashwin@example.com");
+      Assertions.assertThat(employeeService.suggestEmployees("raj", 10))
+            .extracting(EmployeeSuggestion::firstName, EmployeeSuggestion::lastName, EmployeeSuggestion::matchedField)
+            .containsExactly(Assertions.tuple("Rajesh", "Sharma", "firstName"));
+      Assertions.assertThat(suggestedEmails("tmp")).isEmpty();
+   }
+
+   //JUnit test for failed writes - a rolled back patch leaves the suggestions as they were
+   @Test
+   public void givenDuplicateEmail_whenPatchFails_thenSuggestionsUnchanged() {
+      //given - precondition or setup
+      employeeService.savedEmployee(employee("Ashwin", "Singh", "ashwin@example.com"));
+      Employee raju = employeeService.savedEmployee(employee("Raju", "Sharma", "raju@example.com"));
+
+      //when - action or the behaviour that we are going to test
+      org.junit.jupiter.api.Assertions.assertThrows(ResourceNotFoundException.class,
+            () -> employeeService.patchEmployee(raju.getId(),
+                  new EmployeePatch(null, "Singh", "ashwin@example.com", null)));
+
+      //then - verify the output
+      Assertions.assertThat(suggestedEmails("sharma")).containsExactly("raju@example.com");
+      Assertions.assertThat(suggestedEmails("singh")).containsExactly("ashwin@example.com");
+   }
+
+   //JUnit test for the limits - a blank query and an out of range limit are rejected
+   @Test
+   public void givenBlankQueryOrLargeLimit_whenSuggest_thenRejected() {
+      //when - action or the behaviour that we are going to test
+      //then - verify the output
+      org.junit.jupiter.api.Assertions.assertThrows(IllegalArgumentException.class,
+            () -> employeeService.suggestEmployees(" ", 10));
+      org.junit.jupiter.api.Assertions.assertThrows(IllegalArgumentException.class,
+            () -> employeeService.suggestEmployees("sin", 51));
+   }
+}
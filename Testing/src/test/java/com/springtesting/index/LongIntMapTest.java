@@ -0,0 +1,38 @@
+package com.springtesting.index;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class LongIntMapTest {
+
+   //JUnit test for put, get and remove - same answers as a HashMap over random keys, through resizes and removals
+   @Test
+   public void givenRandomPutsAndRemoves_whenGet_thenSameAsHashMap() {
+      //given - precondition or setup
+      Random random = new Random(42);
+      LongIntMap map = new LongIntMap(4);
+      Map<Long, Integer> expected = new HashMap<>();
+
+      //when - action or the behaviour that we are going to test
+      for (int i = 0; i < 200_000; i++) {
+         long key = random.nextInt(20_000) * 31L - 100_000;
+         if (random.nextBoolean()) {
+            map.put(key, i);
+            expected.put(key, i);
+         } else {
+            Assertions.assertThat(map.remove(key)).isEqualTo(expected.getOrDefault(key, LongIntMap.MISSING));
+            expected.remove(key);
+         }
+      }
+
+      //then - verify the output
+      Assertions.assertThat(map.size()).isEqualTo(expected.size());
+      for (long key = -100_000; key < 20_000 * 31L - 100_000; key += 31) {
+         Assertions.assertThat(map.get(key)).isEqualTo(expected.getOrDefault(key, LongIntMap.MISSING));
+      }
+   }
+}
@@ -0,0 +1,180 @@
+package com.springtesting.index;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TypeaheadIndexTest {
+
+   private static final String[] FIRST_NAMES = { "Ashwin", "Raju", "Harshit", "Ram", "Ramesh", "Sita", "Anita" };
+
+   private static final String[] LAST_NAMES = { "Singh", "Sharma", "Singhal", "Rathore", "Fadatare", "Asing" };
+
+   private static String[] employee(Random random, int i) {
+      String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+      String last = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+      return new String[] { first, last, (first + "." + last + i + "@example.com").toLowerCase() };
+   }
+
+   private static List<String> values(List<TypeaheadIndex.Hit> hits) {
+      return hits.stream()
+            .map(hit -> hit.rank() + ":" + hit.values().get(hit.field()).toLowerCase(Locale.ROOT))
+            .toList();
+   }
+
+   // Every entry scanned, each counted once for its first match, ordered like the index orders its hits: values
+   // starting with the query alphabetically, then values holding it by rank, length and value
+   private static List<String> bruteForce(Map<Long, String[]> entries, String query, int limit) {
+      record Match(TypeaheadIndex.Rank rank, String value) {
+      }
+      String term = query.toLowerCase(Locale.ROOT);
+      Comparator<Match> contained = Comparator.comparing(Match::rank)
+            .thenComparingInt(match -> match.value().length())
+            .thenComparing(Match::value);
+      List<Match> starting = new ArrayList<>();
+      List<Match> containing = new ArrayList<>();
+      for (String[] entry : entries.values()) {
+         Match first = null;
+         Match best = null;
+         for (String value : entry) {
+            String lower = value.toLowerCase(Locale.ROOT);
+            if (lower.startsWith(term)) {
+               Match match = new Match(lower.equals(term) ? TypeaheadIndex.Rank.EXACT : TypeaheadIndex.Rank.PREFIX,
+                     lower);
+               first = first == null || lower.compareTo(first.value()) < 0 ? match : first;
+            } else if (term.length() >= TypeaheadIndex.GRAM && TypeaheadIndex.containsRank(lower, term) != null) {
+               Match match = new Match(TypeaheadIndex.containsRank(lower, term), lower);
+               best = best == null || contained.compare(match, best) < 0 ? match : best;
+            }
+         }
+         if (first != null) {
+            starting.add(first);
+         } else if (best != null) {
+            containing.add(best);
+         }
+      }
+      starting.sort(Comparator.comparing(Match::value));
+      containing.sort(contained);
+      starting.addAll(containing);
+      return starting.stream().limit(limit).map(match -> match.rank() + ":" + match.value()).toList();
+   }
+
+   //JUnit test for ranking - exact, then prefix, then a later word, then anywhere
+   @Test
+   public void givenEntries_whenSearch_thenRankedExactPrefixWordContains() {
+      //given - precondition or setup
+      TypeaheadIndex index = new TypeaheadIndex(3);
+      index.put(1, "Ashwin", "Singh", "ashwin.singh@example.com");
+      index.put(2, "Raju", "Singhal", "raju@example.com");
+      index.put(3, "Harshit", "Asing", "harshit@example.com");
+      index.put(4, "Sing", "Rathore", "sing@example.com");
+
+      //when - action or the behaviour that we are going to test
+      List<TypeaheadIndex.Hit> hits = index.search("SING", 10);
+
+      //then - verify the output
+      Assertions.assertThat(hits).extracting(TypeaheadIndex.Hit::id).containsExactly(4L, 1L, 2L, 3L);
+      Assertions.assertThat(hits).extracting(TypeaheadIndex.Hit::rank).containsExactly(TypeaheadIndex.Rank.EXACT,
+            TypeaheadIndex.Rank.PREFIX, TypeaheadIndex.Rank.PREFIX, TypeaheadIndex.Rank.CONTAINS);
+      Assertions.assertThat(hits.get(1).field()).isEqualTo(1);
+      Assertions.assertThat(index.search("xyz", 10)).isEmpty();
+   }
+
+   //JUnit test for short queries - one or two characters match prefixes only
+   @Test
+   public void givenShortQuery_whenSearch_thenOnlyPrefixMatches() {
+      //given - precondition or setup
+      TypeaheadIndex index = new TypeaheadIndex(3);
+      index.put(1, "Ashwin", "Singh", "ashwin@example.com");
+      index.put(2, "Raju", "Sharma", "raju@example.com");
+
+      //when - action or the behaviour that we are going to test
+      List<TypeaheadIndex.Hit> hits = index.search("sh", 10);
+
+      //then - verify the output
+      Assertions.assertThat(hits).extracting(TypeaheadIndex.Hit::id).containsExactly(2L);
+      Assertions.assertThat(index.search("a", 10)).extracting(TypeaheadIndex.Hit::id).containsExactly(1L);
+   }
+
+   //JUnit test for updates and removals - replaced and removed values are no longer found
+   @Test
+   public void givenReplacedAndRemovedEntries_whenSearch_thenOnlyCurrentValuesFound() {
+      //given - precondition or setup
+      TypeaheadIndex index = new TypeaheadIndex(3);
+      index.put(1, "Ashwin", "Singh", "ashwin@example.com");
+      index.put(2, "Raju", "Sharma", "raju@example.com");
+
+      //when - action or the behaviour that we are going to test
+      index.put(1, "Ashwin", "Rathore", "ashwin@example.com");
+      boolean removed = index.remove(2);
+      boolean removedAgain = index.remove(2);
+
+      //then - verify the output
+      Assertions.assertThat(removed).isTrue();
+      Assertions.assertThat(removedAgain).isFalse();
+      Assertions.assertThat(index.size()).isEqualTo(1);
+      Assertions.assertThat(index.search("sin", 10)).isEmpty();
+      Assertions.assertThat(index.search("sha", 10)).isEmpty();
+      Assertions.assertThat(index.search("rath", 10)).extracting(TypeaheadIndex.Hit::id).containsExactly(1L);
+      Assertions.assertThat(index.get(1)).containsExactly("Ashwin", "Rathore", "ashwin@example.com");
+      Assertions.assertThat(index.get(2)).isNull();
+   }
+
+   //JUnit test against a full scan - random puts, replacements and removals, with compactions along the way
+   @Test
+   public void givenRandomChanges_whenSearch_thenSameAsFullScan() {
+      //given - precondition or setup
+      Random random = new Random(42);
+      TypeaheadIndex index = new TypeaheadIndex(3);
+      Map<Long, String[]> entries = new HashMap<>();
+      for (int i = 0; i < 20_000; i++) {
+         long id = random.nextInt(5_000);
+         if (random.nextInt(3) == 0) {
+            index.remove(id);
+            entries.remove(id);
+         } else {
+            String[] employee = employee(random, i);
+            index.put(id, employee);
+            entries.put(id, employee);
+         }
+      }
+
+      //when - action or the behaviour that we are going to test
+      //then - verify the output
+      Assertions.assertThat(index.size()).isEqualTo(entries.size());
+      for (String query : List.of("s", "Si", "sin", "singh", "ingh", "ash", "a.s", "ma12", "@example", "RAM", "zz")) {
+         Assertions.assertThat(values(index.search(query, 10))).as(query)
+               .isEqualTo(bruteForce(entries, query, 10));
+      }
+   }
+
+   //JUnit test for the footprint - the index's arrays, strings excluded, after a bulk load of 100k entries: about 223
+   //bytes per entry once trimmed
+   @Test
+   public void givenHundredThousandEntries_whenTrimmed_thenFootprintStaysUnderBound() {
+      //given - precondition or setup
+      Random random = new Random(7);
+      TypeaheadIndex index = new TypeaheadIndex(3);
+
+      //when - action or the behaviour that we are going to test
+      for (int i = 0; i < 100_000; i++) {
+         index.put(i, employee(random, i));
+      }
+      long untrimmed = index.memoryBytes();
+      index.trim();
+
+      //then - verify the output
+      Assertions.assertThat(index.memoryBytes()).isLessThan(untrimmed);
+      Assertions.assertThat(index.memoryBytes() / 100_000.0).as("bytes per entry").isLessThan(250);
+      Assertions.assertThat(index.search("singh", 5)).hasSize(5);
+      index.put(100_000, "Ashwin", "Singh", "ashwin@example.com");
+      Assertions.assertThat(index.search("ashwin@", 5)).extracting(TypeaheadIndex.Hit::id).containsExactly(100_000L);
+   }
+}
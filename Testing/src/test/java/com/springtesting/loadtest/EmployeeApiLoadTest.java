@@ -0,0 +1,270 @@
+package com.springtesting.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.data.domain.Sort;
+
+import com.springtesting.entities.Employee;
+import com.springtesting.repository.EmployeeRepo;
+import com.springtesting.service.EmployeeService;
+
+// Drives every EmployeeController route at a fixed request rate and fails when an endpoint misses its latency budget.
+// Runs only with -Pload-test, see the pom for the knobs. Spring properties can be passed as -D system properties too,
+// and loadtest.label names the summary file so runs with different settings can be compared side by side, e.g. on
+// Java 21: -Dloadtest.label=platform, then -Dspring.profiles.active=virtual -Dloadtest.label=virtual at the same rate.
+// With -Dspring.profiles.active=reactive only the routes ReactiveEmployeeController serves are driven.
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+      "spring.jpa.show-sql=false",
+      "employee.write-behind.enabled=true" })
+public class EmployeeApiLoadTest {
+
+   private static final int SEEDED = 2000;
+
+   private static final String JSON = "application/json";
+
+   @LocalServerPort
+   private int port;
+
+   @Autowired
+   private EmployeeService employeeService;
+
+   @Autowired
+   private EmployeeRepo employeeRepo;
+
+   @Autowired
+   private Environment environment;
+
+   private List<Long> ids;
+
+   private final AtomicInteger nextDelete = new AtomicInteger();
+
+   private final AtomicLong nextEmail = new AtomicLong();
+
+   // Of the last queued create, polled by GET /api/employees/writes/{trackingId}
+   private volatile String lastTrackingId;
+
+   @BeforeEach
+   public void setUp() {
+      employeeService.saveEmployees(IntStream.range(0, SEEDED)
+            .mapToObj(i -> Employee.builder().firstName("First" + i).lastName("Last" + (i % 100))
+                  .email("seed" + i + "@example.com").build())
+            .toList());
+      ids = employeeRepo.findAll(Sort.by("id")).stream().map(Employee::getId).toList();
+   }
+
+   @AfterEach
+   public void tearDown() {
+      employeeRepo.deleteAllInBatch();
+   }
+
+   @Test
+   public void givenOpenLoopTraffic_whenDrivingAllRoutes_thenLatencyStaysWithinBudget() throws Exception {
+      double rate = Double.parseDouble(System.getProperty("loadtest.rate", "100"));
+      Duration warmup = DurationStyle.detectAndParse(System.getProperty("loadtest.warmup", "5s"));
+      Duration duration = DurationStyle.detectAndParse(System.getProperty("loadtest.duration", "15s"));
+      double writeRatio = Double.parseDouble(System.getProperty("loadtest.writeRatio", "0.2"));
+      String label = System.getProperty("loadtest.label", "default");
+
+      OpenLoopLoadGenerator generator = new OpenLoopLoadGenerator();
+      List<OpenLoopLoadGenerator.Scenario> scenarios = scenarios(writeRatio);
+      generator.run(scenarios, rate, warmup);
+      Map<String, OpenLoopLoadGenerator.Result> results = generator.run(scenarios, rate, duration);
+
+      report(label, results, duration);
+      SoftAssertions softly = new SoftAssertions();
+      results.forEach((endpoint, result) -> {
+         Duration p99Budget = budget(endpoint, "p99", "250ms");
+         Duration p999Budget = budget(endpoint, "p999", "1s");
+         softly.assertThat(result.errors.sum()).as("%s errors", endpoint).isZero();
+         softly.assertThat(result.percentileMillis(99)).as("%s p99 ms", endpoint)
+               .isLessThanOrEqualTo(p99Budget.toMillis());
+         softly.assertThat(result.percentileMillis(99.9)).as("%s p99.9 ms", endpoint)
+               .isLessThanOrEqualTo(p999Budget.toMillis());
+      });
+      softly.assertAll();
+   }
+
+   // Reads and writes split by writeRatio, then by fixed weights within each group
+   private List<OpenLoopLoadGenerator.Scenario> scenarios(double writeRatio) {
+      double read = 1 - writeRatio;
+      boolean mvc = !environment.acceptsProfiles(Profiles.of("reactive"));
+      List<OpenLoopLoadGenerator.Scenario> scenarios = new ArrayList<>();
+      scenarios.add(new OpenLoopLoadGenerator.Scenario("GET /api/employees", read * 0.22,
+            () -> get("/api/employees?size=50"), status -> status == 200));
+      scenarios.add(new OpenLoopLoadGenerator.Scenario("GET /api/employees/{id}", read * 0.50,
+            () -> get("/api/employees/" + randomUpdatableId()), status -> status == 200));
+      scenarios.add(new OpenLoopLoadGenerator.Scenario("GET /api/employees/search", read * 0.16,
+            () -> get("/api/employees/search?field=lastName&match=prefix&ignoreCase=true&q=last"
+                  + ThreadLocalRandom.current().nextInt(100)), status -> status == 200));
+      scenarios.add(new OpenLoopLoadGenerator.Scenario("GET /api/employees/export", read * 0.02,
+            () -> get("/api/employees/export"), status -> status == 200));
+      scenarios.add(new OpenLoopLoadGenerator.Scenario("POST /api/employees", writeRatio * 0.3,
+            () -> send("POST", "/api/employees", employeeJson(nextEmail.incrementAndGet())), status -> status == 201));
+      scenarios.add(new OpenLoopLoadGenerator.Scenario("POST /api/employees/batch", writeRatio * 0.1,
+            () -> send("POST", "/api/employees/batch", batchJson(10)), status -> status == 200));
+      scenarios.add(new OpenLoopLoadGenerator.Scenario("PUT /api/employees/{id}", writeRatio * 0.2,
+            this::update, status -> status == 200 || status == 409));
+      scenarios.add(new OpenLoopLoadGenerator.Scenario("DELETE /api/employees/{id}", writeRatio * 0.07,
+            this::delete, status -> status == 200 || status == 404));
+      if (mvc) {
+         scenarios.add(new OpenLoopLoadGenerator.Scenario("GET /api/employees/suggest", read * 0.06,
+               () -> get("/api/employees/suggest?limit=10&q=last" + ThreadLocalRandom.current().nextInt(100)),
+               status -> status == 200));
+         scenarios.add(new OpenLoopLoadGenerator.Scenario("GET /api/employees/stats", read * 0.02,
+               () -> get("/api/employees/stats?top=10"), status -> status == 200));
+         // 404 until the first queued create has been answered
+         scenarios.add(new OpenLoopLoadGenerator.Scenario("GET /api/employees/writes/{trackingId}", read * 0.02,
+               () -> get("/api/employees/writes/" + (lastTrackingId == null ? "none" : lastTrackingId)),
+               status -> status == 200 || status == 404));
+         scenarios.add(new OpenLoopLoadGenerator.Scenario("POST /api/employees respond-async", writeRatio * 0.15,
+               this::createAsync, status -> status == 202, response -> response.headers().firstValue("Location")
+                     .ifPresent(location -> lastTrackingId = location.substring(location.lastIndexOf('/') + 1))));
+         scenarios.add(new OpenLoopLoadGenerator.Scenario("POST /api/employees/import", writeRatio * 0.03,
+               () -> importCsv(10), status -> status == 200));
+         scenarios.add(new OpenLoopLoadGenerator.Scenario("PATCH /api/employees/{id}", writeRatio * 0.1,
+               this::patch, status -> status == 204));
+         scenarios.add(new OpenLoopLoadGenerator.Scenario("DELETE /api/employees?ids", writeRatio * 0.03,
+               () -> deleteIds(5), status -> status == 200));
+         // One created employee at most, but the counts and the typeahead are rebuilt after any delete by predicate
+         scenarios.add(new OpenLoopLoadGenerator.Scenario("DELETE /api/employees?field&q", writeRatio * 0.02,
+               this::deleteMatching, status -> status == 200));
+      }
+      return scenarios;
+   }
+
+   // The first half of the seeded ids is read and updated, the second half is deleted one by one
+   private long randomUpdatableId() {
+      return ids.get(ThreadLocalRandom.current().nextInt(ids.size() / 2));
+   }
+
+   private HttpRequest update() {
+      long id = randomUpdatableId();
+      String body = "{\"firstName\":\"Updated\",\"lastName\":\"Last" + (id % 100) + "\",\"email\":\"update" + id
+            + "@example.com\"}";
+      return send("PUT", "/api/employees/" + id, body);
+   }
+
+   private HttpRequest patch() {
+      return send("PATCH", "/api/employees/" + randomUpdatableId(), "{\"firstName\":\"Patched\"}");
+   }
+
+   private HttpRequest createAsync() {
+      return HttpRequest.newBuilder(uri("/api/employees"))
+            .header("Content-Type", JSON)
+            .header("Prefer", "respond-async")
+            .POST(HttpRequest.BodyPublishers.ofString(employeeJson(nextEmail.incrementAndGet())))
+            .build();
+   }
+
+   private HttpRequest importCsv(int rows) {
+      StringBuilder csv = new StringBuilder("firstName,lastName,email\n");
+      for (int i = 0; i < rows; i++) {
+         csv.append("Load,Test,load").append(nextEmail.incrementAndGet()).append("@example.com\n");
+      }
+      return HttpRequest.newBuilder(uri("/api/employees/import"))
+            .header("Content-Type", "text/csv")
+            .POST(HttpRequest.BodyPublishers.ofString(csv.toString()))
+            .build();
+   }
+
+   private HttpRequest delete() {
+      return HttpRequest.newBuilder(uri("/api/employees/" + nextDeletableId())).DELETE().build();
+   }
+
+   private HttpRequest deleteIds(int count) {
+      List<String> batch = new ArrayList<>();
+      for (int i = 0; i < count; i++) {
+         batch.add(Long.toString(nextDeletableId()));
+      }
+      return HttpRequest.newBuilder(uri("/api/employees?ids=" + String.join(",", batch))).DELETE().build();
+   }
+
+   private HttpRequest deleteMatching() {
+      long n = 1 + ThreadLocalRandom.current().nextLong(Math.max(nextEmail.get(), 1));
+      return HttpRequest.newBuilder(uri("/api/employees?field=email&match=exact&q=load" + n + "@example.com"))
+            .DELETE().build();
+   }
+
+   // The second half of the seeded ids, each handed out once, then an id that does not exist
+   private long nextDeletableId() {
+      int index = ids.size() / 2 + nextDelete.getAndIncrement();
+      return index < ids.size() ? ids.get(index) : Long.MAX_VALUE;
+   }
+
+   private String employeeJson(long n) {
+      return "{\"firstName\":\"Load\",\"lastName\":\"Test\",\"email\":\"load" + n + "@example.com\"}";
+   }
+
+   private String batchJson(int size) {
+      List<String> employees = new ArrayList<>();
+      for (int i = 0; i < size; i++) {
+         employees.add(employeeJson(nextEmail.incrementAndGet()));
+      }
+      return "[" + String.join(",", employees) + "]";
+   }
+
+   private HttpRequest get(String path) {
+      return HttpRequest.newBuilder(uri(path)).GET().build();
+   }
+
+   private HttpRequest send(String method, String path, String body) {
+      return HttpRequest.newBuilder(uri(path))
+            .header("Content-Type", JSON)
+            .method(method, HttpRequest.BodyPublishers.ofString(body))
+            .build();
+   }
+
+   private URI uri(String path) {
+      return URI.create("http://localhost:" + port + path);
+   }
+
+   private static Duration budget(String endpoint, String percentile, String fallback) {
+      String key = endpoint.replaceAll("[^A-Za-z]+", "-").replaceAll("^-|-$", "").toLowerCase();
+      String global = System.getProperty("loadtest.budget." + percentile, fallback);
+      return DurationStyle.detectAndParse(System.getProperty("loadtest.budget." + key + "." + percentile, global));
+   }
+
+   private static void report(String label, Map<String, OpenLoopLoadGenerator.Result> results, Duration duration)
+         throws IOException {
+      StringBuilder csv = new StringBuilder("endpoint,requests,errors,throughput_per_s,p50_ms,p99_ms,p999_ms,max_ms\n");
+      System.out.printf("%n%-40s %9s %7s %10s %9s %9s %9s %9s%n", "endpoint [" + label + "]", "requests", "errors",
+            "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+      results.forEach((endpoint, result) -> {
+         double throughput = result.requests() / (double) duration.toSeconds();
+         double max = result.latencyNanos.getMaxValue() / 1_000_000.0;
+         System.out.printf("%-40s %9d %7d %10.1f %9.2f %9.2f %9.2f %9.2f%n", endpoint, result.requests(),
+               result.errors.sum(), throughput, result.percentileMillis(50), result.percentileMillis(99),
+               result.percentileMillis(99.9), max);
+         csv.append(String.format("%s,%d,%d,%.1f,%.3f,%.3f,%.3f,%.3f%n", endpoint, result.requests(),
+               result.errors.sum(), throughput, result.percentileMillis(50), result.percentileMillis(99),
+               result.percentileMillis(99.9), max));
+      });
+      Path directory = Path.of("target", "loadtest");
+      Files.createDirectories(directory);
+      Files.writeString(directory.resolve(label + "-summary.csv"), csv);
+   }
+}
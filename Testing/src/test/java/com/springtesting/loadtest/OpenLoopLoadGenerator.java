@@ -0,0 +1,129 @@
+package com.springtesting.loadtest;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+// Sends requests on a fixed schedule whether or not earlier ones have completed (open loop). Latency is measured
+// from the time a request was scheduled to go out rather than when it actually went out, so a stalled server shows
+// up in the percentiles instead of silently lowering the send rate (coordinated omission).
+class OpenLoopLoadGenerator {
+
+   // One kind of request in the traffic mix, picked with probability weight / sum of weights
+   static class Scenario {
+
+      final String name;
+
+      final double weight;
+
+      final Supplier<HttpRequest> request;
+
+      final IntPredicate expectedStatus;
+
+      // Sees every response with an expected status, e.g. to remember an id a later request uses
+      final Consumer<HttpResponse<Void>> onResponse;
+
+      Scenario(String name, double weight, Supplier<HttpRequest> request, IntPredicate expectedStatus) {
+         this(name, weight, request, expectedStatus, response -> {
+         });
+      }
+
+      Scenario(String name, double weight, Supplier<HttpRequest> request, IntPredicate expectedStatus,
+            Consumer<HttpResponse<Void>> onResponse) {
+         this.name = name;
+         this.weight = weight;
+         this.request = request;
+         this.expectedStatus = expectedStatus;
+         this.onResponse = onResponse;
+      }
+   }
+
+   static class Result {
+
+      final Histogram latencyNanos = new ConcurrentHistogram(TimeUnit.MINUTES.toNanos(1), 3);
+
+      final LongAdder errors = new LongAdder();
+
+      long requests() {
+         return latencyNanos.getTotalCount();
+      }
+
+      double percentileMillis(double percentile) {
+         return latencyNanos.getValueAtPercentile(percentile) / 1_000_000.0;
+      }
+   }
+
+   private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+   Map<String, Result> run(List<Scenario> scenarios, double requestsPerSecond, Duration duration)
+         throws InterruptedException, TimeoutException {
+      Map<String, Result> results = new LinkedHashMap<>();
+      scenarios.forEach(scenario -> results.put(scenario.name, new Result()));
+      double totalWeight = scenarios.stream().mapToDouble(scenario -> scenario.weight).sum();
+
+      long intervalNanos = (long) (1_000_000_000L / requestsPerSecond);
+      long total = (long) (requestsPerSecond * duration.toNanos() / 1_000_000_000.0);
+      // Requests not completed yet, plus one for this thread until it has sent them all. A Phaser would do, but it
+      // fails once more than 65535 parties are registered, which a slow server at a high rate can reach.
+      AtomicLong inFlight = new AtomicLong(1);
+      CountDownLatch completed = new CountDownLatch(1);
+      long start = System.nanoTime();
+      for (long i = 0; i < total; i++) {
+         long intended = start + i * intervalNanos;
+         long wait;
+         while ((wait = intended - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(wait);
+         }
+         Scenario scenario = pick(scenarios, totalWeight);
+         Result result = results.get(scenario.name);
+         inFlight.incrementAndGet();
+         client.sendAsync(scenario.request.get(), HttpResponse.BodyHandlers.discarding())
+               .whenComplete((response, failure) -> {
+                  result.latencyNanos.recordValue(System.nanoTime() - intended);
+                  if (failure != null || !scenario.expectedStatus.test(response.statusCode())) {
+                     result.errors.increment();
+                  } else {
+                     scenario.onResponse.accept(response);
+                  }
+                  if (inFlight.decrementAndGet() == 0) {
+                     completed.countDown();
+                  }
+               });
+      }
+      if (inFlight.decrementAndGet() == 0) {
+         completed.countDown();
+      }
+      if (!completed.await(1, TimeUnit.MINUTES)) {
+         throw new TimeoutException(inFlight.get() + " requests still in flight after a minute");
+      }
+      return results;
+   }
+
+   private static Scenario pick(List<Scenario> scenarios, double totalWeight) {
+      double point = ThreadLocalRandom.current().nextDouble(totalWeight);
+      for (Scenario scenario : scenarios) {
+         point -= scenario.weight;
+         if (point < 0) {
+            return scenario;
+         }
+      }
+      return scenarios.get(scenarios.size() - 1);
+   }
+}
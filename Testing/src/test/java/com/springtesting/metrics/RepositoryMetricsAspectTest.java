@@ -0,0 +1,92 @@
+package com.springtesting.metrics;
+
+import java.util.List;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.springtesting.dto.EmployeePatch;
+import com.springtesting.entities.Employee;
+import com.springtesting.repository.EmployeeRepo;
+import com.springtesting.service.EmployeeService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@SpringBootTest
+public class RepositoryMetricsAspectTest {
+
+   @Autowired
+   private EmployeeService employeeService;
+
+   @Autowired
+   private EmployeeRepo employeeRepo;
+
+   @Autowired
+   private MeterRegistry meterRegistry;
+
+   @AfterEach
+   public void tearDown() {
+      employeeRepo.deleteAll();
+   }
+
+   //JUnit test for the repository aspect - each call is timed and its row count recorded per method
+   @Test
+   public void givenSavedEmployees_whenFindAll_thenTimerAndRowCountAreRecorded() {
+      //given - precondition or setup
+      employeeService.savedEmployee(Employee.builder()
+            .firstName("Ashwin").lastName("Singh").email("ashwin@example.com").build());
+      employeeService.savedEmployee(Employee.builder()
+            .firstName("Ramesh").lastName("Fadatare").email("ramesh@example.com").build());
+      long before = meterRegistry.find("employee.repository").tag("method", "findAll").timers().stream()
+            .mapToLong(timer -> timer.count()).sum();
+
+      //when - action or the behaviour that we are going to test
+      employeeService.getAllEmployees();
+
+      //then - verify the output
+      long after = meterRegistry.find("employee.repository").tag("method", "findAll").timers().stream()
+            .mapToLong(timer -> timer.count()).sum();
+      Assertions.assertThat(after - before).isEqualTo(1);
+      Assertions.assertThat(meterRegistry.get("employee.repository.rows").tag("method", "findAll")
+            .summary().max()).isEqualTo(2);
+   }
+
+   //JUnit test for the row counts - recorded for rows updated and deleted, not for the number count() returns
+   @Test
+   public void givenSavedEmployees_whenCountedAndDeleted_thenOnlyDeletedRowsRecorded() {
+      //given - precondition or setup
+      Employee ashwin = employeeService.savedEmployee(Employee.builder()
+            .firstName("Ashwin").lastName("Singh").email("ashwin@example.com").build());
+      Employee ramesh = employeeService.savedEmployee(Employee.builder()
+            .firstName("Ramesh").lastName("Fadatare").email("ramesh@example.com").build());
+
+      //when - action or the behaviour that we are going to test
+      long count = employeeRepo.count();
+      employeeService.patchEmployee(ashwin.getId(), new EmployeePatch("Ash", null, null, null));
+      int deleted = employeeService.deleteEmployees(List.of(ashwin.getId(), ramesh.getId()));
+
+      //then - verify the output
+      Assertions.assertThat(count).isEqualTo(2);
+      Assertions.assertThat(deleted).isEqualTo(2);
+      Assertions.assertThat(meterRegistry.find("employee.repository").tag("method", "count").timer()).isNotNull();
+      Assertions.assertThat(meterRegistry.find("employee.repository.rows").tag("method", "count").summary()).isNull();
+      Assertions.assertThat(meterRegistry.get("employee.repository.rows").tag("method", "patch")
+            .summary().max()).isEqualTo(1);
+      Assertions.assertThat(meterRegistry.get("employee.repository.rows").tag("method", "deleteReturningCountKeys")
+            .summary().max()).isEqualTo(2);
+   }
+
+   //JUnit test for @Timed on the service - service methods get their own timer
+   @Test
+   public void givenTimedService_whenGetEmployeeById_thenServiceTimerIsRecorded() {
+      //when - action or the behaviour that we are going to test
+      employeeService.getEmployeeById(Long.MAX_VALUE);
+
+      //then - verify the output
+      Assertions.assertThat(meterRegistry.get("employee.service").tag("method", "getEmployeeById")
+            .timer().count()).isPositive();
+   }
+}
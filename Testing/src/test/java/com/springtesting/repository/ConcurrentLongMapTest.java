@@ -0,0 +1,74 @@
+package com.springtesting.repository;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ConcurrentLongMapTest {
+
+   //JUnit test for put, get and remove - same answers as a HashMap over random keys, through rebuilds and removals
+   @Test
+   public void givenRandomPutsAndRemoves_whenGet_thenSameAsHashMap() {
+      //given - precondition or setup
+      Random random = new Random(42);
+      ConcurrentLongMap<Integer> map = new ConcurrentLongMap<>();
+      Map<Long, Integer> expected = new HashMap<>();
+
+      //when - action or the behaviour that we are going to test
+      for (int i = 0; i < 200_000; i++) {
+         long key = random.nextInt(20_000) * 31L - 100_000;
+         if (random.nextBoolean()) {
+            Assertions.assertThat(map.put(key, i)).isEqualTo(expected.put(key, i));
+         } else {
+            Assertions.assertThat(map.remove(key)).isEqualTo(expected.remove(key));
+         }
+      }
+
+      //then - verify the output
+      Assertions.assertThat(map.size()).isEqualTo(expected.size());
+      for (long key = -100_000; key < 20_000 * 31L - 100_000; key += 31) {
+         Assertions.assertThat(map.get(key)).isEqualTo(expected.get(key));
+      }
+   }
+
+   //JUnit test for lock-free reads - a key that is never removed is always found while others come and go
+   @Test
+   public void givenConcurrentWrites_whenGetWithoutLock_thenStableKeysAlwaysFound() throws Exception {
+      //given - precondition or setup
+      ConcurrentLongMap<Long> map = new ConcurrentLongMap<>();
+      for (long key = 0; key < 1_000; key++) {
+         map.put(key, key);
+      }
+      AtomicBoolean writing = new AtomicBoolean(true);
+      AtomicInteger missed = new AtomicInteger();
+      Thread reader = new Thread(() -> {
+         while (writing.get()) {
+            for (long key = 0; key < 1_000; key++) {
+               if (!Long.valueOf(key).equals(map.get(key))) {
+                  missed.incrementAndGet();
+               }
+            }
+         }
+      });
+
+      //when - action or the behaviour that we are going to test
+      reader.start();
+      for (long key = 1_000; key < 200_000; key++) {
+         map.put(key, key);
+         if (key >= 1_500) {
+            map.remove(key - 500);
+         }
+      }
+      writing.set(false);
+      reader.join();
+
+      //then - verify the output
+      Assertions.assertThat(missed.get()).isZero();
+      Assertions.assertThat(map.size()).isEqualTo(1_500);
+   }
+}
@@ -2,6 +2,11 @@ package com.springtesting.repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.hibernate.Session;
 
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -9,7 +14,14 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
-
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+
+import com.springtesting.dto.EmployeePatch;
+import com.springtesting.dto.EmployeeSearch;
+import com.springtesting.dto.EmployeeView;
 import com.springtesting.entities.Employee;
 
 @DataJpaTest
@@ -18,6 +30,9 @@ public class EmployeeRepoTests {
    @Autowired
    private EmployeeRepo employeeRepo;
 
+   @Autowired
+   private TestEntityManager testEntityManager;
+
    private Employee employee;
 
    @BeforeEach
@@ -234,4 +249,204 @@ public class EmployeeRepoTests {
       //then - verify the output
       Assertions.assertThat(receivedEmployee).isNotNull();
    }
+
+   //JUnit test for keyset pagination - the second window continues after the last key of the first
+   @Test
+   public void givenEmployeeList_whenFindPage_thenReturnConsecutiveWindows() {
+      //given - precondition or setup
+      employeeRepo.save(Employee.builder().firstName("Ashwin").lastName("Singh").email("ashwin@example.com").build());
+      employeeRepo.save(Employee.builder().firstName("Harshit").lastName("Singh").email("harshit@example.com").build());
+      employeeRepo.save(Employee.builder().firstName("Raju").lastName("Sharma").email("raju@example.com").build());
+
+      //when - action or the behavior that we are going test
+      Window<EmployeeView> first = employeeRepo.findPage("lastName,asc", ScrollPosition.keyset(), 2);
+      Window<EmployeeView> second = employeeRepo.findPage("lastName,asc",
+            (KeysetScrollPosition) first.positionAt(first.size() - 1), 2);
+      Window<EmployeeView> descending = employeeRepo.findPage("lastName,desc", ScrollPosition.keyset(), 3);
+
+      //then - verify the output
+      Assertions.assertThat(first.getContent()).extracting(EmployeeView::firstName).containsExactly("Raju", "Ashwin");
+      Assertions.assertThat(first.hasNext()).isTrue();
+      Assertions.assertThat(second.getContent()).extracting(EmployeeView::firstName).containsExactly("Harshit");
+      Assertions.assertThat(second.hasNext()).isFalse();
+      Assertions.assertThat(descending.getContent()).extracting(EmployeeView::firstName)
+            .containsExactly("Harshit", "Ashwin", "Raju");
+   }
+
+   //JUnit test for the by-id projection - the view is read without putting an entity in the persistence context
+   @Test
+   public void givenSavedEmployee_whenFindViewById_thenNothingIsManaged() {
+      //given - precondition or setup
+      Employee saved = employeeRepo.saveAndFlush(employee);
+      testEntityManager.clear();
+      Session session = testEntityManager.getEntityManager().unwrap(Session.class);
+
+      //when - action or the behavior that we are going test
+      Optional<EmployeeView> view = employeeRepo.findViewById(saved.getId());
+
+      //then - verify the output
+      Assertions.assertThat(view).contains(new EmployeeView(saved.getId(), "Ashwin", "Singh", "ashwin@example.com", 0));
+      Assertions.assertThat(session.getStatistics().getEntityCount()).isZero();
+   }
+
+   //JUnit test for streaming all employees - rows are read as views so the persistence context stays empty
+   @Test
+   public void givenManyEmployees_whenStreamAll_thenPersistenceContextDoesNotGrow() {
+      //given - precondition or setup
+      int rows = 3 * 500 + 7;
+      employeeRepo.saveAll(IntStream.range(0, rows)
+            .mapToObj(i -> Employee.builder().firstName("First" + i).lastName("Last" + i).email(i + "@example.com").build())
+            .toList());
+      testEntityManager.flush();
+      testEntityManager.clear();
+      Session session = testEntityManager.getEntityManager().unwrap(Session.class);
+      AtomicInteger streamed = new AtomicInteger();
+      AtomicInteger maxManaged = new AtomicInteger();
+
+      //when - action or the behavior that we are going test
+      try (Stream<EmployeeView> employees = employeeRepo.streamAll()) {
+         employees.forEach(e -> {
+            streamed.incrementAndGet();
+            maxManaged.accumulateAndGet(session.getStatistics().getEntityCount(), Math::max);
+         });
+      }
+
+      //then - verify the output
+      Assertions.assertThat(streamed.get()).isEqualTo(rows);
+      Assertions.assertThat(maxManaged.get()).isZero();
+   }
+
+   //JUnit test for looking up which emails of a batch already exist
+   @Test
+   public void givenSavedEmployee_whenFindExistingEmails_thenReturnOnlyTakenEmails() {
+      //given - precondition or setup
+      employeeRepo.save(employee);
+
+      //when - action or the behavior that we are going test
+      List<String> taken = employeeRepo.findExistingEmails(List.of("ashwin@example.com", "new@example.com"));
+
+      //then - verify the output
+      Assertions.assertThat(taken).containsExactly("ashwin@example.com");
+   }
+
+   //JUnit test for case-insensitive prefix search, continued from the last key of the first window
+   @Test
+   public void givenEmployees_whenSearchByLastNamePrefixIgnoringCase_thenReturnMatchesInKeyOrder() {
+      //given - precondition or setup
+      employeeRepo.save(Employee.builder().firstName("Ashwin").lastName("Singh").email("ashwin@example.com").build());
+      employeeRepo.save(Employee.builder().firstName("Harshit").lastName("SINGHAL").email("harshit@example.com").build());
+      employeeRepo.save(Employee.builder().firstName("Raju").lastName("Sharma").email("raju@example.com").build());
+      testEntityManager.flush();
+      testEntityManager.clear();
+      EmployeeSearch search = new EmployeeSearch(EmployeeSearch.Field.LAST_NAME, EmployeeSearch.Match.PREFIX, true, "sIn");
+
+      //when - action or the behavior that we are going test
+      Window<EmployeeView> first = employeeRepo.search(search, ScrollPosition.keyset(), 1);
+      Window<EmployeeView> second = employeeRepo.search(search, (KeysetScrollPosition) first.positionAt(0), 1);
+
+      //then - verify the output
+      Assertions.assertThat(first.getContent()).extracting(EmployeeView::lastName).containsExactly("Singh");
+      Assertions.assertThat(first.hasNext()).isTrue();
+      Assertions.assertThat(second.getContent()).extracting(EmployeeView::lastName).containsExactly("SINGHAL");
+      Assertions.assertThat(second.hasNext()).isFalse();
+   }
+
+   //JUnit test for exact, case-sensitive search on email - like wildcards in the term are matched literally
+   @Test
+   public void givenEmployees_whenSearchByExactEmail_thenReturnOnlyThatEmployee() {
+      //given - precondition or setup
+      employeeRepo.save(employee);
+      employeeRepo.save(Employee.builder().firstName("Raju").lastName("Sharma").email("raju@example.com").build());
+
+      //when - action or the behavior that we are going test
+      Window<EmployeeView> exact = employeeRepo.search(new EmployeeSearch(EmployeeSearch.Field.EMAIL,
+            EmployeeSearch.Match.EXACT, false, "ashwin@example.com"), ScrollPosition.keyset(), 10);
+      Window<EmployeeView> wildcard = employeeRepo.search(new EmployeeSearch(EmployeeSearch.Field.EMAIL,
+            EmployeeSearch.Match.PREFIX, false, "%"), ScrollPosition.keyset(), 10);
+
+      //then - verify the output
+      Assertions.assertThat(exact.getContent()).extracting(EmployeeView::firstName).containsExactly("Ashwin");
+      Assertions.assertThat(wildcard.getContent()).isEmpty();
+   }
+
+   //JUnit test for patch - only the given column is written and the version moves on
+   @Test
+   public void givenSavedEmployee_whenPatchLastName_thenOnlyLastNameAndVersionChange() {
+      //given - precondition or setup
+      Employee saved = employeeRepo.saveAndFlush(employee);
+      testEntityManager.clear();
+
+      //when - action or the behavior that we are going test
+      int rows = employeeRepo.patch(saved.getId(), new EmployeePatch(null, "Rathore", null, saved.getVersion()));
+      testEntityManager.clear();
+
+      //then - verify the output
+      Employee patched = employeeRepo.findById(saved.getId()).get();
+      Assertions.assertThat(rows).isEqualTo(1);
+      Assertions.assertThat(patched.getLastName()).isEqualTo("Rathore");
+      Assertions.assertThat(patched.getLastNameLc()).isEqualTo("rathore");
+      Assertions.assertThat(patched.getFirstName()).isEqualTo("Ashwin");
+      Assertions.assertThat(patched.getVersion()).isEqualTo(saved.getVersion() + 1);
+   }
+
+   //JUnit test for patch with a stale version or a missing id - nothing is written
+   @Test
+   public void givenStaleVersionOrMissingId_whenPatch_thenNoRowChanges() {
+      //given - precondition or setup
+      Employee saved = employeeRepo.saveAndFlush(employee);
+      testEntityManager.clear();
+
+      //when - action or the behavior that we are going test
+      int stale = employeeRepo.patch(saved.getId(), new EmployeePatch("Ram", null, null, saved.getVersion() + 1));
+      int missing = employeeRepo.patch(saved.getId() + 1000, new EmployeePatch("Ram", null, null, null));
+      testEntityManager.clear();
+
+      //then - verify the output
+      Assertions.assertThat(stale).isZero();
+      Assertions.assertThat(missing).isZero();
+      Assertions.assertThat(employeeRepo.findById(saved.getId()).get().getFirstName()).isEqualTo("Ashwin");
+   }
+
+   //JUnit test for the single-statement deletes - they report how many rows were removed
+   @Test
+   public void givenSavedEmployees_whenDeleteByIdAndByIds_thenReturnRemovedRowCounts() {
+      //given - precondition or setup
+      Employee first = employeeRepo.save(employee);
+      Employee second = employeeRepo.save(Employee.builder().firstName("Raju").lastName("Sharma")
+            .email("raju@example.com").build());
+      Employee third = employeeRepo.save(Employee.builder().firstName("Harshit").lastName("Singh")
+            .email("harshit@example.com").build());
+      testEntityManager.flush();
+      testEntityManager.clear();
+
+      //when - action or the behavior that we are going test
+      int deleted = employeeRepo.deleteEmployee(first.getId());
+      int deletedAgain = employeeRepo.deleteEmployee(first.getId());
+      int bulk = employeeRepo.deleteEmployees(List.of(first.getId(), second.getId(), third.getId()));
+
+      //then - verify the output
+      Assertions.assertThat(deleted).isEqualTo(1);
+      Assertions.assertThat(deletedAgain).isZero();
+      Assertions.assertThat(bulk).isEqualTo(2);
+      Assertions.assertThat(employeeRepo.count()).isZero();
+   }
+
+   //JUnit test for delete by search - only the matching rows are removed, in one statement
+   @Test
+   public void givenEmployees_whenDeleteMatchingEmailPrefix_thenOnlyMatchesAreRemoved() {
+      //given - precondition or setup
+      IntStream.range(0, 5).forEach(i -> employeeRepo.save(Employee.builder().firstName("Tmp" + i).lastName("Tmp")
+            .email("tmp-" + i + "@example.com").build()));
+      employeeRepo.save(employee);
+      testEntityManager.flush();
+      testEntityManager.clear();
+
+      //when - action or the behavior that we are going test
+      int deleted = employeeRepo.deleteMatching(new EmployeeSearch(EmployeeSearch.Field.EMAIL,
+            EmployeeSearch.Match.PREFIX, true, "TMP-"));
+
+      //then - verify the output
+      Assertions.assertThat(deleted).isEqualTo(5);
+      Assertions.assertThat(employeeRepo.findAll()).extracting(Employee::getEmail).containsExactly("ashwin@example.com");
+   }
 }
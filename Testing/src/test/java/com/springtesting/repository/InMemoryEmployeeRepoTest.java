@@ -0,0 +1,254 @@
+package com.springtesting.repository;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.springtesting.dto.EmployeePage;
+import com.springtesting.dto.EmployeePatch;
+import com.springtesting.dto.EmployeeSearch;
+import com.springtesting.dto.EmployeeView;
+import com.springtesting.entities.Employee;
+import com.springtesting.exception.ResourceNotFoundException;
+import com.springtesting.index.EmployeeTypeahead;
+import com.springtesting.service.EmployeeService;
+import com.springtesting.stats.EmployeeCounts;
+
+import jakarta.persistence.EntityManagerFactory;
+
+// The whole application on the "inmemory" profile, EmployeeService unchanged on top of InMemoryEmployeeRepo
+@SpringBootTest(properties = "employee.inmemory.lock-timeout=500ms")
+@ActiveProfiles("inmemory")
+public class InMemoryEmployeeRepoTest {
+
+   private static final Duration LOCK_TIMEOUT = Duration.ofMillis(500);
+
+   @Autowired
+   private ApplicationContext context;
+
+   @Autowired
+   private EmployeeService employeeService;
+
+   @Autowired
+   private EmployeeRepo employeeRepo;
+
+   @Autowired
+   private EmployeeCounts counts;
+
+   @Autowired
+   private EmployeeTypeahead typeahead;
+
+   @Autowired
+   private PlatformTransactionManager transactionManager;
+
+   @BeforeEach
+   public void setUp() {
+      employeeRepo.deleteAll();
+      counts.rebuild();
+      typeahead.rebuild();
+   }
+
+   @AfterEach
+   public void tearDown() {
+      employeeRepo.deleteAll();
+   }
+
+   private static Employee employee(String firstName, String lastName, String email) {
+      return Employee.builder().firstName(firstName).lastName(lastName).email(email).build();
+   }
+
+   //JUnit test for the profile - no JPA, creates and lookups go through the in-memory repository
+   @Test
+   public void givenInMemoryProfile_whenSaveAndFind_thenServedWithoutJpa() {
+      //given - precondition or setup
+      Employee saved = employeeService.savedEmployee(employee("Ashwin", "Singh", "ashwin@example.com"));
+
+      //when - action or the behaviour that we are going to test
+      //then - verify the output
+      Assertions.assertThat(context.getBeanNamesForType(EntityManagerFactory.class)).isEmpty();
+      Assertions.assertThat(AopUtils.getTargetClass(employeeRepo)).isEqualTo(InMemoryEmployeeRepo.class);
+      Assertions.assertThat(saved.getId()).isPositive();
+      Assertions.assertThat(employeeRepo.findByEmail("ashwin@example.com")).get()
+            .extracting(Employee::getId).isEqualTo(saved.getId());
+      Assertions.assertThat(employeeRepo.findByJPQL("Ashwin", "Singh").getEmail()).isEqualTo("ashwin@example.com");
+      Assertions.assertThat(employeeService.getEmployeeById(saved.getId())).get()
+            .extracting(EmployeeView::email).isEqualTo("ashwin@example.com");
+      org.junit.jupiter.api.Assertions.assertThrows(ResourceNotFoundException.class,
+            () -> employeeService.savedEmployee(employee("Other", "Person", "ashwin@example.com")));
+   }
+
+   //JUnit test for writes - versions are checked and bumped, a duplicate email is rejected like the unique index does
+   @Test
+   public void givenEmployee_whenUpdatedAndPatched_thenVersionsCheckedAndIndexesFollow() {
+      //given - precondition or setup
+      Employee ashwin = employeeService.savedEmployee(employee("Ashwin", "Singh", "ashwin@example.com"));
+      employeeService.savedEmployee(employee("Raju", "Sharma", "raju@example.com"));
+
+      //when - action or the behaviour that we are going to test
+      Employee updated = employeeService.updateEmployee(Employee.builder().id(ashwin.getId()).firstName("Ashwin")
+            .lastName("Rathore").email("ashwin.rathore@example.com").version(0).build());
+      boolean patched = employeeService.patchEmployee(ashwin.getId(), new EmployeePatch("Ash", null, null, 1L));
+
+      //then - verify the output
+      Assertions.assertThat(updated.getVersion()).isEqualTo(1);
+      Assertions.assertThat(patched).isTrue();
+      Assertions.assertThat(employeeRepo.findVersionById(ashwin.getId())).contains(2L);
+      Assertions.assertThat(employeeRepo.findByEmail("ashwin@example.com")).isEmpty();
+      Assertions.assertThat(employeeRepo.findByJPQL("Ash", "Rathore")).isNotNull();
+      Assertions.assertThat(employeeRepo.findByJPQL("Ashwin", "Rathore")).isNull();
+      org.junit.jupiter.api.Assertions.assertThrows(ObjectOptimisticLockingFailureException.class,
+            () -> employeeService.patchEmployee(ashwin.getId(), new EmployeePatch("Stale", null, null, 1L)));
+      org.junit.jupiter.api.Assertions.assertThrows(ResourceNotFoundException.class,
+            () -> employeeService.patchEmployee(ashwin.getId(), new EmployeePatch(null, null, "raju@example.com",
+                  null)));
+      Assertions.assertThat(employeeService.getEmployeeStats(0, List.of("Rathore", "Sharma", "Singh"), List.of())
+            .getByLastName())
+            .containsExactly(Assertions.entry("Rathore", 1L), Assertions.entry("Sharma", 1L),
+                  Assertions.entry("Singh", 0L));
+   }
+
+   //JUnit test for keyset reads - searches and pages walk the ordered indexes window by window
+   @Test
+   public void givenEmployees_whenSearchedAndPaged_thenSameWindowsAsTheDatabase() {
+      //given - precondition or setup
+      employeeService.saveEmployees(List.of(employee("Ram", "Singh", "ram@example.com"),
+            employee("ramesh", "Sharma", "ramesh@example.com"), employee("Sita", "Singh", "sita@example.com"),
+            employee("RAMU", "Rathore", "ramu@example.com"), employee("Anita", "Singhal", "anita@example.com")));
+
+      //when - action or the behaviour that we are going to test
+      EmployeeSearch prefix = new EmployeeSearch(EmployeeSearch.Field.FIRST_NAME, EmployeeSearch.Match.PREFIX, true,
+            "Ram");
+      EmployeePage first = employeeService.searchEmployees(prefix, 2, null);
+      EmployeePage second = employeeService.searchEmployees(prefix, 2, first.getNextCursor());
+      EmployeePage byLastNameDesc = employeeService.getEmployeesPage(3, "lastName,desc", null);
+      int deleted = employeeService.deleteEmployeesMatching(new EmployeeSearch(EmployeeSearch.Field.LAST_NAME,
+            EmployeeSearch.Match.EXACT, false, "Singh"));
+
+      //then - verify the output
+      Assertions.assertThat(first.getContent()).extracting(EmployeeView::firstName).containsExactly("Ram", "ramesh");
+      Assertions.assertThat(first.isHasNext()).isTrue();
+      Assertions.assertThat(second.getContent()).extracting(EmployeeView::firstName).containsExactly("RAMU");
+      Assertions.assertThat(second.isHasNext()).isFalse();
+      Assertions.assertThat(byLastNameDesc.getContent()).extracting(EmployeeView::lastName)
+            .containsExactly("Singhal", "Singh", "Singh");
+      Assertions.assertThat(deleted).isEqualTo(2);
+      Assertions.assertThat(employeeRepo.count()).isEqualTo(3);
+      Assertions.assertThat(employeeService.getEmployeeStats(0, List.of(), List.of()).getTotal()).isEqualTo(3);
+   }
+
+   //JUnit test for rollback - the rows a transaction inserted, updated and deleted are put back, indexes included
+   @Test
+   public void givenWriteTransaction_whenRolledBack_thenRowsRestored() {
+      //given - precondition or setup
+      Employee ashwin = employeeService.savedEmployee(employee("Ashwin", "Singh", "ashwin@example.com"));
+      Employee raju = employeeService.savedEmployee(employee("Raju", "Sharma", "raju@example.com"));
+      List<EmployeeView> before = employeeRepo.streamAll().toList();
+
+      //when - action or the behaviour that we are going to test
+      new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+         employeeRepo.save(employee("Sita", "Singh", "sita@example.com"));
+         employeeRepo.save(Employee.builder().id(ashwin.getId()).firstName("Ashwin").lastName("Rathore")
+               .email("ashwin.rathore@example.com").version(0).build());
+         employeeRepo.deleteEmployee(raju.getId());
+         status.setRollbackOnly();
+      });
+
+      //then - verify the output
+      Assertions.assertThat(employeeRepo.streamAll().toList()).isEqualTo(before);
+      Assertions.assertThat(employeeRepo.findByEmail("ashwin@example.com")).isPresent();
+      Assertions.assertThat(employeeRepo.findByEmail("ashwin.rathore@example.com")).isEmpty();
+      Assertions.assertThat(employeeRepo.findByEmail("sita@example.com")).isEmpty();
+      Assertions.assertThat(employeeRepo.findByJPQL("Raju", "Sharma")).isNotNull();
+      Assertions.assertThat(employeeService.searchEmployees(new EmployeeSearch(EmployeeSearch.Field.LAST_NAME,
+            EmployeeSearch.Match.EXACT, false, "Singh"), 10, null).getContent()).containsExactly(before.get(0));
+   }
+
+   //JUnit test for row locks - a transaction holds the rows it wrote until it ends, writes to other rows go on
+   @Test
+   public void givenTransactionHoldingRow_whenOthersWrite_thenOnlyThatRowWaits() throws Exception {
+      //given - precondition or setup
+      Employee ashwin = employeeService.savedEmployee(employee("Ashwin", "Singh", "ashwin@example.com"));
+      Employee raju = employeeService.savedEmployee(employee("Raju", "Sharma", "raju@example.com"));
+      CountDownLatch locked = new CountDownLatch(1);
+      CountDownLatch done = new CountDownLatch(1);
+      ExecutorService executor = Executors.newSingleThreadExecutor();
+      Future<?> holder = executor.submit(() -> new TransactionTemplate(transactionManager).executeWithoutResult(
+            status -> {
+               employeeRepo.patch(ashwin.getId(), new EmployeePatch("Ash", null, null, null));
+               locked.countDown();
+               try {
+                  done.await(10, TimeUnit.SECONDS);
+               } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+               }
+            }));
+      locked.await(10, TimeUnit.SECONDS);
+
+      //when - action or the behaviour that we are going to test
+      long start = System.nanoTime();
+      int otherRow = employeeRepo.patch(raju.getId(), new EmployeePatch("Raj", null, null, null));
+      Employee added = employeeRepo.save(employee("Sita", "Singh", "sita@example.com"));
+      long otherWritesNanos = System.nanoTime() - start;
+      Throwable sameRow = Assertions.catchThrowable(
+            () -> employeeRepo.patch(ashwin.getId(), new EmployeePatch("Other", null, null, null)));
+      done.countDown();
+      holder.get(10, TimeUnit.SECONDS);
+      executor.shutdown();
+
+      //then - verify the output
+      Assertions.assertThat(otherRow).isEqualTo(1);
+      Assertions.assertThat(added.getId()).isPositive();
+      Assertions.assertThat(otherWritesNanos).isLessThan(LOCK_TIMEOUT.toNanos());
+      Assertions.assertThat(sameRow).isInstanceOf(CannotAcquireLockException.class);
+      Assertions.assertThat(employeeRepo.findViewById(ashwin.getId())).get()
+            .extracting(EmployeeView::firstName).isEqualTo("Ash");
+   }
+
+   //JUnit test for snapshots - the rows and the id counter survive a restart through the snapshot file
+   @Test
+   public void givenSnapshotPath_whenRestarted_thenRowsAndIdsRestored(@TempDir Path directory) throws Exception {
+      //given - precondition or setup
+      String path = directory.resolve("employees.snapshot").toString();
+      InMemoryEmployeeRepo before = new InMemoryEmployeeRepo(new InMemoryTransactionManager(LOCK_TIMEOUT), path,
+            Duration.ofHours(1));
+      before.saveAll(List.of(employee("Ashwin", "Singh", "ashwin@example.com"),
+            employee("Raju", "Sharma", "raju@example.com"), employee("Zoë", "Ñúñez", "zoe@example.com")));
+      before.deleteEmployee(2);
+      before.patch(1, new EmployeePatch(null, "Rathore", null, null));
+
+      //when - action or the behaviour that we are going to test
+      before.close();
+      InMemoryEmployeeRepo after = new InMemoryEmployeeRepo(new InMemoryTransactionManager(LOCK_TIMEOUT), path,
+            Duration.ofHours(1));
+      Employee added = after.save(employee("Harshit", "Singhal", "harshit@example.com"));
+      after.close();
+
+      //then - verify the output
+      Assertions.assertThat(after.streamAll().toList()).containsExactly(
+            new EmployeeView(1, "Ashwin", "Rathore", "ashwin@example.com", 1),
+            new EmployeeView(3, "Zoë", "Ñúñez", "zoe@example.com", 0),
+            new EmployeeView(4, "Harshit", "Singhal", "harshit@example.com", 0));
+      Assertions.assertThat(added.getId()).isEqualTo(4);
+      Assertions.assertThat(after.findByEmail("zoe@example.com")).isPresent();
+   }
+}
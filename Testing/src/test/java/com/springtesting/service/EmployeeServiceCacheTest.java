@@ -0,0 +1,95 @@
+package com.springtesting.service;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.springtesting.config.CacheConfig;
+import com.springtesting.dto.EmployeeView;
+import com.springtesting.entities.Employee;
+import com.springtesting.repository.EmployeeRepo;
+
+@SpringBootTest
+public class EmployeeServiceCacheTest {
+
+   @Autowired
+   private EmployeeService employeeService;
+
+   @Autowired
+   private EmployeeRepo employeeRepo;
+
+   @Autowired
+   private CacheManager cacheManager;
+
+   private CaffeineCache cache;
+
+   @BeforeEach
+   public void setUp() {
+      cache = (CaffeineCache) cacheManager.getCache(CacheConfig.EMPLOYEES_CACHE);
+      cache.clear();
+   }
+
+   @AfterEach
+   public void tearDown() {
+      employeeRepo.deleteAll();
+      cache.clear();
+   }
+
+   //JUnit test for getEmployeeById - the second read of the same id is served from the cache
+   @Test
+   public void givenSavedEmployee_whenGetEmployeeByIdTwice_thenSecondCallIsCacheHit() {
+      //given - precondition or setup
+      Employee saved = employeeService.savedEmployee(Employee.builder()
+            .firstName("Ashwin").lastName("Singh").email("ashwin@example.com").build());
+      cache.clear();
+      CacheStats before = cache.getNativeCache().stats();
+
+      //when - action or the behaviour that we are going to test
+      employeeService.getEmployeeById(saved.getId());
+      employeeService.getEmployeeById(saved.getId());
+
+      //then - verify the output
+      CacheStats delta = cache.getNativeCache().stats().minus(before);
+      Assertions.assertThat(delta.missCount()).isEqualTo(1);
+      Assertions.assertThat(delta.hitCount()).isEqualTo(1);
+   }
+
+   //JUnit test for getEmployeeById with a missing id - the miss itself is cached
+   @Test
+   public void givenMissingId_whenGetEmployeeByIdTwice_thenEmptyResultIsCached() {
+      //when - action or the behaviour that we are going to test
+      Assertions.assertThat(employeeService.getEmployeeById(Long.MAX_VALUE)).isEmpty();
+      Assertions.assertThat(employeeService.getEmployeeById(Long.MAX_VALUE)).isEmpty();
+
+      //then - verify the output
+      Assertions.assertThat(cache.get(Long.MAX_VALUE)).isNotNull();
+      Assertions.assertThat(cache.get(Long.MAX_VALUE).get()).isNull();
+   }
+
+   //JUnit test for updateEmployee and deleteEmployee - both invalidate the cached entry
+   @Test
+   public void givenCachedEmployee_whenUpdateAndDelete_thenEntryIsInvalidated() {
+      //given - precondition or setup
+      Employee saved = employeeService.savedEmployee(Employee.builder()
+            .firstName("Ashwin").lastName("Singh").email("ashwin@example.com").build());
+      EmployeeView cached = employeeService.getEmployeeById(saved.getId()).get();
+
+      //when - action or the behaviour that we are going to test
+      employeeService.updateEmployee(Employee.builder().id(cached.id())
+            .firstName("Ashwin").lastName("Rathore").email("ashwin@example.com").build());
+
+      //then - verify the output
+      Assertions.assertThat(cache.get(saved.getId())).isNull();
+      Assertions.assertThat(employeeService.getEmployeeById(saved.getId()).get().lastName()).isEqualTo("Rathore");
+
+      employeeService.deleteEmployee(saved.getId());
+      Assertions.assertThat(cache.get(saved.getId())).isNull();
+      Assertions.assertThat(employeeService.getEmployeeById(saved.getId())).isEmpty();
+   }
+}
@@ -0,0 +1,101 @@
+package com.springtesting.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.springtesting.dto.BatchItemResult;
+
+import com.springtesting.entities.Employee;
+import com.springtesting.exception.ResourceNotFoundException;
+import com.springtesting.repository.EmployeeRepo;
+
+@SpringBootTest
+public class EmployeeServiceConcurrencyTest {
+
+   private static final int THREADS = 16;
+
+   @Autowired
+   private EmployeeService employeeService;
+
+   @Autowired
+   private EmployeeRepo employeeRepo;
+
+   @Autowired
+   private JdbcTemplate jdbcTemplate;
+
+   @AfterEach
+   public void tearDown() {
+      employeeRepo.deleteAll();
+   }
+
+   //JUnit test for savedEmployee called with the same email from many threads at once - exactly one create wins
+   @Test
+   public void givenSameEmailFromManyThreads_whenSaveEmployee_thenOnlyOneIsCreated() throws Exception {
+
+      //given - precondition or setup
+      ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<Boolean>> attempts = new ArrayList<>();
+      for (int i = 0; i < THREADS; i++) {
+         String firstName = "Ashwin" + i;
+         attempts.add(executor.submit(() -> {
+            start.await();
+            try {
+               employeeService.savedEmployee(Employee.builder()
+                     .firstName(firstName)
+                     .lastName("Singh")
+                     .email("ashwin@example.com")
+                     .build());
+               return true;
+            } catch (ResourceNotFoundException e) {
+               return false;
+            }
+         }));
+      }
+
+      //when - action or the behaviour that we are going to test
+      start.countDown();
+      int created = 0;
+      for (Future<Boolean> attempt : attempts) {
+         if (attempt.get(30, TimeUnit.SECONDS)) {
+            created++;
+         }
+      }
+      executor.shutdown();
+
+      //then - verify the output
+      Assertions.assertThat(created).isEqualTo(1);
+      Assertions.assertThat(employeeRepo.findExistingEmails(List.of("ashwin@example.com"))).hasSize(1);
+   }
+
+   //JUnit test for saveEmployees with a row the EmailIndex never saw (plain SQL, another instance) - still DUPLICATE
+   @Test
+   public void givenRowInsertedBehindTheIndex_whenSaveEmployees_thenReportedAsDuplicate() {
+
+      //given - precondition or setup
+      jdbcTemplate.update("insert into employee (id, first_name, last_name, email, version)"
+            + " values (next value for employee_seq, 'Ashwin', 'Singh', 'behind@example.com', 0)");
+
+      //when - action or the behaviour that we are going to test
+      List<BatchItemResult> results = employeeService.saveEmployees(List.of(
+            Employee.builder().firstName("Raju").lastName("Sharma").email("behind@example.com").build(),
+            Employee.builder().firstName("Sita").lastName("Singh").email("sita@example.com").build()));
+
+      //then - verify the output
+      Assertions.assertThat(results).extracting(BatchItemResult::getStatus)
+            .containsExactly(BatchItemResult.Status.DUPLICATE, BatchItemResult.Status.CREATED);
+      Assertions.assertThat(employeeRepo.count()).isEqualTo(2);
+   }
+}
@@ -0,0 +1,58 @@
+package com.springtesting.service;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.springtesting.dto.EmployeePatch;
+import com.springtesting.entities.Employee;
+import com.springtesting.exception.ResourceNotFoundException;
+import com.springtesting.repository.EmployeeRepo;
+
+@SpringBootTest(properties = "employee.etag.shared-version=true")
+public class EmployeeServiceSharedVersionTest {
+
+   @Autowired
+   private EmployeeService employeeService;
+
+   @Autowired
+   private EmployeeRepo employeeRepo;
+
+   @Autowired
+   private JdbcTemplate jdbcTemplate;
+
+   @AfterEach
+   public void tearDown() {
+      employeeRepo.deleteAll();
+   }
+
+   private static Employee employee(String firstName, String lastName, String email) {
+      return Employee.builder().firstName(firstName).lastName(lastName).email(email).build();
+   }
+
+   //JUnit test for the shared table version - committed writes move the row on, a rolled back one does not
+   @Test
+   public void givenSharedVersion_whenWritesCommitOrRollBack_thenOnlyCommittedWritesMoveIt() {
+      //given - precondition or setup
+      String initial = employeeService.getEmployeesVersion();
+      Employee ashwin = employeeService.savedEmployee(employee("Ashwin", "Singh", "ashwin@example.com"));
+      employeeService.savedEmployee(employee("Raju", "Sharma", "raju@example.com"));
+      String afterCreates = employeeService.getEmployeesVersion();
+
+      //when - action or the behaviour that we are going to test
+      org.junit.jupiter.api.Assertions.assertThrows(ResourceNotFoundException.class,
+            () -> employeeService.patchEmployee(ashwin.getId(), new EmployeePatch(null, null, "raju@example.com",
+                  null)));
+      String afterRollback = employeeService.getEmployeesVersion();
+      employeeService.deleteEmployee(ashwin.getId());
+
+      //then - verify the output
+      Assertions.assertThat(afterCreates).isNotEqualTo(initial);
+      Assertions.assertThat(afterRollback).isEqualTo(afterCreates);
+      Assertions.assertThat(employeeService.getEmployeesVersion()).isNotEqualTo(afterRollback)
+            .isEqualTo("v" + jdbcTemplate.queryForObject("select changes from employee_table_version", Long.class));
+   }
+}
@@ -1,17 +1,25 @@
 package com.springtesting.service;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.BDDMockito.given;
-import static org.mockito.BDDMockito.willDoNothing;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.Base64;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.assertj.core.api.Assertions;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -19,11 +27,25 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+
+import com.springtesting.dto.BatchItemResult;
+import com.springtesting.dto.EmployeeCountKey;
+import com.springtesting.dto.EmployeePage;
+import com.springtesting.dto.EmployeePatch;
+import com.springtesting.dto.EmployeeView;
 import com.springtesting.entities.Employee;
 import com.springtesting.exception.ResourceNotFoundException;
+import com.springtesting.index.EmailIndex;
+import com.springtesting.index.EmployeeTypeahead;
 import com.springtesting.repository.EmployeeRepo;
+import com.springtesting.service.impl.EmployeeChangeCounter;
 import com.springtesting.service.impl.EmployeeServiceImpl;
+import com.springtesting.stats.EmployeeCounts;
 
 @ExtendWith(MockitoExtension.class)
 public class EmployeeServiceTestUsingAnnotations {
@@ -31,6 +53,18 @@ public class EmployeeServiceTestUsingAnnotations {
    @Mock
    private EmployeeRepo employeeRepo;
 
+   @Mock
+   private EmailIndex emailIndex;
+
+   @Mock
+   private EmployeeChangeCounter changeCounter;
+
+   @Mock
+   private EmployeeCounts counts;
+
+   @Mock
+   private EmployeeTypeahead typeahead;
+
    @InjectMocks
    private EmployeeServiceImpl employeeService;
 
@@ -51,8 +85,7 @@ public class EmployeeServiceTestUsingAnnotations {
    public void givenEmployeeObject_whenSaveEmployee_thenReturnEmployeeObject() {
 
       //given - precondition or setup
-      given(employeeRepo.findByEmail(employee.getEmail())).willReturn(Optional.empty());
-      given(employeeRepo.save(employee)).willReturn(employee);
+      given(employeeRepo.saveAndFlush(employee)).willReturn(employee);
       System.out.println(employeeRepo);
       System.out.println(employeeService);
 
@@ -72,8 +105,10 @@ public class EmployeeServiceTestUsingAnnotations {
    public void givenEmployeeObject_whenSaveEmployee_thenThrowsException() {
 
       //given - precondition or setup
-      given(employeeRepo.findByEmail(employee.getEmail())).willReturn(Optional.of(employee));
-      //given(employeeRepo.save(employee)).willReturn(employee);   This stubbing is not required as this method is not called.
+      //the unique index on email rejects the insert
+      given(employeeRepo.saveAndFlush(employee)).willThrow(new DataIntegrityViolationException("duplicate",
+            new ConstraintViolationException("Unique index or primary key violation", new SQLException(),
+                  "PUBLIC.UX_EMPLOYEE_EMAIL_INDEX_4 ON PUBLIC.EMPLOYEE(EMAIL NULLS FIRST)")));
       System.out.println(employeeRepo);
       System.out.println(employeeService);
 
@@ -82,8 +117,70 @@ public class EmployeeServiceTestUsingAnnotations {
             () -> employeeService.savedEmployee(employee));
 
       //then - verify the output
-      verify(employeeRepo, never()).save(any(Employee.class));
+      verify(employeeRepo, never()).findByEmail(any(String.class));
+
+   }
+
+   //JUnit test for saveEmployee method when the email index has seen the email - rejected without an insert
+   @Test
+   public void givenKnownEmail_whenSaveEmployee_thenThrowsExceptionWithoutInsert() {
+
+      //given - precondition or setup
+      given(emailIndex.mightContain(employee.getEmail())).willReturn(true);
+      given(employeeRepo.findByEmail(employee.getEmail())).willReturn(Optional.of(employee));
+
+      //when - action or the behaviour that we are going to test
+      org.junit.jupiter.api.Assertions.assertThrows(ResourceNotFoundException.class,
+            () -> employeeService.savedEmployee(employee));
 
+      //then - verify the output
+      verify(employeeRepo, never()).saveAndFlush(any(Employee.class));
+   }
+
+   //JUnit test for saveEmployee method when the email index answers "maybe" but the database does not have it
+   @Test
+   public void givenIndexFalsePositive_whenSaveEmployee_thenInsertAndRecordFalsePositive() {
+
+      //given - precondition or setup
+      given(emailIndex.mightContain(employee.getEmail())).willReturn(true);
+      given(employeeRepo.findByEmail(employee.getEmail())).willReturn(Optional.empty());
+      given(employeeRepo.saveAndFlush(employee)).willReturn(employee);
+
+      //when - action or the behaviour that we are going to test
+      Employee savedEmployee = employeeService.savedEmployee(employee);
+
+      //then - verify the output
+      Assertions.assertThat(savedEmployee).isNotNull();
+      verify(emailIndex, times(1)).recordFalsePositive();
+      verify(emailIndex, times(1)).add(employee.getEmail());
+   }
+
+   //JUnit test for saveEmployees method - one lookup for the whole batch, duplicates and invalid rows are reported per item
+   @Test
+   public void givenEmployeesBatch_whenSaveEmployees_thenReturnResultPerItem() {
+
+      //given - precondition or setup
+      Employee fresh = Employee.builder().firstName("Rahul").lastName("Kumar").email("rahul@example.com").build();
+      Employee repeated = Employee.builder().firstName("Rahul").lastName("K").email("rahul@example.com").build();
+      Employee invalid = Employee.builder().firstName("No").lastName("Email").build();
+      given(employeeRepo.findExistingEmails(anyCollection())).willReturn(List.of(employee.getEmail()));
+      given(employeeRepo.saveAll(anyList())).willAnswer(invocation -> {
+         List<Employee> toSave = invocation.getArgument(0);
+         toSave.forEach(e -> e.setId(10L));
+         return toSave;
+      });
+
+      //when - action or the behaviour that we are going to test
+      List<BatchItemResult> results = employeeService.saveEmployees(List.of(employee, fresh, repeated, invalid));
+
+      //then - verify the output
+      Assertions.assertThat(results).extracting(BatchItemResult::getStatus).containsExactly(
+            BatchItemResult.Status.DUPLICATE, BatchItemResult.Status.CREATED,
+            BatchItemResult.Status.DUPLICATE, BatchItemResult.Status.INVALID);
+      Assertions.assertThat(results.get(1).getId()).isEqualTo(10L);
+      verify(employeeRepo, times(1)).findExistingEmails(anyCollection());
+      verify(employeeRepo, times(1)).saveAll(List.of(fresh));
+      verify(emailIndex, never()).mightContain(anyString());
    }
 
    //JUnit test for getAllEmployees method
@@ -122,18 +219,78 @@ public class EmployeeServiceTestUsingAnnotations {
       Assertions.assertThat(receivedListOfEmployees.size()).isEqualTo(0);
    }
 
+   //JUnit test for getEmployeesPage method - the returned cursor resumes after the last employee of the page
+   @Test
+   public void givenCursorFromPreviousPage_whenGetEmployeesPage_thenScrollFromLastKey() {
+      //given - precondition or setup
+      given(employeeRepo.findPage("lastName,desc", ScrollPosition.keyset(), 1))
+            .willReturn(Window.from(List.of(EmployeeView.of(employee)),
+                  index -> ScrollPosition.forward(Map.of("lastName", "Singh", "id", 1)), true));
+      given(employeeRepo.findPage("lastName,desc", ScrollPosition.forward(Map.of("lastName", "Singh", "id", 1L)), 1))
+            .willReturn(Window.from(Collections.emptyList(), ScrollPosition::offset));
+
+      //when - action or thes behaviour that we are going to test
+      EmployeePage firstPage = employeeService.getEmployeesPage(1, "lastName,DESC", null);
+      EmployeePage secondPage = employeeService.getEmployeesPage(1, "lastName,desc", firstPage.getNextCursor());
+
+      //then - verify the output
+      Assertions.assertThat(firstPage.isHasNext()).isTrue();
+      Assertions.assertThat(firstPage.getNextCursor()).isNotBlank();
+      Assertions.assertThat(secondPage.getContent()).isEmpty();
+      Assertions.assertThat(secondPage.getNextCursor()).isNull();
+   }
+
+   //JUnit test for getEmployeesPage method with a cursor issued for another sort (negative scenario)
+   @Test
+   public void givenCursorForOtherSort_whenGetEmployeesPage_thenThrowsException() {
+      //given - precondition or setup
+      given(employeeRepo.findPage("id,asc", ScrollPosition.keyset(), 1))
+            .willReturn(Window.from(List.of(EmployeeView.of(employee)),
+                  index -> ScrollPosition.forward(Map.of("id", 1L)), true));
+      String cursor = employeeService.getEmployeesPage(1, "id", null).getNextCursor();
+
+      //when - action or thes behaviour that we are going to test
+      org.junit.jupiter.api.Assertions.assertThrows(IllegalArgumentException.class,
+            () -> employeeService.getEmployeesPage(1, "email", cursor));
+
+      //then - verify the output
+      verify(employeeRepo, times(1)).findPage(anyString(), any(KeysetScrollPosition.class), anyInt());
+   }
+
+   //JUnit test for getEmployeesPage method with a tampered cursor - keys missing or of the wrong type (negative scenario)
+   @Test
+   public void givenTamperedCursor_whenGetEmployeesPage_thenThrowsException() {
+      //given - precondition or setup
+      List<String> tampered = List.of(
+            "{\"sort\":\"lastName,asc\",\"keys\":{\"lastName\":\"Singh\"}}",
+            "{\"sort\":\"lastName,asc\",\"keys\":{\"lastName\":\"Singh\",\"id\":\"1\"}}",
+            "{\"sort\":\"lastName,asc\",\"keys\":{\"lastName\":42,\"id\":1}}",
+            "{\"sort\":\"id,asc\",\"keys\":{\"id\":1.5}}");
+
+      //when - action or thes behaviour that we are going to test
+      //then - verify the output
+      for (String json : tampered) {
+         String cursor = Base64.getUrlEncoder().withoutPadding()
+               .encodeToString(json.getBytes(StandardCharsets.UTF_8));
+         String sort = json.contains("id,asc") ? "id" : "lastName";
+         org.junit.jupiter.api.Assertions.assertThrows(IllegalArgumentException.class,
+               () -> employeeService.getEmployeesPage(1, sort, cursor), json);
+      }
+      verify(employeeRepo, never()).findPage(anyString(), any(KeysetScrollPosition.class), anyInt());
+   }
+
    //JUnit test for getEmployeeById method
    @Test
    public void givenEmployeeId_whenGetEmployeeById_thenReturnEmployeeObject() {
       //given - precondition or setup
-      given(employeeRepo.findById(1L)).willReturn(Optional.of(employee));
+      given(employeeRepo.findViewById(1L)).willReturn(Optional.of(EmployeeView.of(employee)));
 
       //when - action or thes behaviour that we are going to test
-      Employee receivedEmployees = employeeService.getEmployeeById(1L).get();
+      EmployeeView receivedEmployees = employeeService.getEmployeeById(1L).get();
 
       //then - verify the output
       Assertions.assertThat(receivedEmployees).isNotNull();
-      Assertions.assertThat(receivedEmployees.getId()).isEqualTo(1L);
+      Assertions.assertThat(receivedEmployees.id()).isEqualTo(1L);
    }
 
    //JUnit test for updateEmployee method
@@ -153,17 +310,132 @@ public class EmployeeServiceTestUsingAnnotations {
       Assertions.assertThat(updatedEmployee.getLastName()).isEqualTo("Rathore");
    }
 
-   //JUnit test for deleteEmployee method
+   //JUnit test for updateEmployee by id - based on the version read in the write, checked against an expected one
+   @Test
+   public void givenStoredVersion_whenUpdateEmployeeById_thenUpdateThatVersionOrConflict() {
+      //given - precondition or setup
+      employee.setVersion(2L);
+      given(employeeRepo.findById(1L)).willReturn(Optional.of(employee));
+      given(employeeRepo.save(any(Employee.class))).willAnswer(invocation -> invocation.getArgument(0));
+      Employee replacement = Employee.builder().firstName("Ashwin").lastName("Rathore").email("ashwin@gmail.com")
+            .build();
+
+      //when - action or thes behaviour that we are going to test
+      Optional<Employee> updated = employeeService.updateEmployee(1L, null, replacement);
+
+      //then - verify the output
+      Assertions.assertThat(updated).get().satisfies(saved -> {
+         Assertions.assertThat(saved.getVersion()).isEqualTo(2L);
+         Assertions.assertThat(saved.getLastName()).isEqualTo("Rathore");
+      });
+      Assertions.assertThat(employeeService.updateEmployee(2L, null, replacement)).isEmpty();
+      org.junit.jupiter.api.Assertions.assertThrows(OptimisticLockingFailureException.class,
+            () -> employeeService.updateEmployee(1L, 1L, replacement));
+      verify(employeeRepo, times(1)).save(any(Employee.class));
+   }
+
+   //JUnit test for patchEmployee method - one update, no read before it
+   @Test
+   public void givenEmployeePatch_whenPatchEmployee_thenUpdateWithoutLookup() {
+      //given - precondition or setup
+      EmployeePatch patch = new EmployeePatch("Ram", null, null, 0L);
+      given(employeeRepo.patch(1L, patch)).willReturn(1);
+
+      //when - action or thes behaviour that we are going to test
+      boolean patched = employeeService.patchEmployee(1L, patch);
+
+      //then - verify the output
+      Assertions.assertThat(patched).isTrue();
+      verify(employeeRepo, never()).findById(any(Long.class));
+      verify(employeeRepo, never()).patchReturningCountKeys(any(Long.class), any(EmployeePatch.class));
+   }
+
+   //JUnit test for patchEmployee method - a last name patch moves the employee from one count to another, the old
+   //name comes back from the UPDATE itself
+   @Test
+   public void givenLastNamePatch_whenPatchEmployee_thenCountsMoveFromOldToNewName() {
+      //given - precondition or setup
+      EmployeePatch patch = new EmployeePatch(null, "Rathore", null, 0L);
+      given(employeeRepo.patchReturningCountKeys(1L, patch))
+            .willReturn(List.of(new EmployeeCountKey(1L, "Singh", "ashwin@example.com")));
+
+      //when - action or thes behaviour that we are going to test
+      boolean patched = employeeService.patchEmployee(1L, patch);
+
+      //then - verify the output
+      Assertions.assertThat(patched).isTrue();
+      verify(counts).changed(new EmployeeCountKey(1L, "Singh", "ashwin@example.com"),
+            new EmployeeCountKey(1L, "Rathore", "ashwin@example.com"));
+      verify(employeeRepo, never()).patch(any(Long.class), any(EmployeePatch.class));
+   }
+
+   //JUnit test for patchEmployee method - no row changed: conflict when the id exists, not found otherwise
+   @Test
+   public void givenNoRowChanged_whenPatchEmployee_thenConflictOrNotFound() {
+      //given - precondition or setup
+      EmployeePatch stale = new EmployeePatch("Ram", null, null, 3L);
+      given(employeeRepo.patch(any(Long.class), any(EmployeePatch.class))).willReturn(0);
+      given(employeeRepo.existsById(1L)).willReturn(true);
+      given(employeeRepo.existsById(2L)).willReturn(false);
+
+      //when - action or thes behaviour that we are going to test
+      //then - verify the output
+      org.junit.jupiter.api.Assertions.assertThrows(OptimisticLockingFailureException.class,
+            () -> employeeService.patchEmployee(1L, stale));
+      Assertions.assertThat(employeeService.patchEmployee(2L, stale)).isFalse();
+   }
+
+   //JUnit test for deleteEmployee method - one DELETE that returns what the row was counted under
    @Test
    public void givenEmployeeId_whenDeleteEmployee_thenReturnNothing() {
       //given - precondition or setup
-      willDoNothing().given(employeeRepo).deleteById(1L);   //For methods that return void
+      List<EmployeeCountKey> keys = List.of(new EmployeeCountKey(1L, "Singh", "ashwin@example.com"));
+      given(employeeRepo.deleteReturningCountKeys(List.of(1L))).willReturn(keys);
+      given(employeeRepo.deleteReturningCountKeys(List.of(2L))).willReturn(List.of());
+
+      //when - action or thes behaviour that we are going to test
+      boolean deleted = employeeService.deleteEmployee(1L);
+      boolean missing = employeeService.deleteEmployee(2L);
+
+      //then - verify the output
+      Assertions.assertThat(deleted).isTrue();
+      Assertions.assertThat(missing).isFalse();
+      verify(employeeRepo, never()).findById(any(Long.class));
+      verify(counts).removed(keys);
+      verify(counts, times(1)).removed(anyList());
+   }
+
+   //JUnit test for deleteEmployee with a version - a DELETE removing nothing is a conflict when the id exists
+   @Test
+   public void givenStaleVersion_whenDeleteEmployee_thenConflictOrNotFound() {
+      //given - precondition or setup
+      given(employeeRepo.deleteReturningCountKeys(any(Long.class), any(Long.class))).willReturn(List.of());
+      given(employeeRepo.existsById(1L)).willReturn(true);
+      given(employeeRepo.existsById(2L)).willReturn(false);
+
+      //when - action or thes behaviour that we are going to test
+      //then - verify the output
+      org.junit.jupiter.api.Assertions.assertThrows(OptimisticLockingFailureException.class,
+            () -> employeeService.deleteEmployee(1L, 3L));
+      Assertions.assertThat(employeeService.deleteEmployee(2L, 3L)).isFalse();
+      verify(counts, never()).removed(anyList());
+   }
+
+   //JUnit test for deleteEmployees method - one statement for the ids, nothing sent for an empty list
+   @Test
+   public void givenEmployeeIds_whenDeleteEmployees_thenReturnRemovedCount() {
+      //given - precondition or setup
+      given(employeeRepo.deleteReturningCountKeys(List.of(1L, 2L, 3L))).willReturn(List.of(
+            new EmployeeCountKey(1L, "Singh", "ashwin@example.com"), new EmployeeCountKey(2L, "Sharma", "raju@example.com")));
 
       //when - action or thes behaviour that we are going to test
-      employeeService.deleteEmployee(1L);
+      int deleted = employeeService.deleteEmployees(List.of(1L, 2L, 3L));
+      int none = employeeService.deleteEmployees(List.of());
 
       //then - verify the output
-      verify(employeeRepo, times(1)).deleteById(1L);
+      Assertions.assertThat(deleted).isEqualTo(2);
+      Assertions.assertThat(none).isZero();
+      verify(employeeRepo, times(1)).deleteReturningCountKeys(anyCollection());
    }
 
 }
@@ -1,7 +1,5 @@
 package com.springtesting.service;
 
-import java.util.Optional;
-
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -10,8 +8,12 @@ import org.mockito.BDDMockito;
 import org.mockito.Mockito;
 
 import com.springtesting.entities.Employee;
+import com.springtesting.index.EmailIndex;
+import com.springtesting.index.EmployeeTypeahead;
 import com.springtesting.repository.EmployeeRepo;
+import com.springtesting.service.impl.EmployeeChangeCounter;
 import com.springtesting.service.impl.EmployeeServiceImpl;
+import com.springtesting.stats.EmployeeCounts;
 
 public class EmployeeServiceTestUsingMockMethod {
 
@@ -21,7 +23,9 @@ public class EmployeeServiceTestUsingMockMethod {
    @BeforeEach
    public void setup() {
       employeeRepo = Mockito.mock(EmployeeRepo.class);
-      employeeService = new EmployeeServiceImpl(employeeRepo);
+      employeeService = new EmployeeServiceImpl(employeeRepo, Mockito.mock(EmailIndex.class),
+            Mockito.mock(EmployeeChangeCounter.class), Mockito.mock(EmployeeCounts.class),
+            Mockito.mock(EmployeeTypeahead.class));
    }
 
    // JUnit test for saveEmployee method using the mock() method provided by Mockito
@@ -37,8 +41,7 @@ public class EmployeeServiceTestUsingMockMethod {
          .email("ashwin@example.com")
             .build();
 
-      BDDMockito.given(employeeRepo.findByEmail(employee.getEmail())).willReturn(Optional.empty());
-      BDDMockito.given(employeeRepo.save(employee)).willReturn(employee);
+      BDDMockito.given(employeeRepo.saveAndFlush(employee)).willReturn(employee);
       System.out.println(employeeRepo);
       System.out.println(employeeService);
 
@@ -0,0 +1,220 @@
+package com.springtesting.stats;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import javax.sql.DataSource;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.springtesting.dto.EmployeeCountKey;
+import com.springtesting.dto.EmployeePatch;
+import com.springtesting.dto.EmployeeSearch;
+import com.springtesting.dto.EmployeeStats;
+import com.springtesting.entities.Employee;
+import com.springtesting.exception.ResourceNotFoundException;
+import com.springtesting.repository.EmployeeRepo;
+import com.springtesting.service.EmployeeService;
+
+@SpringBootTest
+public class EmployeeCountsTest {
+
+   @Autowired
+   private EmployeeService employeeService;
+
+   @Autowired
+   private EmployeeRepo employeeRepo;
+
+   @Autowired
+   private EmployeeCounts counts;
+
+   private JdbcTemplate jdbcTemplate;
+
+   @Autowired
+   public void setDataSource(DataSource dataSource) {
+      this.jdbcTemplate = new JdbcTemplate(dataSource);
+   }
+
+   // Other tests sharing this context write to the table behind the service's back
+   @BeforeEach
+   public void setUp() {
+      employeeRepo.deleteAll();
+      counts.rebuild();
+   }
+
+   @AfterEach
+   public void tearDown() {
+      employeeRepo.deleteAll();
+   }
+
+   private static Employee employee(String firstName, String lastName, String email) {
+      return Employee.builder().firstName(firstName).lastName(lastName).email(email).build();
+   }
+
+   private Map<String, Long> countedInTable(String groupBy) {
+      Map<String, Long> counted = new TreeMap<>();
+      jdbcTemplate.query("select " + groupBy + ", count(*) from employee group by " + groupBy,
+            row -> {
+               counted.put(row.getString(1), row.getLong(2));
+            });
+      return counted;
+   }
+
+   //JUnit test for every kind of write - the counts end up equal to grouping the table
+   @Test
+   public void givenWritesOfEveryKind_whenStatsRead_thenEqualToGroupingTheTable() {
+      //given - precondition or setup
+      Employee ashwin = employeeService.savedEmployee(employee("Ashwin", "Singh", "ashwin@example.com"));
+      employeeService.saveEmployees(List.of(employee("Raju", "Sharma", "raju@example.com"),
+            employee("Harshit", "Singh", "harshit@gmail.com"), employee("Tmp", "Tmp", "tmp1@temp.org"),
+            employee("Tmp", "Tmp", "tmp2@temp.org"), employee("Ram", "Sharma", "ram@example.com")));
+
+      //when - action or the behaviour that we are going to test
+      Employee loaded = employeeRepo.findById(ashwin.getId()).orElseThrow();
+      loaded.setLastName("Rathore");
+      employeeService.updateEmployee(loaded);
+      long raju = employeeRepo.findByEmail("raju@example.com").orElseThrow().getId();
+      employeeService.patchEmployee(raju, new EmployeePatch(null, null, "raju@GMAIL.com", null));
+      long ram = employeeRepo.findByEmail("ram@example.com").orElseThrow().getId();
+      employeeService.deleteEmployee(ram);
+      employeeService.deleteEmployeesMatching(new EmployeeSearch(EmployeeSearch.Field.LAST_NAME,
+            EmployeeSearch.Match.EXACT, false, "Tmp"));
+      EmployeeStats stats = employeeService.getEmployeeStats(0, List.of("Rathore", "Sharma", "Singh", "Tmp"),
+            List.of("EXAMPLE.com", "gmail.com", "temp.org"));
+
+      //then - verify the output
+      Assertions.assertThat(stats.getTotal()).isEqualTo(3);
+      Assertions.assertThat(stats.getByLastName()).containsAllEntriesOf(countedInTable("last_name"))
+            .containsOnly(Map.entry("Rathore", 1L), Map.entry("Sharma", 1L), Map.entry("Singh", 1L),
+                  Map.entry("Tmp", 0L));
+      Assertions.assertThat(stats.getByEmailDomain())
+            .containsOnly(Map.entry("example.com", 1L), Map.entry("gmail.com", 2L), Map.entry("temp.org", 0L));
+   }
+
+   //JUnit test for the breakdown - the largest counts first, a name whose count came back to 0 is gone
+   @Test
+   public void givenCounts_whenTopStatsRead_thenLargestFirstWithoutZeroCounts() {
+      //given - precondition or setup
+      employeeService.saveEmployees(List.of(employee("Ashwin", "Singh", "ashwin@example.com"),
+            employee("Harshit", "Singh", "harshit@gmail.com"), employee("Raju", "Sharma", "raju@example.com"),
+            employee("Ram", "Rathore", "ram@gmail.com"), employee("Tmp", "Tmp", "tmp@temp.org")));
+      employeeService.deleteEmployee(employeeRepo.findByEmail("tmp@temp.org").orElseThrow().getId());
+
+      //when - action or the behaviour that we are going to test
+      EmployeeStats top = employeeService.getEmployeeStats(2, List.of("Singh", "Tmp"), List.of());
+      EmployeeStats all = employeeService.getEmployeeStats(10, List.of(), List.of());
+
+      //then - verify the output
+      Assertions.assertThat(top.getByLastName()).containsExactly(Map.entry("Singh", 2L), Map.entry("Rathore", 1L),
+            Map.entry("Tmp", 0L));
+      Assertions.assertThat(top.getByEmailDomain()).containsExactly(Map.entry("example.com", 2L),
+            Map.entry("gmail.com", 2L));
+      Assertions.assertThat(all.getByLastName()).containsExactly(Map.entry("Singh", 2L), Map.entry("Rathore", 1L),
+            Map.entry("Sharma", 1L));
+      Assertions.assertThat(all.getByEmailDomain()).doesNotContainKey("temp.org");
+   }
+
+   //JUnit test for failed writes - a rejected update or patch rolls back and moves no count
+   @Test
+   public void givenDuplicateEmail_whenUpdateAndPatchFail_thenCountsUnchanged() {
+      //given - precondition or setup
+      employeeService.savedEmployee(employee("Ashwin", "Singh", "ashwin@example.com"));
+      Employee raju = employeeService.savedEmployee(employee("Raju", "Sharma", "raju@gmail.com"));
+      List<String> lastNames = List.of("Singh", "Sharma");
+      List<String> domains = List.of("example.com", "gmail.com");
+      EmployeeStats before = employeeService.getEmployeeStats(0, lastNames, domains);
+
+      //when - action or the behaviour that we are going to test
+      Employee loaded = employeeRepo.findById(raju.getId()).orElseThrow();
+      loaded.setLastName("Singh");
+      loaded.setEmail("ashwin@example.com");
+      org.junit.jupiter.api.Assertions.assertThrows(ResourceNotFoundException.class,
+            () -> employeeService.updateEmployee(loaded));
+      org.junit.jupiter.api.Assertions.assertThrows(ResourceNotFoundException.class,
+            () -> employeeService.patchEmployee(raju.getId(),
+                  new EmployeePatch(null, "Singh", "ashwin@example.com", null)));
+      EmployeeStats after = employeeService.getEmployeeStats(0, lastNames, domains);
+
+      //then - verify the output
+      Assertions.assertThat(after.getByLastName()).isEqualTo(before.getByLastName());
+      Assertions.assertThat(after.getByEmailDomain()).isEqualTo(before.getByEmailDomain());
+   }
+
+   //JUnit test for concurrent writes - creates and deletes of the same last name from many threads all count
+   @Test
+   public void givenConcurrentCreatesAndDeletes_whenStatsRead_thenEveryWriteCounted() throws Exception {
+      //given - precondition or setup
+      ExecutorService executor = Executors.newFixedThreadPool(8);
+
+      //when - action or the behaviour that we are going to test
+      try {
+         List<Future<?>> writes = IntStream.range(0, 200)
+               .mapToObj(i -> executor.submit(() -> {
+                  Employee saved = employeeService.savedEmployee(employee("E" + i, "Singh", "e" + i + "@example.com"));
+                  if (i % 4 == 0) {
+                     employeeService.deleteEmployee(saved.getId());
+                  }
+               }))
+               .<Future<?>>map(future -> future)
+               .toList();
+         for (Future<?> write : writes) {
+            write.get();
+         }
+      } finally {
+         executor.shutdown();
+      }
+
+      //then - verify the output
+      Assertions.assertThat(counts.total()).isEqualTo(150);
+      Assertions.assertThat(counts.countByLastName("Singh")).isEqualTo(150);
+      Assertions.assertThat(counts.countByEmailDomain("EXAMPLE.com")).isEqualTo(150);
+   }
+
+   //JUnit test for rebuild - rows written behind the service's back are counted by the next rebuild
+   @Test
+   public void givenRowInsertedWithSql_whenRebuild_thenCounted() {
+      //given - precondition or setup
+      jdbcTemplate.update("insert into employee (id, first_name, last_name, email, version) values (?, ?, ?, ?, 0)",
+            100_000L, "Ashwin", "Singh", "ashwin@example.com");
+      long beforeRebuild = counts.total();
+
+      //when - action or the behaviour that we are going to test
+      counts.rebuild();
+
+      //then - verify the output
+      Assertions.assertThat(beforeRebuild).isZero();
+      Assertions.assertThat(counts.total()).isEqualTo(1);
+      Assertions.assertThat(counts.countByLastName("Singh")).isEqualTo(1);
+   }
+
+   //JUnit test for email domains - lower-cased the same way whatever the default locale, "I" is not "ı" in Turkish
+   @Test
+   public void givenTurkishDefaultLocale_whenDomainCounted_thenLowerCasedIndependentlyOfLocale() {
+      //given - precondition or setup
+      Locale defaultLocale = Locale.getDefault();
+      Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+      try {
+         //when - action or the behaviour that we are going to test
+         employeeService.savedEmployee(employee("Ashwin", "Singh", "ashwin@MAIL.INFO"));
+
+         //then - verify the output
+         Assertions.assertThat(new EmployeeCountKey(1, "Singh", "a@MAIL.INFO").emailDomain()).isEqualTo("mail.info");
+         Assertions.assertThat(counts.countByEmailDomain("mail.info")).isEqualTo(1);
+         Assertions.assertThat(counts.countByEmailDomain("MAIL.INFO")).isEqualTo(1);
+      } finally {
+         Locale.setDefault(defaultLocale);
+      }
+   }
+}
@@ -0,0 +1,183 @@
+package com.springtesting.writebehind;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+
+import com.springtesting.dto.BatchItemResult;
+import com.springtesting.dto.WriteStatus;
+import com.springtesting.entities.Employee;
+import com.springtesting.exception.ResourceNotFoundException;
+import com.springtesting.exception.WriteQueueFullException;
+import com.springtesting.service.EmployeeService;
+
+public class EmployeeWriteBehindTest {
+
+   private EmployeeService employeeService;
+
+   private EmployeeWriteBehind writeBehind;
+
+   private final List<Integer> batchSizes = new ArrayList<>();
+
+   @BeforeEach
+   public void setUp() {
+      employeeService = Mockito.mock(EmployeeService.class);
+      // Creates every employee of the batch, ids follow the email numbers
+      BDDMockito.given(employeeService.saveEmployees(ArgumentMatchers.anyList())).willAnswer(invocation -> {
+         List<Employee> employees = invocation.getArgument(0);
+         synchronized (batchSizes) {
+            batchSizes.add(employees.size());
+         }
+         return IntStream.range(0, employees.size())
+               .mapToObj(i -> BatchItemResult.created(i, idOf(employees.get(i))))
+               .toList();
+      });
+   }
+
+   @AfterEach
+   public void tearDown() {
+      if (writeBehind != null) {
+         writeBehind.stop();
+      }
+   }
+
+   private EmployeeWriteBehind writeBehind(int queueCapacity, int batchSize, Duration flushInterval) {
+      writeBehind = new EmployeeWriteBehind(employeeService, queueCapacity, batchSize, flushInterval,
+            Duration.ofSeconds(5), Duration.ofMinutes(1));
+      return writeBehind;
+   }
+
+   private static Employee employee(int n) {
+      return Employee.builder()
+            .firstName("Ashwin")
+            .lastName("Singh")
+            .email("ashwin" + n + "@example.com")
+            .build();
+   }
+
+   private static long idOf(Employee employee) {
+      return Long.parseLong(employee.getEmail().replaceAll("\\D", ""));
+   }
+
+   @Test
+   public void givenQueuedCreates_whenStopped_thenAllAreWrittenInBatches() {
+
+      //given
+      EmployeeWriteBehind writeBehind = writeBehind(100, 4, Duration.ofSeconds(10));
+      writeBehind.start();
+      List<WriteStatus> queued = IntStream.rangeClosed(1, 10)
+            .mapToObj(n -> writeBehind.submit(employee(n)))
+            .toList();
+
+      //when
+      writeBehind.stop();
+
+      //then
+      Assertions.assertThat(queued).allMatch(status -> status.getState() == WriteStatus.State.QUEUED);
+      for (int n = 1; n <= 10; n++) {
+         WriteStatus status = writeBehind.status(queued.get(n - 1).getTrackingId()).orElseThrow();
+         Assertions.assertThat(status.getState()).isEqualTo(WriteStatus.State.CREATED);
+         Assertions.assertThat(status.getId()).isEqualTo(n);
+      }
+      Assertions.assertThat(batchSizes).allMatch(size -> size <= 4);
+      Assertions.assertThat(batchSizes.stream().mapToInt(Integer::intValue).sum()).isEqualTo(10);
+   }
+
+   @Test
+   public void givenQuietQueue_whenFlushIntervalPasses_thenPartialBatchIsWritten() throws InterruptedException {
+
+      //given
+      EmployeeWriteBehind writeBehind = writeBehind(100, 500, Duration.ofMillis(20));
+      writeBehind.start();
+
+      //when
+      String trackingId = writeBehind.submit(employee(7)).getTrackingId();
+
+      //then
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (writeBehind.status(trackingId).orElseThrow().getState() == WriteStatus.State.QUEUED
+            && System.nanoTime() < deadline) {
+         Thread.sleep(10);
+      }
+      Assertions.assertThat(writeBehind.status(trackingId).orElseThrow().getState())
+            .isEqualTo(WriteStatus.State.CREATED);
+      Assertions.assertThat(writeBehind.isRunning()).isTrue();
+   }
+
+   @Test
+   public void givenFullQueue_whenSubmit_thenWriteQueueFullException() throws InterruptedException {
+
+      //given - the writer is stuck on the first batch, the second create fills the queue
+      CountDownLatch writing = new CountDownLatch(1);
+      CountDownLatch release = new CountDownLatch(1);
+      BDDMockito.given(employeeService.saveEmployees(ArgumentMatchers.anyList())).willAnswer(invocation -> {
+         writing.countDown();
+         release.await();
+         return List.of(BatchItemResult.created(0, 1L));
+      });
+      EmployeeWriteBehind writeBehind = writeBehind(1, 1, Duration.ofMillis(10));
+      writeBehind.start();
+      writeBehind.submit(employee(1));
+      Assertions.assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+      writeBehind.submit(employee(2));
+
+      //when //then
+      Assertions.assertThatThrownBy(() -> writeBehind.submit(employee(3)))
+            .isInstanceOf(WriteQueueFullException.class);
+      release.countDown();
+   }
+
+   @Test
+   public void givenStoppedWriter_whenSubmit_thenWriteQueueFullException() {
+
+      //given
+      EmployeeWriteBehind writeBehind = writeBehind(100, 10, Duration.ofMillis(10));
+      writeBehind.start();
+      writeBehind.stop();
+
+      //when //then
+      Assertions.assertThatThrownBy(() -> writeBehind.submit(employee(1)))
+            .isInstanceOf(WriteQueueFullException.class);
+   }
+
+   @Test
+   public void givenFailingBatch_whenWritten_thenEachCreateIsRetriedAlone() {
+
+      //given - one duplicate email fails the batch transaction
+      BDDMockito.given(employeeService.saveEmployees(ArgumentMatchers.anyList()))
+            .willThrow(new IllegalStateException("constraint violation"));
+      BDDMockito.given(employeeService.savedEmployee(ArgumentMatchers.any(Employee.class))).willAnswer(invocation -> {
+         Employee employee = invocation.getArgument(0);
+         if (idOf(employee) == 2) {
+            throw new ResourceNotFoundException("Employee already exists!!");
+         }
+         employee.setId(idOf(employee));
+         return employee;
+      });
+      EmployeeWriteBehind writeBehind = writeBehind(100, 10, Duration.ofSeconds(10));
+      writeBehind.start();
+      String first = writeBehind.submit(employee(1)).getTrackingId();
+      String second = writeBehind.submit(employee(2)).getTrackingId();
+
+      //when
+      writeBehind.stop();
+
+      //then
+      Assertions.assertThat(writeBehind.status(first).orElseThrow().getState()).isEqualTo(WriteStatus.State.CREATED);
+      Assertions.assertThat(writeBehind.status(first).orElseThrow().getId()).isEqualTo(1L);
+      Assertions.assertThat(writeBehind.status(second).orElseThrow().getState())
+            .isEqualTo(WriteStatus.State.DUPLICATE);
+      Mockito.verify(employeeService, Mockito.times(2)).savedEmployee(ArgumentMatchers.any(Employee.class));
+   }
+}